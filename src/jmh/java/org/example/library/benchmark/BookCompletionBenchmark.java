@@ -0,0 +1,108 @@
+package org.example.library.benchmark;
+
+import org.example.library.lib.CompletionIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the autocomplete of the titles and authors, over a synthetic catalog with Zipf distributed title words
+ * and stock.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+@State(Scope.Benchmark)
+public class BookCompletionBenchmark {
+    /**
+     * The number of distinct title words.
+     */
+    private static final int WORDS = 50_000;
+
+    /**
+     * The number of titles and authors indexed.
+     */
+    @Param({"10000000"})
+    private int entries;
+
+    /**
+     * The dictionary under test.
+     */
+    private CompletionIndex dictionary;
+
+    /**
+     * Indexes the synthetic catalog, and prints the memory of the dictionary.
+     */
+    @Setup
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(42);
+        CompletionIndex.Builder builder = new CompletionIndex.Builder();
+        StringBuilder title = new StringBuilder();
+        for (int i = 0; i < this.entries / 2; i++) {
+            title.setLength(0);
+            for (int words = 1 + random.nextInt(5); words > 0; words--) {
+                title.append(title.isEmpty() ? "" : " ").append(word(zipf(random, WORDS)));
+            }
+            int stock = zipf(random, 1000);
+            builder.add(title.toString(), 0, stock);
+            builder.add("Author" + i + " Family" + zipf(random, 1000), 1, stock);
+        }
+        this.dictionary = builder.build();
+        System.out.printf("%n%d titles and authors, %d bytes%n", this.dictionary.size(), this.dictionary.bytes());
+    }
+
+    /**
+     * Completes a single letter, the prefix of millions of texts.
+     *
+     * @return the completions
+     */
+    @Benchmark
+    public List<CompletionIndex.Completion> oneLetter() {
+        return this.dictionary.complete("W", 10);
+    }
+
+    /**
+     * Completes a common word being typed.
+     *
+     * @return the completions
+     */
+    @Benchmark
+    public List<CompletionIndex.Completion> wordBeingTyped() {
+        return this.dictionary.complete(word(20).substring(0, 2), 10);
+    }
+
+    /**
+     * Completes a title being typed after its first word.
+     *
+     * @return the completions
+     */
+    @Benchmark
+    public List<CompletionIndex.Completion> secondWord() {
+        return this.dictionary.complete(word(3) + " w", 10);
+    }
+
+    /**
+     * Gets a word of the vocabulary, capitalized as in a title.
+     *
+     * @param rank the rank of the word, 1 for the most common
+     * @return the word
+     */
+    private static String word(int rank) {
+        return "W" + Integer.toString(rank, 36);
+    }
+
+    /**
+     * Draws a rank from an approximate Zipf distribution of exponent 1.
+     *
+     * @param random the random generator
+     * @param n      the number of ranks
+     * @return the rank, from 1 to n
+     */
+    private static int zipf(SplittableRandom random, int n) {
+        return (int) Math.min(n, Math.floor(Math.exp(random.nextDouble() * Math.log(n + 1))));
+    }
+}
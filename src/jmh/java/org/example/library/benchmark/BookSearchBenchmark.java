@@ -0,0 +1,109 @@
+package org.example.library.benchmark;
+
+import org.example.library.lib.InvertedIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the ranked full-text search of the books, over a synthetic catalog with Zipf distributed title words.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+@State(Scope.Benchmark)
+public class BookSearchBenchmark {
+    /**
+     * The number of distinct title words.
+     */
+    private static final int WORDS = 50_000;
+
+    /**
+     * The number of distinct authors.
+     */
+    private static final int AUTHORS = 20_000;
+
+    /**
+     * The number of books indexed.
+     */
+    @Param({"1000000"})
+    private int books;
+
+    /**
+     * The index under test.
+     */
+    private InvertedIndex index;
+
+    /**
+     * Indexes the synthetic catalog.
+     */
+    @Setup
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(42);
+        InvertedIndex.Builder builder = new InvertedIndex.Builder(1.2f, 0.75f, 2, 1);
+        StringBuilder title = new StringBuilder();
+        for (int id = 1; id <= this.books; id++) {
+            title.setLength(0);
+            for (int words = 1 + random.nextInt(5); words > 0; words--) {
+                title.append(word(zipf(random, WORDS))).append(' ');
+            }
+            int author = zipf(random, AUTHORS);
+            builder.add(new InvertedIndex.Document(id, random.nextInt(8), title.toString(), "Author" + author + " Family" + author % 1000));
+        }
+        this.index = builder.build();
+    }
+
+    /**
+     * Searches a rare word.
+     *
+     * @return the result
+     */
+    @Benchmark
+    public InvertedIndex.Result rareWord() {
+        return this.index.search(word(20_000), -1, 20, 1000);
+    }
+
+    /**
+     * Searches two of the most common words, reading the longest postings lists.
+     *
+     * @return the result
+     */
+    @Benchmark
+    public InvertedIndex.Result commonWords() {
+        return this.index.search(word(1) + " " + word(2), -1, 20, 1000);
+    }
+
+    /**
+     * Searches a word and an author in a genre.
+     *
+     * @return the result
+     */
+    @Benchmark
+    public InvertedIndex.Result wordAndAuthorInGenre() {
+        return this.index.search(word(100) + " family7", 3, 20, 1000);
+    }
+
+    /**
+     * Gets a word of the vocabulary.
+     *
+     * @param rank the rank of the word, 1 for the most common
+     * @return the word
+     */
+    private static String word(int rank) {
+        return "w" + Integer.toString(rank, 36);
+    }
+
+    /**
+     * Draws a rank from an approximate Zipf distribution of exponent 1.
+     *
+     * @param random the random generator
+     * @param n      the number of ranks
+     * @return the rank, from 1 to n
+     */
+    private static int zipf(SplittableRandom random, int n) {
+        return (int) Math.min(n, Math.floor(Math.exp(random.nextDouble() * Math.log(n + 1))));
+    }
+}
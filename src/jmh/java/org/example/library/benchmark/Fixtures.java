@@ -0,0 +1,65 @@
+package org.example.library.benchmark;
+
+import org.example.library.entity.Book;
+import org.example.library.entity.Genre;
+import org.example.library.entity.Location;
+import org.example.library.entity.Role;
+import org.example.library.entity.User;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+/**
+ * Entities shared by the benchmarks.
+ */
+final class Fixtures {
+    private Fixtures() {
+    }
+
+    /**
+     * Creates a book.
+     *
+     * @param id the id of the book
+     * @return the book
+     */
+    static Book book(long id) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle("The Pragmatic Programmer " + id);
+        book.setAuthor("Andrew Hunt");
+        book.setGenre(Genre.FICTION);
+        book.setIsbn(isbn13(id));
+        book.setPublicationDate(LocalDate.of(1999, 10, 20));
+        return book;
+    }
+
+    /**
+     * Creates the ISBN-13 of a book, with its check digit.
+     *
+     * @param id the id of the book, below 10^9
+     * @return the ISBN
+     */
+    private static String isbn13(long id) {
+        String digits = "978" + String.format("%09d", id);
+        int sum = 0;
+        for (int i = 0; i < digits.length(); i++) {
+            sum += (digits.charAt(i) - '0') * (i % 2 == 0 ? 1 : 3);
+        }
+        return digits + (10 - sum % 10) % 10;
+    }
+
+    /**
+     * Creates a location with its manager.
+     *
+     * @param id the id of the location
+     * @return the location
+     */
+    static Location location(long id) {
+        Location location = new Location();
+        location.setId(id);
+        location.setName("Store " + id);
+        location.setAddress("Via Roma " + id + ", Milano");
+        location.setManager(new User(id, "manager" + id, "manager" + id + "@example.org", "{bcrypt}hash", Set.of(Role.USER, Role.ADMIN)));
+        return location;
+    }
+}
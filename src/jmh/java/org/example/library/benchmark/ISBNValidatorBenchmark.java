@@ -0,0 +1,74 @@
+package org.example.library.benchmark;
+
+import org.example.library.validator.ISBNParser;
+import org.example.library.validator.ISBNValidator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the ISBN validation run on every book creation and update, and of the parsing of the ISBNs into their
+ * ISBN-13 key run on every lookup by ISBN.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ISBNValidatorBenchmark {
+    /**
+     * The validator under test.
+     */
+    private final ISBNValidator validator = new ISBNValidator();
+
+    /**
+     * Validates a formatted ISBN-13.
+     *
+     * @return whether the ISBN is valid
+     */
+    @Benchmark
+    public boolean isbn13Formatted() {
+        return this.validator.isValid("978-0-13-468599-1", null);
+    }
+
+    /**
+     * Validates an unformatted ISBN-13.
+     *
+     * @return whether the ISBN is valid
+     */
+    @Benchmark
+    public boolean isbn13Plain() {
+        return this.validator.isValid("9780134685991", null);
+    }
+
+    /**
+     * Validates a formatted ISBN-10.
+     *
+     * @return whether the ISBN is valid
+     */
+    @Benchmark
+    public boolean isbn10Formatted() {
+        return this.validator.isValid("0-306-40615-2", null);
+    }
+
+    /**
+     * Rejects an ISBN-13 with a wrong check digit.
+     *
+     * @return whether the ISBN is valid
+     */
+    @Benchmark
+    public boolean isbn13InvalidCheckDigit() {
+        return this.validator.isValid("978-0-13-468599-2", null);
+    }
+
+    /**
+     * Parses a formatted ISBN-10 into the ISBN-13 of the same book.
+     *
+     * @return the ISBN-13 key
+     */
+    @Benchmark
+    public long parseIsbn10() {
+        return ISBNParser.parse("0-306-40615-2");
+    }
+}
@@ -0,0 +1,72 @@
+package org.example.library.benchmark;
+
+import org.example.library.entity.Role;
+import org.example.library.entity.User;
+import org.example.library.security.JwtTokenProvider;
+import org.example.library.security.UserDetailsImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the JWT generation (login) and verification (every authenticated request).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtTokenProviderBenchmark {
+    /**
+     * A 512 bits secret, as required by the HS512 signature.
+     */
+    private static final String SECRET = "benchmark-secret-benchmark-secret-benchmark-secret-benchmark-secret";
+
+    /**
+     * The token provider under test.
+     */
+    private JwtTokenProvider tokenProvider;
+
+    /**
+     * The user the tokens are generated for.
+     */
+    private UserDetailsImpl userDetails;
+
+    /**
+     * A valid token of the user.
+     */
+    private String token;
+
+    /**
+     * Creates the token provider and a valid token.
+     */
+    @Setup
+    public void setup() {
+        this.tokenProvider = new JwtTokenProvider(SECRET, 3_600_000);
+        this.userDetails = new UserDetailsImpl(new User(1L, "manager", "manager@example.org", "{bcrypt}hash", Set.of(Role.USER)));
+        this.token = this.tokenProvider.generateToken(this.userDetails);
+    }
+
+    /**
+     * Generates and signs a token.
+     *
+     * @return the token
+     */
+    @Benchmark
+    public String generateToken() {
+        return this.tokenProvider.generateToken(this.userDetails);
+    }
+
+    /**
+     * Verifies a token and extracts its subject.
+     *
+     * @return the username
+     */
+    @Benchmark
+    public Optional<String> getUsernameFromJWT() {
+        return this.tokenProvider.getUsernameFromJWT(this.token);
+    }
+}
@@ -0,0 +1,91 @@
+package org.example.library.benchmark;
+
+import org.example.library.dto.BookDTO.BookEDTO;
+import org.example.library.dto.LocationDTO.LocationEDTO;
+import org.example.library.entity.Book;
+import org.example.library.entity.Location;
+import org.example.library.mapper.BookMapper;
+import org.example.library.mapper.LocationMapper;
+import org.example.library.security.UserDetailsImpl;
+import org.mapstruct.factory.Mappers;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the entity to DTO mappers and of the authorities computed on every authenticated request.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MapperBenchmark {
+    /**
+     * The book mapper under test.
+     */
+    private final BookMapper bookMapper = Mappers.getMapper(BookMapper.class);
+
+    /**
+     * The location mapper under test.
+     */
+    private final LocationMapper locationMapper = Mappers.getMapper(LocationMapper.class);
+
+    /**
+     * The book to map.
+     */
+    private Book book;
+
+    /**
+     * The location to map.
+     */
+    private Location location;
+
+    /**
+     * The user whose authorities are computed.
+     */
+    private UserDetailsImpl userDetails;
+
+    /**
+     * Creates the entities.
+     */
+    @Setup
+    public void setup() {
+        this.book = Fixtures.book(1L);
+        this.location = Fixtures.location(1L);
+        this.userDetails = new UserDetailsImpl(this.location.getManager());
+    }
+
+    /**
+     * Maps a book to its DTO.
+     *
+     * @return the DTO
+     */
+    @Benchmark
+    public BookEDTO bookToEDto() {
+        return this.bookMapper.toEDto(this.book);
+    }
+
+    /**
+     * Maps a location to its DTO.
+     *
+     * @return the DTO
+     */
+    @Benchmark
+    public LocationEDTO locationToEDto() {
+        return this.locationMapper.toEDto(this.location);
+    }
+
+    /**
+     * Computes the authorities of a user.
+     *
+     * @return the authorities
+     */
+    @Benchmark
+    public Collection<GrantedAuthority> userDetailsGetAuthorities() {
+        return this.userDetails.getAuthorities();
+    }
+}
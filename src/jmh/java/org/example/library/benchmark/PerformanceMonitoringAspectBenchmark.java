@@ -0,0 +1,109 @@
+package org.example.library.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.library.aspect.PerformanceMonitoringAspect;
+import org.example.library.controller.BookController;
+import org.example.library.dto.BookDTO.BookEDTO;
+import org.example.library.invalidation.InvalidationPublisher;
+import org.example.library.jfr.ContinuousRecording;
+import org.example.library.mapper.BookMapper;
+import org.example.library.metrics.BookCompletionMetrics;
+import org.example.library.metrics.BookSearchMetrics;
+import org.example.library.metrics.InvalidationMetrics;
+import org.example.library.metrics.PerformanceMetrics;
+import org.example.library.metrics.QueryCacheMetrics;
+import org.example.library.metrics.SingleFlightMetrics;
+import org.example.library.repository.BookRepository;
+import org.example.library.service.BookCompletionService;
+import org.example.library.service.BookSearchService;
+import org.example.library.service.BookService;
+import org.example.library.service.ChangeFeedService;
+import org.mapstruct.factory.Mappers;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.NonNull;
+import org.springframework.util.unit.DataSize;
+
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the overhead added by the {@link PerformanceMonitoringAspect} to every controller call.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PerformanceMonitoringAspectBenchmark {
+    /**
+     * The controller without the aspect.
+     */
+    private BookController controller;
+
+    /**
+     * The controller proxied with the aspect.
+     */
+    private BookController advisedController;
+
+    /**
+     * Creates a controller backed by an in-memory book service, with and without the aspect.
+     */
+    @Setup
+    public void setup() {
+        BookMapper bookMapper = Mappers.getMapper(BookMapper.class);
+        BookEDTO book = bookMapper.toEDto(Fixtures.book(1L));
+        // The repository is never called, the service answers from memory so that only the aspect is measured.
+        BookRepository bookRepository = (BookRepository) Proxy.newProxyInstance(BookRepository.class.getClassLoader(),
+                new Class<?>[]{BookRepository.class}, (proxy, method, args) -> {
+                    throw new UnsupportedOperationException();
+                });
+        BookService bookService = new BookService(bookRepository, bookMapper, 0, new SingleFlightMetrics(new SimpleMeterRegistry()),
+                0, 0, 0, new QueryCacheMetrics(new SimpleMeterRegistry()),
+                new InvalidationPublisher(false, "library_invalidation", new JdbcTemplate(), new InvalidationMetrics(new SimpleMeterRegistry())),
+                new ChangeFeedService(null, new JdbcTemplate(), Duration.ZERO, 0, 0), new JdbcTemplate(),
+                new BookSearchService(1.2f, 0.75f, 2, 1, 1000, 5000, 3600000, 10000, 1, new JdbcTemplate(), null,
+                        new BookSearchMetrics(new SimpleMeterRegistry()))) {
+            @Override
+            public @NonNull Optional<BookEDTO> getBookById(@NonNull Long id) {
+                return Optional.of(book);
+            }
+        };
+        this.controller = new BookController(bookService, new BookCompletionService(20, 600000, 10000, 1_000_000, new JdbcTemplate(), null,
+                new BookCompletionMetrics(new SimpleMeterRegistry())));
+
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(this.controller);
+        proxyFactory.setProxyTargetClass(true);
+        // The recording is disabled, only the threshold check of the slow calls is measured.
+        ContinuousRecording recording = new ContinuousRecording(false, "default", Duration.ZERO, DataSize.ofBytes(0),
+                Path.of(System.getProperty("java.io.tmpdir")), 0, 2000, Duration.ZERO, Duration.ZERO);
+        proxyFactory.addAspect(new PerformanceMonitoringAspect(new PerformanceMetrics(new SimpleMeterRegistry()), recording));
+        this.advisedController = proxyFactory.getProxy();
+    }
+
+    /**
+     * Calls the controller directly.
+     *
+     * @return the response
+     */
+    @Benchmark
+    public ResponseEntity<BookEDTO> direct() {
+        return this.controller.getBookById(1L);
+    }
+
+    /**
+     * Calls the controller through the aspect.
+     *
+     * @return the response
+     */
+    @Benchmark
+    public ResponseEntity<BookEDTO> advised() {
+        return this.advisedController.getBookById(1L);
+    }
+}
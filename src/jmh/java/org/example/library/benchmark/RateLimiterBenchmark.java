@@ -0,0 +1,123 @@
+package org.example.library.benchmark;
+
+import org.example.library.config.RateLimitProperties;
+import org.example.library.security.RateLimiter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the hot path of the rate limiter (rule matching and token consumption) under contention, with a thread
+ * per available processor.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(Threads.MAX)
+@State(Scope.Benchmark)
+public class RateLimiterBenchmark {
+    /**
+     * The number of distinct clients.
+     */
+    private static final int CLIENTS = 10_000;
+
+    /**
+     * The rate limiter under test.
+     */
+    private RateLimiter rateLimiter;
+
+    /**
+     * The rule matching the benchmarked request.
+     */
+    private RateLimiter.Rule rule;
+
+    /**
+     * The keys of the clients.
+     */
+    private String[] clients;
+
+    /**
+     * Creates a rate limiter whose buckets never run out during the benchmark.
+     */
+    @Setup
+    public void setup() {
+        RateLimitProperties properties = new RateLimitProperties(true, 100_000, Duration.ofMinutes(10), List.of(
+                new RateLimitProperties.Rule("/api/auth/login", "POST", 10, Duration.ofMinutes(1), true),
+                new RateLimitProperties.Rule("/api/**", null, 1_000_000_000, Duration.ofMillis(1), false)));
+        this.rateLimiter = new RateLimiter(properties);
+        this.rule = this.rateLimiter.match(request());
+        this.clients = new String[CLIENTS];
+        for (int i = 0; i < CLIENTS; i++) {
+            this.clients[i] = this.rule.clientKey("user-" + i, "10.0.0.1");
+        }
+    }
+
+    /**
+     * Creates a request to the catalog, as seen by the filters behind the dispatcher servlet.
+     *
+     * @return the request
+     */
+    private static MockHttpServletRequest request() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/books");
+        request.setServletPath("/api/books");
+        request.setRemoteAddr("10.0.0.1");
+        return request;
+    }
+
+    /**
+     * A request of the benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class ThreadState {
+        /**
+         * The request sent by the thread.
+         */
+        private MockHttpServletRequest request;
+
+        /**
+         * Creates the request of the thread.
+         */
+        @Setup
+        public void setup() {
+            this.request = request();
+        }
+    }
+
+    /**
+     * All threads consume tokens from the same bucket.
+     *
+     * @return the tokens left
+     */
+    @Benchmark
+    public long consumeSameClient() {
+        return this.rule.tryConsume(this.clients[0], System.nanoTime());
+    }
+
+    /**
+     * Threads consume tokens from the buckets of random clients.
+     *
+     * @return the tokens left
+     */
+    @Benchmark
+    public long consumeRandomClient() {
+        return this.rule.tryConsume(this.clients[ThreadLocalRandom.current().nextInt(CLIENTS)], System.nanoTime());
+    }
+
+    /**
+     * The full hot path of the filter: rule matching, client key and token consumption.
+     *
+     * @param state the state of the thread
+     * @return the tokens left
+     */
+    @Benchmark
+    public long matchAndConsume(ThreadState state) {
+        RateLimiter.Rule matched = this.rateLimiter.match(state.request);
+        return matched.tryConsume(matched.clientKey("user-1", state.request.getRemoteAddr()), System.nanoTime());
+    }
+}
@@ -0,0 +1,88 @@
+package org.example.library.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.example.library.dto.BookDTO.BookEDTO;
+import org.example.library.lib.Tuple;
+import org.example.library.mapper.BookMapper;
+import org.mapstruct.factory.Mappers;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.web.PagedModel;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * Benchmarks of the JSON serialization of the catalog and inventory pages, as written by the controllers (pages are
+ * serialized through {@link PagedModel}, see the VIA_DTO mode of {@code LibraryApplication}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+    /**
+     * The number of elements of a page, the default page size of the controllers.
+     */
+    private static final int PAGE_SIZE = 20;
+
+    /**
+     * The object mapper, configured like the one of Spring Boot.
+     */
+    private final ObjectMapper objectMapper = JsonMapper.builder()
+            .findAndAddModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    /**
+     * A page of books.
+     */
+    private PagedModel<BookEDTO> books;
+
+    /**
+     * A page of books with their quantities.
+     */
+    private PagedModel<Tuple<BookEDTO, Integer>> booksWithQuantities;
+
+    /**
+     * Creates the pages.
+     */
+    @Setup
+    public void setup() {
+        BookMapper bookMapper = Mappers.getMapper(BookMapper.class);
+        List<BookEDTO> content = LongStream.range(0, PAGE_SIZE).mapToObj(Fixtures::book).map(bookMapper::toEDto).toList();
+        Page<BookEDTO> page = new PageImpl<>(content, PageRequest.of(0, PAGE_SIZE), 10_000);
+        this.books = new PagedModel<>(page);
+        this.booksWithQuantities = new PagedModel<>(page.map(book -> new Tuple<>(book, 42)));
+    }
+
+    /**
+     * Serializes a page of books.
+     *
+     * @return the JSON
+     * @throws JsonProcessingException if the serialization fails
+     */
+    @Benchmark
+    public byte[] pageOfBooks() throws JsonProcessingException {
+        return this.objectMapper.writeValueAsBytes(this.books);
+    }
+
+    /**
+     * Serializes a page of books with their quantities.
+     *
+     * @return the JSON
+     * @throws JsonProcessingException if the serialization fails
+     */
+    @Benchmark
+    public byte[] pageOfBooksWithQuantities() throws JsonProcessingException {
+        return this.objectMapper.writeValueAsBytes(this.booksWithQuantities);
+    }
+}
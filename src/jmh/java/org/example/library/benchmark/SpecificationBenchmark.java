@@ -0,0 +1,98 @@
+package org.example.library.benchmark;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.example.library.entity.Book;
+import org.example.library.entity.BookCopy;
+import org.example.library.entity.Location;
+import org.example.library.entity.User;
+import org.example.library.lib.SpecificationComposer;
+import org.example.library.specification.BookSpecification;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the construction of the catalog search predicates. The criteria builder is the one of Hibernate,
+ * bootstrapped without a database connection.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SpecificationBenchmark {
+    /**
+     * The session factory providing the criteria builder.
+     */
+    private SessionFactory sessionFactory;
+
+    /**
+     * The criteria builder.
+     */
+    private CriteriaBuilder criteriaBuilder;
+
+    /**
+     * Bootstraps Hibernate with the entities of the application.
+     */
+    @Setup
+    public void setup() {
+        StandardServiceRegistry registry = new StandardServiceRegistryBuilder()
+                .applySetting("hibernate.dialect", PostgreSQLDialect.class.getName())
+                .applySetting("hibernate.boot.allow_jdbc_metadata_access", false)
+                .build();
+        this.sessionFactory = new MetadataSources(registry)
+                .addAnnotatedClass(Book.class)
+                .addAnnotatedClass(BookCopy.class)
+                .addAnnotatedClass(Location.class)
+                .addAnnotatedClass(User.class)
+                .buildMetadata()
+                .buildSessionFactory();
+        this.criteriaBuilder = this.sessionFactory.getCriteriaBuilder();
+    }
+
+    /**
+     * Closes the session factory.
+     */
+    @TearDown
+    public void tearDown() {
+        this.sessionFactory.close();
+    }
+
+    /**
+     * Composes the title and author specifications and builds their predicate, as done by the search endpoint.
+     *
+     * @return the predicate
+     */
+    @Benchmark
+    public Predicate titleAndAuthor() {
+        Specification<Book> specification = SpecificationComposer.and(
+                BookSpecification.titleLike("pragmatic"),
+                BookSpecification.authorLike("hunt"));
+        CriteriaQuery<Book> query = this.criteriaBuilder.createQuery(Book.class);
+        Root<Book> root = query.from(Book.class);
+        return specification.toPredicate(root, query, this.criteriaBuilder);
+    }
+
+    /**
+     * Builds the predicate of a single specification, as a baseline for the composition.
+     *
+     * @return the predicate
+     */
+    @Benchmark
+    public Predicate titleOnly() {
+        Specification<Book> specification = BookSpecification.titleLike("pragmatic");
+        CriteriaQuery<Book> query = this.criteriaBuilder.createQuery(Book.class);
+        Root<Book> root = query.from(Book.class);
+        return specification.toPredicate(root, query, this.criteriaBuilder);
+    }
+}
@@ -0,0 +1,174 @@
+package org.example.library.benchmark;
+
+import org.example.library.entity.Role;
+import org.example.library.entity.User;
+import org.example.library.security.JwtTokenProvider;
+import org.example.library.security.UserDetailsImpl;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.config.YamlPropertiesFactoryBean;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the time from the launch of the application to its first served request, with and without the
+ * fast-startup optimizations (AOT and CDS).
+ * <p>
+ * It launches the jar extracted by the fast-startup Maven profile against the local database, which must be migrated
+ * and contain the user the first request is authenticated as (e.g. the ones seeded by the load test):
+ * <pre>
+ * mvn -Pfast-startup,benchmark -DskipTests verify -Dbenchmark.include=Startup [-Dstartup.username=user-1]
+ * </pre>
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StartupBenchmark {
+    /**
+     * The port the application is launched on.
+     */
+    private static final int PORT = 18081;
+
+    /**
+     * The maximum time to wait for the application.
+     */
+    private static final Duration TIMEOUT = Duration.ofMinutes(2);
+
+    /**
+     * The startup mode: default (Liquibase validation, runtime scanning and OpenAPI), fast-startup (AOT, no migrations,
+     * static OpenAPI document) or fast-startup-cds (the same with the CDS archive).
+     */
+    @Param({"default", "fast-startup", "fast-startup-cds"})
+    public String mode;
+
+    /**
+     * The command launching the application.
+     */
+    private List<String> command;
+
+    /**
+     * The first request, to an endpoint reading the database.
+     */
+    private HttpRequest request;
+
+    /**
+     * The client sending the first request.
+     */
+    private HttpClient client;
+
+    /**
+     * The running application.
+     */
+    private Process process;
+
+    /**
+     * Builds the command for the mode and the first request.
+     *
+     * @throws IOException if the extracted jar cannot be found
+     */
+    @Setup
+    public void setup() throws IOException {
+        Path directory = Path.of(System.getProperty("startup.directory", "target/fast-startup"));
+        Path jar;
+        try (var files = Files.list(directory)) {
+            jar = files.filter(file -> file.toString().endsWith(".jar")).findFirst()
+                    .orElseThrow(() -> new IllegalStateException("No jar in " + directory + ", build with -Pfast-startup"));
+        }
+
+        this.command = new ArrayList<>(List.of(Path.of(System.getProperty("java.home"), "bin", "java").toString()));
+        if (this.mode.equals("fast-startup-cds")) {
+            this.command.add("-XX:SharedArchiveFile=" + directory.resolve("library.jsa"));
+        }
+        if (!this.mode.equals("default")) {
+            this.command.add("-Dspring.aot.enabled=true");
+        }
+        this.command.addAll(List.of("-jar", jar.toString(), "--server.port=" + PORT));
+        if (!this.mode.equals("default")) {
+            this.command.add("--spring.profiles.active=fast-startup");
+        }
+
+        YamlPropertiesFactoryBean yaml = new YamlPropertiesFactoryBean();
+        yaml.setResources(new ClassPathResource("application.yml"));
+        Properties application = yaml.getObject();
+        JwtTokenProvider tokenProvider = new JwtTokenProvider(application.getProperty("app.jwt.secret"), Duration.ofDays(1).toMillis());
+        String username = System.getProperty("startup.username", "user-1");
+        String token = tokenProvider.generateToken(new UserDetailsImpl(new User(null, username, null, null, Set.of(Role.USER))));
+
+        this.client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        this.request = HttpRequest.newBuilder(URI.create("http://localhost:" + PORT + "/api/books?size=1"))
+                .header("Authorization", "Bearer " + token)
+                .timeout(TIMEOUT)
+                .build();
+    }
+
+    /**
+     * Launches the application and sends requests until the first one is served.
+     *
+     * @return the status of the first served request
+     * @throws Exception if the application does not serve the request in time
+     */
+    @Benchmark
+    public int timeToFirstRequest() throws Exception {
+        this.process = new ProcessBuilder(this.command)
+                .redirectErrorStream(true)
+                .redirectOutput(new File(System.getProperty("java.io.tmpdir"), "startup-benchmark.log"))
+                .start();
+
+        try {
+            long deadline = System.nanoTime() + TIMEOUT.toNanos();
+            while (System.nanoTime() < deadline) {
+                if (!this.process.isAlive()) {
+                    throw new IllegalStateException("The application exited with " + this.process.exitValue());
+                }
+                try {
+                    int status = this.client.send(this.request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                    if (status != 200) {
+                        throw new IllegalStateException("The first request failed with " + status + ", does the user exist?");
+                    }
+                    return status;
+                } catch (ConnectException e) {
+                    // Not listening yet.
+                    Thread.sleep(5);
+                }
+            }
+            throw new IllegalStateException("The application did not start in " + TIMEOUT);
+        } catch (Exception e) {
+            // JMH does not tear down the invocation of a failed benchmark, do not leave the application running.
+            stop();
+            throw e;
+        }
+    }
+
+    /**
+     * Stops the application.
+     *
+     * @throws InterruptedException if interrupted while waiting for the application to exit
+     */
+    @TearDown(Level.Invocation)
+    public void stop() throws InterruptedException {
+        if (this.process != null) {
+            this.process.destroy();
+            if (!this.process.waitFor(30, TimeUnit.SECONDS)) {
+                this.process.destroyForcibly().waitFor();
+            }
+            this.process = null;
+        }
+    }
+}
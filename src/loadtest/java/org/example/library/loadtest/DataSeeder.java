@@ -0,0 +1,208 @@
+package org.example.library.loadtest;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Seeds the database with a synthetic dataset. Rows are streamed with COPY, which loads millions of books in seconds
+ * where batched inserts through the API or JPA would take hours.
+ */
+final class DataSeeder {
+    /**
+     * The number of characters buffered before they are sent to the database.
+     */
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    /**
+     * The password of all the seeded users.
+     */
+    static final String PASSWORD = "loadtest";
+
+    /**
+     * The connection to the database.
+     */
+    private final Connection connection;
+
+    /**
+     * The configuration of the load test.
+     */
+    private final LoadTest.Config config;
+
+    /**
+     * Creates a new seeder.
+     *
+     * @param connection the connection to the database
+     * @param config     the configuration of the load test
+     */
+    DataSeeder(Connection connection, LoadTest.Config config) {
+        this.connection = connection;
+        this.config = config;
+    }
+
+    /**
+     * Replaces the content of the database with a synthetic dataset.
+     *
+     * @throws SQLException if the dataset cannot be written
+     */
+    void seed() throws SQLException {
+        SplittableRandom random = new SplittableRandom(this.config.seed());
+        String now = LocalDateTime.now().toString();
+
+        try (Statement statement = this.connection.createStatement()) {
+            statement.execute("TRUNCATE book_copies, user_roles, locations, users, books RESTART IDENTITY CASCADE");
+        }
+
+        // Books, with Zipf distributed title words and authors.
+        long start = System.nanoTime();
+        SyntheticCatalog catalog = new SyntheticCatalog(this.config.books());
+        try (Rows rows = new Rows("COPY books (id, title, author, genre, isbn, isbn13, publication_date, created_date, created_by) FROM STDIN")) {
+            for (long id = 1; id <= this.config.books(); id++) {
+                String isbn = SyntheticCatalog.isbn(id);
+                rows.add(id, catalog.title(random), catalog.author(random), catalog.genre(random),
+                        isbn, Long.parseLong(isbn), catalog.publicationDate(random), now, "loadtest");
+            }
+        }
+        log("books", this.config.books(), start);
+
+        // Users, plus one manager per location. All of them share the same password, hashed once.
+        start = System.nanoTime();
+        String password = "{bcrypt}" + new BCryptPasswordEncoder(this.config.bcryptStrength()).encode(PASSWORD);
+        long userCount = this.config.users() + this.config.locations();
+        try (Rows rows = new Rows("COPY users (id, username, email, password, created_date, created_by) FROM STDIN")) {
+            for (long id = 1; id <= userCount; id++) {
+                String username = username(id, this.config.users());
+                rows.add(id, username, username + "@loadtest.example", password, now, "loadtest");
+            }
+        }
+        try (Rows rows = new Rows("COPY user_roles (user_id, role) FROM STDIN")) {
+            for (long id = 1; id <= userCount; id++) {
+                rows.add(id, "USER");
+            }
+        }
+        log("users", userCount, start);
+
+        // Locations, each managed by its own manager.
+        start = System.nanoTime();
+        try (Rows rows = new Rows("COPY locations (id, name, address, manager_id, created_date, created_by) FROM STDIN")) {
+            for (long id = 1; id <= this.config.locations(); id++) {
+                rows.add(id, "Location " + id, id + " " + SyntheticCatalog.LAST_NAMES[(int) (id % SyntheticCatalog.LAST_NAMES.length)] + " Street",
+                        this.config.users() + id, now, "loadtest");
+            }
+        }
+        log("locations", this.config.locations(), start);
+
+        // Stock, popular books are stocked by most locations and quantities are geometric (many 1s, a few large piles).
+        start = System.nanoTime();
+        SyntheticCatalog.Popularity popularity = new SyntheticCatalog.Popularity(1, this.config.books());
+        int copiesPerLocation = (int) Math.min(this.config.copiesPerLocation(), this.config.books());
+        try (Rows rows = new Rows("COPY book_copies (location_id, book_id, quantity) FROM STDIN")) {
+            Set<Long> stocked = new HashSet<>();
+            for (long location = 1; location <= this.config.locations(); location++) {
+                stocked.clear();
+                while (stocked.size() < copiesPerLocation) {
+                    long book = popularity.sample(random);
+                    if (stocked.add(book)) {
+                        rows.add(location, book, 1 + (int) (-Math.log(1 - random.nextDouble()) * 4));
+                    }
+                }
+            }
+        }
+        log("book copies", this.config.locations() * copiesPerLocation, start);
+
+        try (Statement statement = this.connection.createStatement()) {
+            for (String table : new String[]{"books", "users", "locations"}) {
+                statement.execute("SELECT setval(pg_get_serial_sequence('" + table + "', 'id'), (SELECT max(id) FROM " + table + "))");
+            }
+            statement.execute("ANALYZE");
+        }
+    }
+
+    /**
+     * Gets the username of a seeded user.
+     *
+     * @param id    the id of the user
+     * @param users the number of regular users, the following ones are managers
+     * @return the username
+     */
+    static String username(long id, long users) {
+        return id <= users ? "user-" + id : "manager-" + (id - users);
+    }
+
+    private static void log(String what, long count, long start) {
+        System.out.printf("Seeded %,d %s in %,d ms%n", count, what, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Rows streamed to a table in the COPY text format. The generated values never contain tabs, newlines or
+     * backslashes, so they are written without escaping.
+     */
+    private final class Rows implements AutoCloseable {
+        /**
+         * The running COPY operation.
+         */
+        private final CopyIn copyIn;
+
+        /**
+         * The rows not sent yet.
+         */
+        private final StringBuilder buffer = new StringBuilder(BUFFER_SIZE + 1024);
+
+        /**
+         * Starts a COPY operation.
+         *
+         * @param sql the COPY statement
+         * @throws SQLException if the operation cannot be started
+         */
+        private Rows(String sql) throws SQLException {
+            CopyManager copyManager = DataSeeder.this.connection.unwrap(PGConnection.class).getCopyAPI();
+            this.copyIn = copyManager.copyIn(sql);
+        }
+
+        /**
+         * Adds a row.
+         *
+         * @param values the values of the columns
+         * @throws SQLException if the buffered rows cannot be sent
+         */
+        private void add(Object... values) throws SQLException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    this.buffer.append('\t');
+                }
+                this.buffer.append(values[i]);
+            }
+            this.buffer.append('\n');
+            if (this.buffer.length() >= BUFFER_SIZE) {
+                flush();
+            }
+        }
+
+        private void flush() throws SQLException {
+            byte[] bytes = this.buffer.toString().getBytes(StandardCharsets.UTF_8);
+            this.copyIn.writeToCopy(bytes, 0, bytes.length);
+            this.buffer.setLength(0);
+        }
+
+        /**
+         * Sends the remaining rows and completes the operation.
+         *
+         * @throws SQLException if the rows cannot be sent
+         */
+        @Override
+        public void close() throws SQLException {
+            flush();
+            this.copyIn.endCopy();
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package org.example.library.loadtest;
+
+import org.example.library.entity.User;
+import org.example.library.security.JwtTokenProvider;
+import org.example.library.security.UserDetailsImpl;
+import org.springframework.beans.factory.config.YamlPropertiesFactoryBean;
+import org.springframework.core.io.ClassPathResource;
+
+import java.net.URI;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * End-to-end load test of the API. It seeds a local Postgres with a synthetic dataset, then replays a mixed workload
+ * against a running instance of the application with an open-loop arrival rate and reports the latency percentiles
+ * and error rates of each endpoint.
+ * <p>
+ * The test is configured with system properties (see {@link Config}) and run with:
+ * <pre>
+ * mvn -Ploadtest -DskipTests verify -Dloadtest.mode=seed -Dloadtest.books=1000000
+ * mvn spring-boot:run -Dspring-boot.run.arguments="--app.web.rate-limit.enabled=false"
+ * mvn -Ploadtest -DskipTests verify -Dloadtest.rate=500 -Dloadtest.duration=PT2M
+ * </pre>
+ * All the requests come from the same IP, so the rate limiter should be disabled unless it is what is being tested.
+ */
+public final class LoadTest {
+    private LoadTest() {
+    }
+
+    /**
+     * The configuration of the load test.
+     *
+     * @param mode              what to do: seed, run, or all (seed then run)
+     * @param url               the base URL of the application
+     * @param jdbcUrl           the JDBC URL of the database of the application
+     * @param jdbcUsername      the username of the database
+     * @param jdbcPassword      the password of the database
+     * @param books             the number of books to seed
+     * @param locations         the number of locations to seed, each with its own manager
+     * @param users             the number of regular users to seed
+     * @param copiesPerLocation the number of distinct books stocked by each location
+     * @param bcryptStrength    the BCrypt strength of the seeded passwords
+     * @param seed              the seed of the random generators, so that runs are reproducible
+     * @param rate              the number of requests per second
+     * @param duration          the duration of the measurement
+     * @param warmup            the duration of the warm-up, whose requests are not measured
+     * @param poisson           whether the arrivals are a Poisson process rather than evenly spaced
+     * @param mix               the weight of each operation of the workload
+     * @param jwtSecret         the secret used to sign the tokens, by default the one of the application
+     */
+    record Config(String mode, URI url, String jdbcUrl, String jdbcUsername, String jdbcPassword,
+                  long books, long locations, long users, long copiesPerLocation, int bcryptStrength, long seed,
+                  double rate, Duration duration, Duration warmup, boolean poisson, String mix, String jwtSecret) {
+        /**
+         * Reads the configuration from the system properties, falling back to the application configuration.
+         *
+         * @param application the configuration of the application
+         * @return the configuration
+         */
+        static Config fromSystemProperties(Properties application) {
+            return new Config(
+                    property("mode", "run"),
+                    URI.create(property("url", "http://localhost:8080")),
+                    property("jdbc-url", application.getProperty("spring.datasource.url")),
+                    property("jdbc-username", application.getProperty("spring.datasource.username")),
+                    property("jdbc-password", application.getProperty("spring.datasource.password")),
+                    Long.parseLong(property("books", "1000000")),
+                    Long.parseLong(property("locations", "2000")),
+                    Long.parseLong(property("users", "10000")),
+                    Long.parseLong(property("copies-per-location", "500")),
+                    Integer.parseInt(property("bcrypt-strength", application.getProperty("app.security.bcrypt.strength", "10"))),
+                    Long.parseLong(property("seed", "42")),
+                    Double.parseDouble(property("rate", "200")),
+                    Duration.parse(property("duration", "PT1M")),
+                    Duration.parse(property("warmup", "PT15S")),
+                    Boolean.parseBoolean(property("poisson", "true")),
+                    property("mix", "search=50,detail=25,inventory=10,update=10,login=5"),
+                    property("jwt-secret", application.getProperty("app.jwt.secret")));
+        }
+
+        private static String property(String name, String defaultValue) {
+            return System.getProperty("loadtest." + name, defaultValue);
+        }
+    }
+
+    /**
+     * Runs the load test.
+     *
+     * @param args unused, the test is configured with system properties
+     * @throws Exception if the test fails
+     */
+    public static void main(String[] args) throws Exception {
+        YamlPropertiesFactoryBean yaml = new YamlPropertiesFactoryBean();
+        yaml.setResources(new ClassPathResource("application.yml"));
+        Config config = Config.fromSystemProperties(yaml.getObject());
+
+        try (Connection connection = DriverManager.getConnection(config.jdbcUrl(), config.jdbcUsername(), config.jdbcPassword())) {
+            if (config.mode().equals("seed") || config.mode().equals("all")) {
+                new DataSeeder(connection, config).seed();
+            }
+            if (config.mode().equals("run") || config.mode().equals("all")) {
+                Workload workload = new Workload(config, dataset(connection, config));
+                workload.run().print(System.out);
+            }
+        }
+    }
+
+    /**
+     * Reads the part of the dataset the workload needs and mints the tokens of the users.
+     *
+     * @param connection the connection to the database
+     * @param config     the configuration of the load test
+     * @return the dataset
+     * @throws SQLException if the dataset cannot be read
+     */
+    private static Workload.Dataset dataset(Connection connection, Config config) throws SQLException {
+        // The tokens are signed with the secret of the application, so they are accepted without logging in.
+        JwtTokenProvider tokenProvider = new JwtTokenProvider(config.jwtSecret(),
+                config.warmup().plus(config.duration()).plusHours(1).toMillis());
+
+        try (Statement statement = connection.createStatement()) {
+            long firstBook;
+            long lastBook;
+            try (ResultSet resultSet = statement.executeQuery("SELECT min(id), max(id) FROM books")) {
+                resultSet.next();
+                firstBook = resultSet.getLong(1);
+                lastBook = resultSet.getLong(2);
+            }
+            if (lastBook == 0) {
+                throw new IllegalStateException("The catalog is empty, seed it first with -Dloadtest.mode=seed");
+            }
+
+            List<String> users = new ArrayList<>();
+            List<String> tokens = new ArrayList<>();
+            try (ResultSet resultSet = statement.executeQuery("SELECT username FROM users WHERE username LIKE 'user-%' LIMIT 1000")) {
+                while (resultSet.next()) {
+                    users.add(resultSet.getString(1));
+                    tokens.add(token(tokenProvider, resultSet.getString(1)));
+                }
+            }
+
+            Map<Long, String> managers = new HashMap<>();
+            try (ResultSet resultSet = statement.executeQuery("SELECT l.id, u.username FROM locations l JOIN users u ON u.id = l.manager_id")) {
+                while (resultSet.next()) {
+                    managers.put(resultSet.getLong(1), token(tokenProvider, resultSet.getString(2)));
+                }
+            }
+
+            // A sample of the stock spread over all the locations, quantity updates only target copies that exist.
+            List<long[]> stock = new ArrayList<>();
+            for (String sql : new String[]{
+                    "SELECT location_id, book_id FROM book_copies TABLESAMPLE SYSTEM (10) LIMIT 100000",
+                    "SELECT location_id, book_id FROM book_copies LIMIT 100000"}) {
+                try (ResultSet resultSet = statement.executeQuery(sql)) {
+                    while (resultSet.next()) {
+                        stock.add(new long[]{resultSet.getLong(1), resultSet.getLong(2)});
+                    }
+                }
+                if (!stock.isEmpty()) {
+                    break;
+                }
+            }
+
+            if (users.isEmpty() || managers.isEmpty() || stock.isEmpty()) {
+                throw new IllegalStateException("No seeded users or managers, seed them first with -Dloadtest.mode=seed");
+            }
+            return new Workload.Dataset(firstBook, lastBook, users, tokens, managers, stock);
+        }
+    }
+
+    private static String token(JwtTokenProvider tokenProvider, String username) {
+        return tokenProvider.generateToken(new UserDetailsImpl(new User(null, username, null, null, Set.of())));
+    }
+}
@@ -0,0 +1,248 @@
+package org.example.library.loadtest;
+
+import org.example.library.entity.Genre;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * Generator of realistic looking catalog data. Words, authors and books are drawn from Zipf distributions, so that a
+ * few words, authors and titles are very popular and most are rare, as in a real catalog.
+ */
+final class SyntheticCatalog {
+    /**
+     * The words titles are made of, the first ones are the most frequent.
+     */
+    static final String[] TITLE_WORDS = {
+            "the", "of", "and", "night", "house", "love", "war", "life", "dark", "city", "girl", "man", "secret",
+            "world", "last", "shadow", "time", "death", "heart", "blood", "king", "river", "garden", "stone", "fire",
+            "winter", "summer", "sea", "silent", "lost", "dead", "queen", "road", "island", "mountain", "star",
+            "forest", "dream", "letter", "promise", "storm", "empire", "ghost", "hunter", "witch", "mirror", "glass",
+            "silver", "golden", "iron", "bone", "wolf", "crow", "raven", "rose", "orchard", "harbor", "bridge",
+            "tower", "castle", "kingdom", "journey", "return", "memory", "echo", "whisper", "song", "dance", "game",
+            "murder", "mystery", "killer", "detective", "witness", "stranger", "sister", "brother", "daughter", "son",
+            "mother", "father", "wife", "husband", "widow", "orphan", "doctor", "teacher", "soldier", "spy", "thief",
+            "liar", "saint", "angel", "devil", "monster", "machine", "algorithm", "engine", "signal", "frontier"
+    };
+
+    /**
+     * The first names of the authors.
+     */
+    private static final String[] FIRST_NAMES = {
+            "James", "Mary", "John", "Patricia", "Robert", "Jennifer", "Michael", "Linda", "William", "Elizabeth",
+            "David", "Barbara", "Richard", "Susan", "Joseph", "Jessica", "Thomas", "Sarah", "Charles", "Karen",
+            "Christopher", "Nancy", "Daniel", "Lisa", "Matthew", "Margaret", "Anthony", "Betty", "Mark", "Sandra",
+            "Paolo", "Giulia", "Marco", "Chiara", "Luca", "Francesca", "Hiroshi", "Yuki", "Ahmed", "Fatima",
+            "Olga", "Ivan", "Sofia", "Mateo", "Amara", "Kwame", "Ingrid", "Lars", "Priya", "Arjun"
+    };
+
+    /**
+     * The last names of the authors.
+     */
+    static final String[] LAST_NAMES = {
+            "Smith", "Johnson", "Williams", "Brown", "Jones", "Garcia", "Miller", "Davis", "Rodriguez", "Martinez",
+            "Hernandez", "Lopez", "Gonzalez", "Wilson", "Anderson", "Thomas", "Taylor", "Moore", "Jackson", "Martin",
+            "Lee", "Perez", "Thompson", "White", "Harris", "Sanchez", "Clark", "Ramirez", "Lewis", "Robinson",
+            "Rossi", "Russo", "Ferrari", "Esposito", "Bianchi", "Romano", "Tanaka", "Suzuki", "Haddad", "Nasser",
+            "Ivanova", "Petrov", "Silva", "Santos", "Okafor", "Mensah", "Larsen", "Nilsson", "Sharma", "Patel"
+    };
+
+    /**
+     * The genres with their cumulative weights.
+     */
+    private static final Genre[] GENRES = {Genre.FICTION, Genre.THRILLER, Genre.HORROR};
+    private static final double[] GENRE_CDF = {0.6, 0.85, 1.0};
+
+    /**
+     * The distribution of the title words.
+     */
+    private final Zipf titleWords = new Zipf(TITLE_WORDS.length, 1.0);
+
+    /**
+     * The distribution of the authors, the first ones are the most prolific.
+     */
+    private final Zipf authors;
+
+    /**
+     * Creates a new catalog generator.
+     *
+     * @param bookCount the number of books of the catalog
+     */
+    SyntheticCatalog(long bookCount) {
+        // About 20 books per author on average, with a few very prolific ones.
+        int authorCount = (int) Math.max(1, Math.min(FIRST_NAMES.length * 26L * LAST_NAMES.length, bookCount / 20));
+        this.authors = new Zipf(authorCount, 1.1);
+    }
+
+    /**
+     * Generates a title.
+     *
+     * @param random the random generator
+     * @return the title
+     */
+    String title(RandomGenerator random) {
+        int words = 1 + random.nextInt(4);
+        StringBuilder title = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            String word = TITLE_WORDS[this.titleWords.sample(random)];
+            if (i > 0) {
+                title.append(' ');
+            }
+            title.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+        }
+        return title.toString();
+    }
+
+    /**
+     * Generates an author.
+     *
+     * @param random the random generator
+     * @return the author
+     */
+    String author(RandomGenerator random) {
+        int author = this.authors.sample(random);
+        String firstName = FIRST_NAMES[author % FIRST_NAMES.length];
+        char initial = (char) ('A' + (author / FIRST_NAMES.length) % 26);
+        String lastName = LAST_NAMES[author / (FIRST_NAMES.length * 26) % LAST_NAMES.length];
+        return firstName + " " + initial + ". " + lastName;
+    }
+
+    /**
+     * Generates a genre.
+     *
+     * @param random the random generator
+     * @return the genre
+     */
+    Genre genre(RandomGenerator random) {
+        double value = random.nextDouble();
+        for (int i = 0; i < GENRE_CDF.length; i++) {
+            if (value < GENRE_CDF[i]) {
+                return GENRES[i];
+            }
+        }
+        return GENRES[GENRES.length - 1];
+    }
+
+    /**
+     * Generates a publication date, more recent dates being more frequent.
+     *
+     * @param random the random generator
+     * @return the publication date
+     */
+    LocalDate publicationDate(RandomGenerator random) {
+        int yearsAgo = (int) Math.min(120, -Math.log(1 - random.nextDouble()) * 15);
+        return LocalDate.of(2023 - yearsAgo, 1, 1).plusDays(random.nextInt(365));
+    }
+
+    /**
+     * Generates the unique and valid ISBN-13 of a book.
+     *
+     * @param sequence the sequence number of the book
+     * @return the ISBN
+     */
+    static String isbn(long sequence) {
+        String digits = String.format("979%09d", sequence);
+        int sum = 0;
+        for (int i = 0; i < 12; i++) {
+            sum += (digits.charAt(i) - '0') * (i % 2 == 0 ? 1 : 3);
+        }
+        return digits + (10 - sum % 10) % 10;
+    }
+
+    /**
+     * The popularity of the books of a catalog: a Zipf distribution over the ranks, with ranks scattered over the ids so
+     * that popular books are not all inserted together.
+     */
+    static final class Popularity {
+        /**
+         * The distribution of the ranks.
+         */
+        private final Zipf ranks;
+
+        /**
+         * The id of the first book.
+         */
+        private final long firstId;
+
+        /**
+         * The number of books.
+         */
+        private final long count;
+
+        /**
+         * A multiplier coprime with the number of books, used to map ranks to ids.
+         */
+        private final long stride;
+
+        /**
+         * Creates the popularity of the books with ids in [firstId, lastId].
+         *
+         * @param firstId the id of the first book
+         * @param lastId  the id of the last book
+         */
+        Popularity(long firstId, long lastId) {
+            this.firstId = firstId;
+            this.count = lastId - firstId + 1;
+            this.ranks = new Zipf((int) this.count, 0.9);
+            long stride = 1_000_003;
+            while (gcd(stride, this.count) != 1) {
+                stride++;
+            }
+            this.stride = stride;
+        }
+
+        /**
+         * Samples the id of a book, popular books being sampled more often.
+         *
+         * @param random the random generator
+         * @return the id of the book
+         */
+        long sample(RandomGenerator random) {
+            return this.firstId + this.ranks.sample(random) * this.stride % this.count;
+        }
+
+        private static long gcd(long a, long b) {
+            return b == 0 ? a : gcd(b, a % b);
+        }
+    }
+
+    /**
+     * A Zipf distribution over the integers [0, n).
+     */
+    static final class Zipf {
+        /**
+         * The cumulative distribution function.
+         */
+        private final double[] cdf;
+
+        /**
+         * Creates a new Zipf distribution.
+         *
+         * @param n        the number of values
+         * @param exponent the exponent of the distribution, higher values are more skewed
+         */
+        Zipf(int n, double exponent) {
+            this.cdf = new double[n];
+            double sum = 0;
+            for (int i = 0; i < n; i++) {
+                sum += 1 / Math.pow(i + 1, exponent);
+                this.cdf[i] = sum;
+            }
+            for (int i = 0; i < n; i++) {
+                this.cdf[i] /= sum;
+            }
+        }
+
+        /**
+         * Samples a value.
+         *
+         * @param random the random generator
+         * @return a value in [0, n)
+         */
+        int sample(RandomGenerator random) {
+            int index = Arrays.binarySearch(this.cdf, random.nextDouble());
+            return Math.min(this.cdf.length - 1, index >= 0 ? index : -index - 1);
+        }
+    }
+}
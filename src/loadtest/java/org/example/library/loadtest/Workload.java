@@ -0,0 +1,346 @@
+package org.example.library.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop workload replayed against the API.
+ * <p>
+ * Requests are sent on a fixed schedule, whether or not the previous ones have completed, and latencies are measured
+ * from the time a request was scheduled rather than from the time it was actually sent. A closed-loop client waiting
+ * for each response would slow down with the server and hide the queueing delay users see (coordinated omission).
+ */
+final class Workload {
+    /**
+     * The maximum time a request may take before it is counted as an error.
+     */
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    /**
+     * The operations of the workload.
+     */
+    enum Operation {
+        /**
+         * Search of the catalog by title or author.
+         */
+        SEARCH,
+        /**
+         * Detail of a book.
+         */
+        DETAIL,
+        /**
+         * Inventory of a location.
+         */
+        INVENTORY,
+        /**
+         * Quantity update of a book at a location, by the manager of the location.
+         */
+        UPDATE,
+        /**
+         * Login of a user.
+         */
+        LOGIN
+    }
+
+    /**
+     * The part of the dataset the workload needs.
+     *
+     * @param firstBook the id of the first book
+     * @param lastBook  the id of the last book
+     * @param users     the usernames of some users
+     * @param tokens    the tokens of the users
+     * @param managers  the token of the manager of each location
+     * @param stock     a sample of the copies, as pairs of location and book ids
+     */
+    record Dataset(long firstBook, long lastBook, List<String> users, List<String> tokens,
+                   Map<Long, String> managers, List<long[]> stock) {
+    }
+
+    /**
+     * The configuration of the load test.
+     */
+    private final LoadTest.Config config;
+
+    /**
+     * The dataset.
+     */
+    private final Dataset dataset;
+
+    /**
+     * The popularity of the books.
+     */
+    private final SyntheticCatalog.Popularity popularity;
+
+    /**
+     * The popularity of the search terms, the same as the words of the titles.
+     */
+    private final SyntheticCatalog.Zipf searchTerms = new SyntheticCatalog.Zipf(SyntheticCatalog.TITLE_WORDS.length, 1.0);
+
+    /**
+     * The cumulative weights of the operations.
+     */
+    private final double[] mix = new double[Operation.values().length];
+
+    /**
+     * The client sending the requests.
+     */
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    /**
+     * Creates a new workload.
+     *
+     * @param config  the configuration of the load test
+     * @param dataset the dataset
+     */
+    Workload(LoadTest.Config config, Dataset dataset) {
+        this.config = config;
+        this.dataset = dataset;
+        this.popularity = new SyntheticCatalog.Popularity(dataset.firstBook(), dataset.lastBook());
+
+        // Parse the mix, e.g. "search=50,detail=25", into cumulative weights.
+        for (String entry : config.mix().split(",")) {
+            String[] parts = entry.trim().split("=");
+            this.mix[Operation.valueOf(parts[0].trim().toUpperCase()).ordinal()] = Double.parseDouble(parts[1].trim());
+        }
+        double sum = 0;
+        for (int i = 0; i < this.mix.length; i++) {
+            sum += this.mix[i];
+            this.mix[i] = sum;
+        }
+        for (int i = 0; i < this.mix.length; i++) {
+            this.mix[i] /= sum;
+        }
+    }
+
+    /**
+     * Runs the workload: a warm-up, whose requests are not measured, then the measurement.
+     *
+     * @return the report of the measurement
+     * @throws InterruptedException if interrupted while waiting for the last responses
+     */
+    Report run() throws InterruptedException {
+        SplittableRandom random = new SplittableRandom(this.config.seed());
+        Report report = new Report(this.config.duration());
+        AtomicInteger inFlight = new AtomicInteger();
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / this.config.rate());
+
+        long start = System.nanoTime();
+        long measureStart = start + this.config.warmup().toNanos();
+        long end = measureStart + this.config.duration().toNanos();
+        System.out.printf("Sending %.0f requests/s for %s of warm-up and %s of measurement%n",
+                this.config.rate(), this.config.warmup(), this.config.duration());
+
+        for (long intended = start; intended < end; ) {
+            long delay = intended - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(delay);
+            }
+            // If the sender fell behind, it catches up immediately, the latency still counts from the intended time.
+            Operation operation = operation(random);
+            HttpRequest request = request(operation, random);
+            boolean measured = intended >= measureStart;
+            long scheduled = intended;
+            inFlight.incrementAndGet();
+            this.client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+                if (measured) {
+                    report.record(operation, System.nanoTime() - scheduled, response != null ? response.statusCode() : -1);
+                }
+                inFlight.decrementAndGet();
+            });
+
+            intended += this.config.poisson()
+                    ? (long) (-Math.log(1 - random.nextDouble()) * intervalNanos)
+                    : intervalNanos;
+        }
+
+        // Wait for the last responses, requests time out on their own after REQUEST_TIMEOUT.
+        long deadline = System.nanoTime() + REQUEST_TIMEOUT.toNanos() + TimeUnit.SECONDS.toNanos(1);
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        return report;
+    }
+
+    /**
+     * Picks the next operation according to the mix.
+     *
+     * @param random the random generator
+     * @return the operation
+     */
+    private Operation operation(SplittableRandom random) {
+        double value = random.nextDouble();
+        for (int i = 0; i < this.mix.length; i++) {
+            if (value < this.mix[i]) {
+                return Operation.values()[i];
+            }
+        }
+        return Operation.values()[this.mix.length - 1];
+    }
+
+    /**
+     * Creates the request of an operation.
+     *
+     * @param operation the operation
+     * @param random    the random generator
+     * @return the request
+     */
+    private HttpRequest request(Operation operation, SplittableRandom random) {
+        int user = random.nextInt(this.dataset.users().size());
+        String token = this.dataset.tokens().get(user);
+        return switch (operation) {
+            case SEARCH -> {
+                // Most searches are by a word of the title, the others by the last name of an author.
+                String query = random.nextInt(5) > 0
+                        ? "title=" + SyntheticCatalog.TITLE_WORDS[this.searchTerms.sample(random)]
+                        : "author=" + SyntheticCatalog.LAST_NAMES[random.nextInt(SyntheticCatalog.LAST_NAMES.length)];
+                yield get("/api/books?" + query + "&page=" + (random.nextInt(10) == 0 ? random.nextInt(5) : 0), token);
+            }
+            case DETAIL -> get("/api/books/" + this.popularity.sample(random), token);
+            case INVENTORY -> {
+                long[] copy = this.dataset.stock().get(random.nextInt(this.dataset.stock().size()));
+                yield get("/api/locations/" + copy[0] + "/book-copies?page=" + random.nextInt(3), token);
+            }
+            case UPDATE -> {
+                // Restocks are more frequent than sales, so that copies are not exhausted by long runs.
+                long[] copy = this.dataset.stock().get(random.nextInt(this.dataset.stock().size()));
+                int change = random.nextInt(3) == 0 ? -1 : 1;
+                yield builder("/api/locations/" + copy[0] + "/book-copies/" + copy[1] + "?quantityChange=" + change)
+                        .header("Authorization", "Bearer " + this.dataset.managers().get(copy[0]))
+                        .PUT(HttpRequest.BodyPublishers.noBody())
+                        .build();
+            }
+            case LOGIN -> builder("/api/auth/login")
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"username\":\"" + this.dataset.users().get(user)
+                            + "\",\"password\":\"" + DataSeeder.PASSWORD + "\"}"))
+                    .build();
+        };
+    }
+
+    private HttpRequest get(String path, String token) {
+        return builder(path).header("Authorization", "Bearer " + token).GET().build();
+    }
+
+    private HttpRequest.Builder builder(String path) {
+        return HttpRequest.newBuilder(URI.create(this.config.url() + path)).timeout(REQUEST_TIMEOUT);
+    }
+
+    /**
+     * The latencies and outcomes of the measured requests, by operation.
+     */
+    static final class Report {
+        /**
+         * The statistics of each operation.
+         */
+        private final Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+
+        /**
+         * The duration of the measurement.
+         */
+        private final Duration duration;
+
+        /**
+         * Creates an empty report.
+         *
+         * @param duration the duration of the measurement
+         */
+        Report(Duration duration) {
+            this.duration = duration;
+            for (Operation operation : Operation.values()) {
+                this.stats.put(operation, new Stats());
+            }
+        }
+
+        /**
+         * Records the outcome of a request.
+         *
+         * @param operation    the operation
+         * @param latencyNanos the time between the scheduled send and the response
+         * @param status       the status of the response, or -1 if no response was received
+         */
+        void record(Operation operation, long latencyNanos, int status) {
+            Stats stats = this.stats.get(operation);
+            stats.latencies.recordValue(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+            stats.statuses.computeIfAbsent(status, key -> new LongAdder()).increment();
+        }
+
+        /**
+         * Prints the report.
+         *
+         * @param out the stream to print to
+         */
+        void print(PrintStream out) {
+            Histogram total = new Histogram(3);
+            Map<Integer, Long> totalStatuses = new TreeMap<>();
+            out.printf("%n%-10s %9s %8s %9s %9s %9s %9s %8s %8s  %s%n",
+                    "operation", "requests", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "errors", "shed", "statuses");
+            for (Map.Entry<Operation, Stats> entry : this.stats.entrySet()) {
+                Histogram latencies = entry.getValue().latencies.copy();
+                Map<Integer, Long> statuses = new TreeMap<>();
+                entry.getValue().statuses.forEach((status, count) -> statuses.put(status, count.sum()));
+                total.add(latencies);
+                statuses.forEach((status, count) -> totalStatuses.merge(status, count, Long::sum));
+                print(out, entry.getKey().name().toLowerCase(), latencies, statuses);
+            }
+            print(out, "total", total, totalStatuses);
+            out.println("errors: no response, 4xx or 5xx; shed: 429 or 503, rejected by the rate or concurrency limits");
+        }
+
+        private void print(PrintStream out, String name, Histogram latencies, Map<Integer, Long> statuses) {
+            long count = latencies.getTotalCount();
+            long shed = statuses.getOrDefault(429, 0L) + statuses.getOrDefault(503, 0L);
+            long errors = statuses.entrySet().stream()
+                    .filter(status -> status.getKey() < 200 || status.getKey() >= 400)
+                    .mapToLong(Map.Entry::getValue)
+                    .sum() - shed;
+            out.printf("%-10s %9d %8.1f %9.2f %9.2f %9.2f %9.2f %7.2f%% %7.2f%%  %s%n",
+                    name, count, count / (this.duration.toMillis() / 1000.0),
+                    millis(latencies.getValueAtPercentile(50)), millis(latencies.getValueAtPercentile(99)),
+                    millis(latencies.getValueAtPercentile(99.9)), millis(latencies.getMaxValue()),
+                    percent(errors, count), percent(shed, count), statuses);
+        }
+
+        private static double millis(long micros) {
+            return micros / 1000.0;
+        }
+
+        private static double percent(long part, long count) {
+            return count == 0 ? 0 : 100.0 * part / count;
+        }
+    }
+
+    /**
+     * The statistics of an operation.
+     */
+    private static final class Stats {
+        /**
+         * The latencies in microseconds.
+         */
+        private final ConcurrentHistogram latencies = new ConcurrentHistogram(3);
+
+        /**
+         * The number of responses of each status, -1 for requests without a response.
+         */
+        private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+    }
+}
@@ -0,0 +1,69 @@
+package org.example.library.actuator;
+
+import lombok.AllArgsConstructor;
+import org.example.library.jfr.ContinuousRecording;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Actuator endpoint of the continuous flight recording.
+ * <p>
+ * GET /actuator/flightrecording returns the state of the recording and the dumps on disk, POST
+ * /actuator/flightrecording with {"minutes": N} dumps the last N minutes of the recording (5 by default).
+ */
+@Component
+@Endpoint(id = "flightrecording")
+@AllArgsConstructor
+public class FlightRecordingEndpoint {
+    /**
+     * The default number of minutes of a dump.
+     */
+    private static final int DEFAULT_MINUTES = 5;
+
+    /**
+     * The continuous recording.
+     */
+    private final ContinuousRecording recording;
+
+    /**
+     * Gets the state of the recording and the dumps on disk.
+     *
+     * @return the status of the recording
+     * @throws IOException if the dump directory cannot be listed
+     */
+    @ReadOperation
+    public Map<String, Object> status() throws IOException {
+        return this.recording.status();
+    }
+
+    /**
+     * Dumps the last minutes of the recording.
+     *
+     * @param minutes the number of minutes to dump, 5 if not specified
+     * @return the path and the size of the dump, or an error if the recording is not running
+     * @throws IOException if the dump cannot be written
+     */
+    @WriteOperation
+    public WebEndpointResponse<Map<String, Object>> dump(@Nullable Integer minutes) throws IOException {
+        if (minutes != null && minutes <= 0) {
+            return new WebEndpointResponse<>(Map.of("error", "minutes must be positive"), WebEndpointResponse.STATUS_BAD_REQUEST);
+        }
+
+        try {
+            Path dump = this.recording.dump(Duration.ofMinutes(minutes != null ? minutes : DEFAULT_MINUTES), "manual");
+            return new WebEndpointResponse<>(Map.of("path", dump.toString(), "size", Files.size(dump)));
+        } catch (ContinuousRecording.RecordingUnavailableException e) {
+            return new WebEndpointResponse<>(Map.of("error", e.getMessage()), WebEndpointResponse.STATUS_SERVICE_UNAVAILABLE);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package org.example.library.actuator;
+
+import lombok.AllArgsConstructor;
+import org.example.library.service.InventoryLedgerService;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Actuator endpoint of the ledger of the inventory movements.
+ * <p>
+ * GET /actuator/inventoryledger reports the book copies whose quantity differs from the sum of their movements, POST
+ * /actuator/inventoryledger rebuilds their quantities from the ledger. Both list at most {"limit": N} book copies (100
+ * by default).
+ */
+@Component
+@Endpoint(id = "inventoryledger")
+@AllArgsConstructor
+public class InventoryLedgerEndpoint {
+    /**
+     * The default number of book copies listed.
+     */
+    private static final int DEFAULT_LIMIT = 100;
+
+    /**
+     * The ledger of the inventory movements.
+     */
+    private final InventoryLedgerService inventoryLedgerService;
+
+    /**
+     * Gets the book copies that drifted from the ledger.
+     *
+     * @param limit the maximum number of book copies listed, 100 if not specified
+     * @return the number of book copies that drifted and the first of them
+     */
+    @ReadOperation
+    public WebEndpointResponse<Map<String, Object>> drift(@Nullable Integer limit) {
+        if (limit != null && limit <= 0) {
+            return new WebEndpointResponse<>(Map.of("error", "limit must be positive"), WebEndpointResponse.STATUS_BAD_REQUEST);
+        }
+
+        return new WebEndpointResponse<>(this.inventoryLedgerService.getDrift(limit != null ? limit : DEFAULT_LIMIT));
+    }
+
+    /**
+     * Rebuilds the quantities of the book copies from the ledger.
+     *
+     * @param limit the maximum number of drifted book copies listed, 100 if not specified
+     * @return the drift before the rebuild and the number of book copies rebuilt, or an error if the ledger is busy
+     */
+    @WriteOperation
+    public WebEndpointResponse<Map<String, Object>> rebuild(@Nullable Integer limit) {
+        if (limit != null && limit <= 0) {
+            return new WebEndpointResponse<>(Map.of("error", "limit must be positive"), WebEndpointResponse.STATUS_BAD_REQUEST);
+        }
+
+        try {
+            return new WebEndpointResponse<>(this.inventoryLedgerService.rebuild(limit != null ? limit : DEFAULT_LIMIT));
+        } catch (InventoryLedgerService.LedgerBusyException e) {
+            return new WebEndpointResponse<>(Map.of("error", e.getMessage()), WebEndpointResponse.STATUS_SERVICE_UNAVAILABLE);
+        }
+    }
+}
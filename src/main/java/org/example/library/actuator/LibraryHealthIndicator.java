@@ -1,20 +1,45 @@
 package org.example.library.actuator;
 
-import lombok.AllArgsConstructor;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
 import org.example.library.entity.Book;
 import org.example.library.repository.BookRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.actuate.health.Health;
 import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Custom health indicator for the library application.
+ * <p>
+ * Probes are frequent and come from every replica, so the database is not queried on each of them: a scheduled check
+ * measures the database round trip, the saturation of the connection pool and the presence of books, and probes are
+ * served from its last result as long as it is fresh.
  */
 @Component
-@AllArgsConstructor
 public class LibraryHealthIndicator implements HealthIndicator {
+    /**
+     * Status of an application that works but is slow, served with a 200 so that it is not taken out of rotation.
+     */
+    public static final Status DEGRADED = new Status("DEGRADED", "The application is slow or close to saturation");
+
+    /**
+     * The logger of the class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(LibraryHealthIndicator.class);
+
     /**
      * The book repository.
      */
@@ -22,23 +47,137 @@ public class LibraryHealthIndicator implements HealthIndicator {
     private final BookRepository bookRepository;
 
     /**
-     * Check the health of the library application defined by the number of books in the library.
+     * The connection pool, or null if the data source is not a Hikari pool.
+     */
+    @Nullable
+    private final HikariDataSource pool;
+
+    /**
+     * The time in milliseconds after which the result of a check is stale.
+     */
+    private final long ttl;
+
+    /**
+     * The database round-trip time in milliseconds above which the application is degraded.
+     */
+    private final long latencyThreshold;
+
+    /**
+     * The fraction of the pool in use above which the application is degraded.
+     */
+    private final double poolSaturationThreshold;
+
+    /**
+     * The result of the last check, or null before the first one.
+     */
+    @Nullable
+    private volatile Snapshot snapshot;
+
+    /**
+     * Constructor for the LibraryHealthIndicator.
+     *
+     * @param bookRepository          The book repository
+     * @param dataSource              The data source of the application
+     * @param ttl                     The time in milliseconds after which the result of a check is stale
+     * @param latencyThreshold        The database round-trip time in milliseconds above which the application is degraded
+     * @param poolSaturationThreshold The fraction of the pool in use above which the application is degraded
+     * @throws SQLException If the data source cannot be unwrapped
+     */
+    public LibraryHealthIndicator(@NonNull BookRepository bookRepository,
+                                  DataSource dataSource,
+                                  @Value("${app.health.ttl:30000}") long ttl,
+                                  @Value("${app.health.latency-threshold:250}") long latencyThreshold,
+                                  @Value("${app.health.pool-saturation-threshold:0.9}") double poolSaturationThreshold) throws SQLException {
+        this.bookRepository = bookRepository;
+        this.pool = dataSource.isWrapperFor(HikariDataSource.class) ? dataSource.unwrap(HikariDataSource.class) : null;
+        this.ttl = ttl;
+        this.latencyThreshold = latencyThreshold;
+        this.poolSaturationThreshold = poolSaturationThreshold;
+    }
+
+    /**
+     * Gets the health of the library application from the result of the last check.
      *
      * @return the health of the library application
      */
     @Override
     public Health health() {
-        // "count" is very slow for large tables, so we use a custom specification to check if any book exists.
-        Specification<Book> anyBook = (root, query, criteriaBuilder) -> criteriaBuilder.conjunction();
-        boolean bookExists = this.bookRepository.findOne(anyBook).isPresent();
-        if (bookExists) {
-            return Health.up()
-                    .withDetail("bookCount", "at least one")
+        Snapshot snapshot = this.snapshot;
+        if (snapshot == null) {
+            return Health.unknown()
+                    .withDetail("reason", "Not checked yet")
                     .build();
-        } else {
+        }
+
+        long age = System.currentTimeMillis() - snapshot.checkedAt().toEpochMilli();
+        if (age > this.ttl) {
+            // The checker is stuck, most likely on a database that does not answer.
             return Health.down()
+                    .withDetail("reason", "Last check is stale")
+                    .withDetail("checkedAt", snapshot.checkedAt().toString())
+                    .build();
+        }
+        return snapshot.health();
+    }
+
+    /**
+     * Checks the health of the library application and caches the result.
+     */
+    @Scheduled(initialDelayString = "0", fixedDelayString = "${app.health.refresh-interval:5000}")
+    public void check() {
+        Instant now = Instant.now();
+        try {
+            this.snapshot = new Snapshot(this.checkNow(), now);
+        } catch (RuntimeException e) {
+            logger.warn("Health check failed", e);
+            this.snapshot = new Snapshot(Health.down(e).build(), now);
+        }
+    }
+
+    /**
+     * Checks the health of the library application defined by the database round trip, the saturation of the
+     * connection pool and the number of books in the library.
+     *
+     * @return the health of the library application
+     */
+    private Health checkNow() {
+        // "count" is very slow for large tables, so we use a custom specification to check if any book exists. "exists"
+        // fetches a single row, while "findOne" fails as soon as there is more than one book.
+        Specification<Book> anyBook = (root, query, criteriaBuilder) -> criteriaBuilder.conjunction();
+        long start = System.nanoTime();
+        boolean bookExists = this.bookRepository.exists(anyBook);
+        long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        Health.Builder builder = new Health.Builder().withDetail("databaseLatencyMs", latency);
+        boolean degraded = latency > this.latencyThreshold;
+
+        HikariPoolMXBean poolBean = this.pool != null ? this.pool.getHikariPoolMXBean() : null;
+        if (poolBean != null) {
+            int active = poolBean.getActiveConnections();
+            int pending = poolBean.getThreadsAwaitingConnection();
+            double saturation = (double) active / this.pool.getMaximumPoolSize();
+            builder.withDetail("poolActive", active)
+                    .withDetail("poolPending", pending)
+                    .withDetail("poolSize", this.pool.getMaximumPoolSize());
+            degraded |= pending > 0 || saturation >= this.poolSaturationThreshold;
+        }
+
+        if (!bookExists) {
+            return builder.down()
                     .withDetail("reason", "No books in the library")
                     .build();
         }
+        return builder.status(degraded ? DEGRADED : Status.UP)
+                .withDetail("bookCount", "at least one")
+                .build();
+    }
+
+    /**
+     * The result of a check.
+     *
+     * @param health    the health of the library application
+     * @param checkedAt when the check was done
+     */
+    private record Snapshot(Health health, Instant checkedAt) {
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,302 @@
+package org.example.library.actuator;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.library.controller.BookController;
+import org.example.library.controller.BookCopyController;
+import org.example.library.controller.LocationController;
+import org.example.library.entity.Book;
+import org.example.library.entity.Location;
+import org.example.library.entity.Role;
+import org.example.library.entity.User;
+import org.example.library.metrics.WarmUpMetrics;
+import org.example.library.repository.BookRepository;
+import org.example.library.repository.LocationRepository;
+import org.example.library.security.JwtTokenProvider;
+import org.example.library.security.UserDetailsImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.management.ObjectName;
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+
+/**
+ * Warms up the application before it accepts traffic.
+ * <p>
+ * Runners are called after the context is refreshed and before the readiness state becomes ACCEPTING_TRAFFIC, so the
+ * readiness probe only succeeds once the warm-up is over. The warm-up replays a synthetic mix of read requests against
+ * the controllers, in read-only transactions that are rolled back, so that the JIT compiles the hot paths (JWT
+ * verification, specifications, mappers, Jackson serializers) and Hibernate caches the query plans before the first
+ * real request.
+ */
+@Component
+public class WarmUpRunner implements ApplicationRunner {
+    /**
+     * The logger of the class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(WarmUpRunner.class);
+
+    /**
+     * The sort orders of the catalog requests, the first one being the default of the API.
+     */
+    private static final Sort[] BOOK_SORTS = {Sort.by("title"), Sort.by("author"), Sort.by(Sort.Direction.DESC, "publicationDate")};
+
+    /**
+     * Whether the warm-up is enabled.
+     */
+    private final boolean enabled;
+
+    /**
+     * The number of iterations of the request mix.
+     */
+    private final int iterations;
+
+    /**
+     * The maximum duration of the warm-up in milliseconds, after which the application accepts traffic anyway.
+     */
+    private final long timeout;
+
+    /**
+     * The book controller.
+     */
+    private final BookController bookController;
+
+    /**
+     * The book copy controller.
+     */
+    private final BookCopyController bookCopyController;
+
+    /**
+     * The location controller.
+     */
+    private final LocationController locationController;
+
+    /**
+     * The book repository, used to sample the requests.
+     */
+    private final BookRepository bookRepository;
+
+    /**
+     * The location repository, used to sample the requests.
+     */
+    private final LocationRepository locationRepository;
+
+    /**
+     * The JWT token provider.
+     */
+    private final JwtTokenProvider jwtTokenProvider;
+
+    /**
+     * The object mapper of the message converters, used to serialize the responses.
+     */
+    private final ObjectMapper objectMapper;
+
+    /**
+     * The template of the read-only transactions, which are always rolled back.
+     */
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * The metrics of the warm-up.
+     */
+    private final WarmUpMetrics metrics;
+
+    /**
+     * Constructor for the WarmUpRunner.
+     *
+     * @param enabled            Whether the warm-up is enabled
+     * @param iterations         The number of iterations of the request mix
+     * @param timeout            The maximum duration of the warm-up in milliseconds
+     * @param bookController     The book controller
+     * @param bookCopyController The book copy controller
+     * @param locationController The location controller
+     * @param bookRepository     The book repository, used to sample the requests
+     * @param locationRepository The location repository, used to sample the requests
+     * @param jwtTokenProvider   The JWT token provider
+     * @param objectMapper       The object mapper of the message converters
+     * @param transactionManager The transaction manager
+     * @param metrics            The metrics of the warm-up
+     */
+    public WarmUpRunner(@Value("${app.warmup.enabled:true}") boolean enabled,
+                        @Value("${app.warmup.iterations:200}") int iterations,
+                        @Value("${app.warmup.timeout:30000}") long timeout,
+                        BookController bookController,
+                        BookCopyController bookCopyController,
+                        LocationController locationController,
+                        BookRepository bookRepository,
+                        LocationRepository locationRepository,
+                        JwtTokenProvider jwtTokenProvider,
+                        ObjectMapper objectMapper,
+                        PlatformTransactionManager transactionManager,
+                        WarmUpMetrics metrics) {
+        this.enabled = enabled;
+        this.iterations = iterations;
+        this.timeout = timeout;
+        this.bookController = bookController;
+        this.bookCopyController = bookCopyController;
+        this.locationController = locationController;
+        this.bookRepository = bookRepository;
+        this.locationRepository = locationRepository;
+        this.jwtTokenProvider = jwtTokenProvider;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.metrics = metrics;
+    }
+
+    /**
+     * Runs the warm-up. Failures are logged and counted, they never prevent the application from starting.
+     *
+     * @param args the arguments of the application
+     */
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!this.enabled) {
+            return;
+        }
+
+        long compiledMethodsBefore = compiledMethods();
+        long compilationTimeBefore = compilationTime();
+        long start = System.nanoTime();
+        long deadline = start + this.timeout * 1_000_000;
+
+        Map<String, Consumer<SplittableRandom>> operations = this.operations();
+        SplittableRandom random = new SplittableRandom(0);
+        int iteration = 0;
+        while (iteration < this.iterations && System.nanoTime() < deadline) {
+            for (Map.Entry<String, Consumer<SplittableRandom>> operation : operations.entrySet()) {
+                try {
+                    this.transactionTemplate.executeWithoutResult(status -> {
+                        status.setRollbackOnly();
+                        operation.getValue().accept(random);
+                    });
+                } catch (RuntimeException e) {
+                    logger.debug("Warm-up request {} failed", operation.getKey(), e);
+                    this.metrics.recordFailure(operation.getKey());
+                }
+            }
+            iteration++;
+        }
+
+        long duration = System.nanoTime() - start;
+        long compiledMethodsAfter = compiledMethods();
+        long compilationTimeAfter = compilationTime();
+        long compilationTime = compilationTimeBefore < 0 ? -1 : compilationTimeAfter - compilationTimeBefore;
+        this.metrics.recordWarmUp(duration, iteration, compiledMethodsBefore, compiledMethodsAfter, compilationTime);
+        logger.info("Warm-up completed in {} ms: {} iterations, JIT-compiled methods {} -> {}, {} ms of JIT compilation",
+                duration / 1_000_000, iteration, compiledMethodsBefore, compiledMethodsAfter, compilationTime);
+    }
+
+    /**
+     * Creates the operations of the request mix, with parameters sampled from the database.
+     *
+     * @return the operations by name
+     */
+    private Map<String, Consumer<SplittableRandom>> operations() {
+        List<Book> books = new ArrayList<>();
+        List<Location> locations = new ArrayList<>();
+        this.transactionTemplate.executeWithoutResult(status -> {
+            books.addAll(this.bookRepository.findAll(PageRequest.of(0, 50)).getContent());
+            locations.addAll(this.locationRepository.findAll(PageRequest.of(0, 10)).getContent());
+        });
+        // On an empty database, the requests still exercise the whole path with ids and filters that match nothing.
+        List<Long> bookIds = books.isEmpty() ? List.of(0L) : books.stream().map(Book::getId).toList();
+        List<Long> locationIds = locations.isEmpty() ? List.of(0L) : locations.stream().map(Location::getId).toList();
+        List<String> titles = books.isEmpty() ? List.of("a") : books.stream().map(book -> fragment(book.getTitle())).toList();
+        List<String> authors = books.isEmpty() ? List.of("a") : books.stream().map(book -> fragment(book.getAuthor())).toList();
+
+        UserDetailsImpl user = new UserDetailsImpl(new User(null, "warm-up", null, null, Set.of(Role.USER)));
+
+        Map<String, Consumer<SplittableRandom>> operations = new LinkedHashMap<>();
+        operations.put("jwt", random -> this.jwtTokenProvider.getUsernameFromJWT(this.jwtTokenProvider.generateToken(user)));
+        operations.put("books", random -> this.serialize(this.bookController.getAllBooks(null, null, null, null, pageable(random))));
+        operations.put("books-by-title", random -> this.serialize(this.bookController.getAllBooks(pick(random, titles), null, null, null, pageable(random))));
+        operations.put("books-by-author", random -> this.serialize(this.bookController.getAllBooks(null, pick(random, authors), null, null, pageable(random))));
+        operations.put("books-by-title-and-author", random -> this.serialize(this.bookController.getAllBooks(pick(random, titles), pick(random, authors), null, null, pageable(random))));
+        // Answered with a 503 until the full-text index is built, which the warm-up does not wait for.
+        operations.put("books-search", random -> this.serialize(this.bookController.getAllBooks(null, null, null, pick(random, titles), pageable(random))));
+        // Answered with a 503 until the autocomplete dictionary is built, which the warm-up does not wait for either.
+        operations.put("books-autocomplete", random -> this.serialize(this.bookController.autocomplete(pick(random, titles), 10)));
+        operations.put("book", random -> this.serialize(this.bookController.getBookById(pick(random, bookIds))));
+        operations.put("locations", random -> this.serialize(this.locationController.getAllLocations(null, PageRequest.of(0, 20, Sort.by("name")))));
+        operations.put("location", random -> this.serialize(this.locationController.getLocationById(pick(random, locationIds))));
+        operations.put("book-copies", random -> this.serialize(this.bookCopyController.getBookCopies(pick(random, locationIds), PageRequest.of(0, 20))));
+        return operations;
+    }
+
+    /**
+     * Serializes the body of a response, as the message converters would.
+     *
+     * @param response the response
+     */
+    private void serialize(ResponseEntity<?> response) {
+        try {
+            this.objectMapper.writeValueAsBytes(response.getBody());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Pageable pageable(SplittableRandom random) {
+        return PageRequest.of(random.nextInt(3), 20, BOOK_SORTS[random.nextInt(BOOK_SORTS.length)]);
+    }
+
+    private static <T> T pick(SplittableRandom random, List<T> values) {
+        return values.get(random.nextInt(values.size()));
+    }
+
+    /**
+     * Gets the first word of a text, as a user would search it.
+     *
+     * @param text the text
+     * @return the first word
+     */
+    private static String fragment(String text) {
+        int space = text.indexOf(' ');
+        return space > 0 ? text.substring(0, space) : text;
+    }
+
+    /**
+     * Counts the methods compiled by the JIT that are in the code cache.
+     *
+     * @return the number of compiled methods, or -1 if the JVM does not report it
+     */
+    private static long compiledMethods() {
+        try {
+            // The same as "jcmd <pid> Compiler.codelist", one line per compiled method.
+            String codeList = (String) ManagementFactory.getPlatformMBeanServer().invoke(
+                    new ObjectName("com.sun.management:type=DiagnosticCommand"), "compilerCodelist",
+                    new Object[]{null}, new String[]{String[].class.getName()});
+            return codeList.lines().count();
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Gets the total time spent by the JIT compilers.
+     *
+     * @return the compilation time in milliseconds, or -1 if the JVM does not report it
+     */
+    private static long compilationTime() {
+        CompilationMXBean compilation = ManagementFactory.getCompilationMXBean();
+        return compilation != null && compilation.isCompilationTimeMonitoringSupported() ? compilation.getTotalCompilationTime() : -1;
+    }
+}
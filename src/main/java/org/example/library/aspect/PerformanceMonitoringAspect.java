@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
+import org.example.library.jfr.ContinuousRecording;
 import org.example.library.metrics.PerformanceMetrics;
 import org.springframework.stereotype.Component;
 
@@ -19,6 +20,11 @@ public class PerformanceMonitoringAspect {
      */
     private final PerformanceMetrics metrics;
 
+    /**
+     * Continuous flight recording, dumped when a call is too slow.
+     */
+    private final ContinuousRecording recording;
+
     /**
      * Advice that measures the execution time of methods.
      *
@@ -35,6 +41,7 @@ public class PerformanceMonitoringAspect {
         String className = joinPoint.getTarget().getClass().getSimpleName();
         String methodName = joinPoint.getSignature().getName();
         this.metrics.recordMethodExecutionTime(className, methodName, executionTime);
+        this.recording.recordCall(className, methodName, executionTime);
 
         return result;
     }
@@ -3,9 +3,12 @@ package org.example.library.config;
 import io.swagger.v3.oas.models.OpenAPI;
 import io.swagger.v3.oas.models.info.Info;
 import io.swagger.v3.oas.models.info.License;
+import io.swagger.v3.oas.models.servers.Server;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.List;
+
 /**
  * Configuration class for OpenAPI.
  */
@@ -24,6 +27,8 @@ public class OpenApiConfig {
                         .version("1.0")
                         .description("API for managing a distributed library system")
                         .termsOfService("https://swagger.io/terms/")
-                        .license(new License().name("Apache 2.0").url("https://springdoc.org")));
+                        .license(new License().name("Apache 2.0").url("https://springdoc.org")))
+                // A relative server, so that the document generated at build time is valid wherever it is served.
+                .servers(List.of(new Server().url("/")));
     }
 }
\ No newline at end of file
@@ -0,0 +1,43 @@
+package org.example.library.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.lang.Nullable;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Configuration properties of the rate limiter.
+ *
+ * @param enabled     whether the rate limiter is enabled
+ * @param maxClients  the maximum number of clients tracked by each rule, beyond which the ones least likely to be
+ *                    used again are evicted (W-TinyLFU, by frequency and recency of use)
+ * @param idleTimeout the time after which the bucket of an idle client is evicted
+ * @param rules       the rules, the first rule matching a request applies
+ */
+@ConfigurationProperties(prefix = "app.web.rate-limit")
+public record RateLimitProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("100000") int maxClients,
+        @DefaultValue("10m") Duration idleTimeout,
+        @DefaultValue List<Rule> rules
+) {
+    /**
+     * A rate limiting rule.
+     *
+     * @param pattern  the ant pattern of the requests the rule applies to
+     * @param method   the HTTP method the rule applies to, or null for any method
+     * @param capacity the maximum number of requests in a burst
+     * @param period   the time needed to refill the whole capacity
+     * @param byIp     whether clients are always identified by IP, even when authenticated
+     */
+    public record Rule(
+            String pattern,
+            @Nullable String method,
+            int capacity,
+            Duration period,
+            @DefaultValue("false") boolean byIp
+    ) {
+    }
+}
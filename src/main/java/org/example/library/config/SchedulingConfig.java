@@ -0,0 +1,15 @@
+package org.example.library.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Configuration class for the scheduled jobs, which are disabled by app.scheduling.enabled=false for the runs that
+ * only have to start and exit, such as the migrations.
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "app.scheduling.enabled", matchIfMissing = true)
+public class SchedulingConfig {
+}
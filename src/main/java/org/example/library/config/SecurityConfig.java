@@ -1,9 +1,18 @@
 package org.example.library.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.DispatcherType;
 import lombok.AllArgsConstructor;
+import org.example.library.security.ConcurrencyLimitFilter;
+import org.example.library.security.EndpointConcurrencyLimiter;
+import org.example.library.security.IdempotencyFilter;
+import org.example.library.security.IdempotencyStore;
 import org.example.library.security.JwtAuthenticationFilter;
 import org.example.library.security.JwtTokenProvider;
+import org.example.library.security.RateLimitFilter;
+import org.example.library.security.RateLimiter;
 import org.example.library.service.CustomUserDetailsService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -40,6 +49,26 @@ public class SecurityConfig {
      */
     private final JwtTokenProvider jwtTokenProvider;
 
+    /**
+     * The EndpointConcurrencyLimiter to use for the security configuration.
+     */
+    private final EndpointConcurrencyLimiter endpointConcurrencyLimiter;
+
+    /**
+     * The RateLimiter to use for the security configuration.
+     */
+    private final RateLimiter rateLimiter;
+
+    /**
+     * The IdempotencyStore to use for the security configuration.
+     */
+    private final IdempotencyStore idempotencyStore;
+
+    /**
+     * The ObjectMapper writing the error responses of the filters.
+     */
+    private final ObjectMapper objectMapper;
+
     /**
      * Creates a JwtAuthenticationFilter bean.
      *
@@ -53,22 +82,41 @@ public class SecurityConfig {
     /**
      * Creates a SecurityFilterChain bean.
      *
-     * @param http The HttpSecurity to use for the SecurityFilterChain
+     * @param http              The HttpSecurity to use for the SecurityFilterChain
+     * @param retryAfterSeconds The Retry-After of the requests rejected by the concurrency limiter
      * @return The SecurityFilterChain bean
      * @throws Exception If an error occurs
      */
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(
+            HttpSecurity http,
+            @Value("${app.web.concurrency-limit.retry-after:1}") long retryAfterSeconds
+    ) throws Exception {
+        // The concurrency limit, rate limit and idempotency filters are not beans, so that they are not registered a
+        // second time in the servlet container outside the security filter chain.
+        ConcurrencyLimitFilter concurrencyLimitFilter = new ConcurrencyLimitFilter(this.endpointConcurrencyLimiter, retryAfterSeconds);
+        RateLimitFilter rateLimitFilter = new RateLimitFilter(this.rateLimiter);
+        IdempotencyFilter idempotencyFilter = new IdempotencyFilter(this.idempotencyStore, this.objectMapper);
         return http
                 .csrf(AbstractHttpConfigurer::disable)
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
+                        // The dispatch ending an asynchronous request (event stream), which was authorized when it started.
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers("/api/auth/**").permitAll()
                         .requestMatchers("/swagger-ui/**").permitAll()
+                        // The OpenAPI document, generated at runtime or served as a static resource by the fast-startup profile.
+                        .requestMatchers("/v3/api-docs/**", "/openapi.json").permitAll()
+                        // The probes of the orchestrator, which are not authenticated.
+                        .requestMatchers("/actuator/health/liveness", "/actuator/health/readiness").permitAll()
                         .requestMatchers("/actuator/**").hasAuthority("ADMIN")
                         .anyRequest().authenticated()
                 )
-                .addFilterBefore(this.jwtAuthenticationFilter(), UsernamePasswordAuthenticationFilter.class).build();
+                .addFilterBefore(this.jwtAuthenticationFilter(), UsernamePasswordAuthenticationFilter.class)
+                .addFilterBefore(concurrencyLimitFilter, JwtAuthenticationFilter.class)
+                .addFilterAfter(rateLimitFilter, JwtAuthenticationFilter.class)
+                // After the authentication, the keys are scoped to the user, and after the rate limit, retries count.
+                .addFilterAfter(idempotencyFilter, RateLimitFilter.class).build();
     }
 
     /**
@@ -84,15 +132,17 @@ public class SecurityConfig {
     }
 
     /**
-     * Creates a PasswordEncoder bean.
+     * Creates a PasswordEncoder bean. Hashes encoded with a lower BCrypt strength than the configured one are
+     * re-encoded on the next successful login (see {@link CustomUserDetailsService#updatePassword}).
      *
+     * @param strength The BCrypt strength (log rounds) to use for new hashes
      * @return The PasswordEncoder bean
      */
     @Bean
-    public PasswordEncoder passwordEncoder() {
+    public PasswordEncoder passwordEncoder(@Value("${app.security.bcrypt.strength:10}") int strength) {
         String idForEncode = "bcrypt";
         Map<String, PasswordEncoder> encoders = new HashMap<>();
-        encoders.put(idForEncode, new BCryptPasswordEncoder());
+        encoders.put(idForEncode, new BCryptPasswordEncoder(strength));
         // Even if we rely only on BCrypt, we use a DelegatingPasswordEncoder to allow for upgrades in the future.
         return new DelegatingPasswordEncoder(idForEncode, encoders);
     }
@@ -0,0 +1,139 @@
+package org.example.library.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.AllArgsConstructor;
+import org.example.library.dto.SalesReportDTO;
+import org.example.library.dto.TopSellersDTO;
+import org.example.library.entity.Genre;
+import org.example.library.service.LeaderboardService;
+import org.example.library.service.LocationService;
+import org.example.library.service.SalesAnalyticsService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.ErrorResponse;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Controller for the sales analytics.
+ */
+@RestController
+@RequestMapping("/api/analytics")
+@Tag(name = "Analytics", description = "The Analytics API")
+@AllArgsConstructor
+public class AnalyticsController {
+    /**
+     * The SalesAnalyticsService instance.
+     */
+    private final SalesAnalyticsService salesAnalyticsService;
+
+    /**
+     * The LeaderboardService instance.
+     */
+    private final LeaderboardService leaderboardService;
+
+    /**
+     * Get the copies sold and restocked over a range of time, in buckets of a step, for example the sales per genre
+     * per location over the last 30 days. The managers can query their location, the admins all of them.
+     *
+     * @param from       the start of the range
+     * @param to         the end of the range, exclusive (optional, default: now)
+     * @param step       the width of the buckets, such as 15m, 1h or 7d (optional, chosen from the range)
+     * @param groupBy    the dimensions to group by: location, genre, author (optional, default: none)
+     * @param locationId the location to filter by (optional)
+     * @param genre      the genre to filter by (optional)
+     * @param author     the author to filter by, exact match (optional)
+     * @return the buckets with sales or restocks
+     */
+    @GetMapping("/sales")
+    @Operation(summary = "Get the sales over a range of time", description = "Get the copies sold and restocked in buckets of a step, grouped by location, genre or author.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved the sales",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = SalesReportDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid range, step or dimension",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "403", description = "Forbidden",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    @PreAuthorize("hasAuthority('ADMIN') or (#locationId != null and @managerAuthorization.isUserLocationManager(authentication, #locationId))")
+    public ResponseEntity<?> getSales(
+            @Parameter(description = "Start of the range", required = true) @NonNull
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "End of the range, exclusive (default: now)")
+            @RequestParam(required = false) @Nullable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @Parameter(description = "Width of the buckets, such as 15m, 1h or 7d (default: chosen from the range)")
+            @RequestParam(required = false) @Nullable String step,
+            @Parameter(description = "Dimensions to group by: location, genre, author")
+            @RequestParam(required = false) @Nullable List<String> groupBy,
+            @Parameter(description = "Filter by location")
+            @RequestParam(required = false) @Nullable Long locationId,
+            @Parameter(description = "Filter by genre")
+            @RequestParam(required = false) @Nullable Genre genre,
+            @Parameter(description = "Filter by author (exact match)")
+            @RequestParam(required = false) @Nullable String author
+    ) {
+        try {
+            // Return the sales in the range.
+            return ResponseEntity.ok(this.salesAnalyticsService.getSales(from, to, step,
+                    SalesAnalyticsService.Dimension.parse(groupBy), locationId, genre, author));
+        } catch (SalesAnalyticsService.InvalidSalesQueryException e) {
+            // Return a 400 Bad Request response if the query is invalid.
+            return e.toResponseEntity();
+        }
+    }
+
+    /**
+     * Get the books or authors with the most copies sold over the last day, at a location or at all of them. The
+     * counts are estimates, never lower than the actual sales. The managers can read their location, the admins all
+     * of them.
+     *
+     * @param locationId the location (optional, default: all the locations)
+     * @param by         what to rank: book or author (optional, default: book)
+     * @param limit      the maximum number of entries (optional, default: 100)
+     * @return the leaderboard
+     */
+    @GetMapping("/top-sellers")
+    @Operation(summary = "Get the top sellers", description = "Get the books or authors with the most copies sold over a sliding window, at a location or at all of them.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved the leaderboard",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = TopSellersDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid ranking or limit",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "403", description = "Forbidden",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "404", description = "Location not found",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    @PreAuthorize("hasAuthority('ADMIN') or (#locationId != null and @managerAuthorization.isUserLocationManager(authentication, #locationId))")
+    public ResponseEntity<?> getTopSellers(
+            @Parameter(description = "Location (default: all the locations)")
+            @RequestParam(required = false) @Nullable Long locationId,
+            @Parameter(description = "What to rank: book or author")
+            @RequestParam(defaultValue = "book") @NonNull String by,
+            @Parameter(description = "Maximum number of entries")
+            @RequestParam(defaultValue = "100") int limit
+    ) {
+        try {
+            // Return the leaderboard.
+            return ResponseEntity.ok(this.leaderboardService.getTopSellers(locationId, LeaderboardService.Ranking.parse(by), limit));
+        } catch (LeaderboardService.InvalidLeaderboardQueryException | LocationService.LocationNotFoundException e) {
+            // Return a 400 Bad Request response if the query is invalid, or a 404 Not Found if the location is not found.
+            return e.toResponseEntity();
+        }
+    }
+}
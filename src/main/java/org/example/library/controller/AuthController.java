@@ -12,6 +12,7 @@ import org.example.library.dto.LoginRequestDTO;
 import org.example.library.dto.LoginResponseDTO;
 import org.example.library.dto.SignupRequestDTO;
 import org.example.library.lib.ErrorResponseImpl;
+import org.example.library.security.PasswordHashingExecutor;
 import org.example.library.service.AuthService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -48,6 +49,8 @@ public class AuthController {
             @ApiResponse(responseCode = "400", description = "Invalid input",
                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponseImpl.class))),
             @ApiResponse(responseCode = "409", description = "Username or email already exists",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponseImpl.class))),
+            @ApiResponse(responseCode = "503", description = "Too many concurrent authentications",
                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponseImpl.class)))
     })
     public ResponseEntity<?> signup(
@@ -58,8 +61,9 @@ public class AuthController {
             // Register the new user
             this.authService.signup(signupRequestDTO);
             return ResponseEntity.status(HttpStatus.CREATED).build();
-        } catch (AuthService.UserAlreadyExistsException e) {
-            // Return a 409 Conflict response if the username or email already exists
+        } catch (AuthService.UserAlreadyExistsException | PasswordHashingExecutor.HashingUnavailableException e) {
+            // Return a 409 Conflict response if the username or email already exists, or a 503 Service Unavailable
+            // response if the password cannot be hashed right now.
             return e.toResponseEntity();
         }
     }
@@ -79,6 +83,8 @@ public class AuthController {
                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
             @ApiResponse(responseCode = "401", description = "Invalid credentials",
                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "503", description = "Too many concurrent authentications",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
     })
     public ResponseEntity<?> login(
             @Parameter(description = "Login credentials", required = true) @NonNull
@@ -88,8 +94,9 @@ public class AuthController {
         try {
             // Authenticate the user and return a token.
             return ResponseEntity.ok(this.authService.login(loginRequestDTO));
-        } catch (AuthService.UnauthorizedException e) {
-            // Return a 401 Unauthorized response if the credentials are invalid.
+        } catch (AuthService.UnauthorizedException | PasswordHashingExecutor.HashingUnavailableException e) {
+            // Return a 401 Unauthorized response if the credentials are invalid, or a 503 Service Unavailable response
+            // if the credentials cannot be verified right now.
             return e.toResponseEntity();
         }
     }
@@ -2,6 +2,7 @@ package org.example.library.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -12,9 +13,17 @@ import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import org.example.library.dto.BookDTO;
 import org.example.library.dto.BookDTO.BookEDTO;
+import org.example.library.dto.ChangesDTO;
+import org.example.library.dto.CompletionDTO;
+import org.example.library.dto.IsbnResolutionDTO;
+import org.example.library.dto.IsbnResolutionRequestDTO;
 import org.example.library.entity.Book;
+import org.example.library.entity.Genre;
 import org.example.library.lib.SpecificationComposer;
+import org.example.library.service.BookCompletionService;
+import org.example.library.service.BookSearchService;
 import org.example.library.service.BookService;
+import org.example.library.service.ChangeFeedService;
 import org.example.library.specification.BookSpecification;
 import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.data.domain.Page;
@@ -43,45 +52,144 @@ public class BookController {
     private final BookService bookService;
 
     /**
-     * Get a paginated list of all books in the library. Optional filtering by title and author.
+     * The BookCompletionService instance.
+     */
+    private final BookCompletionService bookCompletionService;
+
+    /**
+     * Get a paginated list of all books in the library. Optional filtering by title, author and genre, or ranked
+     * search by relevance of the words of a query in the titles and authors.
      *
      * @param title    the title to filter by (case-insensitive, partial match, optional)
      * @param author   the author to filter by (case-insensitive, partial match, optional)
-     * @param pageable the Pageable information for pagination (optional, default page: 0, size: 20, sort: title, direction: ASC)
+     * @param genre    the genre to filter by (optional)
+     * @param q        the words to search in the titles and authors, ranking the books by relevance (optional, the title and author filters are ignored)
+     * @param pageable the Pageable information for pagination (optional, default page: 0, size: 20, sort: title, direction: ASC, ignored by the ranked search)
      * @return a paginated list of books
      */
     @GetMapping
-    @Operation(summary = "List all books", description = "Get a paginated list of all books in the library. Optional filtering by title and author.")
+    @Operation(summary = "List all books", description = "Get a paginated list of all books in the library. Optional filtering by title, author and genre, or ranked search with q.")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Successfully retrieved list of books",
                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = Page.class))),
-            @ApiResponse(responseCode = "400", description = "Invalid input",
+            @ApiResponse(responseCode = "400", description = "Invalid input, or page beyond the books ranked",
                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
             @ApiResponse(responseCode = "401", description = "Unauthorized",
                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
-
+            @ApiResponse(responseCode = "503", description = "Search index being built, retry later",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
     })
-    public ResponseEntity<Page<BookEDTO>> getAllBooks(
+    public ResponseEntity<?> getAllBooks(
             @Parameter(description = "Filter books by title (case-insensitive, partial match)")
             @RequestParam(required = false) @Nullable
             String title,
             @Parameter(description = "Filter books by author (case-insensitive, partial match)")
             @RequestParam(required = false) @Nullable
             String author,
+            @Parameter(description = "Filter books by genre")
+            @RequestParam(required = false) @Nullable
+            Genre genre,
+            @Parameter(description = "Words to search in the titles and authors, ranking the books by relevance (case and accent-insensitive)")
+            @RequestParam(required = false) @Nullable
+            String q,
             @Parameter(description = "Pageable information for pagination") @ParameterObject
             @PageableDefault(size = 20, sort = "title", direction = Sort.Direction.ASC) @NotNull
             Pageable pageable
     ) {
-        // Create a specification for the title and author.
+        if (q != null) {
+            try {
+                // Return a page of books ranked by the full-text index.
+                return ResponseEntity.ok(this.bookService.searchBooks(q, genre, pageable));
+            } catch (BookSearchService.InvalidSearchException | BookSearchService.SearchIndexNotReadyException e) {
+                // Return a 400 Bad Request response if the page is too far, or a 503 Service Unavailable response if the index is not built yet.
+                return e.toResponseEntity();
+            }
+        }
+
+        // Create a specification for the title, author and genre.
         Specification<Book> bookSpecification = SpecificationComposer.and(
-                BookSpecification.titleLike(title),
-                BookSpecification.authorLike(author)
+                SpecificationComposer.and(BookSpecification.titleLike(title), BookSpecification.authorLike(author)),
+                BookSpecification.genreIs(genre)
         );
 
         // Return a paginated list of books.
         return ResponseEntity.ok(this.bookService.getBooks(bookSpecification, pageable));
     }
 
+    /**
+     * Get the books created, modified or deleted since the last sync of an offline client. A client without data
+     * starts without a token, then sends the token of the previous response, immediately while it has more changes.
+     *
+     * @param since the token of the previous response (optional, absent to download all the books)
+     * @param limit the maximum number of changes (optional)
+     * @return the changes since the token and the token of the next sync
+     */
+    @GetMapping("/changes")
+    @Operation(summary = "List the changes to the books", description = "Get the books created, modified or deleted since the token of the previous sync.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved the changes",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ChangesDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid token or limit",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "410", description = "Token expired, sync again without a token",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public ResponseEntity<?> getBookChanges(
+            @Parameter(description = "Token of the previous sync")
+            @RequestParam(required = false) @Nullable
+            String since,
+            @Parameter(description = "Maximum number of changes")
+            @RequestParam(required = false) @Nullable
+            Integer limit
+    ) {
+        try {
+            // Return the changes since the token.
+            return ResponseEntity.ok(this.bookService.getBookChanges(since, limit));
+        } catch (ChangeFeedService.InvalidChangeTokenException | ChangeFeedService.ChangeTokenExpiredException e) {
+            // Return a 400 Bad Request response if the token is malformed, or a 410 Gone response if it expired.
+            return e.toResponseEntity();
+        }
+    }
+
+    /**
+     * Complete the prefix typed in a search box with the titles and authors starting with it, the ones with the most
+     * copies in stock first, from a dictionary in memory rather than a scan of the books per keystroke.
+     *
+     * @param prefix the prefix typed (case and accent-insensitive)
+     * @param limit  the maximum number of completions (optional, default: 10)
+     * @return the titles and authors completing the prefix
+     */
+    @GetMapping("/autocomplete")
+    @Operation(summary = "Autocomplete titles and authors", description = "Get the titles and authors starting with a prefix, the ones with the most copies in stock first.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Successfully completed the prefix",
+                    content = @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = CompletionDTO.class)))),
+            @ApiResponse(responseCode = "400", description = "Invalid limit",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "503", description = "Autocomplete being built, retry later",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public ResponseEntity<?> autocomplete(
+            @Parameter(description = "Prefix typed, case and accent-insensitive", required = true) @NonNull
+            @RequestParam
+            String prefix,
+            @Parameter(description = "Maximum number of completions")
+            @RequestParam(defaultValue = "10")
+            int limit
+    ) {
+        try {
+            // Return the completions of the prefix.
+            return ResponseEntity.ok(this.bookCompletionService.complete(prefix, limit));
+        } catch (BookCompletionService.InvalidCompletionException | BookCompletionService.CompletionIndexNotReadyException e) {
+            // Return a 400 Bad Request response if the limit is out of range, or a 503 Service Unavailable response if the dictionary is not built yet.
+            return e.toResponseEntity();
+        }
+    }
+
     /**
      * Get a single book by its id.
      *
@@ -110,6 +218,31 @@ public class BookController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    /**
+     * Resolve the books of scanned ISBNs in a single lookup, for the barcode scanners.
+     *
+     * @param request the ISBN-10s or ISBN-13s, in any formatting
+     * @return the books found by ISBN as sent, and the unknown ISBNs
+     */
+    @PostMapping("/resolve")
+    @Operation(summary = "Resolve books by ISBN", description = "Find the books of up to 5000 ISBN-10s or ISBN-13s in a single lookup, returning the books found and the unknown ISBNs.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Successfully resolved the ISBNs",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = IsbnResolutionDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid input",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public ResponseEntity<IsbnResolutionDTO> resolveBooks(
+            @Parameter(description = "ISBNs to resolve", required = true) @NonNull
+            @Valid @RequestBody
+            IsbnResolutionRequestDTO request
+    ) {
+        // Resolve the ISBNs and return the books found.
+        return ResponseEntity.ok(this.bookService.resolveBooks(request.getIsbns()));
+    }
+
     /**
      * Create a new book in the library.
      *
@@ -7,22 +7,38 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
+import org.example.library.dto.AvailabilityDTO;
 import org.example.library.dto.BookDTO.BookEDTO;
+import org.example.library.dto.InventoryChangeDTO;
+import org.example.library.dto.InventoryMovementDTO;
+import org.example.library.dto.StockSnapshotDTO;
+import org.example.library.dto.TransferDTO;
+import org.example.library.dto.TransferRequestDTO;
 import org.example.library.lib.Tuple;
 import org.example.library.service.BookCopyService;
 import org.example.library.service.BookService;
+import org.example.library.service.InventoryLedgerService;
+import org.example.library.service.InventoryStreamService;
 import org.example.library.service.LocationService;
+import org.example.library.service.StockSnapshotService;
 import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.lang.NonNull;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.ErrorResponse;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
 
 /**
  * Controller for the Book Copy entity.
@@ -32,11 +48,31 @@ import org.springframework.web.bind.annotation.*;
 @Tag(name = "BookCopy", description = "The Book Copy API")
 @AllArgsConstructor
 public class BookCopyController {
+    /**
+     * The size of the buffer of the snapshots.
+     */
+    private static final int SNAPSHOT_BUFFER_SIZE = 65536;
+
     /**
      * The BookCopyService instance.
      */
     private final BookCopyService bookCopyService;
 
+    /**
+     * The InventoryStreamService instance.
+     */
+    private final InventoryStreamService inventoryStreamService;
+
+    /**
+     * The InventoryLedgerService instance.
+     */
+    private final InventoryLedgerService inventoryLedgerService;
+
+    /**
+     * The StockSnapshotService instance.
+     */
+    private final StockSnapshotService stockSnapshotService;
+
     /**
      * Get a paginated list of all book copies at a location.
      *
@@ -71,6 +107,37 @@ public class BookCopyController {
         }
     }
 
+    /**
+     * Stream the quantity changes of the books at a location as Server-Sent Events, instead of polling the book copies.
+     * Each change is a "quantity" event with the new quantity of a book. A "resync" event tells the client that it
+     * missed changes and must reload the book copies, which it also does after connecting or reconnecting.
+     *
+     * @param locationId the ID of the location
+     * @return the stream of the changes
+     */
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream the quantity changes at a location", description = "Server-Sent Events of the quantity changes of the books at a location.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Successfully subscribed to the changes",
+                    content = @Content(mediaType = "text/event-stream", schema = @Schema(implementation = InventoryChangeDTO.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "404", description = "Location not found"),
+            @ApiResponse(responseCode = "503", description = "Too many subscribers")
+    })
+    public ResponseEntity<SseEmitter> streamBookCopies(
+            @Parameter(description = "ID of the location", required = true) @NonNull
+            @PathVariable Long locationId
+    ) {
+        try {
+            // Subscribe to the changes at the location.
+            return ResponseEntity.ok(this.inventoryStreamService.subscribe(locationId));
+        } catch (LocationService.LocationNotFoundException |
+                 InventoryStreamService.TooManySubscribersException e) {
+            // Return the error status only, an event stream client cannot read an error body.
+            return ResponseEntity.status(e.getStatusCode()).build();
+        }
+    }
+
     /**
      * Update the quantity of a book at a location.
      * Positive values add copies, negative values remove copies.
@@ -117,4 +184,164 @@ public class BookCopyController {
             return e.toResponseEntity();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Move copies of one or more books from a location to another, all of them or none.
+     *
+     * @param locationId the id of the location sending the copies
+     * @param transfer   the location receiving the copies and the copies to move
+     * @return the quantities of the books at both locations after the transfer
+     */
+    @PostMapping("/transfers")
+    @Operation(summary = "Transfer book copies to another location", description = "Move copies of one or more books from a location to another, all of them or none.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Successfully transferred the book copies",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = TransferDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid input",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "403", description = "Forbidden",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "404", description = "Location or book not found",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "409", description = "Insufficient copies",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    @PreAuthorize("@managerAuthorization.isUserLocationManager(authentication, #locationId)")
+    public ResponseEntity<?> transferBookCopies(
+            @Parameter(description = "ID of the location sending the copies", required = true) @NonNull
+            @PathVariable Long locationId,
+            @Parameter(description = "Location receiving the copies and copies to move", required = true) @NonNull
+            @Valid @RequestBody
+            TransferRequestDTO transfer
+    ) {
+        try {
+            // Move the copies and return the new quantities.
+            return ResponseEntity.ok(this.bookCopyService.transferBookCopies(locationId, transfer));
+        } catch (BookCopyService.InsufficientCopiesException |
+                 BookCopyService.InvalidTransferException |
+                 LocationService.LocationNotFoundException |
+                 BookService.BookNotFoundException e) {
+            // Return an error response if the transfer is invalid, there are insufficient copies, or a location or book is not found.
+            return e.toResponseEntity();
+        }
+    }
+
+    /**
+     * Reconcile the book copies of a location with a full snapshot of its stock, streamed as CSV lines of a book id
+     * and its quantity sorted by book id. Only the book copies whose quantity differs are changed, and the books
+     * missing from the snapshot are removed from the location, but the copies held by the reservations.
+     *
+     * @param locationId the id of the location
+     * @param snapshot   the lines of the snapshot
+     * @return the summary of the changes
+     * @throws IOException if the snapshot cannot be read
+     */
+    @PutMapping(consumes = "text/csv")
+    @Operation(summary = "Reconcile the book copies of a location with a snapshot", description = "Apply a full snapshot of the stock of a location, CSV lines of a book id and its quantity sorted by book id, changing only the book copies that differ.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Successfully reconciled the book copies",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = StockSnapshotDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid snapshot",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "403", description = "Forbidden",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "404", description = "Location not found",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    @PreAuthorize("@managerAuthorization.isUserLocationManager(authentication, #locationId)")
+    public ResponseEntity<?> reconcileBookCopies(
+            @Parameter(description = "ID of the location", required = true) @NonNull
+            @PathVariable Long locationId,
+            @Parameter(hidden = true) @NonNull
+            Reader snapshot
+    ) throws IOException {
+        try {
+            // Validate the snapshot to its end as it is read, then merge it with the book copies.
+            return ResponseEntity.ok(this.stockSnapshotService.reconcile(locationId, new BufferedReader(snapshot, SNAPSHOT_BUFFER_SIZE)));
+        } catch (StockSnapshotService.InvalidSnapshotException |
+                 LocationService.LocationNotFoundException e) {
+            // Return an error response if a line of the snapshot is invalid or the location is not found.
+            return e.toResponseEntity();
+        }
+    }
+
+    /**
+     * Get the availability of a book at a location, its quantity less the copies held by the reservations.
+     *
+     * @param locationId the id of the location
+     * @param bookId     the id of the book
+     * @return the quantity, held and available copies of the book at the location
+     */
+    @GetMapping("/{bookId}/availability")
+    @Operation(summary = "Get the availability of a book at a location", description = "Get the quantity of a book at a location, the copies held by the reservations and the copies available.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved the availability",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = AvailabilityDTO.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "404", description = "Location or book not found",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public ResponseEntity<?> getBookCopyAvailability(
+            @Parameter(description = "ID of the location", required = true) @NonNull
+            @PathVariable Long locationId,
+            @Parameter(description = "ID of the book", required = true) @NonNull
+            @PathVariable Long bookId
+    ) {
+        try {
+            // Get the availability of the book at the location.
+            return ResponseEntity.ok(this.bookCopyService.getBookCopyAvailability(locationId, bookId));
+        } catch (LocationService.LocationNotFoundException |
+                 BookService.BookNotFoundException e) {
+            // Return a 404 Not Found response if the location or the book is not found.
+            return e.toResponseEntity();
+        }
+    }
+
+    /**
+     * Get the history of the quantity of a book at a location, the most recent movements first.
+     *
+     * @param locationId the id of the location
+     * @param bookId     the id of the book
+     * @param pageable   the Pageable information for pagination
+     * @return a paginated list of movements
+     */
+    @GetMapping("/{bookId}/movements")
+    @Operation(summary = "List the movements of a book at a location", description = "Get a paginated list of the changes of the quantity of a book at a location, the most recent first.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved list of movements",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = Page.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid input",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "403", description = "Forbidden",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "404", description = "Location or book not found",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    @PreAuthorize("@managerAuthorization.isUserLocationManager(authentication, #locationId)")
+    public ResponseEntity<?> getBookCopyMovements(
+            @Parameter(description = "ID of the location", required = true) @NonNull
+            @PathVariable Long locationId,
+            @Parameter(description = "ID of the book", required = true) @NonNull
+            @PathVariable Long bookId,
+            @Parameter(description = "Pageable information for pagination") @ParameterObject
+            @PageableDefault(size = 20) Pageable pageable
+    ) {
+        try {
+            // Get a paginated list of the movements of the book at the location.
+            Page<InventoryMovementDTO> movements = this.inventoryLedgerService.getMovements(locationId, bookId, pageable);
+            // Return the paginated list of movements.
+            return ResponseEntity.ok(movements);
+        } catch (LocationService.LocationNotFoundException |
+                 BookService.BookNotFoundException e) {
+            // Return a 404 Not Found response if the location or the book is not found.
+            return e.toResponseEntity();
+        }
+    }
+}
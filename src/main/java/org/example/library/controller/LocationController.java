@@ -9,8 +9,10 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
+import org.example.library.dto.ChangesDTO;
 import org.example.library.dto.LocationDTO;
 import org.example.library.dto.LocationDTO.LocationEDTO;
+import org.example.library.service.ChangeFeedService;
 import org.example.library.service.LocationService;
 import org.example.library.specification.LocationSpecification;
 import org.springdoc.core.annotations.ParameterObject;
@@ -67,6 +69,43 @@ public class LocationController {
         return ResponseEntity.ok(this.locationService.getLocations(LocationSpecification.nameLike(name), pageable));
     }
 
+    /**
+     * Get the locations created, modified or deleted since the last sync of an offline client. A client without data
+     * starts without a token, then sends the token of the previous response, immediately while it has more changes.
+     *
+     * @param since the token of the previous response (optional, absent to download all the locations)
+     * @param limit the maximum number of changes (optional)
+     * @return the changes since the token and the token of the next sync
+     */
+    @GetMapping("/changes")
+    @Operation(summary = "List the changes to the locations", description = "Get the locations created, modified or deleted since the token of the previous sync.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved the changes",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ChangesDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid token or limit",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "410", description = "Token expired, sync again without a token",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public ResponseEntity<?> getLocationChanges(
+            @Parameter(description = "Token of the previous sync")
+            @RequestParam(required = false) @Nullable
+            String since,
+            @Parameter(description = "Maximum number of changes")
+            @RequestParam(required = false) @Nullable
+            Integer limit
+    ) {
+        try {
+            // Return the changes since the token.
+            return ResponseEntity.ok(this.locationService.getLocationChanges(since, limit));
+        } catch (ChangeFeedService.InvalidChangeTokenException | ChangeFeedService.ChangeTokenExpiredException e) {
+            // Return a 400 Bad Request response if the token is malformed, or a 410 Gone response if it expired.
+            return e.toResponseEntity();
+        }
+    }
+
     /**
      * Get a single location by its id.
      *
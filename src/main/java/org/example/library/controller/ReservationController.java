@@ -0,0 +1,152 @@
+package org.example.library.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.AllArgsConstructor;
+import org.example.library.dto.ReservationDTO;
+import org.example.library.dto.ReservationRequestDTO;
+import org.example.library.service.BookCopyService;
+import org.example.library.service.BookService;
+import org.example.library.service.LocationService;
+import org.example.library.service.ReservationService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.lang.NonNull;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.ErrorResponse;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Controller for the reservations holding copies at a location.
+ */
+@RestController
+@RequestMapping("/api/locations/{locationId}/reservations")
+@Tag(name = "Reservation", description = "The Reservation API")
+@AllArgsConstructor
+public class ReservationController {
+    /**
+     * The ReservationService instance.
+     */
+    private final ReservationService reservationService;
+
+    /**
+     * Hold copies of a book at a location until they are picked up, for a limited time.
+     *
+     * @param locationId  the id of the location
+     * @param reservation the book and the number of copies to hold
+     * @return the reservation
+     */
+    @PostMapping
+    @Operation(summary = "Hold copies of a book at a location", description = "Hold copies of a book until they are picked up. The hold expires after a while.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Successfully held the copies",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ReservationDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid input",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "404", description = "Location or book not found",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "409", description = "Insufficient copies available",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public ResponseEntity<?> holdBookCopies(
+            @Parameter(description = "ID of the location", required = true) @NonNull
+            @PathVariable Long locationId,
+            @Parameter(description = "Book and number of copies to hold", required = true) @NonNull
+            @Valid @RequestBody
+            ReservationRequestDTO reservation
+    ) {
+        try {
+            // Hold the copies and return the reservation.
+            return ResponseEntity.ok(this.reservationService.hold(locationId, reservation.getBookId(), reservation.getQuantity()));
+        } catch (BookCopyService.InsufficientCopiesException |
+                 ReservationService.InvalidReservationException |
+                 LocationService.LocationNotFoundException |
+                 BookService.BookNotFoundException e) {
+            // Return an error response if the hold is invalid, there are insufficient copies, or the location or book is not found.
+            return e.toResponseEntity();
+        }
+    }
+
+    /**
+     * Cancel a reservation, releasing its copies.
+     *
+     * @param locationId    the id of the location
+     * @param reservationId the id of the reservation
+     * @return an empty response
+     */
+    @DeleteMapping("/{reservationId}")
+    @Operation(summary = "Cancel a reservation", description = "Release the copies held by a reservation. The holder or the manager of the location can cancel it.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "204", description = "Successfully cancelled the reservation"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "403", description = "Forbidden",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "404", description = "Reservation not found",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    @PreAuthorize("@reservationAuthorization.isReservationHolder(authentication, #reservationId) or " +
+            "@managerAuthorization.isUserLocationManager(authentication, #locationId)")
+    public ResponseEntity<?> cancelReservation(
+            @Parameter(description = "ID of the location", required = true) @NonNull
+            @PathVariable Long locationId,
+            @Parameter(description = "ID of the reservation", required = true) @NonNull
+            @PathVariable Long reservationId
+    ) {
+        try {
+            // Cancel the reservation.
+            this.reservationService.cancel(locationId, reservationId);
+            return ResponseEntity.noContent().build();
+        } catch (ReservationService.ReservationNotFoundException e) {
+            // Return a 404 Not Found response if the reservation is not found.
+            return e.toResponseEntity();
+        }
+    }
+
+    /**
+     * Sell the copies of a reservation picked up at the location, before the hold expires.
+     *
+     * @param locationId    the id of the location
+     * @param reservationId the id of the reservation
+     * @return the quantity of the book at the location after the sale
+     */
+    @PostMapping("/{reservationId}/pickup")
+    @Operation(summary = "Pick up a reservation", description = "Sell the copies held by a reservation, before the hold expires.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Successfully sold the copies of the reservation",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = Integer.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "403", description = "Forbidden",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "404", description = "Reservation not found or expired",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "409", description = "Insufficient copies",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    @PreAuthorize("@managerAuthorization.isUserLocationManager(authentication, #locationId)")
+    public ResponseEntity<?> pickUpReservation(
+            @Parameter(description = "ID of the location", required = true) @NonNull
+            @PathVariable Long locationId,
+            @Parameter(description = "ID of the reservation", required = true) @NonNull
+            @PathVariable Long reservationId
+    ) {
+        try {
+            // Sell the copies and return the new quantity.
+            return ResponseEntity.ok(this.reservationService.pickUp(locationId, reservationId));
+        } catch (ReservationService.ReservationNotFoundException |
+                 BookCopyService.InsufficientCopiesException |
+                 LocationService.LocationNotFoundException |
+                 BookService.BookNotFoundException e) {
+            // Return an error response if the reservation is not found or its copies are not there anymore.
+            return e.toResponseEntity();
+        }
+    }
+}
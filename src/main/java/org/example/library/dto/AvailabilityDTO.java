@@ -0,0 +1,38 @@
+package org.example.library.dto;
+
+import lombok.*;
+
+/**
+ * The availability of a book at a location.
+ */
+@Getter
+@Setter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+public class AvailabilityDTO {
+    /**
+     * The unique identifier of the location.
+     */
+    private final Long locationId;
+
+    /**
+     * The unique identifier of the book.
+     */
+    private final Long bookId;
+
+    /**
+     * The quantity of the book at the location.
+     */
+    private final Integer quantity;
+
+    /**
+     * The copies held by the reservations.
+     */
+    private final Integer held;
+
+    /**
+     * The copies that can be sold or reserved, the quantity less the held copies.
+     */
+    private final Integer available;
+}
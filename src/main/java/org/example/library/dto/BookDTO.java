@@ -8,6 +8,7 @@ import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
 import lombok.experimental.SuperBuilder;
+import lombok.extern.jackson.Jacksonized;
 import org.example.library.entity.Genre;
 import org.example.library.validator.ISBN;
 
@@ -21,6 +22,7 @@ import java.time.LocalDate;
 @ToString
 @EqualsAndHashCode
 @SuperBuilder
+@Jacksonized
 public class BookDTO {
     /**
      * The title of the book.
@@ -61,6 +63,7 @@ public class BookDTO {
     @ToString
     @EqualsAndHashCode(callSuper = true)
     @SuperBuilder
+    @Jacksonized
     public static class BookEDTO extends BookDTO {
         /**
          * The unique identifier of the book.
@@ -0,0 +1,37 @@
+package org.example.library.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * A page of the changes of a change feed.
+ *
+ * @param <T> the type of the changed entities
+ */
+@Getter
+@Setter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+public class ChangesDTO<T> {
+    /**
+     * The entities created or modified since the token sent, in their current state.
+     */
+    private final List<T> changed;
+
+    /**
+     * The ids of the entities deleted since the token sent.
+     */
+    private final List<Long> deleted;
+
+    /**
+     * The token to send to get the changes that follow.
+     */
+    private final String next;
+
+    /**
+     * Whether more changes are available right away with the next token.
+     */
+    private final boolean hasMore;
+}
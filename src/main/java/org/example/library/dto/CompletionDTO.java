@@ -0,0 +1,28 @@
+package org.example.library.dto;
+
+import lombok.*;
+
+/**
+ * A title or an author completing the prefix typed in a search box.
+ */
+@Getter
+@Setter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+public class CompletionDTO {
+    /**
+     * The title or the author, as written in the books.
+     */
+    private final String text;
+
+    /**
+     * What the text is, TITLE or AUTHOR.
+     */
+    private final String type;
+
+    /**
+     * The number of copies in stock at all the locations of the books with this title or author.
+     */
+    private final int stock;
+}
@@ -0,0 +1,28 @@
+package org.example.library.dto;
+
+import lombok.*;
+
+/**
+ * A change of the quantity of a book at a location, pushed to the subscribers of the location.
+ */
+@Getter
+@Setter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+public class InventoryChangeDTO {
+    /**
+     * The unique identifier of the location.
+     */
+    private final Long locationId;
+
+    /**
+     * The unique identifier of the book.
+     */
+    private final Long bookId;
+
+    /**
+     * The quantity of the book at the location after the change.
+     */
+    private final Integer quantity;
+}
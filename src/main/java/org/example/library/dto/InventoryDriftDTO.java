@@ -0,0 +1,33 @@
+package org.example.library.dto;
+
+import lombok.*;
+
+/**
+ * A book copy whose quantity differs from the sum of its movements in the ledger.
+ */
+@Getter
+@Setter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+public class InventoryDriftDTO {
+    /**
+     * The unique identifier of the location.
+     */
+    private final Long locationId;
+
+    /**
+     * The unique identifier of the book.
+     */
+    private final Long bookId;
+
+    /**
+     * The quantity of the book copy, null if there is none.
+     */
+    private final Integer quantity;
+
+    /**
+     * The sum of the movements of the book copy, null if there are none.
+     */
+    private final Integer ledgerQuantity;
+}
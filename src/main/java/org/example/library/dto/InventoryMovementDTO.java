@@ -0,0 +1,51 @@
+package org.example.library.dto;
+
+import lombok.*;
+import org.example.library.entity.InventoryMovement;
+
+import java.time.LocalDateTime;
+
+/**
+ * A change of the quantity of a book at a location, in the ledger of the inventory.
+ */
+@Getter
+@Setter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+public class InventoryMovementDTO {
+    /**
+     * The unique identifier of the movement.
+     */
+    private final Long id;
+
+    /**
+     * The unique identifier of the location.
+     */
+    private final Long locationId;
+
+    /**
+     * The unique identifier of the book.
+     */
+    private final Long bookId;
+
+    /**
+     * The change of the quantity, positive when copies are added.
+     */
+    private final Integer delta;
+
+    /**
+     * The type of the movement.
+     */
+    private final InventoryMovement.Type type;
+
+    /**
+     * The username of the user who made the movement, if any.
+     */
+    private final String actor;
+
+    /**
+     * The date and time of the movement.
+     */
+    private final LocalDateTime movementDate;
+}
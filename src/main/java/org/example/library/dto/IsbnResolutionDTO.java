@@ -0,0 +1,27 @@
+package org.example.library.dto;
+
+import lombok.*;
+import org.example.library.dto.BookDTO.BookEDTO;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The books of scanned ISBNs.
+ */
+@Getter
+@Setter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+public class IsbnResolutionDTO {
+    /**
+     * The books found, by ISBN as it was sent, in the order of the request.
+     */
+    private final Map<String, BookEDTO> books;
+
+    /**
+     * The ISBNs of no book, or not valid, as they were sent.
+     */
+    private final List<String> unknown;
+}
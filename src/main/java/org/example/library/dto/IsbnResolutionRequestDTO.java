@@ -0,0 +1,27 @@
+package org.example.library.dto;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+import lombok.extern.jackson.Jacksonized;
+
+import java.util.List;
+
+/**
+ * A request to resolve the books of scanned ISBNs.
+ */
+@Getter
+@Setter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+@Builder
+@Jacksonized
+public class IsbnResolutionRequestDTO {
+    /**
+     * The ISBN-10s or ISBN-13s, with or without hyphens and spaces.
+     */
+    @NotNull
+    @Size(min = 1, max = 5000, message = "A resolution must have between 1 and 5000 ISBNs")
+    private final List<@NotNull String> isbns;
+}
@@ -7,6 +7,7 @@ import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
 import lombok.experimental.SuperBuilder;
+import lombok.extern.jackson.Jacksonized;
 
 /**
  * A location where books are stored.
@@ -16,6 +17,7 @@ import lombok.experimental.SuperBuilder;
 @ToString
 @EqualsAndHashCode
 @SuperBuilder
+@Jacksonized
 public class LocationDTO {
     /**
      * The name of the location.
@@ -36,6 +38,7 @@ public class LocationDTO {
     @ToString
     @EqualsAndHashCode(callSuper = true)
     @SuperBuilder
+    @Jacksonized
     public static class LocationEDTO extends LocationDTO {
         /**
          * The unique identifier of the location.
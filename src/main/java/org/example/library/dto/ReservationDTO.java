@@ -0,0 +1,40 @@
+package org.example.library.dto;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A reservation holding copies of a book at a location until they are picked up or the hold expires.
+ */
+@Getter
+@Setter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+public class ReservationDTO {
+    /**
+     * The unique identifier of the reservation.
+     */
+    private final Long id;
+
+    /**
+     * The unique identifier of the location.
+     */
+    private final Long locationId;
+
+    /**
+     * The unique identifier of the book.
+     */
+    private final Long bookId;
+
+    /**
+     * The number of copies held.
+     */
+    private final Integer quantity;
+
+    /**
+     * The date and time the hold expires, unless the copies are picked up before.
+     */
+    private final LocalDateTime expiresAt;
+}
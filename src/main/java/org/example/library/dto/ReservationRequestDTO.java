@@ -0,0 +1,28 @@
+package org.example.library.dto;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.*;
+
+/**
+ * A request to hold copies of a book at a location until they are picked up.
+ */
+@Getter
+@Setter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+public class ReservationRequestDTO {
+    /**
+     * The unique identifier of the book.
+     */
+    @NotNull
+    private final Long bookId;
+
+    /**
+     * The number of copies to hold.
+     */
+    @NotNull
+    @Positive(message = "Quantity must be positive")
+    private final Integer quantity;
+}
@@ -0,0 +1,46 @@
+package org.example.library.dto;
+
+import lombok.*;
+import org.example.library.entity.Genre;
+
+import java.time.LocalDateTime;
+
+/**
+ * The copies sold and restocked during a bucket of time, for a group of books and locations.
+ */
+@Getter
+@Setter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+public class SalesPointDTO {
+    /**
+     * The start of the bucket.
+     */
+    private final LocalDateTime bucket;
+
+    /**
+     * The unique identifier of the location, null if the locations are not grouped.
+     */
+    private final Long locationId;
+
+    /**
+     * The genre of the books, null if the genres are not grouped.
+     */
+    private final Genre genre;
+
+    /**
+     * The author of the books, null if the authors are not grouped.
+     */
+    private final String author;
+
+    /**
+     * The number of copies sold.
+     */
+    private final long sold;
+
+    /**
+     * The number of copies restocked.
+     */
+    private final long restocked;
+}
@@ -0,0 +1,37 @@
+package org.example.library.dto;
+
+import lombok.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * The copies sold and restocked over a range of time, in buckets of a step.
+ */
+@Getter
+@Setter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+public class SalesReportDTO {
+    /**
+     * The start of the range, aligned on the step.
+     */
+    private final LocalDateTime from;
+
+    /**
+     * The end of the range (exclusive), aligned on the step.
+     */
+    private final LocalDateTime to;
+
+    /**
+     * The width of the buckets.
+     */
+    private final Duration step;
+
+    /**
+     * The buckets with sales or restocks, in order of time. The buckets without are omitted.
+     */
+    private final List<SalesPointDTO> points;
+}
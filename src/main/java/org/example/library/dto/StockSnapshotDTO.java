@@ -0,0 +1,63 @@
+package org.example.library.dto;
+
+import lombok.*;
+
+/**
+ * The summary of the reconciliation of the book copies of a location with a snapshot of its stock.
+ */
+@Getter
+@Setter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+public class StockSnapshotDTO {
+    /**
+     * The unique identifier of the location.
+     */
+    private final Long locationId;
+
+    /**
+     * The number of books in the snapshot.
+     */
+    private final Integer lines;
+
+    /**
+     * The number of book copies whose quantity was already the counted one.
+     */
+    private final Integer unchanged;
+
+    /**
+     * The number of book copies created for the books counted at the location.
+     */
+    private final Integer inserted;
+
+    /**
+     * The number of book copies whose quantity was corrected.
+     */
+    private final Integer updated;
+
+    /**
+     * The number of book copies missing from the snapshot, deleted or emptied if copies are held.
+     */
+    private final Integer removed;
+
+    /**
+     * The number of books of the snapshot that were not found, or whose copies were created during the reconciliation.
+     */
+    private final Integer skipped;
+
+    /**
+     * The number of book copies kept above their counted quantity, for the copies held by their reservations.
+     */
+    private final Integer kept;
+
+    /**
+     * The number of copies added by the corrections.
+     */
+    private final Long copiesAdded;
+
+    /**
+     * The number of copies removed by the corrections.
+     */
+    private final Long copiesRemoved;
+}
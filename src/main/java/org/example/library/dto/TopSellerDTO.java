@@ -0,0 +1,38 @@
+package org.example.library.dto;
+
+import lombok.*;
+
+/**
+ * A book or an author of a leaderboard of the top sellers.
+ */
+@Getter
+@Setter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+public class TopSellerDTO {
+    /**
+     * The rank, starting at 1.
+     */
+    private final int rank;
+
+    /**
+     * The unique identifier of the book, null in the leaderboards of the authors.
+     */
+    private final Long bookId;
+
+    /**
+     * The title of the book, null in the leaderboards of the authors or if the book was deleted.
+     */
+    private final String title;
+
+    /**
+     * The author of the book, or the author ranked.
+     */
+    private final String author;
+
+    /**
+     * The estimated number of copies sold over the window, never lower than the actual number.
+     */
+    private final long sold;
+}
@@ -0,0 +1,36 @@
+package org.example.library.dto;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * A leaderboard of the books or authors with the most copies sold over a sliding window.
+ */
+@Getter
+@Setter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+public class TopSellersDTO {
+    /**
+     * The unique identifier of the location, null for all the locations.
+     */
+    private final Long locationId;
+
+    /**
+     * What is ranked, BOOK or AUTHOR.
+     */
+    private final String ranking;
+
+    /**
+     * The start of the window, the sales since then are counted.
+     */
+    private final LocalDateTime from;
+
+    /**
+     * The top sellers, best first.
+     */
+    private final List<TopSellerDTO> entries;
+}
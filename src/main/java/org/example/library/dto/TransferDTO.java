@@ -0,0 +1,30 @@
+package org.example.library.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * A transfer of copies from a location to another, with the quantities of the books after the transfer.
+ */
+@Getter
+@Setter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+public class TransferDTO {
+    /**
+     * The unique identifier of the location sending the copies.
+     */
+    private final Long fromLocationId;
+
+    /**
+     * The unique identifier of the location receiving the copies.
+     */
+    private final Long toLocationId;
+
+    /**
+     * The quantities of the books at both locations after the transfer.
+     */
+    private final List<InventoryChangeDTO> quantities;
+}
@@ -0,0 +1,55 @@
+package org.example.library.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * A request to move copies of one or more books from a location to another.
+ */
+@Getter
+@Setter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+public class TransferRequestDTO {
+    /**
+     * The unique identifier of the location receiving the copies.
+     */
+    @NotNull
+    private final Long toLocationId;
+
+    /**
+     * The books to move with their number of copies.
+     */
+    @NotNull
+    @Size(min = 1, max = 100, message = "A transfer must have between 1 and 100 items")
+    private final List<@Valid @NotNull Item> items;
+
+    /**
+     * The copies of a book to move.
+     */
+    @Getter
+    @Setter
+    @ToString
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    public static class Item {
+        /**
+         * The unique identifier of the book.
+         */
+        @NotNull
+        private final Long bookId;
+
+        /**
+         * The number of copies to move.
+         */
+        @NotNull
+        @Positive(message = "Quantity must be positive")
+        private final Integer quantity;
+    }
+}
@@ -2,6 +2,7 @@ package org.example.library.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.example.library.validator.ISBNParser;
 
 import java.time.LocalDate;
 import java.util.HashSet;
@@ -22,7 +23,9 @@ import java.util.Set;
         @Index(name = "idx_book_title", columnList = "title"),
         // Index to allow searching for books by author, or by author and title. The composite index is built with
         // the author column first, as it is more selective than the title column.
-        @Index(name = "idx_book_author_title", columnList = "author, title")
+        @Index(name = "idx_book_author_title", columnList = "author, title"),
+        // Index to allow reading the books changed after a position of the change feed.
+        @Index(name = "idx_book_change_xid", columnList = "change_xid, id")
 })
 public class Book extends Auditable {
     /**
@@ -63,9 +66,39 @@ public class Book extends Auditable {
     @Column(nullable = false, unique = true)
     private String isbn;
 
+    /**
+     * The ISBN-13 of the book as a number, the same whatever the formatting of its ISBN, which is the key of the
+     * lookups by ISBN. Set with the ISBN.
+     */
+    @Column(nullable = false, unique = true)
+    @Setter(AccessLevel.NONE)
+    private Long isbn13;
+
     /**
      * The publication date of the book (based on the UTC timezone).
      */
     @Column(nullable = false)
     private LocalDate publicationDate;
-}
\ No newline at end of file
+
+    /**
+     * The id of the transaction that last wrote the book, its position in the change feed. Set by the database.
+     */
+    @Column(name = "change_xid", insertable = false, updatable = false)
+    @Setter(AccessLevel.NONE)
+    private Long changeXid;
+
+    /**
+     * Set the ISBN of the book, and its ISBN-13 key.
+     *
+     * @param isbn the ISBN, in any formatting
+     * @throws IllegalArgumentException if the ISBN is not valid, which the validation of the requests rejects first
+     */
+    public void setIsbn(String isbn) {
+        long isbn13 = isbn != null ? ISBNParser.parse(isbn) : ISBNParser.INVALID;
+        if (isbn13 == ISBNParser.INVALID) {
+            throw new IllegalArgumentException("Invalid ISBN: " + isbn);
+        }
+        this.isbn = isbn;
+        this.isbn13 = isbn13;
+    }
+}
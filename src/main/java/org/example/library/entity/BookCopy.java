@@ -45,6 +45,12 @@ public class BookCopy {
     @Column(nullable = false)
     private Integer quantity;
 
+    /**
+     * The quantity held by the reservations, which is not available.
+     */
+    @Column(nullable = false)
+    private Integer held = 0;
+
     /**
      * Creates a new book copy with the given book, location, and quantity.
      *
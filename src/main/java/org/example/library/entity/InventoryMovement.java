@@ -0,0 +1,119 @@
+package org.example.library.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.Immutable;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import java.time.LocalDateTime;
+
+/**
+ * A change of the quantity of a book at a location, in the append-only ledger of the inventory. The quantity of a book
+ * copy is the sum of the deltas of its movements.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@ToString
+@EqualsAndHashCode
+@Entity
+@Immutable
+@Table(name = "inventory_movements", indexes = {
+        // Index to allow reading the history of a book at a location.
+        @Index(name = "idx_movement_location_book_date", columnList = "location_id, book_id, movement_date")
+})
+public class InventoryMovement {
+    /**
+     * The unique identifier of the movement.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * The unique identifier of the location.
+     */
+    @Column(name = "location_id", nullable = false)
+    private Long locationId;
+
+    /**
+     * The unique identifier of the book.
+     */
+    @Column(name = "book_id", nullable = false)
+    private Long bookId;
+
+    /**
+     * The change of the quantity, positive when copies are added.
+     */
+    @Column(nullable = false)
+    private Integer delta;
+
+    /**
+     * The type of the movement.
+     */
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private Type type;
+
+    /**
+     * The username of the user who made the movement, if any.
+     */
+    private String actor;
+
+    /**
+     * The date and time of the movement, when the quantity was changed rather than when the movement was written.
+     */
+    @Column(name = "movement_date", nullable = false)
+    private LocalDateTime movementDate;
+
+    /**
+     * Creates a new movement.
+     *
+     * @param locationId   the unique identifier of the location
+     * @param bookId       the unique identifier of the book
+     * @param delta        the change of the quantity
+     * @param type         the type of the movement
+     * @param actor        the username of the user who made the movement, if any
+     * @param movementDate the date and time of the movement
+     */
+    public InventoryMovement(@NonNull Long locationId, @NonNull Long bookId, @NonNull Integer delta, @NonNull Type type,
+                             @Nullable String actor, @NonNull LocalDateTime movementDate) {
+        this.locationId = locationId;
+        this.bookId = bookId;
+        this.delta = delta;
+        this.type = type;
+        this.actor = actor;
+        this.movementDate = movementDate;
+    }
+
+    /**
+     * The types of movements.
+     */
+    public enum Type {
+        /**
+         * The quantity of a book copy when the ledger was created.
+         */
+        OPENING,
+        /**
+         * Copies added to a location.
+         */
+        RESTOCK,
+        /**
+         * Copies removed from a location.
+         */
+        SALE,
+        /**
+         * Copies sent to another location.
+         */
+        TRANSFER_OUT,
+        /**
+         * Copies received from another location.
+         */
+        TRANSFER_IN,
+        /**
+         * A correction of the quantity to the copies counted at a location.
+         */
+        ADJUSTMENT
+    }
+}
@@ -18,6 +18,8 @@ import java.util.Set;
 @Table(name = "locations", indexes = {
         // Index to allow searching for books by title.
         @Index(name = "idx_location_name", columnList = "name"),
+        // Index to allow reading the locations changed after a position of the change feed.
+        @Index(name = "idx_location_change_xid", columnList = "change_xid, id"),
 })
 public class Location extends Auditable {
     /**
@@ -51,4 +53,11 @@ public class Location extends Auditable {
      */
     @Column(nullable = false)
     private String address;
+
+    /**
+     * The id of the transaction that last wrote the location, its position in the change feed. Set by the database.
+     */
+    @Column(name = "change_xid", insertable = false, updatable = false)
+    @Setter(AccessLevel.NONE)
+    private Long changeXid;
 }
\ No newline at end of file
@@ -0,0 +1,77 @@
+package org.example.library.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.springframework.lang.NonNull;
+
+import java.time.LocalDateTime;
+
+/**
+ * A record of a deleted entity, which lets the clients syncing the changes remove it from their copy.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@ToString
+@EqualsAndHashCode
+@Entity
+@Table(name = "tombstones", indexes = {
+        // Index to allow reading the deletions of a type of entity after a position of the change feed.
+        @Index(name = "idx_tombstone_type_change_xid", columnList = "entity_type, change_xid, entity_id"),
+        // Index to allow purging the tombstones after the retention.
+        @Index(name = "idx_tombstone_deleted", columnList = "deleted_date")
+})
+public class Tombstone {
+    /**
+     * The unique identifier of the tombstone.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * The type of the deleted entity.
+     */
+    @Column(name = "entity_type", nullable = false)
+    @Enumerated(EnumType.STRING)
+    private EntityType entityType;
+
+    /**
+     * The unique identifier of the deleted entity.
+     */
+    @Column(name = "entity_id", nullable = false)
+    private Long entityId;
+
+    /**
+     * The date and time when the entity was deleted, after which the tombstone is kept for the retention.
+     */
+    @Column(name = "deleted_date", nullable = false)
+    private LocalDateTime deletedDate;
+
+    /**
+     * The id of the transaction that deleted the entity, its position in the change feed. Set by the database.
+     */
+    @Column(name = "change_xid", insertable = false, updatable = false)
+    @Setter(AccessLevel.NONE)
+    private Long changeXid;
+
+    /**
+     * Creates a new tombstone for an entity deleted now.
+     *
+     * @param entityType the type of the deleted entity
+     * @param entityId   the unique identifier of the deleted entity
+     */
+    public Tombstone(@NonNull EntityType entityType, @NonNull Long entityId) {
+        this.entityType = entityType;
+        this.entityId = entityId;
+        this.deletedDate = LocalDateTime.now();
+    }
+
+    /**
+     * The types of entities whose deletions are recorded.
+     */
+    public enum EntityType {
+        BOOK,
+        LOCATION
+    }
+}
@@ -0,0 +1,86 @@
+package org.example.library.invalidation;
+
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+/**
+ * A change to an entity, published to the other nodes so that they invalidate their local caches.
+ *
+ * @param type    the type of the changed entity
+ * @param id      the id of the changed entity, "locationId.bookId" for a book copy
+ * @param version the time of the change in milliseconds on the node that made it
+ */
+public record ChangeEvent(@NonNull EntityType type, @NonNull String id, long version) {
+    /**
+     * Encodes the event in the compact form of the notifications, e.g. "B:42:1700000000000".
+     *
+     * @return the encoded event
+     */
+    @NonNull
+    public String encode() {
+        return this.type.getCode() + ":" + this.id + ":" + this.version;
+    }
+
+    /**
+     * Decodes an event encoded by {@link #encode()}.
+     *
+     * @param encoded the encoded event
+     * @return the event, or null if it is malformed
+     */
+    @Nullable
+    public static ChangeEvent decode(@NonNull String encoded) {
+        String[] parts = encoded.split(":");
+        if (parts.length != 3 || parts[0].length() != 1) {
+            return null;
+        }
+        EntityType type = EntityType.fromCode(parts[0].charAt(0));
+        try {
+            return type == null ? null : new ChangeEvent(type, parts[1], Long.parseLong(parts[2]));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The types of the entities whose changes are published.
+     */
+    public enum EntityType {
+        BOOK('B'),
+        LOCATION('L'),
+        BOOK_COPY('C');
+
+        /**
+         * The code of the type in the notifications.
+         */
+        private final char code;
+
+        EntityType(char code) {
+            this.code = code;
+        }
+
+        /**
+         * Gets the code of the type in the notifications.
+         *
+         * @return the code
+         */
+        public char getCode() {
+            return this.code;
+        }
+
+        /**
+         * Gets the type with a code.
+         *
+         * @param code the code
+         * @return the type, or null if no type has this code
+         */
+        @Nullable
+        public static EntityType fromCode(char code) {
+            for (EntityType type : values()) {
+                if (type.code == code) {
+                    return type;
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package org.example.library.invalidation;
+
+import org.springframework.lang.NonNull;
+
+import java.util.Collection;
+
+/**
+ * A holder of local caches that must be invalidated when another node changes the entities they contain.
+ */
+public interface InvalidationListener {
+    /**
+     * Invalidates the cached data depending on changed entities.
+     *
+     * @param events the changes made by another node, in the order they were received
+     */
+    void invalidate(@NonNull Collection<ChangeEvent> events);
+
+    /**
+     * Invalidates all the cached data, when changes of other nodes may have been missed.
+     */
+    void invalidateAll();
+}
@@ -0,0 +1,246 @@
+package org.example.library.invalidation;
+
+import org.example.library.metrics.InvalidationMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Publishes the changes of the write paths to the other nodes with pg_notify.
+ * <p>
+ * The changes of a transaction are sent as a single notification, in the transaction itself just before it commits:
+ * Postgres only delivers a notification when its transaction commits and drops it when it rolls back, so the other
+ * nodes never hear about a change they cannot read yet or that did not happen. A notification is
+ * "nodeId|sequence|events", where the sequence numbers the notifications of a node so that the listeners can detect
+ * the ones they missed.
+ */
+@Component
+public class InvalidationPublisher {
+    /**
+     * The maximum size of a notification payload accepted by Postgres (8000 bytes by default), minus some headroom.
+     */
+    static final int MAX_PAYLOAD = 7900;
+
+    /**
+     * The events of a notification telling the listeners to invalidate everything.
+     */
+    static final String FLUSH_ALL = "*";
+
+    /**
+     * The names accepted for the channel, which is also used as an identifier in LISTEN.
+     */
+    private static final Pattern CHANNEL = Pattern.compile("[a-z_][a-z0-9_]*");
+
+    /**
+     * The logger of the class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(InvalidationPublisher.class);
+
+    /**
+     * Whether the changes are published.
+     */
+    private final boolean enabled;
+
+    /**
+     * The channel of the notifications.
+     */
+    private final String channel;
+
+    /**
+     * The id of this node, unique to this run of the application.
+     */
+    private final String nodeId = UUID.randomUUID().toString().substring(0, 8);
+
+    /**
+     * The sequence number of the last notification of this node.
+     */
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * The JDBC template, which runs in the transaction of the write.
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * The metrics of the invalidation bus.
+     */
+    private final InvalidationMetrics metrics;
+
+    /**
+     * Constructor for the InvalidationPublisher.
+     *
+     * @param enabled      Whether the changes are published
+     * @param channel      The channel of the notifications
+     * @param jdbcTemplate The JDBC template
+     * @param metrics      The metrics of the invalidation bus
+     */
+    public InvalidationPublisher(@Value("${app.invalidation.enabled:true}") boolean enabled,
+                                 @Value("${app.invalidation.channel:library_invalidation}") String channel,
+                                 JdbcTemplate jdbcTemplate,
+                                 InvalidationMetrics metrics) {
+        if (!CHANNEL.matcher(channel).matches()) {
+            throw new IllegalArgumentException("Invalid invalidation channel: " + channel);
+        }
+        this.enabled = enabled;
+        this.channel = channel;
+        this.jdbcTemplate = jdbcTemplate;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Publishes a change to an entity, when the current transaction commits or immediately if there is none.
+     *
+     * @param type The type of the changed entity
+     * @param id   The id of the changed entity
+     */
+    public void publish(@NonNull ChangeEvent.EntityType type, @NonNull Object id) {
+        if (!this.enabled) {
+            return;
+        }
+
+        ChangeEvent event = new ChangeEvent(type, String.valueOf(id), System.currentTimeMillis());
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            try {
+                this.send(List.of(event), false);
+            } catch (DataAccessException e) {
+                // The change is already committed, the listeners detect the missing notification and flush.
+                logger.warn("Could not publish the change {}", event, e);
+                this.metrics.recordPublishFailure();
+            }
+            return;
+        }
+
+        Batch batch = this.getBatch();
+        if (!batch.all) {
+            batch.events.add(event);
+        }
+    }
+
+    /**
+     * Publishes a change to every entity, when the current transaction commits or immediately if there is none, for
+     * the writes changing too many entities to list them. The listeners invalidate everything.
+     */
+    public void publishAll() {
+        if (!this.enabled) {
+            return;
+        }
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            try {
+                this.send(List.of(), true);
+            } catch (DataAccessException e) {
+                logger.warn("Could not publish the change of everything", e);
+                this.metrics.recordPublishFailure();
+            }
+            return;
+        }
+
+        // The changes published before or after are covered.
+        Batch batch = this.getBatch();
+        batch.all = true;
+        batch.events.clear();
+    }
+
+    /**
+     * Gets the id of this node, which the listener of this node uses to skip its own notifications.
+     *
+     * @return the id of the node
+     */
+    @NonNull
+    public String getNodeId() {
+        return this.nodeId;
+    }
+
+    /**
+     * Gets the channel of the notifications.
+     *
+     * @return the channel
+     */
+    @NonNull
+    public String getChannel() {
+        return this.channel;
+    }
+
+    /**
+     * Gets the changes of the current transaction, bound to it on the first change.
+     *
+     * @return The changes of the transaction
+     */
+    private Batch getBatch() {
+        Batch batch = (Batch) TransactionSynchronizationManager.getResource(this);
+        if (batch == null) {
+            batch = new Batch();
+            TransactionSynchronizationManager.bindResource(this, batch);
+            TransactionSynchronizationManager.registerSynchronization(batch);
+        }
+        return batch;
+    }
+
+    /**
+     * Sends the events as a single notification, or as a flush of everything if they do not fit in one.
+     *
+     * @param events The events
+     * @param all    Whether everything changed, whatever the events
+     * @throws DataAccessException If the notification cannot be sent
+     */
+    private void send(List<ChangeEvent> events, boolean all) throws DataAccessException {
+        String encoded = events.stream().map(ChangeEvent::encode).collect(Collectors.joining(","));
+        String header = this.nodeId + "|" + this.sequence.incrementAndGet() + "|";
+        String payload = header + encoded;
+        if (all || payload.getBytes(StandardCharsets.UTF_8).length > MAX_PAYLOAD) {
+            payload = header + FLUSH_ALL;
+        }
+
+        this.jdbcTemplate.queryForObject("SELECT pg_notify(?, ?)", Object.class, this.channel, payload);
+        this.metrics.recordPublished(events.size());
+    }
+
+    /**
+     * The changes of a transaction, sent before it commits.
+     */
+    private class Batch implements TransactionSynchronization {
+        /**
+         * The changes of the transaction.
+         */
+        private final List<ChangeEvent> events = new ArrayList<>();
+
+        /**
+         * Whether the transaction changed everything, the events are not kept then.
+         */
+        private boolean all;
+
+        /**
+         * Sends the changes in the transaction, a failure aborts the transaction as it would abort the write.
+         *
+         * @param readOnly whether the transaction is read-only
+         */
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            InvalidationPublisher.this.send(this.events, this.all);
+        }
+
+        /**
+         * Unbinds the batch from the transaction.
+         *
+         * @param status the completion status of the transaction
+         */
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(InvalidationPublisher.this);
+        }
+    }
+}
@@ -0,0 +1,404 @@
+package org.example.library.invalidation;
+
+import jakarta.annotation.PreDestroy;
+import org.example.library.metrics.InvalidationMetrics;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Listens to the changes published by the other nodes and applies them to the local caches.
+ * <p>
+ * The listener holds its own connection, outside the pool, and applies the notifications received together as a
+ * single batch. Every event that may have been missed turns into a full flush of the local caches: on every
+ * (re)connection, since the notifications sent while not listening are lost, when a batch is too large, and when the
+ * sequence of the notifications of a node has a gap that is not filled within the gap timeout (notifications of
+ * concurrent transactions may arrive out of order).
+ */
+@Component
+public class InvalidationSubscriber {
+    /**
+     * The logger of the class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(InvalidationSubscriber.class);
+
+    /**
+     * Whether the changes of the other nodes are applied.
+     */
+    private final boolean enabled;
+
+    /**
+     * The maximum time in milliseconds to wait for notifications before checking the gaps.
+     */
+    private final int pollTimeout;
+
+    /**
+     * The time in milliseconds after which a missing notification is considered lost.
+     */
+    private final long gapTimeout;
+
+    /**
+     * The number of changes in a batch above which the local caches are flushed instead.
+     */
+    private final int maxBatchSize;
+
+    /**
+     * The time in milliseconds without notifications after which the connection is checked.
+     */
+    private final long keepAliveInterval;
+
+    /**
+     * The initial delay in milliseconds before reconnecting, doubled on every failure.
+     */
+    private final long reconnectDelay;
+
+    /**
+     * The maximum delay in milliseconds before reconnecting.
+     */
+    private final long maxReconnectDelay;
+
+    /**
+     * The publisher of this node, whose notifications are skipped.
+     */
+    private final InvalidationPublisher publisher;
+
+    /**
+     * The holders of local caches.
+     */
+    private final List<InvalidationListener> listeners;
+
+    /**
+     * The properties of the data source, used to open the connection of the listener.
+     */
+    private final DataSourceProperties dataSourceProperties;
+
+    /**
+     * The metrics of the invalidation bus.
+     */
+    private final InvalidationMetrics metrics;
+
+    /**
+     * The sequences of the notifications received from each node, only accessed by the listener thread.
+     */
+    private final Map<String, Sequence> sequences = new HashMap<>();
+
+    /**
+     * The listener thread, or null if it is not started.
+     */
+    private volatile Thread thread;
+
+    /**
+     * Whether the listener is connected.
+     */
+    private volatile boolean connected;
+
+    /**
+     * Constructor for the InvalidationSubscriber.
+     *
+     * @param enabled              Whether the changes of the other nodes are applied
+     * @param pollTimeout          The maximum time in milliseconds to wait for notifications
+     * @param gapTimeout           The time in milliseconds after which a missing notification is considered lost
+     * @param maxBatchSize         The number of changes in a batch above which the local caches are flushed instead
+     * @param keepAliveInterval    The time in milliseconds without notifications after which the connection is checked
+     * @param reconnectDelay       The initial delay in milliseconds before reconnecting, doubled on every failure
+     * @param maxReconnectDelay    The maximum delay in milliseconds before reconnecting
+     * @param publisher            The publisher of this node
+     * @param listeners            The holders of local caches
+     * @param dataSourceProperties The properties of the data source
+     * @param metrics              The metrics of the invalidation bus
+     */
+    public InvalidationSubscriber(@Value("${app.invalidation.enabled:true}") boolean enabled,
+                                  @Value("${app.invalidation.poll-timeout:500}") int pollTimeout,
+                                  @Value("${app.invalidation.gap-timeout:2000}") long gapTimeout,
+                                  @Value("${app.invalidation.max-batch-size:1000}") int maxBatchSize,
+                                  @Value("${app.invalidation.keep-alive-interval:10000}") long keepAliveInterval,
+                                  @Value("${app.invalidation.reconnect-delay:1000}") long reconnectDelay,
+                                  @Value("${app.invalidation.max-reconnect-delay:30000}") long maxReconnectDelay,
+                                  InvalidationPublisher publisher,
+                                  List<InvalidationListener> listeners,
+                                  DataSourceProperties dataSourceProperties,
+                                  InvalidationMetrics metrics) {
+        this.enabled = enabled;
+        this.pollTimeout = pollTimeout;
+        this.gapTimeout = gapTimeout;
+        this.maxBatchSize = maxBatchSize;
+        this.keepAliveInterval = keepAliveInterval;
+        this.reconnectDelay = reconnectDelay;
+        this.maxReconnectDelay = maxReconnectDelay;
+        this.publisher = publisher;
+        this.listeners = listeners;
+        this.dataSourceProperties = dataSourceProperties;
+        this.metrics = metrics;
+        this.metrics.registerConnected(() -> this.connected);
+    }
+
+    /**
+     * Starts listening once the application is ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!this.enabled || this.thread != null) {
+            return;
+        }
+        Thread thread = new Thread(this::run, "invalidation-listener");
+        thread.setDaemon(true);
+        this.thread = thread;
+        thread.start();
+    }
+
+    /**
+     * Stops listening.
+     *
+     * @throws InterruptedException if interrupted while waiting for the listener thread
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        Thread thread = this.thread;
+        this.thread = null;
+        if (thread != null) {
+            thread.interrupt();
+            thread.join(this.pollTimeout * 2L);
+        }
+    }
+
+    /**
+     * Whether the listener is connected.
+     *
+     * @return true if the listener is connected
+     */
+    public boolean isConnected() {
+        return this.connected;
+    }
+
+    /**
+     * Listens to the notifications until stopped, reconnecting with an exponential backoff.
+     */
+    private void run() {
+        long delay = this.reconnectDelay;
+        while (this.thread == Thread.currentThread()) {
+            try (Connection connection = DriverManager.getConnection(this.dataSourceProperties.determineUrl(),
+                    this.dataSourceProperties.determineUsername(), this.dataSourceProperties.determinePassword())) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN \"" + this.publisher.getChannel() + "\"");
+                }
+                this.connected = true;
+                delay = this.reconnectDelay;
+                // The notifications sent while not listening are lost.
+                this.flush("connect");
+                this.listen(connection);
+            } catch (SQLException e) {
+                if (this.thread == Thread.currentThread()) {
+                    logger.warn("Invalidation listener disconnected, reconnecting in {} ms", delay, e);
+                }
+            } finally {
+                this.connected = false;
+            }
+
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                return;
+            }
+            delay = Math.min(delay * 2, this.maxReconnectDelay);
+        }
+    }
+
+    /**
+     * Receives and applies the notifications until stopped or disconnected.
+     *
+     * @param connection The connection listening to the channel
+     * @throws SQLException If the connection fails
+     */
+    private void listen(Connection connection) throws SQLException {
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+        long lastActivity = System.currentTimeMillis();
+        while (this.thread == Thread.currentThread()) {
+            PGNotification[] notifications = pgConnection.getNotifications(this.pollTimeout);
+            long now = System.currentTimeMillis();
+            if (notifications != null && notifications.length > 0) {
+                this.apply(notifications, now);
+                lastActivity = now;
+            } else if (now - lastActivity > this.keepAliveInterval) {
+                // A dead connection only fails when used.
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("SELECT 1");
+                }
+                lastActivity = now;
+            }
+            this.checkGaps(now);
+        }
+    }
+
+    /**
+     * Applies a batch of notifications to the local caches.
+     *
+     * @param notifications The notifications
+     * @param now           The current time in milliseconds
+     */
+    private void apply(PGNotification[] notifications, long now) {
+        List<ChangeEvent> events = new ArrayList<>();
+        String flushReason = null;
+        for (PGNotification notification : notifications) {
+            String[] parts = notification.getParameter().split("\\|", 3);
+            if (parts.length != 3) {
+                flushReason = "malformed";
+                continue;
+            }
+            if (parts[0].equals(this.publisher.getNodeId())) {
+                // This node already invalidated its caches when it committed.
+                continue;
+            }
+
+            try {
+                this.sequences.computeIfAbsent(parts[0], node -> new Sequence()).receive(Long.parseLong(parts[1]), now);
+            } catch (NumberFormatException e) {
+                flushReason = "malformed";
+                continue;
+            }
+            if (parts[2].equals(InvalidationPublisher.FLUSH_ALL)) {
+                flushReason = "requested";
+                continue;
+            }
+            for (String encoded : parts[2].split(",")) {
+                ChangeEvent event = ChangeEvent.decode(encoded);
+                if (event == null) {
+                    flushReason = "malformed";
+                } else {
+                    events.add(event);
+                }
+            }
+        }
+
+        if (flushReason == null && events.size() > this.maxBatchSize) {
+            flushReason = "overflow";
+        }
+        if (flushReason != null) {
+            this.flush(flushReason);
+        } else if (!events.isEmpty()) {
+            for (InvalidationListener listener : this.listeners) {
+                this.safely(() -> listener.invalidate(events));
+            }
+            this.metrics.recordApplied(events.size());
+        }
+    }
+
+    /**
+     * Flushes the local caches if a notification has been missing for longer than the gap timeout.
+     *
+     * @param now The current time in milliseconds
+     */
+    private void checkGaps(long now) {
+        boolean lost = false;
+        for (Sequence sequence : this.sequences.values()) {
+            lost |= sequence.skipLostGap(now, this.gapTimeout);
+        }
+        if (lost) {
+            this.flush("gap");
+        }
+    }
+
+    /**
+     * Flushes all the local caches.
+     *
+     * @param reason The reason of the flush
+     */
+    private void flush(String reason) {
+        logger.debug("Flushing the local caches ({})", reason);
+        for (InvalidationListener listener : this.listeners) {
+            this.safely(listener::invalidateAll);
+        }
+        this.metrics.recordFlush(reason);
+    }
+
+    /**
+     * Runs an invalidation, a failing cache must not stop the listener.
+     *
+     * @param invalidation The invalidation
+     */
+    private void safely(@NonNull Runnable invalidation) {
+        try {
+            invalidation.run();
+        } catch (RuntimeException e) {
+            logger.error("Cache invalidation failed", e);
+        }
+    }
+
+    /**
+     * The sequence numbers of the notifications received from a node.
+     */
+    private static class Sequence {
+        /**
+         * The next expected sequence number, or 0 before the first notification.
+         */
+        private long next;
+
+        /**
+         * The sequence numbers received after a missing one.
+         */
+        private final TreeSet<Long> ahead = new TreeSet<>();
+
+        /**
+         * The time the oldest missing notification has been missing since, or 0 if none is missing.
+         */
+        private long gapSince;
+
+        /**
+         * Records a received notification.
+         *
+         * @param sequence The sequence number of the notification
+         * @param now      The current time in milliseconds
+         */
+        void receive(long sequence, long now) {
+            if (this.next == 0 || sequence == this.next) {
+                this.next = sequence + 1;
+                while (this.ahead.remove(this.next)) {
+                    this.next++;
+                }
+                // A gap that is left is as old as the one just filled.
+                if (this.ahead.isEmpty()) {
+                    this.gapSince = 0;
+                }
+            } else if (sequence > this.next) {
+                this.ahead.add(sequence);
+                if (this.gapSince == 0) {
+                    this.gapSince = now;
+                }
+            }
+            // Older sequence numbers belong to a gap that was already flushed.
+        }
+
+        /**
+         * Skips the missing notifications if they have been missing for longer than the timeout.
+         *
+         * @param now     The current time in milliseconds
+         * @param timeout The gap timeout in milliseconds
+         * @return true if notifications were skipped and the caches must be flushed
+         */
+        boolean skipLostGap(long now, long timeout) {
+            if (this.gapSince == 0 || now - this.gapSince < timeout) {
+                return false;
+            }
+            this.next = this.ahead.last() + 1;
+            this.ahead.clear();
+            this.gapSince = 0;
+            return true;
+        }
+    }
+}
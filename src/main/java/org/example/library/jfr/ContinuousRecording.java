@@ -0,0 +1,332 @@
+package org.example.library.jfr;
+
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.example.library.lib.RepositoryException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Continuous flight recording of the application, kept in a ring buffer on disk so that the last minutes before a
+ * latency spike can be dumped after the fact.
+ * <p>
+ * The recording uses the "default" settings of the JDK, designed to run in production with an overhead below 1%, and
+ * only retains the data younger than the max age or within the max size. Dumps are written to the dump directory,
+ * either on demand through the flightrecording actuator endpoint or automatically when a controller call is slower
+ * than the slow-call threshold once the application is ready, at most once per cooldown.
+ */
+@Component
+public class ContinuousRecording {
+    /**
+     * The logger of the class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(ContinuousRecording.class);
+
+    /**
+     * The name of the recording, as listed by "jcmd &lt;pid&gt; JFR.check".
+     */
+    private static final String NAME = "library-continuous";
+
+    /**
+     * The format of the timestamps in the names of the dumps.
+     */
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS").withZone(ZoneOffset.UTC);
+
+    /**
+     * The recording, or null if it is disabled or the flight recorder is not available.
+     */
+    @Nullable
+    private final Recording recording;
+
+    /**
+     * The directory the dumps are written to.
+     */
+    private final Path directory;
+
+    /**
+     * The maximum number of dumps kept in the directory, the oldest are deleted first.
+     */
+    private final int maxDumps;
+
+    /**
+     * The duration of a controller call in milliseconds above which the recording is dumped, or 0 to never dump it.
+     */
+    private final long slowCallThreshold;
+
+    /**
+     * The period of time covered by the automatic dumps.
+     */
+    private final Duration autoDumpWindow;
+
+    /**
+     * The minimum time between two automatic dumps in milliseconds, so that a slow period does not fill the disk.
+     */
+    private final long autoDumpCooldown;
+
+    /**
+     * Whether the application is ready, the cold calls of the startup and the warm-up never dump the recording.
+     */
+    private volatile boolean ready;
+
+    /**
+     * The time of the last automatic dump in milliseconds, or 0 if there was none.
+     */
+    private final AtomicLong lastAutoDump = new AtomicLong();
+
+    /**
+     * The executor writing the automatic dumps off the request threads.
+     */
+    private final ExecutorService dumpExecutor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("jfr-dump-"));
+
+    /**
+     * Constructor for the ContinuousRecording, which starts the recording.
+     *
+     * @param enabled           Whether the recording is enabled
+     * @param settings          The name of the JDK settings of the recording (default or profile) or the path of a .jfc file
+     * @param maxAge            The maximum age of the data kept in the ring buffer
+     * @param maxSize           The maximum size of the data kept in the ring buffer
+     * @param directory         The directory the dumps are written to
+     * @param maxDumps          The maximum number of dumps kept in the directory
+     * @param slowCallThreshold The duration of a controller call in milliseconds above which the recording is dumped, or 0 to never dump it
+     * @param autoDumpWindow    The period of time covered by the automatic dumps
+     * @param autoDumpCooldown  The minimum time between two automatic dumps
+     */
+    public ContinuousRecording(@Value("${app.jfr.enabled:true}") boolean enabled,
+                               @Value("${app.jfr.settings:default}") String settings,
+                               @Value("${app.jfr.max-age:30m}") Duration maxAge,
+                               @Value("${app.jfr.max-size:250MB}") DataSize maxSize,
+                               @Value("${app.jfr.directory:${java.io.tmpdir}/library-jfr}") Path directory,
+                               @Value("${app.jfr.max-dumps:10}") int maxDumps,
+                               @Value("${app.jfr.slow-call-threshold:2000}") long slowCallThreshold,
+                               @Value("${app.jfr.auto-dump-window:5m}") Duration autoDumpWindow,
+                               @Value("${app.jfr.auto-dump-cooldown:10m}") Duration autoDumpCooldown) {
+        this.directory = directory;
+        this.maxDumps = maxDumps;
+        this.slowCallThreshold = slowCallThreshold;
+        this.autoDumpWindow = autoDumpWindow;
+        this.autoDumpCooldown = autoDumpCooldown.toMillis();
+        this.recording = enabled ? start(settings, maxAge, maxSize) : null;
+    }
+
+    /**
+     * Whether the recording is running.
+     *
+     * @return true if the recording is running
+     */
+    public boolean isRunning() {
+        return this.recording != null && this.recording.getState() == RecordingState.RUNNING;
+    }
+
+    /**
+     * Gets the state of the recording and the dumps in the directory.
+     *
+     * @return the status of the recording
+     * @throws IOException if the dump directory cannot be listed
+     */
+    @NonNull
+    public Map<String, Object> status() throws IOException {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("state", this.recording != null ? this.recording.getState().name() : "DISABLED");
+        if (this.recording != null) {
+            status.put("startTime", String.valueOf(this.recording.getStartTime()));
+            status.put("maxAge", String.valueOf(this.recording.getMaxAge()));
+            status.put("maxSize", this.recording.getMaxSize());
+            status.put("size", this.recording.getSize());
+        }
+        status.put("slowCallThreshold", this.slowCallThreshold);
+        status.put("directory", this.directory.toString());
+        status.put("dumps", this.dumps().stream().map(dump -> dump.getFileName().toString()).toList());
+        return status;
+    }
+
+    /**
+     * Dumps the last minutes of the recording to a new file of the dump directory.
+     *
+     * @param window The period of time to dump, up to the max age of the recording
+     * @param reason The reason of the dump, which is part of the name of the file
+     * @return the path of the dump
+     * @throws RecordingUnavailableException If the recording is not running
+     * @throws IOException                   If the dump cannot be written
+     */
+    @NonNull
+    public synchronized Path dump(@NonNull Duration window, @NonNull String reason) throws RecordingUnavailableException, IOException {
+        if (!this.isRunning()) {
+            throw new RecordingUnavailableException();
+        }
+
+        Files.createDirectories(this.directory);
+        Path file = this.directory.resolve(NAME + "-" + TIMESTAMP.format(Instant.now()) + "-" + reason.replaceAll("[^A-Za-z0-9.-]", "_") + ".jfr");
+        try {
+            // The same as "jcmd <pid> JFR.dump", the Recording API has no way to dump only the most recent data.
+            ManagementFactory.getPlatformMBeanServer().invoke(
+                    new ObjectName("com.sun.management:type=DiagnosticCommand"), "jfrDump",
+                    new Object[]{new String[]{"name=" + NAME, "filename=" + file.toAbsolutePath(), "maxage=" + window.toSeconds() + "s"}},
+                    new String[]{String[].class.getName()});
+        } catch (Exception e) {
+            throw new IOException("Could not dump the recording", e);
+        }
+        if (!Files.exists(file)) {
+            throw new IOException("The recording was not dumped to " + file);
+        }
+
+        this.deleteOldDumps();
+        logger.info("Dumped the last {} of the flight recording to {} ({})", window, file, reason);
+        return file;
+    }
+
+    /**
+     * Dumps the recording in the background if a controller call was slower than the slow-call threshold and the
+     * cooldown since the last automatic dump is over.
+     *
+     * @param className     The name of the controller
+     * @param methodName    The name of the method
+     * @param executionTime The execution time of the call in milliseconds
+     */
+    public void recordCall(@NonNull String className, @NonNull String methodName, long executionTime) {
+        if (!this.ready || this.slowCallThreshold <= 0 || executionTime < this.slowCallThreshold || !this.isRunning()) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        long last = this.lastAutoDump.get();
+        if (now - last < this.autoDumpCooldown || !this.lastAutoDump.compareAndSet(last, now)) {
+            return;
+        }
+
+        logger.warn("{}.{} took {} ms, dumping the flight recording", className, methodName, executionTime);
+        try {
+            this.dumpExecutor.execute(() -> {
+                try {
+                    this.dump(this.autoDumpWindow, "slow-" + className + "." + methodName);
+                } catch (RecordingUnavailableException | IOException e) {
+                    logger.warn("Could not dump the flight recording", e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Shutting down.
+        }
+    }
+
+    /**
+     * Enables the automatic dumps once the application is ready, after the warm-up.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        this.ready = true;
+    }
+
+    /**
+     * Stops the recording and discards its data.
+     */
+    @PreDestroy
+    public void close() {
+        this.dumpExecutor.shutdown();
+        if (this.recording != null) {
+            this.recording.close();
+        }
+    }
+
+    /**
+     * Starts the recording.
+     *
+     * @param settings The name of the JDK settings or the path of a .jfc file
+     * @param maxAge   The maximum age of the data kept in the ring buffer
+     * @param maxSize  The maximum size of the data kept in the ring buffer
+     * @return the recording, or null if the flight recorder is not available
+     */
+    @Nullable
+    private static Recording start(String settings, Duration maxAge, DataSize maxSize) {
+        if (!FlightRecorder.isAvailable()) {
+            logger.warn("The flight recorder is not available, the continuous recording is disabled");
+            return null;
+        }
+
+        try {
+            Configuration configuration = settings.endsWith(".jfc")
+                    ? Configuration.create(Path.of(settings))
+                    : Configuration.getConfiguration(settings);
+            Recording recording = new Recording(configuration);
+            recording.setName(NAME);
+            recording.setToDisk(true);
+            recording.setMaxAge(maxAge);
+            recording.setMaxSize(maxSize.toBytes());
+            recording.start();
+            return recording;
+        } catch (Exception e) {
+            logger.warn("Could not start the continuous recording", e);
+            return null;
+        }
+    }
+
+    /**
+     * Lists the dumps in the directory, the oldest first.
+     *
+     * @return the paths of the dumps
+     * @throws IOException if the directory cannot be listed
+     */
+    private List<Path> dumps() throws IOException {
+        if (!Files.isDirectory(this.directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(this.directory)) {
+            // The names start with a UTC timestamp, so they sort in creation order.
+            return files.filter(file -> file.getFileName().toString().startsWith(NAME) && file.toString().endsWith(".jfr"))
+                    .sorted(Comparator.comparing(file -> file.getFileName().toString()))
+                    .toList();
+        }
+    }
+
+    /**
+     * Deletes the oldest dumps in excess of the maximum number of dumps.
+     *
+     * @throws IOException if the directory cannot be listed
+     */
+    private void deleteOldDumps() throws IOException {
+        List<Path> dumps = this.dumps();
+        for (Path dump : dumps.subList(0, Math.max(0, dumps.size() - this.maxDumps))) {
+            Files.deleteIfExists(dump);
+        }
+    }
+
+    /**
+     * Exception thrown when the recording is disabled or not running.
+     */
+    public static class RecordingUnavailableException extends RepositoryException.ServiceUnavailable {
+        /**
+         * Creates a new RecordingUnavailableException.
+         */
+        public RecordingUnavailableException() {
+            super("The continuous flight recording is not running");
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package org.example.library.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of an update of the quantity of a book at a location, so that the inventory writes show up
+ * in the timeline next to the lock, I/O and GC events of the JVM.
+ */
+@Name("org.example.library.InventoryUpdate")
+@Label("Inventory Update")
+@Category({"Library", "Inventory"})
+@Description("Update of the quantity of a book at a location")
+@StackTrace(false)
+public class InventoryUpdateEvent extends Event {
+    /**
+     * The id of the location.
+     */
+    @Label("Location Id")
+    public long locationId;
+
+    /**
+     * The id of the book.
+     */
+    @Label("Book Id")
+    public long bookId;
+
+    /**
+     * The change in quantity (positive to add, negative to remove).
+     */
+    @Label("Quantity Change")
+    public int quantityChange;
+
+    /**
+     * The quantity after the update, or the quantity found if the update was rejected.
+     */
+    @Label("Quantity")
+    public int quantity;
+
+    /**
+     * The outcome of the update: updated, not-found or insufficient-copies.
+     */
+    @Label("Outcome")
+    public String outcome;
+}
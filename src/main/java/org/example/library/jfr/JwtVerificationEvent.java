@@ -0,0 +1,30 @@
+package org.example.library.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of the verification of a JWT token, which runs on every authenticated request.
+ */
+@Name("org.example.library.JwtVerification")
+@Label("JWT Verification")
+@Category({"Library", "Security"})
+@Description("Verification of the signature and the expiration of a JWT token")
+@StackTrace(false)
+public class JwtVerificationEvent extends Event {
+    /**
+     * Whether the token is valid.
+     */
+    @Label("Valid")
+    public boolean valid;
+
+    /**
+     * The reason the token was rejected, or null if it is valid.
+     */
+    @Label("Failure")
+    public String failure;
+}
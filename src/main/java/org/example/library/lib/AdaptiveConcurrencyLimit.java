@@ -0,0 +1,154 @@
+package org.example.library.lib;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A concurrency limit that adapts to the observed latency, following the gradient algorithm: the limit grows while
+ * the short-term round-trip time stays close to the long-term one, and shrinks as soon as requests start queueing
+ * (the short-term round-trip time grows above the long-term one).
+ */
+public class AdaptiveConcurrencyLimit {
+    /**
+     * The weight of a new sample in the long-term round-trip time average.
+     */
+    private static final double LONG_RTT_WEIGHT = 1.0 / 600;
+
+    /**
+     * The minimum value of the limit.
+     */
+    private final int minLimit;
+
+    /**
+     * The maximum value of the limit.
+     */
+    private final int maxLimit;
+
+    /**
+     * How much the short-term round-trip time may exceed the long-term one before the limit is reduced.
+     */
+    private final double tolerance;
+
+    /**
+     * The weight of a new estimate in the limit.
+     */
+    private final double smoothing;
+
+    /**
+     * The number of requests currently in flight.
+     */
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * The current limit.
+     */
+    private volatile double limit;
+
+    /**
+     * The long-term round-trip time in nanoseconds (guarded by this).
+     */
+    private double longRtt;
+
+    /**
+     * Creates a new adaptive concurrency limit.
+     *
+     * @param initialLimit the initial value of the limit
+     * @param minLimit     the minimum value of the limit
+     * @param maxLimit     the maximum value of the limit
+     * @param tolerance    how much the short-term latency may exceed the long-term one (e.g. 1.5)
+     * @param smoothing    the weight of a new estimate in the limit, between 0 and 1
+     */
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double tolerance, double smoothing) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.smoothing = smoothing;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * Tries to acquire a slot for a new request.
+     *
+     * @return true if the request may proceed, false if the limit is reached
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = this.inFlight.get();
+            if (current >= (int) this.limit) {
+                return false;
+            } else if (this.inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Releases the slot of a completed request and updates the limit with its round-trip time.
+     *
+     * @param rttNanos the round-trip time of the request in nanoseconds
+     */
+    public void release(long rttNanos) {
+        int inFlightAtCompletion = this.inFlight.getAndDecrement();
+        this.update(rttNanos, inFlightAtCompletion);
+    }
+
+    /**
+     * Releases the slot of a request without updating the limit, when its time does not measure its handling.
+     */
+    public void releaseWithoutSample() {
+        this.inFlight.decrementAndGet();
+    }
+
+    /**
+     * Gets the current limit.
+     *
+     * @return the current limit
+     */
+    public int getLimit() {
+        return (int) this.limit;
+    }
+
+    /**
+     * Gets the number of requests currently in flight.
+     *
+     * @return the number of requests in flight
+     */
+    public int getInFlight() {
+        return this.inFlight.get();
+    }
+
+    /**
+     * Gets the fraction of the limit currently in use.
+     *
+     * @return the number of requests in flight divided by the limit
+     */
+    public double getUtilization() {
+        return this.inFlight.get() / this.limit;
+    }
+
+    /**
+     * Updates the limit with a new round-trip time sample.
+     *
+     * @param rttNanos the round-trip time in nanoseconds
+     * @param inFlight the number of requests in flight when the sample was taken
+     */
+    private synchronized void update(long rttNanos, int inFlight) {
+        double shortRtt = Math.max(1, rttNanos);
+        this.longRtt = this.longRtt == 0 ? shortRtt : this.longRtt * (1 - LONG_RTT_WEIGHT) + shortRtt * LONG_RTT_WEIGHT;
+
+        // After a long period of high latency, let the long-term average recover faster once latency drops again.
+        if (this.longRtt / shortRtt > 2) {
+            this.longRtt *= 0.95;
+        }
+
+        // Do not grow the limit when it is not the bottleneck.
+        double currentLimit = this.limit;
+        if (inFlight < currentLimit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, this.tolerance * this.longRtt / shortRtt));
+        double newLimit = currentLimit * gradient + Math.sqrt(currentLimit);
+        newLimit = currentLimit * (1 - this.smoothing) + newLimit * this.smoothing;
+        this.limit = Math.max(this.minLimit, Math.min(this.maxLimit, newLimit));
+    }
+}
@@ -0,0 +1,72 @@
+package org.example.library.lib;
+
+import org.springframework.lang.NonNull;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * A position in a change feed, the transaction id and entity id of the last change a client has seen. The changes are
+ * ordered by the id of the transaction that wrote them and then by entity id, so that the position is unique even when
+ * a transaction changes several entities. The date of the change tells how old the position is, against the retention
+ * of the deletions.
+ * <p>
+ * The token is opaque to the clients, which only send back the one they received.
+ *
+ * @param xid      the id of the transaction of the last change seen
+ * @param id       the id of the entity of the last change seen
+ * @param fullSync whether the client is still downloading the whole dataset, which does not need the deletions that
+ *                 happened before it started
+ * @param date     the date of the last change seen, or of the sync that saw all the changes
+ */
+public record ChangeToken(long xid, long id, boolean fullSync, @NonNull LocalDateTime date) implements Comparable<ChangeToken> {
+    /**
+     * The position before any change, where a client that has no data starts.
+     */
+    public static final ChangeToken START = new ChangeToken(0, 0, true, LocalDateTime.of(1970, 1, 1, 0, 0));
+
+    /**
+     * Encodes the token for the clients.
+     *
+     * @return the encoded token
+     */
+    @NonNull
+    public String encode() {
+        String token = this.xid + "|" + this.id + "|" + (this.fullSync ? "F" : "I") + "|" + this.date;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a token sent by a client.
+     *
+     * @param token the encoded token
+     * @return the token
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    @NonNull
+    public static ChangeToken decode(@NonNull String token) throws IllegalArgumentException {
+        String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split("\\|");
+        if (parts.length != 4 || !(parts[2].equals("F") || parts[2].equals("I"))) {
+            throw new IllegalArgumentException("Malformed change token");
+        }
+        try {
+            return new ChangeToken(Long.parseLong(parts[0]), Long.parseLong(parts[1]), parts[2].equals("F"), LocalDateTime.parse(parts[3]));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Malformed change token", e);
+        }
+    }
+
+    /**
+     * Compares the positions of two tokens in the feed.
+     *
+     * @param other the other token
+     * @return a negative number, zero or a positive number if this token is before, at or after the other
+     */
+    @Override
+    public int compareTo(@NonNull ChangeToken other) {
+        int byXid = Long.compare(this.xid, other.xid);
+        return byXid != 0 ? byXid : Long.compare(this.id, other.id);
+    }
+}
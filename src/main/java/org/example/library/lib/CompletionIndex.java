@@ -0,0 +1,844 @@
+package org.example.library.lib;
+
+import org.springframework.lang.NonNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * In-memory dictionary of weighted texts, completing a prefix with the heaviest texts starting with it.
+ * <p>
+ * The texts are folded with {@link TextAnalyzer#fold(String)} into their keys, sorted by the UTF-8 bytes of their keys
+ * so that the keys starting with a prefix are a range of the dictionary. The keys are front-coded in blocks: the first
+ * key of a block is written in full and found by a binary search, the next ones only write what follows the prefix
+ * they share with the previous key. The texts shown are not stored as such when they are ASCII, only the positions of
+ * their uppercase letters, as the rest is their key.
+ * <p>
+ * The heaviest texts of a range are found with a range maximum query over the weights, from a sparse table of the
+ * heaviest text of every run of a power of two chunks of texts: the heaviest text of the range comes first, then the
+ * range is split around it and the next heaviest is the heaviest of the parts, so a completion reads a handful of
+ * chunks whatever the number of texts starting with the prefix.
+ * <p>
+ * Immutable and thread-safe, built once from all the texts. The texts are sorted in runs of a bounded size, spilled to
+ * temporary files and merged as they are encoded, so that a build holds the index and a single run in memory rather
+ * than all the texts.
+ */
+public class CompletionIndex {
+    /**
+     * The number of kinds of texts.
+     */
+    public static final int KINDS = 8;
+
+    /**
+     * The number of keys per block, the first one written in full.
+     */
+    private static final int BLOCK_SIZE = 16;
+
+    /**
+     * The number of weights per chunk of the sparse table, scanned when a range starts or ends inside.
+     */
+    private static final int CHUNK_SIZE = 32;
+
+    /**
+     * The keys and the texts shown, front-coded in blocks.
+     */
+    private final byte[] data;
+
+    /**
+     * The start of each block in the data.
+     */
+    private final int[] blocks;
+
+    /**
+     * The weight of each text, by rank of its key.
+     */
+    private final int[] weights;
+
+    /**
+     * The rank of the heaviest text of each run of 2^level chunks, by level then first chunk.
+     */
+    private final int[][] table;
+
+    /**
+     * Creates an index of texts sorted by key.
+     *
+     * @param entries the texts, sorted by key and then kind, without duplicates, read once
+     */
+    private CompletionIndex(@NonNull Iterator<Entry> entries) {
+        // The number of texts is only known once read.
+        int[] weights = new int[1024];
+        int[] blocks = new int[weights.length / BLOCK_SIZE];
+        int size;
+        Encoder encoder = new Encoder();
+        byte[] previous = new byte[0];
+        for (size = 0; entries.hasNext(); size++) {
+            Entry entry = entries.next();
+            if (size == weights.length) {
+                weights = Arrays.copyOf(weights, size * 2);
+                blocks = Arrays.copyOf(blocks, weights.length / BLOCK_SIZE);
+            }
+            weights[size] = (int) Math.min(entry.weight, Integer.MAX_VALUE);
+            int shared = 0;
+            if (size % BLOCK_SIZE == 0) {
+                blocks[size / BLOCK_SIZE] = encoder.length;
+            } else {
+                shared = Arrays.mismatch(previous, entry.key);
+                shared = shared < 0 ? previous.length : shared;
+            }
+            boolean ascii = isAscii(entry.text);
+            encoder.write(shared);
+            encoder.write((entry.key.length - shared) << 4 | entry.kind << 1 | (ascii ? 0 : 1));
+            encoder.write(entry.key, shared, entry.key.length - shared);
+            if (ascii) {
+                int uppercase = 0;
+                for (int c = 0; c < entry.text.length(); c++) {
+                    uppercase += entry.text.charAt(c) != entry.key[c] ? 1 : 0;
+                }
+                encoder.write(uppercase);
+                for (int c = 0, last = 0; c < entry.text.length(); c++) {
+                    if (entry.text.charAt(c) != entry.key[c]) {
+                        encoder.write(c - last);
+                        last = c;
+                    }
+                }
+            } else {
+                byte[] text = entry.text.getBytes(StandardCharsets.UTF_8);
+                encoder.write(text.length);
+                encoder.write(text, 0, text.length);
+            }
+            previous = entry.key;
+        }
+        this.weights = Arrays.copyOf(weights, size);
+        this.blocks = Arrays.copyOf(blocks, (size + BLOCK_SIZE - 1) / BLOCK_SIZE);
+        this.data = Arrays.copyOf(encoder.bytes, encoder.length);
+
+        int chunks = (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        int levels = chunks > 0 ? 32 - Integer.numberOfLeadingZeros(chunks) : 0;
+        this.table = new int[levels][];
+        if (levels > 0) {
+            this.table[0] = new int[chunks];
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                this.table[0][chunk] = this.scan(chunk * CHUNK_SIZE, Math.min(size, (chunk + 1) * CHUNK_SIZE));
+            }
+        }
+        for (int level = 1; level < levels; level++) {
+            int[] below = this.table[level - 1];
+            int[] runs = new int[chunks - (1 << level) + 1];
+            for (int chunk = 0; chunk < runs.length; chunk++) {
+                runs[chunk] = this.heavier(below[chunk], below[chunk + (1 << (level - 1))]);
+            }
+            this.table[level] = runs;
+        }
+    }
+
+    /**
+     * Completes a prefix with the heaviest texts whose key starts with it.
+     *
+     * @param prefix the prefix, in any case and with or without accents
+     * @param limit  the maximum number of texts returned
+     * @return the heaviest texts, heaviest first, then by key
+     */
+    public @NonNull List<Completion> complete(@NonNull String prefix, int limit) {
+        byte[] key = TextAnalyzer.fold(prefix).getBytes(StandardCharsets.UTF_8);
+        int from = this.lowerBound(key);
+        // No key contains the byte 0xFF, so the keys starting with the prefix are all below the prefix followed by it.
+        byte[] after = Arrays.copyOf(key, key.length + 1);
+        after[key.length] = (byte) 0xFF;
+        int to = this.lowerBound(after);
+
+        List<Completion> completions = new ArrayList<>(Math.max(0, Math.min(limit, to - from)));
+        PriorityQueue<int[]> ranges = new PriorityQueue<>((a, b) -> this.compareRanks(a[2], b[2]));
+        if (from < to && limit > 0) {
+            ranges.add(new int[]{from, to, this.max(from, to)});
+        }
+        while (!ranges.isEmpty() && completions.size() < limit) {
+            int[] range = ranges.poll();
+            int rank = range[2];
+            completions.add(this.decode(rank));
+            if (range[0] < rank) {
+                ranges.add(new int[]{range[0], rank, this.max(range[0], rank)});
+            }
+            if (rank + 1 < range[1]) {
+                ranges.add(new int[]{rank + 1, range[1], this.max(rank + 1, range[1])});
+            }
+        }
+        return completions;
+    }
+
+    /**
+     * Gets the number of texts.
+     *
+     * @return the number of distinct keys and kinds
+     */
+    public int size() {
+        return this.weights.length;
+    }
+
+    /**
+     * Estimates the memory of the index.
+     *
+     * @return the size of the index in bytes
+     */
+    public long bytes() {
+        long bytes = this.data.length + 4L * this.blocks.length + 4L * this.weights.length;
+        for (int[] level : this.table) {
+            bytes += 4L * level.length;
+        }
+        return bytes;
+    }
+
+    /**
+     * Orders two texts by weight, the heaviest first, then by rank.
+     *
+     * @param a the rank of the first text
+     * @param b the rank of the second text
+     * @return a negative number if the first text comes first
+     */
+    private int compareRanks(int a, int b) {
+        int weights = Integer.compare(this.weights[b], this.weights[a]);
+        return weights != 0 ? weights : Integer.compare(a, b);
+    }
+
+    /**
+     * Picks the text that comes first of two.
+     *
+     * @param a the rank of the first text
+     * @param b the rank of the second text
+     * @return the rank of the heaviest text, the first one on a tie
+     */
+    private int heavier(int a, int b) {
+        return this.compareRanks(a, b) <= 0 ? a : b;
+    }
+
+    /**
+     * Finds the heaviest text of a range, by the sparse table for the whole chunks and scanning the others.
+     *
+     * @param from the first rank of the range
+     * @param to   the rank after the range, higher than the first
+     * @return the rank of the heaviest text, the first one on a tie
+     */
+    private int max(int from, int to) {
+        int first = (from + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        int last = to / CHUNK_SIZE;
+        if (first >= last) {
+            return this.scan(from, to);
+        }
+        int best = from < first * CHUNK_SIZE ? this.scan(from, first * CHUNK_SIZE) : -1;
+        int level = 31 - Integer.numberOfLeadingZeros(last - first);
+        int runs = this.heavier(this.table[level][first], this.table[level][last - (1 << level)]);
+        best = best < 0 ? runs : this.heavier(best, runs);
+        return last * CHUNK_SIZE < to ? this.heavier(best, this.scan(last * CHUNK_SIZE, to)) : best;
+    }
+
+    /**
+     * Finds the heaviest text of a range by reading all of its weights.
+     *
+     * @param from the first rank of the range
+     * @param to   the rank after the range, higher than the first
+     * @return the rank of the heaviest text, the first one on a tie
+     */
+    private int scan(int from, int to) {
+        int best = from;
+        for (int rank = from + 1; rank < to; rank++) {
+            if (this.weights[rank] > this.weights[best]) {
+                best = rank;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Finds the first key not below a key.
+     *
+     * @param key the UTF-8 bytes of the key
+     * @return the rank of the first key not below, the number of texts if there is none
+     */
+    private int lowerBound(byte[] key) {
+        // The last block whose first key is below the key, the first key not below is in it or starts the next one.
+        int low = 0;
+        int high = this.blocks.length - 1;
+        int block = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            Decoder head = new Decoder(this.blocks[middle]);
+            head.next();
+            if (compare(head.key, head.length, key) < 0) {
+                block = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        if (block < 0) {
+            return 0;
+        }
+        Decoder decoder = new Decoder(this.blocks[block]);
+        int end = Math.min(this.weights.length, (block + 1) * BLOCK_SIZE);
+        for (int rank = block * BLOCK_SIZE; rank < end; rank++) {
+            decoder.next();
+            if (compare(decoder.key, decoder.length, key) >= 0) {
+                return rank;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Reads a text of the dictionary, from the start of its block.
+     *
+     * @param rank the rank of the text
+     * @return the text
+     */
+    private @NonNull Completion decode(int rank) {
+        Decoder decoder = new Decoder(this.blocks[rank / BLOCK_SIZE]);
+        for (int i = rank / BLOCK_SIZE * BLOCK_SIZE; i <= rank; i++) {
+            decoder.next();
+        }
+        return new Completion(decoder.text(), decoder.kind, this.weights[rank]);
+    }
+
+    /**
+     * Compares the bytes of two keys, unsigned as in UTF-8 order.
+     *
+     * @param a      the first key
+     * @param length the length of the first key
+     * @param b      the second key
+     * @return a negative number, zero or a positive number if the first key is below, equal or above the second one
+     */
+    private static int compare(byte[] a, int length, byte[] b) {
+        return Arrays.compareUnsigned(a, 0, length, b, 0, b.length);
+    }
+
+    /**
+     * Whether a text is made of ASCII characters only.
+     *
+     * @param text the text
+     * @return true if the text is ASCII
+     */
+    private static boolean isAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A text completing a prefix.
+     *
+     * @param text   the text, as added
+     * @param kind   the kind of the text, from 0 to {@link #KINDS} - 1
+     * @param weight the weight of the text, the sum of the weights of its duplicates
+     */
+    public record Completion(@NonNull String text, int kind, int weight) {
+    }
+
+    /**
+     * A text being indexed.
+     *
+     * @param key    the UTF-8 bytes of the folded text
+     * @param kind   the kind of the text
+     * @param text   the text
+     * @param weight the weight of the text, the sum of the weights of its duplicates
+     * @param top    the weight of the heaviest duplicate, whose text is kept
+     */
+    private record Entry(byte[] key, int kind, String text, long weight, long top) {
+        /**
+         * Whether a text has the same key and kind, and is to be merged with this one.
+         *
+         * @param other the other text
+         * @return true if the texts are duplicates
+         */
+        boolean isDuplicate(@NonNull Entry other) {
+            return this.kind == other.kind && Arrays.equals(this.key, other.key);
+        }
+
+        /**
+         * Merges a duplicate coming after this text, whose weight is added.
+         *
+         * @param duplicate the duplicate
+         * @return the merged text, with the text of this one
+         */
+        @NonNull Entry merge(@NonNull Entry duplicate) {
+            return new Entry(this.key, this.kind, this.text, this.weight + duplicate.weight, this.top);
+        }
+    }
+
+    /**
+     * Builds an index from all the texts, sorted in runs of a bounded size spilled to temporary files, deleted once
+     * built or when closed.
+     */
+    public static final class Builder implements Closeable {
+        /**
+         * The default number of texts sorted in memory at once.
+         */
+        private static final int RUN_SIZE = 1_000_000;
+
+        /**
+         * The order of the texts in the index, by key then kind, then the heaviest first for the duplicates.
+         */
+        private static final Comparator<Entry> ORDER = ((Comparator<Entry>) (a, b) -> Arrays.compareUnsigned(a.key(), b.key()))
+                .thenComparingInt(Entry::kind)
+                .thenComparing(Comparator.comparingLong(Entry::top).reversed());
+
+        /**
+         * The number of texts sorted in memory at once.
+         */
+        private final int runSize;
+
+        /**
+         * The texts added since the last run was spilled.
+         */
+        private final List<Entry> entries = new ArrayList<>();
+
+        /**
+         * The files of the runs spilled, in the order of the texts added.
+         */
+        private final List<Path> runs = new ArrayList<>();
+
+        /**
+         * Creates a builder sorting the default number of texts in memory at once.
+         */
+        public Builder() {
+            this(RUN_SIZE);
+        }
+
+        /**
+         * Creates a builder.
+         *
+         * @param runSize the number of texts sorted in memory at once, beyond which they are spilled to a file
+         * @throws IllegalArgumentException if the size is not positive
+         */
+        public Builder(int runSize) {
+            if (runSize < 1) {
+                throw new IllegalArgumentException("Invalid run size " + runSize);
+            }
+            this.runSize = runSize;
+        }
+
+        /**
+         * Adds a text. The texts with the same key and kind are merged, the weights added and the heaviest text kept.
+         *
+         * @param text   the text
+         * @param kind   the kind of the text, from 0 to {@link #KINDS} - 1
+         * @param weight the weight of the text, at least 0
+         * @return this builder
+         * @throws IllegalArgumentException if the kind or the weight is out of range
+         * @throws UncheckedIOException     if a run cannot be spilled
+         */
+        public @NonNull Builder add(@NonNull String text, int kind, long weight) {
+            if (kind < 0 || kind >= KINDS || weight < 0) {
+                throw new IllegalArgumentException("Invalid kind " + kind + " or weight " + weight + " of " + text);
+            }
+            this.entries.add(new Entry(TextAnalyzer.fold(text).getBytes(StandardCharsets.UTF_8), kind, text, weight, weight));
+            if (this.entries.size() >= this.runSize) {
+                this.spill();
+            }
+            return this;
+        }
+
+        /**
+         * Builds the index of the texts added.
+         *
+         * @return the index
+         * @throws UncheckedIOException if the runs cannot be spilled or read
+         */
+        public @NonNull CompletionIndex build() {
+            try {
+                if (this.runs.isEmpty()) {
+                    return new CompletionIndex(this.sorted().iterator());
+                }
+                if (!this.entries.isEmpty()) {
+                    this.spill();
+                }
+                try (Merger merger = new Merger(this.runs)) {
+                    return new CompletionIndex(merger);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                this.close();
+            }
+        }
+
+        /**
+         * Drops the texts added and deletes the runs spilled.
+         */
+        @Override
+        public void close() {
+            this.entries.clear();
+            for (Path run : this.runs) {
+                try {
+                    Files.deleteIfExists(run);
+                } catch (IOException e) {
+                    // Left to the cleanup of the temporary directory.
+                }
+            }
+            this.runs.clear();
+        }
+
+        /**
+         * Sorts the texts added since the last run and merges their duplicates.
+         *
+         * @return the texts, sorted without duplicates
+         */
+        private @NonNull List<Entry> sorted() {
+            this.entries.sort(ORDER);
+            List<Entry> merged = new ArrayList<>(this.entries.size());
+            for (Entry entry : this.entries) {
+                Entry last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+                if (last != null && last.isDuplicate(entry)) {
+                    merged.set(merged.size() - 1, last.merge(entry));
+                } else {
+                    merged.add(entry);
+                }
+            }
+            return merged;
+        }
+
+        /**
+         * Writes the texts added since the last run to a new run, sorted without duplicates.
+         *
+         * @throws UncheckedIOException if the run cannot be written
+         */
+        private void spill() {
+            try {
+                Path run = Files.createTempFile("completion-run-", ".bin");
+                this.runs.add(run);
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), 1 << 16))) {
+                    for (Entry entry : this.sorted()) {
+                        byte[] text = entry.text().getBytes(StandardCharsets.UTF_8);
+                        out.writeByte(entry.kind());
+                        out.writeInt(entry.key().length);
+                        out.write(entry.key());
+                        out.writeInt(text.length);
+                        out.write(text);
+                        out.writeLong(entry.weight());
+                        out.writeLong(entry.top());
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            this.entries.clear();
+        }
+
+        /**
+         * Reads the runs spilled as a single sequence of texts, sorted without duplicates.
+         */
+        private static final class Merger implements Iterator<Entry>, Closeable {
+            /**
+             * The runs, read in parallel.
+             */
+            private final List<DataInputStream> inputs = new ArrayList<>();
+
+            /**
+             * The next text of each run not read to the end, the first in order first, then the first run on a tie
+             * as its texts were added first.
+             */
+            private final PriorityQueue<Head> heads = new PriorityQueue<>(Comparator.comparing(Head::entry, ORDER)
+                    .thenComparingInt(Head::run));
+
+            /**
+             * The next text, null once all the runs are read.
+             */
+            private Entry next;
+
+            /**
+             * Opens the runs.
+             *
+             * @param runs the files of the runs, in the order of the texts added
+             * @throws IOException if a run cannot be read
+             */
+            Merger(@NonNull List<Path> runs) throws IOException {
+                try {
+                    for (Path run : runs) {
+                        this.inputs.add(new DataInputStream(new BufferedInputStream(Files.newInputStream(run), 1 << 16)));
+                        this.advance(this.inputs.size() - 1);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    this.close();
+                    throw e;
+                }
+                this.next = this.merge();
+            }
+
+            /**
+             * Whether there is a next text.
+             *
+             * @return true until all the runs are read
+             */
+            @Override
+            public boolean hasNext() {
+                return this.next != null;
+            }
+
+            /**
+             * Reads the next text.
+             *
+             * @return the text, with the weights of its duplicates in all the runs
+             * @throws UncheckedIOException if a run cannot be read
+             */
+            @Override
+            public Entry next() {
+                if (this.next == null) {
+                    throw new NoSuchElementException();
+                }
+                Entry entry = this.next;
+                this.next = this.merge();
+                return entry;
+            }
+
+            /**
+             * Closes the runs.
+             */
+            @Override
+            public void close() {
+                for (DataInputStream input : this.inputs) {
+                    try {
+                        input.close();
+                    } catch (IOException e) {
+                        // Nothing was written.
+                    }
+                }
+            }
+
+            /**
+             * Takes the first text of the runs and merges its duplicates in the other runs.
+             *
+             * @return the text, null if all the runs are read
+             */
+            private Entry merge() {
+                Head head = this.heads.poll();
+                if (head == null) {
+                    return null;
+                }
+                Entry entry = head.entry();
+                this.advance(head.run());
+                while (!this.heads.isEmpty() && this.heads.peek().entry().isDuplicate(entry)) {
+                    Head duplicate = this.heads.poll();
+                    entry = entry.merge(duplicate.entry());
+                    this.advance(duplicate.run());
+                }
+                return entry;
+            }
+
+            /**
+             * Reads the next text of a run, if any.
+             *
+             * @param run the index of the run
+             * @throws UncheckedIOException if the run cannot be read
+             */
+            private void advance(int run) {
+                DataInputStream input = this.inputs.get(run);
+                try {
+                    int kind = input.read();
+                    if (kind < 0) {
+                        return;
+                    }
+                    byte[] key = new byte[input.readInt()];
+                    input.readFully(key);
+                    byte[] text = new byte[input.readInt()];
+                    input.readFully(text);
+                    long weight = input.readLong();
+                    long top = input.readLong();
+                    this.heads.add(new Head(new Entry(key, kind, new String(text, StandardCharsets.UTF_8), weight, top), run));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            /**
+             * The next text of a run.
+             *
+             * @param entry the text
+             * @param run   the index of the run
+             */
+            private record Head(Entry entry, int run) {
+            }
+        }
+    }
+
+    /**
+     * Writes the data of the index.
+     */
+    private static final class Encoder {
+        /**
+         * The bytes written.
+         */
+        private byte[] bytes = new byte[1024];
+
+        /**
+         * The number of bytes used.
+         */
+        private int length;
+
+        /**
+         * Writes a positive integer, 7 bits per byte with the high bit set on all the bytes but the last.
+         *
+         * @param value the integer
+         */
+        void write(int value) {
+            this.ensure(5);
+            while ((value & ~0x7F) != 0) {
+                this.bytes[this.length++] = (byte) (value & 0x7F | 0x80);
+                value >>>= 7;
+            }
+            this.bytes[this.length++] = (byte) value;
+        }
+
+        /**
+         * Writes bytes.
+         *
+         * @param bytes  the bytes
+         * @param offset the first byte written
+         * @param length the number of bytes written
+         */
+        void write(byte[] bytes, int offset, int length) {
+            this.ensure(length);
+            System.arraycopy(bytes, offset, this.bytes, this.length, length);
+            this.length += length;
+        }
+
+        /**
+         * Grows the buffer to hold more bytes.
+         *
+         * @param more the number of bytes to write
+         */
+        private void ensure(int more) {
+            if (this.length + more > this.bytes.length) {
+                this.bytes = Arrays.copyOf(this.bytes, Math.max(this.bytes.length * 2, this.length + more));
+            }
+        }
+    }
+
+    /**
+     * Reads the texts of a block, in order.
+     */
+    private final class Decoder {
+        /**
+         * The position of the next text in the data.
+         */
+        private int position;
+
+        /**
+         * The key of the current text, in its first bytes.
+         */
+        private byte[] key = new byte[64];
+
+        /**
+         * The length of the key of the current text.
+         */
+        private int length;
+
+        /**
+         * The kind of the current text.
+         */
+        private int kind;
+
+        /**
+         * The start of the text shown of the current text, or of the positions of its uppercase letters if it is ASCII.
+         */
+        private int text;
+
+        /**
+         * Whether the current text is written as such rather than as its key.
+         */
+        private boolean verbatim;
+
+        /**
+         * Positions a decoder at the start of a block.
+         *
+         * @param position the start of the block in the data
+         */
+        Decoder(int position) {
+            this.position = position;
+        }
+
+        /**
+         * Moves to the next text.
+         */
+        void next() {
+            int shared = this.read();
+            int header = this.read();
+            int suffix = header >>> 4;
+            this.kind = header >>> 1 & 0x7;
+            this.verbatim = (header & 1) != 0;
+            if (shared + suffix > this.key.length) {
+                this.key = Arrays.copyOf(this.key, Math.max(this.key.length * 2, shared + suffix));
+            }
+            System.arraycopy(CompletionIndex.this.data, this.position, this.key, shared, suffix);
+            this.position += suffix;
+            this.length = shared + suffix;
+            this.text = this.position;
+            // Skip the text shown.
+            int count = this.read();
+            if (this.verbatim) {
+                this.position += count;
+            } else {
+                for (int i = 0; i < count; i++) {
+                    this.read();
+                }
+            }
+        }
+
+        /**
+         * Gets the text shown of the current text.
+         *
+         * @return the text
+         */
+        @NonNull String text() {
+            int end = this.position;
+            this.position = this.text;
+            int count = this.read();
+            if (this.verbatim) {
+                this.position = end;
+                return new String(CompletionIndex.this.data, end - count, count, StandardCharsets.UTF_8);
+            }
+            char[] text = new char[this.length];
+            for (int i = 0; i < this.length; i++) {
+                text[i] = (char) this.key[i];
+            }
+            for (int i = 0, c = 0; i < count; i++) {
+                c += this.read();
+                text[c] = Character.toUpperCase(text[c]);
+            }
+            this.position = end;
+            return new String(text);
+        }
+
+        /**
+         * Reads a positive integer.
+         *
+         * @return the integer
+         */
+        private int read() {
+            byte[] data = CompletionIndex.this.data;
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[this.position++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+    }
+}
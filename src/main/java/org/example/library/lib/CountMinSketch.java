@@ -0,0 +1,166 @@
+package org.example.library.lib;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A Count-Min Sketch, which estimates the counts of the keys of a stream in a fixed amount of memory.
+ * <p>
+ * Every key is counted in one cell of each row, and its estimate is the smallest of its cells, which can only be too
+ * high, by at most a fraction e / width of the total count in most cases. The counts are added with the conservative
+ * update, which only raises the cells below the new estimate and keeps the estimates of the other keys much closer.
+ * The sketches of the same width and depth add up, so the sketch of a union of streams is the sum of their sketches.
+ * <p>
+ * Not thread-safe.
+ */
+public class CountMinSketch {
+    /**
+     * The number of rows.
+     */
+    private final int depth;
+
+    /**
+     * The number of cells per row minus one, the number of cells being a power of two.
+     */
+    private final int mask;
+
+    /**
+     * The cells, row after row, saturated at {@link Integer#MAX_VALUE}.
+     */
+    private final int[] cells;
+
+    /**
+     * Creates a new empty sketch.
+     *
+     * @param width the number of cells per row, rounded up to a power of two
+     * @param depth the number of rows
+     */
+    public CountMinSketch(int width, int depth) {
+        int cellsPerRow = Integer.highestOneBit(Math.max(2, width) - 1) << 1;
+        this.depth = depth;
+        this.mask = cellsPerRow - 1;
+        this.cells = new int[cellsPerRow * depth];
+    }
+
+    /**
+     * Hashes a key for the sketch.
+     *
+     * @param key the key
+     * @return the 64-bit hash of the key
+     */
+    public static long hash(Object key) {
+        return mix(key.hashCode());
+    }
+
+    /**
+     * Adds to the count of a key.
+     *
+     * @param hash  the hash of the key
+     * @param count the count to add, positive
+     * @return the new estimate of the count of the key
+     */
+    public int add(long hash, int count) {
+        int estimate = (int) Math.min(Integer.MAX_VALUE, (long) this.estimate(hash) + count);
+        for (int row = 0; row < this.depth; row++) {
+            int index = this.index(hash, row);
+            if (this.cells[index] < estimate) {
+                this.cells[index] = estimate;
+            }
+        }
+        return estimate;
+    }
+
+    /**
+     * Estimates the count of a key.
+     *
+     * @param hash the hash of the key
+     * @return the estimate, never lower than the count
+     */
+    public int estimate(long hash) {
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < this.depth; row++) {
+            estimate = Math.min(estimate, this.cells[this.index(hash, row)]);
+        }
+        return estimate;
+    }
+
+    /**
+     * Resets all the counts.
+     */
+    public void clear() {
+        Arrays.fill(this.cells, 0);
+    }
+
+    /**
+     * Gets the memory used by the cells.
+     *
+     * @return the size of the cells in bytes
+     */
+    public long getSize() {
+        return (long) this.cells.length * Integer.BYTES;
+    }
+
+    /**
+     * Writes the cells.
+     *
+     * @param out the output
+     * @throws IOException if the output fails
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(this.depth);
+        out.writeInt(this.mask + 1);
+        for (int cell : this.cells) {
+            out.writeInt(cell);
+        }
+    }
+
+    /**
+     * Adds the cells of a sketch written by {@link #writeTo}, or skips them if they do not have the same dimensions.
+     *
+     * @param in the input
+     * @return true if the cells were added, false if they were skipped
+     * @throws IOException if the input fails
+     */
+    public boolean mergeFrom(DataInput in) throws IOException {
+        int depth = in.readInt();
+        int width = in.readInt();
+        boolean compatible = depth == this.depth && width == this.mask + 1;
+        for (int i = 0; i < depth * width; i++) {
+            int cell = in.readInt();
+            if (compatible) {
+                this.cells[i] = (int) Math.min(Integer.MAX_VALUE, (long) this.cells[i] + cell);
+            }
+        }
+        return compatible;
+    }
+
+    /**
+     * Gets the index of the cell of a key in a row, from a hash of the key seeded with the row, so that two keys
+     * sharing a cell in one row are unlikely to share a cell in the others.
+     *
+     * @param hash the hash of the key
+     * @param row  the row
+     * @return the index of the cell
+     */
+    private int index(long hash, int row) {
+        return row * (this.mask + 1) + ((int) mix(hash + (row + 1) * 0x9E3779B97F4A7C15L) & this.mask);
+    }
+
+    /**
+     * Spreads the bits of a value over all the bits of its hash, with the finalizer of MurmurHash3.
+     *
+     * @param value the value
+     * @return the hash of the value
+     */
+    private static long mix(long value) {
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
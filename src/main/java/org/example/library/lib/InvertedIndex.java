@@ -0,0 +1,1023 @@
+package org.example.library.lib;
+
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-memory full-text index of documents made of a few text fields, ranked by relevance with BM25F.
+ * <p>
+ * The index is built once from all the documents, by increasing id, and is then read-only: every word of the fields
+ * has a postings list of the documents containing it, with the number of times it appears in each field. The lists
+ * are compressed in a single byte array, as the gaps between the numbers of the documents and the frequencies written
+ * as variable-length integers, a byte for most of them. The fields are weighted, and the frequencies are normalized by
+ * the length of their field relative to its average, so that a word in a short title counts more than in a long one.
+ * <p>
+ * A search reads the postings lists of the words of the query side by side, a document at a time, and keeps the best
+ * documents in a bounded heap. A document matches if it contains any of the words, and the documents containing more
+ * of them, or rarer ones, rank higher. The matching documents are counted up to a maximum, after which the search
+ * skips the documents that cannot rank (MaxScore): every word has the highest score it can add to a document, and once
+ * the heap is full, the words whose highest scores add up to less than the worst document kept can no longer bring a
+ * document in on their own. Only the documents of the other words are scored, the lists of these words are only read
+ * for them, skipping ahead by blocks, and the search stops when no word is left. A word found in a short title ends the
+ * search of a common word as soon as the heap is full of such titles.
+ * <p>
+ * The documents added, changed or removed after the build are kept aside in a small overlay, searched after the
+ * postings lists, and their old version is marked as removed. The overlay grows until the index is built again, with
+ * {@link #carryOver(InvertedIndex, long)} to keep the changes made during the build. The statistics of the words and
+ * fields are the ones of the build, which is close enough while the overlay is small.
+ * <p>
+ * Thread-safe, the searches are lock-free.
+ */
+public class InvertedIndex {
+    /**
+     * The maximum length of a field counted, the longer fields are normalized as this length.
+     */
+    private static final int MAX_LENGTH = 255;
+
+    /**
+     * The number of postings per block of a postings list, the list can be skipped ahead by blocks.
+     */
+    private static final int BLOCK_SIZE = 128;
+
+    /**
+     * The estimated memory of an entry of the dictionary, besides the characters of its word.
+     */
+    private static final int DICTIONARY_ENTRY_BYTES = 96;
+
+    /**
+     * The saturation of the term frequencies.
+     */
+    private final float k1;
+
+    /**
+     * The weight of each field.
+     */
+    private final float[] weights;
+
+    /**
+     * The number of each word.
+     */
+    private final Map<String, Integer> terms;
+
+    /**
+     * The number of documents containing each word, by number of word.
+     */
+    private final int[] frequencies;
+
+    /**
+     * The start of the postings list of each word, by number of word, followed by the end of the last list.
+     */
+    private final int[] offsets;
+
+    /**
+     * The postings lists of all the words.
+     */
+    private final byte[] postings;
+
+    /**
+     * The highest score of each word in a document, by number of word.
+     */
+    private final float[] maxScores;
+
+    /**
+     * The first block of each word in the blocks, by number of word, followed by the end of the last word.
+     */
+    private final int[] blocks;
+
+    /**
+     * The number of the document before each block, from which the gap of its first posting is counted.
+     */
+    private final int[] blockDocuments;
+
+    /**
+     * The start of each block in the postings lists.
+     */
+    private final int[] blockOffsets;
+
+    /**
+     * The id of each document, by increasing id.
+     */
+    private final long[] ids;
+
+    /**
+     * The category of each document, by number of document.
+     */
+    private final byte[] categories;
+
+    /**
+     * The length of each field of each document, by field and number of document.
+     */
+    private final byte[][] lengths;
+
+    /**
+     * The weight of a term frequency by field and length of the field, normalized by the average length of the field.
+     */
+    private final float[][] norms;
+
+    /**
+     * The estimated memory of the dictionary of the words.
+     */
+    private final long dictionaryBytes;
+
+    /**
+     * The documents removed or changed since the build, a bit per number of document.
+     */
+    private final AtomicLongArray removed;
+
+    /**
+     * The documents added, changed or removed since the build, by id.
+     */
+    private final Map<Long, Change> changes = new ConcurrentHashMap<>();
+
+    /**
+     * The number of changes since the build.
+     */
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Creates an index from its builder.
+     *
+     * @param builder the builder, with all the documents
+     */
+    private InvertedIndex(@NonNull Builder builder) {
+        int size = builder.size;
+        int fields = builder.weights.length;
+        this.k1 = builder.k1;
+        this.weights = builder.weights;
+        this.ids = Arrays.copyOf(builder.ids, size);
+        this.categories = Arrays.copyOf(builder.categories, size);
+        this.lengths = new byte[fields][];
+        this.norms = new float[fields][MAX_LENGTH + 1];
+        for (int field = 0; field < fields; field++) {
+            this.lengths[field] = Arrays.copyOf(builder.lengths[field], size);
+            float average = size > 0 && builder.totalLengths[field] > 0 ? (float) builder.totalLengths[field] / size : 1;
+            for (int length = 0; length <= MAX_LENGTH; length++) {
+                this.norms[field][length] = this.weights[field] / (1 - builder.b + builder.b * length / average);
+            }
+        }
+
+        long bytes = 0;
+        int blocks = 0;
+        long dictionaryBytes = 0;
+        for (Map.Entry<String, PostingsBuilder> entry : builder.terms.entrySet()) {
+            bytes += entry.getValue().length;
+            blocks += entry.getValue().blocks;
+            dictionaryBytes += DICTIONARY_ENTRY_BYTES + entry.getKey().length();
+        }
+        if (bytes > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("The postings lists are too large for an index: " + bytes + " bytes");
+        }
+        this.terms = new HashMap<>(builder.terms.size() * 4 / 3 + 1);
+        this.frequencies = new int[builder.terms.size()];
+        this.offsets = new int[builder.terms.size() + 1];
+        this.postings = new byte[(int) bytes];
+        this.blocks = new int[builder.terms.size() + 1];
+        this.blockDocuments = new int[blocks];
+        this.blockOffsets = new int[blocks];
+        int term = 0;
+        int offset = 0;
+        int block = 0;
+        for (Map.Entry<String, PostingsBuilder> entry : builder.terms.entrySet()) {
+            PostingsBuilder list = entry.getValue();
+            this.terms.put(entry.getKey(), term);
+            this.frequencies[term] = list.count;
+            this.offsets[term] = offset;
+            this.blocks[term] = block;
+            System.arraycopy(list.bytes, 0, this.postings, offset, list.length);
+            for (int i = 0; i < list.blocks; i++) {
+                this.blockDocuments[block] = list.blockDocuments[i];
+                this.blockOffsets[block] = offset + list.blockOffsets[i];
+                block++;
+            }
+            offset += list.length;
+            term++;
+        }
+        this.offsets[term] = offset;
+        this.blocks[term] = block;
+        this.dictionaryBytes = dictionaryBytes;
+        this.removed = new AtomicLongArray((size + 63) / 64);
+
+        this.maxScores = new float[this.frequencies.length];
+        for (term = 0; term < this.frequencies.length; term++) {
+            Cursor cursor = new Cursor(term, 0);
+            float max = 0;
+            while (cursor.document != Integer.MAX_VALUE) {
+                max = Math.max(max, cursor.score());
+                cursor.next();
+            }
+            this.maxScores[term] = max;
+        }
+    }
+
+    /**
+     * Searches the documents containing any word of a query.
+     *
+     * @param query    the query, in any case and with or without accents
+     * @param category the category of the documents searched, or -1 for all the documents
+     * @param limit    the maximum number of documents returned
+     * @param maxTotal the maximum number of matching documents counted, at least the limit, beyond which the documents
+     *                 that cannot rank are skipped
+     * @return the best documents, best first, and the number of documents matching, at most the maximum
+     */
+    public @NonNull Result search(@NonNull String query, int category, int limit, int maxTotal) {
+        List<String> words = new ArrayList<>(new LinkedHashSet<>(TextAnalyzer.tokenize(query)));
+        float[] idfs = new float[words.size()];
+        List<Cursor> cursors = new ArrayList<>(words.size());
+        for (int i = 0; i < words.size(); i++) {
+            Integer term = this.terms.get(words.get(i));
+            idfs[i] = this.idf(term != null ? this.frequencies[term] : 0);
+            if (term != null) {
+                cursors.add(new Cursor(term, i));
+            }
+        }
+        // By highest score, lowest first: the bound of the first lists is the sum of their highest scores. The scores
+        // of the words are always added in the order of the query, the rounding of a sum then never exceeds its bound.
+        cursors.sort(Comparator.comparingDouble(cursor -> cursor.maxScore));
+        Cursor[] lists = cursors.toArray(new Cursor[0]);
+        float[] scores = new float[words.size()];
+        float[] bounds = new float[lists.length];
+        for (int i = 0; i < lists.length; i++) {
+            scores[lists[i].word] = lists[i].maxScore;
+            bounds[i] = sum(scores);
+        }
+
+        TopHits top = new TopHits(limit);
+        int total = 0;
+        // The lists before the first essential one cannot bring a document in on their own. The documents are read
+        // by increasing id, so a document whose score can only equal the worst one kept does not rank either.
+        int essential = 0;
+        float threshold = Float.NEGATIVE_INFINITY;
+        boolean pruning = false;
+        while (true) {
+            int document = Integer.MAX_VALUE;
+            for (int i = essential; i < lists.length; i++) {
+                document = Math.min(document, lists[i].document);
+            }
+            if (document == Integer.MAX_VALUE) {
+                break;
+            }
+
+            boolean matches = (category < 0 || this.categories[document] == category) && !this.isRemoved(document);
+            Arrays.fill(scores, 0);
+            for (int i = essential; i < lists.length; i++) {
+                if (lists[i].document == document) {
+                    if (matches) {
+                        scores[lists[i].word] = lists[i].score();
+                    }
+                    lists[i].next();
+                }
+            }
+            if (!matches) {
+                continue;
+            }
+            // The other lists are read from the highest score down, as long as the document can still rank.
+            for (int i = 0; i < essential; i++) {
+                scores[lists[i].word] = lists[i].maxScore;
+            }
+            int i = essential - 1;
+            while (i >= 0 && sum(scores) > threshold) {
+                lists[i].advance(document);
+                scores[lists[i].word] = lists[i].document == document ? lists[i].score() : 0;
+                i--;
+            }
+            if (i >= 0) {
+                continue;
+            }
+            top.offer(this.ids[document], sum(scores));
+
+            if (!pruning) {
+                total++;
+                pruning = total >= maxTotal && top.isFull();
+            }
+            if (pruning && top.threshold() > threshold) {
+                threshold = top.threshold();
+                while (essential < lists.length && bounds[essential] <= threshold) {
+                    essential++;
+                }
+            }
+        }
+
+        for (Change change : this.changes.values()) {
+            Analyzed document = change.document();
+            if (document == null || (category >= 0 && document.category() != category)) {
+                continue;
+            }
+            float score = 0;
+            boolean matched = false;
+            for (int i = 0; i < words.size(); i++) {
+                int[] frequencies = document.frequencies().get(words.get(i));
+                if (frequencies != null) {
+                    matched = true;
+                    score += this.score(idfs[i], frequencies, document.lengths());
+                }
+            }
+            if (matched) {
+                total++;
+                top.offer(change.id(), score);
+            }
+        }
+        return new Result(top.hits(), Math.min(total, maxTotal));
+    }
+
+    /**
+     * Adds or replaces a document.
+     *
+     * @param document the document
+     */
+    public void update(@NonNull Document document) {
+        this.apply(document.id(), analyze(document, this.weights.length));
+    }
+
+    /**
+     * Removes a document, if it is indexed.
+     *
+     * @param id the id of the document
+     */
+    public void remove(long id) {
+        this.apply(id, null);
+    }
+
+    /**
+     * Gets the number of changes made so far, to carry the later ones over to the next build.
+     *
+     * @return the number of the last change
+     */
+    public long sequence() {
+        return this.sequence.get();
+    }
+
+    /**
+     * Applies the changes made to a previous build after a change, which the documents of this build may not contain.
+     *
+     * @param previous the previous build
+     * @param after    the number of the last change of the previous build contained in this build
+     */
+    public void carryOver(@NonNull InvertedIndex previous, long after) {
+        for (Change change : previous.changes.values()) {
+            if (change.sequence() > after) {
+                this.apply(change.id(), change.document());
+            }
+        }
+    }
+
+    /**
+     * Gets the number of documents of the build.
+     *
+     * @return the number of documents indexed by the build
+     */
+    public int size() {
+        return this.ids.length;
+    }
+
+    /**
+     * Gets the number of documents added, changed or removed since the build.
+     *
+     * @return the size of the overlay
+     */
+    public int changes() {
+        return this.changes.size();
+    }
+
+    /**
+     * Estimates the memory of the index, without the overlay.
+     *
+     * @return the size of the index in bytes
+     */
+    public long bytes() {
+        return this.postings.length + 8L * this.ids.length + (long) this.categories.length * (1 + this.lengths.length)
+                + 12L * this.frequencies.length + 8L * this.blockOffsets.length + this.dictionaryBytes + 8L * this.removed.length();
+    }
+
+    /**
+     * Records a change in the overlay.
+     *
+     * @param id       the id of the document
+     * @param document the new version of the document, null if it is removed
+     */
+    private void apply(long id, @Nullable Analyzed document) {
+        int number = Arrays.binarySearch(this.ids, id);
+        if (number >= 0) {
+            this.removed.getAndAccumulate(number >> 6, 1L << number, (bits, bit) -> bits | bit);
+        }
+        this.changes.put(id, new Change(id, this.sequence.incrementAndGet(), document));
+    }
+
+    /**
+     * Whether a document of the build was removed or changed since.
+     *
+     * @param number the number of the document
+     * @return true if the document is removed
+     */
+    private boolean isRemoved(int number) {
+        return (this.removed.get(number >> 6) & 1L << number) != 0;
+    }
+
+    /**
+     * Computes the inverse document frequency of a word, the rarer the higher.
+     *
+     * @param frequency the number of documents containing the word
+     * @return the weight of the word
+     */
+    private float idf(int frequency) {
+        return (float) Math.log(1 + (this.ids.length - frequency + 0.5) / (frequency + 0.5));
+    }
+
+    /**
+     * Scores a word in a document of the overlay.
+     *
+     * @param idf         the inverse document frequency of the word
+     * @param frequencies the number of times the word appears in each field
+     * @param lengths     the length of each field
+     * @return the score of the word
+     */
+    private float score(float idf, int[] frequencies, int[] lengths) {
+        float frequency = 0;
+        for (int field = 0; field < frequencies.length; field++) {
+            frequency += frequencies[field] * this.norms[field][lengths[field]];
+        }
+        return this.saturate(idf, frequency);
+    }
+
+    /**
+     * Scores a word from its normalized frequency, which saturates so that repeating a word does not count forever.
+     *
+     * @param idf       the inverse document frequency of the word
+     * @param frequency the weighted and normalized frequency of the word in the document
+     * @return the score of the word
+     */
+    private float saturate(float idf, float frequency) {
+        return idf * frequency * (this.k1 + 1) / (this.k1 + frequency);
+    }
+
+    /**
+     * Adds the scores of the words of a document, in the order of the query.
+     *
+     * @param scores the score of each word
+     * @return the score of the document
+     */
+    private static float sum(float[] scores) {
+        float sum = 0;
+        for (float score : scores) {
+            sum += score;
+        }
+        return sum;
+    }
+
+    /**
+     * Splits the fields of a document into words.
+     *
+     * @param document the document
+     * @param fields   the number of fields
+     * @return the words of the document
+     */
+    private static @NonNull Analyzed analyze(@NonNull Document document, int fields) {
+        Map<String, int[]> frequencies = new HashMap<>();
+        int[] lengths = new int[fields];
+        for (int field = 0; field < fields && field < document.fields().length; field++) {
+            String text = document.fields()[field];
+            if (text == null) {
+                continue;
+            }
+            List<String> words = TextAnalyzer.tokenize(text);
+            lengths[field] = Math.min(words.size(), MAX_LENGTH);
+            for (String word : words) {
+                frequencies.computeIfAbsent(word, key -> new int[fields])[field]++;
+            }
+        }
+        return new Analyzed(document.category(), frequencies, lengths);
+    }
+
+    /**
+     * A document to index.
+     *
+     * @param id       the id of the document
+     * @param category the category of the document, from 0 to 127, searched on its own
+     * @param fields   the texts of the fields, in the order of their weights, null if empty
+     */
+    public record Document(long id, int category, @NonNull String... fields) {
+    }
+
+    /**
+     * A document found.
+     *
+     * @param id    the id of the document
+     * @param score the relevance of the document
+     */
+    public record Hit(long id, float score) {
+    }
+
+    /**
+     * The result of a search.
+     *
+     * @param hits  the best documents, best first
+     * @param total the number of documents matching, up to the maximum counted
+     */
+    public record Result(@NonNull List<Hit> hits, int total) {
+    }
+
+    /**
+     * The words of a document.
+     *
+     * @param category    the category of the document
+     * @param frequencies the number of times each word appears in each field
+     * @param lengths     the length of each field, at most {@link #MAX_LENGTH}
+     */
+    private record Analyzed(int category, @NonNull Map<String, int[]> frequencies, @NonNull int[] lengths) {
+    }
+
+    /**
+     * A change of the overlay.
+     *
+     * @param id       the id of the document
+     * @param sequence the number of the change
+     * @param document the new version of the document, null if it is removed
+     */
+    private record Change(long id, long sequence, @Nullable Analyzed document) {
+    }
+
+    /**
+     * Builds an index from all the documents, by increasing id.
+     */
+    public static final class Builder {
+        /**
+         * The saturation of the term frequencies.
+         */
+        private final float k1;
+
+        /**
+         * The normalization of the term frequencies by the length of their field.
+         */
+        private final float b;
+
+        /**
+         * The weight of each field.
+         */
+        private final float[] weights;
+
+        /**
+         * The postings list of each word.
+         */
+        private final Map<String, PostingsBuilder> terms = new HashMap<>();
+
+        /**
+         * The total length of each field.
+         */
+        private final long[] totalLengths;
+
+        /**
+         * The id of each document.
+         */
+        private long[] ids = new long[1024];
+
+        /**
+         * The category of each document.
+         */
+        private byte[] categories = new byte[1024];
+
+        /**
+         * The length of each field of each document.
+         */
+        private final byte[][] lengths;
+
+        /**
+         * The number of documents.
+         */
+        private int size;
+
+        /**
+         * Creates a builder of an empty index.
+         *
+         * @param k1      the saturation of the term frequencies, usually 1.2
+         * @param b       the normalization of the term frequencies by the length of their field, from 0 to 1, usually 0.75
+         * @param weights the weight of each field
+         */
+        public Builder(float k1, float b, @NonNull float... weights) {
+            this.k1 = k1;
+            this.b = b;
+            this.weights = weights.clone();
+            this.totalLengths = new long[weights.length];
+            this.lengths = new byte[weights.length][1024];
+        }
+
+        /**
+         * Adds a document, with an id higher than the ones added before.
+         *
+         * @param document the document
+         * @return this builder
+         * @throws IllegalArgumentException if the id is not higher than the previous one
+         */
+        public @NonNull Builder add(@NonNull Document document) {
+            if (this.size > 0 && document.id() <= this.ids[this.size - 1]) {
+                throw new IllegalArgumentException("The documents must be added by increasing id, got " + document.id()
+                        + " after " + this.ids[this.size - 1]);
+            }
+            if (this.size == this.ids.length) {
+                int capacity = this.size * 2;
+                this.ids = Arrays.copyOf(this.ids, capacity);
+                this.categories = Arrays.copyOf(this.categories, capacity);
+                for (int field = 0; field < this.lengths.length; field++) {
+                    this.lengths[field] = Arrays.copyOf(this.lengths[field], capacity);
+                }
+            }
+
+            Analyzed analyzed = analyze(document, this.weights.length);
+            this.ids[this.size] = document.id();
+            this.categories[this.size] = (byte) document.category();
+            for (int field = 0; field < this.lengths.length; field++) {
+                this.lengths[field][this.size] = (byte) analyzed.lengths()[field];
+                this.totalLengths[field] += analyzed.lengths()[field];
+            }
+            for (Map.Entry<String, int[]> entry : analyzed.frequencies().entrySet()) {
+                this.terms.computeIfAbsent(entry.getKey(), key -> new PostingsBuilder()).add(this.size, entry.getValue());
+            }
+            this.size++;
+            return this;
+        }
+
+        /**
+         * Builds the index of the documents added.
+         *
+         * @return the index
+         * @throws IllegalStateException if the postings lists do not fit in an array
+         */
+        public @NonNull InvertedIndex build() {
+            return new InvertedIndex(this);
+        }
+    }
+
+    /**
+     * The postings list of a word being built.
+     */
+    private static final class PostingsBuilder {
+        /**
+         * The encoded postings.
+         */
+        private byte[] bytes = new byte[8];
+
+        /**
+         * The number of bytes used.
+         */
+        private int length;
+
+        /**
+         * The number of the last document added.
+         */
+        private int last;
+
+        /**
+         * The number of documents.
+         */
+        private int count;
+
+        /**
+         * The number of the document before each block.
+         */
+        private int[] blockDocuments = new int[0];
+
+        /**
+         * The start of each block.
+         */
+        private int[] blockOffsets = new int[0];
+
+        /**
+         * The number of blocks after the first one.
+         */
+        private int blocks;
+
+        /**
+         * Adds a document, after the previous ones: the gap from the previous document, then the frequency in each field.
+         *
+         * @param document    the number of the document
+         * @param frequencies the number of times the word appears in each field
+         */
+        void add(int document, int[] frequencies) {
+            if (this.count > 0 && this.count % BLOCK_SIZE == 0) {
+                if (this.blocks == this.blockOffsets.length) {
+                    this.blockDocuments = Arrays.copyOf(this.blockDocuments, Math.max(4, this.blocks * 2));
+                    this.blockOffsets = Arrays.copyOf(this.blockOffsets, this.blockDocuments.length);
+                }
+                this.blockDocuments[this.blocks] = this.last;
+                this.blockOffsets[this.blocks] = this.length;
+                this.blocks++;
+            }
+            this.write(document - this.last);
+            for (int frequency : frequencies) {
+                this.write(frequency);
+            }
+            this.last = document;
+            this.count++;
+        }
+
+        /**
+         * Writes a positive integer, 7 bits per byte with the high bit set on all the bytes but the last.
+         *
+         * @param value the integer
+         */
+        private void write(int value) {
+            if (this.length + 5 > this.bytes.length) {
+                this.bytes = Arrays.copyOf(this.bytes, this.bytes.length * 2);
+            }
+            while ((value & ~0x7F) != 0) {
+                this.bytes[this.length++] = (byte) (value & 0x7F | 0x80);
+                value >>>= 7;
+            }
+            this.bytes[this.length++] = (byte) value;
+        }
+    }
+
+    /**
+     * The position of a search in the postings list of a word.
+     */
+    private final class Cursor {
+        /**
+         * The inverse document frequency of the word.
+         */
+        private final float idf;
+
+        /**
+         * The highest score of the word in a document.
+         */
+        private final float maxScore;
+
+        /**
+         * The position of the word in the query.
+         */
+        private final int word;
+
+        /**
+         * The end of the postings list.
+         */
+        private final int end;
+
+        /**
+         * The end of the blocks of the postings list.
+         */
+        private final int blockEnd;
+
+        /**
+         * The next block that may be ahead of the position.
+         */
+        private int block;
+
+        /**
+         * The number of times the word appears in each field of the current document.
+         */
+        private final int[] frequencies;
+
+        /**
+         * The position of the next document in the postings list.
+         */
+        private int position;
+
+        /**
+         * The number of the current document, {@link Integer#MAX_VALUE} after the last one.
+         */
+        private int document;
+
+        /**
+         * Positions a cursor on the first document of a word.
+         *
+         * @param term the number of the word
+         * @param word the position of the word in the query
+         */
+        Cursor(int term, int word) {
+            this.idf = InvertedIndex.this.idf(InvertedIndex.this.frequencies[term]);
+            this.maxScore = InvertedIndex.this.maxScores[term];
+            this.word = word;
+            this.position = InvertedIndex.this.offsets[term];
+            this.end = InvertedIndex.this.offsets[term + 1];
+            this.block = InvertedIndex.this.blocks[term];
+            this.blockEnd = InvertedIndex.this.blocks[term + 1];
+            this.frequencies = new int[InvertedIndex.this.weights.length];
+            this.next();
+        }
+
+        /**
+         * Moves to the first document at or after a document, skipping the blocks before it.
+         *
+         * @param target the number of the document
+         */
+        void advance(int target) {
+            if (this.document >= target) {
+                return;
+            }
+            int[] documents = InvertedIndex.this.blockDocuments;
+            int skip = -1;
+            while (this.block < this.blockEnd && documents[this.block] < target) {
+                skip = this.block++;
+            }
+            if (skip >= 0 && InvertedIndex.this.blockOffsets[skip] > this.position) {
+                this.position = InvertedIndex.this.blockOffsets[skip];
+                this.document = documents[skip];
+            }
+            do {
+                this.next();
+            } while (this.document < target);
+        }
+
+        /**
+         * Moves to the next document.
+         */
+        void next() {
+            if (this.position >= this.end) {
+                this.document = Integer.MAX_VALUE;
+                return;
+            }
+            this.document += this.read();
+            for (int field = 0; field < this.frequencies.length; field++) {
+                this.frequencies[field] = this.read();
+            }
+        }
+
+        /**
+         * Scores the word in the current document.
+         *
+         * @return the score of the word
+         */
+        float score() {
+            float frequency = 0;
+            for (int field = 0; field < this.frequencies.length; field++) {
+                frequency += this.frequencies[field] * InvertedIndex.this.norms[field][InvertedIndex.this.lengths[field][this.document] & 0xFF];
+            }
+            return InvertedIndex.this.saturate(this.idf, frequency);
+        }
+
+        /**
+         * Reads a positive integer.
+         *
+         * @return the integer
+         */
+        private int read() {
+            byte[] postings = InvertedIndex.this.postings;
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = postings[this.position++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+    }
+
+    /**
+     * The best documents seen by a search, in a heap with the worst of them on top.
+     */
+    private static final class TopHits {
+        /**
+         * The order of the hits, best first, then by id.
+         */
+        private static final Comparator<Hit> ORDER = Comparator.comparingDouble(Hit::score).reversed().thenComparingLong(Hit::id);
+
+        /**
+         * The ids of the documents.
+         */
+        private final long[] ids;
+
+        /**
+         * The scores of the documents.
+         */
+        private final float[] scores;
+
+        /**
+         * The number of documents.
+         */
+        private int size;
+
+        /**
+         * Creates an empty heap.
+         *
+         * @param capacity the maximum number of documents
+         */
+        TopHits(int capacity) {
+            this.ids = new long[Math.max(0, capacity)];
+            this.scores = new float[this.ids.length];
+        }
+
+        /**
+         * Keeps a document if it is one of the best so far.
+         *
+         * @param id    the id of the document
+         * @param score the score of the document
+         */
+        void offer(long id, float score) {
+            if (this.size < this.ids.length) {
+                this.ids[this.size] = id;
+                this.scores[this.size] = score;
+                this.siftUp(this.size++);
+            } else if (this.size > 0 && this.better(id, score, 0)) {
+                this.ids[0] = id;
+                this.scores[0] = score;
+                this.siftDown(0);
+            }
+        }
+
+        /**
+         * Whether the heap holds as many documents as it can.
+         *
+         * @return true if the next documents replace the worst one
+         */
+        boolean isFull() {
+            return this.size == this.ids.length;
+        }
+
+        /**
+         * Gets the score a document must exceed to be kept once the heap is full.
+         *
+         * @return the score of the worst document kept, infinite if the heap cannot hold any
+         */
+        float threshold() {
+            return this.size > 0 ? this.scores[0] : Float.POSITIVE_INFINITY;
+        }
+
+        /**
+         * Gets the documents kept.
+         *
+         * @return the documents, best first
+         */
+        List<Hit> hits() {
+            List<Hit> hits = new ArrayList<>(this.size);
+            for (int i = 0; i < this.size; i++) {
+                hits.add(new Hit(this.ids[i], this.scores[i]));
+            }
+            hits.sort(ORDER);
+            return hits;
+        }
+
+        /**
+         * Whether a document ranks before the document at a position of the heap.
+         *
+         * @param id    the id of the document
+         * @param score the score of the document
+         * @param i     the position in the heap
+         * @return true if the document is better
+         */
+        private boolean better(long id, float score, int i) {
+            return score > this.scores[i] || (score == this.scores[i] && id < this.ids[i]);
+        }
+
+        /**
+         * Moves a document up while it is worse than its parent.
+         *
+         * @param i the position of the document
+         */
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (!this.better(this.ids[parent], this.scores[parent], i)) {
+                    return;
+                }
+                this.swap(i, parent);
+                i = parent;
+            }
+        }
+
+        /**
+         * Moves a document down while one of its children is worse.
+         *
+         * @param i the position of the document
+         */
+        private void siftDown(int i) {
+            while (true) {
+                int worst = i;
+                for (int child = 2 * i + 1; child <= 2 * i + 2 && child < this.size; child++) {
+                    if (this.better(this.ids[worst], this.scores[worst], child)) {
+                        worst = child;
+                    }
+                }
+                if (worst == i) {
+                    return;
+                }
+                this.swap(i, worst);
+                i = worst;
+            }
+        }
+
+        /**
+         * Swaps two documents of the heap.
+         *
+         * @param i the position of the first document
+         * @param j the position of the second document
+         */
+        private void swap(int i, int j) {
+            long id = this.ids[i];
+            float score = this.scores[i];
+            this.ids[i] = this.ids[j];
+            this.scores[i] = this.scores[j];
+            this.ids[j] = id;
+            this.scores[j] = score;
+        }
+    }
+}
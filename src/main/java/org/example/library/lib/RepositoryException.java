@@ -99,6 +99,34 @@ public class RepositoryException extends Exception {
         }
     }
 
+    /**
+     * Exception thrown when a resource is no longer available.
+     */
+    public static class Gone extends RepositoryException {
+        /**
+         * Creates a new Gone exception with the given message.
+         *
+         * @param message - the exception message
+         */
+        public Gone(String message) {
+            super(message, HttpStatus.GONE);
+        }
+    }
+
+    /**
+     * Exception thrown when the server is temporarily unable to handle the request.
+     */
+    public static class ServiceUnavailable extends RepositoryException {
+        /**
+         * Creates a new ServiceUnavailable exception with the given message.
+         *
+         * @param message - the exception message
+         */
+        public ServiceUnavailable(String message) {
+            super(message, HttpStatus.SERVICE_UNAVAILABLE);
+        }
+    }
+
     /**
      * Exception thrown when a resource is not found.
      */
@@ -0,0 +1,154 @@
+package org.example.library.lib;
+
+import org.springframework.lang.NonNull;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent identical calls into a single execution whose result is shared.
+ * <p>
+ * The first caller of a key executes the call on its own thread, the callers of the same key that arrive while it is
+ * in flight wait for its result instead of executing the call again. The keys must have value equality, a key that is
+ * only equal to itself is never shared. Followers wait at most the timeout and then execute the call themselves, so a
+ * slow call never delays the others more than the timeout.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the results
+ */
+public class SingleFlight<K, V> {
+    /**
+     * The calls in flight by key.
+     */
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * The maximum time in milliseconds a follower waits for the call in flight, or 0 to execute every call.
+     */
+    private final long timeout;
+
+    /**
+     * The number of calls executed by a leader.
+     */
+    private final LongAdder executed = new LongAdder();
+
+    /**
+     * The number of calls that shared the result of a leader.
+     */
+    private final LongAdder shared = new LongAdder();
+
+    /**
+     * The number of followers that stopped waiting and executed the call themselves.
+     */
+    private final LongAdder timedOut = new LongAdder();
+
+    /**
+     * Constructor for the SingleFlight.
+     *
+     * @param timeout The maximum time in milliseconds a follower waits for the call in flight, or 0 to execute every call
+     */
+    public SingleFlight(long timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * Executes a call, or waits for the identical call in flight and returns its result.
+     *
+     * @param key  The key identifying identical calls
+     * @param call The call
+     * @return The result of the call
+     */
+    public V execute(@NonNull K key, @NonNull Supplier<V> call) {
+        if (this.timeout <= 0) {
+            this.executed.increment();
+            return call.get();
+        }
+
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> leader = this.inFlight.putIfAbsent(key, flight);
+        if (leader == null) {
+            this.executed.increment();
+            try {
+                V result = call.get();
+                flight.complete(result);
+                return result;
+            } catch (RuntimeException | Error e) {
+                flight.completeExceptionally(e);
+                throw e;
+            } finally {
+                this.inFlight.remove(key, flight);
+            }
+        }
+
+        try {
+            V result = leader.get(this.timeout, TimeUnit.MILLISECONDS);
+            this.shared.increment();
+            return result;
+        } catch (TimeoutException e) {
+            this.timedOut.increment();
+            return call.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            this.timedOut.increment();
+            return call.get();
+        } catch (ExecutionException e) {
+            // The leader failed, the followers fail the same way.
+            this.shared.increment();
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw (Error) e.getCause();
+        }
+    }
+
+    /**
+     * Stops sharing the calls in flight, so that the calls that follow execute again. In a transaction, this happens
+     * after the commit, so that the calls that follow see the changes of the transaction.
+     */
+    public void forget() {
+        Transactions.afterCommit(this.inFlight::clear);
+    }
+
+    /**
+     * Gets the number of calls executed by a leader.
+     *
+     * @return the number of executed calls
+     */
+    public long getExecuted() {
+        return this.executed.sum();
+    }
+
+    /**
+     * Gets the number of calls that shared the result of a leader.
+     *
+     * @return the number of shared calls
+     */
+    public long getShared() {
+        return this.shared.sum();
+    }
+
+    /**
+     * Gets the number of followers that stopped waiting and executed the call themselves.
+     *
+     * @return the number of timed out calls
+     */
+    public long getTimedOut() {
+        return this.timedOut.sum();
+    }
+
+    /**
+     * Gets the fraction of the calls that shared the result of a leader.
+     *
+     * @return the collapse ratio, 0 if there was no call
+     */
+    public double getCollapseRatio() {
+        long shared = this.getShared();
+        long total = shared + this.getExecuted() + this.getTimedOut();
+        return total == 0 ? 0 : (double) shared / total;
+    }
+}
@@ -0,0 +1,378 @@
+package org.example.library.lib;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Tracks the keys with the highest counts over a sliding window of time, in a fixed amount of memory.
+ * <p>
+ * The window is divided into panes, each counting its keys in a {@link CountMinSketch}. When a pane falls out of the
+ * window its sketch is cleared and reused for the newest pane, so the window slides by whole panes and covers between
+ * panes - 1 and panes widths of time. The count of a key over the window is the sum of its estimates in the panes.
+ * <p>
+ * The heavy hitters are tracked with a Space-Saving summary of a fixed number of candidates, whose counts come from the
+ * sketches: a key that is not a candidate replaces the candidate with the lowest count once its own count is higher.
+ * Every key whose count is more than a fraction 1 / capacity of the window is a candidate, so the top keys are exact
+ * up to the error of the sketches when the capacity is a few times the number of keys read. When a pane falls out of
+ * the window the counts of the candidates are estimated again, and the candidates left without sales are dropped.
+ * <p>
+ * Thread-safe, the methods are synchronized.
+ *
+ * @param <K> the type of the keys
+ */
+public class SlidingTopK<K> {
+    /**
+     * The epoch of the panes never used.
+     */
+    private static final long NONE = Long.MIN_VALUE;
+
+    /**
+     * The order of the candidates, lowest count first, then most recently admitted first.
+     */
+    private static final Comparator<Candidate<?>> ORDER = Comparator.<Candidate<?>>comparingLong(candidate -> candidate.count)
+            .thenComparing(Comparator.<Candidate<?>>comparingLong(candidate -> candidate.sequence).reversed());
+
+    /**
+     * The width of the panes in milliseconds.
+     */
+    private final long paneWidth;
+
+    /**
+     * The sketches of the panes, the pane of an epoch in the slot of the epoch modulo the number of panes.
+     */
+    private final CountMinSketch[] panes;
+
+    /**
+     * The epoch of each pane, the number of pane widths since 1970.
+     */
+    private final long[] epochs;
+
+    /**
+     * The maximum number of candidates.
+     */
+    private final int capacity;
+
+    /**
+     * The candidates by key.
+     */
+    private final Map<K, Candidate<K>> candidates = new HashMap<>();
+
+    /**
+     * The candidates by count.
+     */
+    private final TreeSet<Candidate<K>> ranking = new TreeSet<>(ORDER);
+
+    /**
+     * The epoch of the newest pane.
+     */
+    private long head = NONE;
+
+    /**
+     * The number of candidates admitted so far, which orders the candidates with the same count.
+     */
+    private long sequence;
+
+    /**
+     * Creates a new empty window.
+     *
+     * @param window      the duration of the window in milliseconds
+     * @param paneCount   the number of panes the window is divided into
+     * @param sketchWidth the number of cells per row of the sketches
+     * @param sketchDepth the number of rows of the sketches
+     * @param capacity    the maximum number of candidates
+     */
+    public SlidingTopK(long window, int paneCount, int sketchWidth, int sketchDepth, int capacity) {
+        this.paneWidth = Math.max(1, window / paneCount);
+        this.panes = new CountMinSketch[paneCount];
+        this.epochs = new long[paneCount];
+        for (int i = 0; i < paneCount; i++) {
+            this.panes[i] = new CountMinSketch(sketchWidth, sketchDepth);
+            this.epochs[i] = NONE;
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Adds to the count of a key.
+     *
+     * @param key   the key
+     * @param count the count to add, positive
+     * @param now   the current time in milliseconds since 1970
+     */
+    public synchronized void add(K key, int count, long now) {
+        long epoch = Math.floorDiv(now, this.paneWidth);
+        this.advance(epoch);
+        if (epoch <= this.head - this.panes.length) {
+            // The clock went back further than the window, the count is already expired.
+            return;
+        }
+        long hash = CountMinSketch.hash(key);
+        this.panes[this.slot(epoch)].add(hash, count);
+        long estimate = this.estimate(hash);
+
+        Candidate<K> candidate = this.candidates.get(key);
+        if (candidate != null) {
+            this.ranking.remove(candidate);
+            candidate.count = estimate;
+            this.ranking.add(candidate);
+        } else if (this.candidates.size() < this.capacity) {
+            this.admit(key, estimate);
+        } else if (estimate > this.ranking.first().count) {
+            Candidate<K> evicted = this.ranking.pollFirst();
+            this.candidates.remove(evicted.key);
+            this.admit(key, estimate);
+        }
+    }
+
+    /**
+     * Gets the keys with the highest counts over the window.
+     *
+     * @param limit the maximum number of keys
+     * @param now   the current time in milliseconds since 1970
+     * @return the keys with their estimated counts, highest first
+     */
+    public synchronized List<Tuple<K, Long>> top(int limit, long now) {
+        this.advance(Math.floorDiv(now, this.paneWidth));
+        List<Tuple<K, Long>> top = new ArrayList<>(Math.min(limit, this.candidates.size()));
+        Iterator<Candidate<K>> iterator = this.ranking.descendingIterator();
+        while (top.size() < limit && iterator.hasNext()) {
+            Candidate<K> candidate = iterator.next();
+            top.add(new Tuple<>(candidate.key, candidate.count));
+        }
+        return top;
+    }
+
+    /**
+     * Gets the start of the oldest pane of the window.
+     *
+     * @param now the current time in milliseconds since 1970
+     * @return the start of the window in milliseconds since 1970
+     */
+    public synchronized long getWindowStart(long now) {
+        this.advance(Math.floorDiv(now, this.paneWidth));
+        return (this.head - this.panes.length + 1) * this.paneWidth;
+    }
+
+    /**
+     * Gets the memory used by the sketches, which does not grow with the number of keys.
+     *
+     * @return the size of the sketches in bytes
+     */
+    public long getSize() {
+        return this.panes.length * this.panes[0].getSize();
+    }
+
+    /**
+     * Writes the panes and the candidates.
+     *
+     * @param out       the output
+     * @param keyWriter writes a key
+     * @throws IOException if the output fails
+     */
+    public synchronized void writeTo(DataOutput out, KeyWriter<K> keyWriter) throws IOException {
+        out.writeLong(this.paneWidth);
+        out.writeInt(this.panes.length);
+        for (int i = 0; i < this.panes.length; i++) {
+            out.writeLong(this.epochs[i]);
+            this.panes[i].writeTo(out);
+        }
+        out.writeInt(this.candidates.size());
+        for (K key : this.candidates.keySet()) {
+            keyWriter.write(out, key);
+        }
+    }
+
+    /**
+     * Adds the counts and the candidates written by {@link #writeTo}. The panes out of the window are skipped, and so
+     * is everything if the panes do not have the same width and sketches.
+     *
+     * @param in        the input
+     * @param keyReader reads a key
+     * @param now       the current time in milliseconds since 1970
+     * @return true if the counts were added, false if they were skipped
+     * @throws IOException if the input fails
+     */
+    public synchronized boolean mergeFrom(DataInput in, KeyReader<K> keyReader, long now) throws IOException {
+        this.advance(Math.floorDiv(now, this.paneWidth));
+        if (in.readLong() != this.paneWidth || in.readInt() != this.panes.length) {
+            return false;
+        }
+        for (int i = 0; i < this.panes.length; i++) {
+            long epoch = in.readLong();
+            // The window was moved to now, so the slot of a pane still in the window holds the same epoch.
+            boolean live = epoch != NONE && epoch <= this.head && epoch > this.head - this.panes.length;
+            if (live) {
+                if (!this.panes[this.slot(epoch)].mergeFrom(in)) {
+                    return false;
+                }
+            } else {
+                // Read into a scratch sketch to skip the pane.
+                new CountMinSketch(1, 1).mergeFrom(in);
+            }
+        }
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            K key = keyReader.read(in);
+            if (!this.candidates.containsKey(key)) {
+                this.admit(key, 0);
+            }
+        }
+        this.rescore();
+        return true;
+    }
+
+    /**
+     * Moves the window to the pane of an epoch, clearing the panes that fall out of it.
+     *
+     * @param epoch the epoch of the newest pane
+     */
+    private void advance(long epoch) {
+        if (this.head != NONE && epoch <= this.head) {
+            return;
+        }
+        long first = this.head == NONE ? epoch - this.panes.length + 1 : Math.max(this.head + 1, epoch - this.panes.length + 1);
+        for (long e = first; e <= epoch; e++) {
+            int slot = this.slot(e);
+            this.panes[slot].clear();
+            this.epochs[slot] = e;
+        }
+        boolean expired = this.head != NONE;
+        this.head = epoch;
+        if (expired) {
+            this.rescore();
+        }
+    }
+
+    /**
+     * Estimates the counts of the candidates again, dropping the candidates without counts and the lowest above the
+     * capacity.
+     */
+    private void rescore() {
+        this.ranking.clear();
+        Iterator<Candidate<K>> iterator = this.candidates.values().iterator();
+        while (iterator.hasNext()) {
+            Candidate<K> candidate = iterator.next();
+            candidate.count = this.estimate(CountMinSketch.hash(candidate.key));
+            if (candidate.count == 0) {
+                iterator.remove();
+            } else {
+                this.ranking.add(candidate);
+            }
+        }
+        while (this.ranking.size() > this.capacity) {
+            this.candidates.remove(this.ranking.pollFirst().key);
+        }
+    }
+
+    /**
+     * Admits a key as a candidate.
+     *
+     * @param key   the key
+     * @param count the estimated count of the key
+     */
+    private void admit(K key, long count) {
+        Candidate<K> candidate = new Candidate<>(key, this.sequence++);
+        candidate.count = count;
+        this.candidates.put(key, candidate);
+        this.ranking.add(candidate);
+    }
+
+    /**
+     * Estimates the count of a key over the window.
+     *
+     * @param hash the hash of the key
+     * @return the sum of the estimates of the panes
+     */
+    private long estimate(long hash) {
+        long estimate = 0;
+        for (CountMinSketch pane : this.panes) {
+            estimate += pane.estimate(hash);
+        }
+        return estimate;
+    }
+
+    /**
+     * Gets the slot of the pane of an epoch.
+     *
+     * @param epoch the epoch
+     * @return the index of the slot
+     */
+    private int slot(long epoch) {
+        return (int) Math.floorMod(epoch, (long) this.panes.length);
+    }
+
+    /**
+     * Writes a key of a snapshot.
+     *
+     * @param <K> the type of the keys
+     */
+    @FunctionalInterface
+    public interface KeyWriter<K> {
+        /**
+         * Writes a key.
+         *
+         * @param out the output
+         * @param key the key
+         * @throws IOException if the output fails
+         */
+        void write(DataOutput out, K key) throws IOException;
+    }
+
+    /**
+     * Reads a key of a snapshot.
+     *
+     * @param <K> the type of the keys
+     */
+    @FunctionalInterface
+    public interface KeyReader<K> {
+        /**
+         * Reads a key.
+         *
+         * @param in the input
+         * @return the key
+         * @throws IOException if the input fails
+         */
+        K read(DataInput in) throws IOException;
+    }
+
+    /**
+     * A candidate heavy hitter.
+     *
+     * @param <K> the type of the key
+     */
+    private static final class Candidate<K> {
+        /**
+         * The key.
+         */
+        private final K key;
+
+        /**
+         * The order of admission of the candidate.
+         */
+        private final long sequence;
+
+        /**
+         * The estimated count of the key over the window, changed only while the candidate is out of the ranking.
+         */
+        private long count;
+
+        /**
+         * Creates a new candidate.
+         *
+         * @param key      the key
+         * @param sequence the order of admission of the candidate
+         */
+        private Candidate(K key, long sequence) {
+            this.key = key;
+            this.sequence = sequence;
+        }
+    }
+}
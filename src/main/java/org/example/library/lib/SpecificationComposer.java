@@ -1,10 +1,17 @@
 package org.example.library.lib;
 
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.lang.NonNull;
 import org.springframework.lang.Nullable;
 
 /**
  * A functional interface for composing specifications using logical operators.
+ * <p>
+ * The compositions are records, so they are equal when their operands are.
  *
  * @param <T> the type of the entity
  */
@@ -22,7 +29,7 @@ public interface SpecificationComposer<T> extends Specification<T> {
         } else if (spec2 == null) {
             return spec1;
         } else {
-            return (root, query, cb) -> cb.and(spec1.toPredicate(root, query, cb), spec2.toPredicate(root, query, cb));
+            return new And<>(spec1, spec2);
         }
     }
 
@@ -39,7 +46,7 @@ public interface SpecificationComposer<T> extends Specification<T> {
         } else if (spec2 == null) {
             return spec1;
         } else {
-            return (root, query, cb) -> cb.or(spec1.toPredicate(root, query, cb), spec2.toPredicate(root, query, cb));
+            return new Or<>(spec1, spec2);
         }
     }
 
@@ -53,7 +60,48 @@ public interface SpecificationComposer<T> extends Specification<T> {
         if (spec == null) {
             return null;
         } else {
-            return (root, query, cb) -> cb.not(spec.toPredicate(root, query, cb));
+            return new Not<>(spec);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * The logical AND of two specifications.
+     *
+     * @param spec1 the first specification
+     * @param spec2 the second specification
+     * @param <T>   the type of the entity
+     */
+    record And<T>(@NonNull Specification<T> spec1, @NonNull Specification<T> spec2) implements SpecificationComposer<T> {
+        @Override
+        public Predicate toPredicate(@NonNull Root<T> root, @Nullable CriteriaQuery<?> query, @NonNull CriteriaBuilder cb) {
+            return cb.and(this.spec1.toPredicate(root, query, cb), this.spec2.toPredicate(root, query, cb));
+        }
+    }
+
+    /**
+     * The logical OR of two specifications.
+     *
+     * @param spec1 the first specification
+     * @param spec2 the second specification
+     * @param <T>   the type of the entity
+     */
+    record Or<T>(@NonNull Specification<T> spec1, @NonNull Specification<T> spec2) implements SpecificationComposer<T> {
+        @Override
+        public Predicate toPredicate(@NonNull Root<T> root, @Nullable CriteriaQuery<?> query, @NonNull CriteriaBuilder cb) {
+            return cb.or(this.spec1.toPredicate(root, query, cb), this.spec2.toPredicate(root, query, cb));
+        }
+    }
+
+    /**
+     * The logical NOT of a specification.
+     *
+     * @param spec the specification to negate
+     * @param <T>  the type of the entity
+     */
+    record Not<T>(@NonNull Specification<T> spec) implements SpecificationComposer<T> {
+        @Override
+        public Predicate toPredicate(@NonNull Root<T> root, @Nullable CriteriaQuery<?> query, @NonNull CriteriaBuilder cb) {
+            return cb.not(this.spec.toPredicate(root, query, cb));
+        }
+    }
+}
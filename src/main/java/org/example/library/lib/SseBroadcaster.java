@@ -0,0 +1,408 @@
+package org.example.library.lib;
+
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fans out Server-Sent Events to the subscribers of topics without ever blocking the publishers.
+ * <p>
+ * The subscriptions are asynchronous requests, which do not hold a request thread. Publishing an event only adds it to
+ * the bounded buffer of every subscriber of its topic, and a small pool of sender threads writes the buffers to the
+ * connections, at most one thread per subscriber at a time so that its events stay in order. A subscriber that does not
+ * keep up fills its buffer: its pending events are dropped and it is sent a resync event instead, telling the client
+ * to reload the current state, so a slow consumer costs a bounded amount of memory and never delays the others for
+ * longer than the write timeout of the server.
+ *
+ * @param <K> the type of the topics
+ */
+public class SseBroadcaster<K> {
+    /**
+     * The name of the event telling a client that it missed events and must reload the current state.
+     */
+    public static final String RESYNC = "resync";
+
+    /**
+     * The maximum number of events written to a subscriber before its sender thread moves on to the others.
+     */
+    private static final int MAX_BATCH = 64;
+
+    /**
+     * The maximum number of events buffered per subscriber.
+     */
+    private final int bufferSize;
+
+    /**
+     * The maximum number of subscribers.
+     */
+    private final int maxSubscribers;
+
+    /**
+     * The time in milliseconds after which a subscription ends and the client reconnects.
+     */
+    private final long timeout;
+
+    /**
+     * The threads writing the events to the subscribers.
+     */
+    private final ExecutorService sender;
+
+    /**
+     * The subscribers of each topic.
+     */
+    private final Map<K, Set<Subscriber>> topics = new ConcurrentHashMap<>();
+
+    /**
+     * The number of subscribers.
+     */
+    private final AtomicInteger subscribers = new AtomicInteger();
+
+    /**
+     * The number of events written to the subscribers.
+     */
+    private final LongAdder sent = new LongAdder();
+
+    /**
+     * The number of resync events sent to subscribers that missed events.
+     */
+    private final LongAdder resyncs = new LongAdder();
+
+    /**
+     * The resync event, shared by all the subscribers.
+     */
+    private final Set<DataWithMediaType> resyncEvent;
+
+    /**
+     * The keep-alive comment, shared by all the subscribers.
+     */
+    private final Set<DataWithMediaType> keepAliveEvent = SseEmitter.event().comment("keep-alive").build();
+
+    /**
+     * Constructor for the SseBroadcaster.
+     *
+     * @param name           The name of the sender threads
+     * @param senderThreads  The number of threads writing the events to the subscribers
+     * @param bufferSize     The maximum number of events buffered per subscriber
+     * @param maxSubscribers The maximum number of subscribers
+     * @param timeout        The time in milliseconds after which a subscription ends and the client reconnects
+     */
+    public SseBroadcaster(@NonNull String name, int senderThreads, int bufferSize, int maxSubscribers, long timeout) {
+        this.bufferSize = bufferSize;
+        this.maxSubscribers = maxSubscribers;
+        this.timeout = timeout;
+        this.resyncEvent = SseEmitter.event().name(RESYNC).data("{}", MediaType.APPLICATION_JSON).build();
+        // There is at most one task per subscriber in the queue, so it is bounded by the number of subscribers.
+        AtomicInteger threads = new AtomicInteger();
+        this.sender = new ThreadPoolExecutor(senderThreads, senderThreads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, name + "-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Subscribes to a topic.
+     *
+     * @param topic The topic
+     * @return The emitter of the subscription to return from the controller, or null if there are too many subscribers
+     */
+    @Nullable
+    public SseEmitter subscribe(@NonNull K topic) {
+        if (this.subscribers.incrementAndGet() > this.maxSubscribers) {
+            this.subscribers.decrementAndGet();
+            return null;
+        }
+
+        SseEmitter emitter = new SseEmitter(this.timeout);
+        Subscriber subscriber = new Subscriber(topic, emitter);
+        // Added atomically with the removal of an empty topic, so that the subscriber is never added to a removed set.
+        this.topics.compute(topic, (key, subscribers) -> {
+            Set<Subscriber> set = subscribers != null ? subscribers : ConcurrentHashMap.newKeySet();
+            set.add(subscriber);
+            return set;
+        });
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(error -> subscriber.close());
+        return emitter;
+    }
+
+    /**
+     * Publishes an event to the subscribers of a topic.
+     *
+     * @param topic The topic
+     * @param name  The name of the event
+     * @param json  The data of the event, serialized once for all the subscribers
+     */
+    public void publish(@NonNull K topic, @NonNull String name, @NonNull String json) {
+        Set<Subscriber> subscribers = this.topics.get(topic);
+        if (subscribers == null || subscribers.isEmpty()) {
+            return;
+        }
+        Set<DataWithMediaType> event = SseEmitter.event().name(name).data(json, MediaType.APPLICATION_JSON).build();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(event);
+        }
+    }
+
+    /**
+     * Tells the subscribers of a topic to reload its current state, when it changed too much to send the changes.
+     *
+     * @param topic The topic
+     */
+    public void resync(@NonNull K topic) {
+        Set<Subscriber> subscribers = this.topics.get(topic);
+        if (subscribers == null) {
+            return;
+        }
+        for (Subscriber subscriber : subscribers) {
+            subscriber.resync();
+        }
+    }
+
+    /**
+     * Tells all the subscribers to reload the current state, when events may have been missed.
+     */
+    public void resyncAll() {
+        for (Set<Subscriber> subscribers : this.topics.values()) {
+            for (Subscriber subscriber : subscribers) {
+                subscriber.resync();
+            }
+        }
+    }
+
+    /**
+     * Sends a keep-alive comment to the idle subscribers, which detects the closed connections and keeps the proxies
+     * from closing the idle ones.
+     */
+    public void keepAlive() {
+        for (Set<Subscriber> subscribers : this.topics.values()) {
+            for (Subscriber subscriber : subscribers) {
+                subscriber.offerIfIdle(this.keepAliveEvent);
+            }
+        }
+    }
+
+    /**
+     * Whether a topic has subscribers.
+     *
+     * @param topic The topic
+     * @return true if the topic has subscribers
+     */
+    public boolean hasSubscribers(@NonNull K topic) {
+        Set<Subscriber> subscribers = this.topics.get(topic);
+        return subscribers != null && !subscribers.isEmpty();
+    }
+
+    /**
+     * Ends all the subscriptions and stops the sender threads.
+     */
+    public void shutdown() {
+        for (Set<Subscriber> subscribers : this.topics.values()) {
+            for (Subscriber subscriber : subscribers) {
+                subscriber.emitter.complete();
+            }
+        }
+        this.sender.shutdownNow();
+    }
+
+    /**
+     * Gets the number of subscribers.
+     *
+     * @return the number of subscribers
+     */
+    public int getSubscribers() {
+        return this.subscribers.get();
+    }
+
+    /**
+     * Gets the number of events written to the subscribers.
+     *
+     * @return the number of events sent
+     */
+    public long getSent() {
+        return this.sent.sum();
+    }
+
+    /**
+     * Gets the number of resync events sent to subscribers that missed events.
+     *
+     * @return the number of resyncs
+     */
+    public long getResyncs() {
+        return this.resyncs.sum();
+    }
+
+    /**
+     * A subscriber of a topic, with its buffer of pending events.
+     */
+    private final class Subscriber {
+        /**
+         * The topic of the subscriber.
+         */
+        private final K topic;
+
+        /**
+         * The emitter of the subscription.
+         */
+        private final SseEmitter emitter;
+
+        /**
+         * The events not written yet, guarded by this.
+         */
+        private final ArrayDeque<Set<DataWithMediaType>> buffer = new ArrayDeque<>();
+
+        /**
+         * Whether a sender thread is writing or about to write the buffer, guarded by this.
+         */
+        private boolean scheduled;
+
+        /**
+         * Whether the subscriber missed events and must be sent a resync event, guarded by this.
+         */
+        private boolean resync;
+
+        /**
+         * Whether the subscription ended, guarded by this.
+         */
+        private boolean closed;
+
+        /**
+         * Constructor for the Subscriber.
+         *
+         * @param topic   The topic of the subscriber
+         * @param emitter The emitter of the subscription
+         */
+        private Subscriber(K topic, SseEmitter emitter) {
+            this.topic = topic;
+            this.emitter = emitter;
+        }
+
+        /**
+         * Adds an event to the buffer, or replaces the buffer with a resync event if it is full.
+         *
+         * @param event The event
+         */
+        void offer(Set<DataWithMediaType> event) {
+            synchronized (this) {
+                if (this.closed) {
+                    return;
+                }
+                if (this.buffer.size() >= SseBroadcaster.this.bufferSize) {
+                    // The client reloads the state, the events buffered so far are useless.
+                    this.buffer.clear();
+                    this.resync = true;
+                }
+                this.buffer.add(event);
+                if (this.scheduled) {
+                    return;
+                }
+                this.scheduled = true;
+            }
+            SseBroadcaster.this.sender.execute(this::drain);
+        }
+
+        /**
+         * Adds an event to the buffer if nothing is pending.
+         *
+         * @param event The event
+         */
+        void offerIfIdle(Set<DataWithMediaType> event) {
+            synchronized (this) {
+                if (this.scheduled) {
+                    return;
+                }
+            }
+            this.offer(event);
+        }
+
+        /**
+         * Replaces the pending events with a resync event.
+         */
+        void resync() {
+            synchronized (this) {
+                if (this.closed) {
+                    return;
+                }
+                this.buffer.clear();
+                this.resync = true;
+                if (this.scheduled) {
+                    return;
+                }
+                this.scheduled = true;
+            }
+            SseBroadcaster.this.sender.execute(this::drain);
+        }
+
+        /**
+         * Writes a batch of pending events, and schedules the next batch if more are pending.
+         */
+        void drain() {
+            List<Set<DataWithMediaType>> batch = new ArrayList<>();
+            boolean sendResync;
+            synchronized (this) {
+                if (this.closed || (this.buffer.isEmpty() && !this.resync)) {
+                    this.scheduled = false;
+                    return;
+                }
+                sendResync = this.resync;
+                this.resync = false;
+                while (batch.size() < MAX_BATCH && !this.buffer.isEmpty()) {
+                    batch.add(this.buffer.poll());
+                }
+            }
+
+            try {
+                if (sendResync) {
+                    this.emitter.send(SseBroadcaster.this.resyncEvent);
+                    SseBroadcaster.this.resyncs.increment();
+                }
+                for (Set<DataWithMediaType> event : batch) {
+                    this.emitter.send(event);
+                }
+                SseBroadcaster.this.sent.add(batch.size());
+            } catch (IOException | RuntimeException e) {
+                // The client went away or the subscription ended, the container completes the request itself.
+                this.close();
+                return;
+            }
+            // Let the other subscribers be served before the next batch.
+            SseBroadcaster.this.sender.execute(this::drain);
+        }
+
+        /**
+         * Removes the subscriber, once.
+         */
+        void close() {
+            synchronized (this) {
+                if (this.closed) {
+                    return;
+                }
+                this.closed = true;
+                this.buffer.clear();
+            }
+            SseBroadcaster.this.topics.computeIfPresent(this.topic, (key, subscribers) -> {
+                subscribers.remove(this);
+                return subscribers.isEmpty() ? null : subscribers;
+            });
+            SseBroadcaster.this.subscribers.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package org.example.library.lib;
+
+import org.springframework.lang.NonNull;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Normalizes and splits the texts searched, so that a query matches the texts whatever their case and accents.
+ * <p>
+ * The texts are folded to lowercase ASCII where possible: the accents are removed (é, ü and ñ become e, u and n) and the
+ * letters without a decomposition are spelled out (ß, æ, ø and ł become ss, ae, o and l). The words are the runs of
+ * letters and digits, everything else separates them.
+ */
+public final class TextAnalyzer {
+    private TextAnalyzer() {
+    }
+
+    /**
+     * Folds a text to lowercase without accents, keeping its separators.
+     *
+     * @param text the text
+     * @return the folded text
+     */
+    public static @NonNull String fold(@NonNull String text) {
+        boolean ascii = true;
+        for (int i = 0, length = text.length(); i < length && ascii; i++) {
+            ascii = text.charAt(i) < 0x80;
+        }
+        if (ascii) {
+            return text.toLowerCase(Locale.ROOT);
+        }
+
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder folded = new StringBuilder(decomposed.length());
+        for (int i = 0, length = decomposed.length(); i < length; i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            switch (Character.toLowerCase(c)) {
+                case 'ß' -> folded.append("ss");
+                case 'æ' -> folded.append("ae");
+                case 'œ' -> folded.append("oe");
+                case 'ø' -> folded.append('o');
+                case 'ł' -> folded.append('l');
+                case 'đ', 'ð' -> folded.append('d');
+                case 'þ' -> folded.append("th");
+                case 'ı' -> folded.append('i');
+                default -> folded.append(Character.toLowerCase(c));
+            }
+        }
+        return folded.toString();
+    }
+
+    /**
+     * Splits a text into its folded words.
+     *
+     * @param text the text
+     * @return the words, in the order of the text, with their repetitions
+     */
+    public static @NonNull List<String> tokenize(@NonNull String text) {
+        String folded = fold(text);
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0, length = folded.length(); i <= length; i++) {
+            boolean word = i < length && Character.isLetterOrDigit(folded.charAt(i));
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                tokens.add(folded.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+}
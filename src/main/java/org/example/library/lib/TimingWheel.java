@@ -0,0 +1,244 @@
+package org.example.library.lib;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A hierarchical timing wheel, which schedules and cancels timeouts in constant time whatever their number.
+ * <p>
+ * The time is divided into ticks. The first wheel has a slot per tick for the timeouts due in less than a revolution,
+ * and each next wheel has a slot per revolution of the previous one, for the timeouts due later. When the first wheel
+ * completes a revolution, the next slot of the second wheel is emptied into the first wheel, and so on up the wheels,
+ * so that a timeout moves down a wheel at most once per wheel before it expires. The slots are doubly linked lists,
+ * so a timeout is cancelled by unlinking it.
+ * <p>
+ * The timeouts expire on the first tick at or after their deadline, when the wheel is advanced past it. The deadlines
+ * beyond the last wheel are brought back to it.
+ * <p>
+ * Thread-safe, the methods are synchronized.
+ *
+ * @param <T> the type of the values of the timeouts
+ */
+public class TimingWheel<T> {
+    /**
+     * The number of bits of the index of a slot.
+     */
+    private static final int SLOT_BITS = 6;
+
+    /**
+     * The number of slots per wheel.
+     */
+    private static final int SLOTS = 1 << SLOT_BITS;
+
+    /**
+     * The mask of the index of a slot.
+     */
+    private static final int SLOT_MASK = SLOTS - 1;
+
+    /**
+     * The duration of a tick in milliseconds.
+     */
+    private final long tick;
+
+    /**
+     * The slots of the wheels, the first wheel first.
+     */
+    private final Timeout<T>[][] wheels;
+
+    /**
+     * The number of ticks covered by the wheels.
+     */
+    private final long horizon;
+
+    /**
+     * The last tick advanced to, the number of ticks since 1970.
+     */
+    private long currentTick;
+
+    /**
+     * The number of scheduled timeouts.
+     */
+    private int size;
+
+    /**
+     * Creates a new empty timing wheel.
+     *
+     * @param tick     the duration of a tick in milliseconds
+     * @param maxDelay the longest delay of the timeouts in milliseconds, which sets the number of wheels
+     * @param now      the current time in milliseconds since 1970
+     */
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tick, long maxDelay, long now) {
+        this.tick = tick;
+        int levels = 1;
+        long horizon = SLOTS;
+        while (horizon <= maxDelay / tick && levels * SLOT_BITS < 56) {
+            levels++;
+            horizon <<= SLOT_BITS;
+        }
+        this.horizon = horizon;
+        this.wheels = new Timeout[levels][SLOTS];
+        for (Timeout<T>[] wheel : this.wheels) {
+            for (int i = 0; i < SLOTS; i++) {
+                // Each slot is the head of a circular list.
+                wheel[i] = new Timeout<>(null, 0);
+                wheel[i].previous = wheel[i];
+                wheel[i].next = wheel[i];
+            }
+        }
+        this.currentTick = Math.floorDiv(now, tick);
+    }
+
+    /**
+     * Schedules a timeout.
+     *
+     * @param value    the value of the timeout
+     * @param deadline the time of expiry in milliseconds since 1970
+     * @return the timeout, to cancel it
+     */
+    public synchronized Timeout<T> schedule(T value, long deadline) {
+        // The first tick at or after the deadline.
+        Timeout<T> timeout = new Timeout<>(value, Math.floorDiv(deadline, this.tick) + (Math.floorMod(deadline, this.tick) == 0 ? 0 : 1));
+        // The slot of the current tick was already emptied.
+        this.insert(timeout, this.currentTick + 1);
+        this.size++;
+        return timeout;
+    }
+
+    /**
+     * Cancels a timeout, unless it already expired or was cancelled.
+     *
+     * @param timeout the timeout
+     * @return true if the timeout was cancelled, false if it was not scheduled anymore
+     */
+    public synchronized boolean cancel(Timeout<T> timeout) {
+        if (timeout.next == null) {
+            return false;
+        }
+        unlink(timeout);
+        this.size--;
+        return true;
+    }
+
+    /**
+     * Advances the wheels to a time, expiring the timeouts due until then.
+     *
+     * @param now the current time in milliseconds since 1970
+     * @return the values of the expired timeouts, by deadline
+     */
+    public synchronized List<T> advance(long now) {
+        List<T> expired = new ArrayList<>();
+        long target = Math.floorDiv(now, this.tick);
+        while (this.currentTick < target) {
+            this.currentTick++;
+            // Empty the next slot of each wheel into the wheels below, once the wheel below completed a revolution.
+            for (int level = 1; level < this.wheels.length && (this.currentTick & ((1L << (level * SLOT_BITS)) - 1)) == 0; level++) {
+                Timeout<T> head = this.wheels[level][(int) (this.currentTick >>> (level * SLOT_BITS)) & SLOT_MASK];
+                while (head.next != head) {
+                    Timeout<T> timeout = head.next;
+                    unlink(timeout);
+                    // The slot of the current tick of the first wheel is emptied next.
+                    this.insert(timeout, this.currentTick);
+                }
+            }
+            Timeout<T> head = this.wheels[0][(int) this.currentTick & SLOT_MASK];
+            while (head.next != head) {
+                Timeout<T> timeout = head.next;
+                unlink(timeout);
+                this.size--;
+                expired.add(timeout.value);
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Gets the number of scheduled timeouts.
+     *
+     * @return the number of timeouts
+     */
+    public synchronized int size() {
+        return this.size;
+    }
+
+    /**
+     * Links a timeout in the slot of its deadline, in the lowest wheel whose revolution reaches it.
+     *
+     * @param timeout  the timeout
+     * @param earliest the earliest tick of expiry, for the deadlines already passed
+     */
+    private void insert(Timeout<T> timeout, long earliest) {
+        // A deadline beyond the wheels is brought back to their last tick.
+        timeout.deadline = Math.min(Math.max(timeout.deadline, earliest), this.currentTick + this.horizon - 1);
+        long delay = timeout.deadline - this.currentTick;
+        int level = 0;
+        while (delay >= 1L << ((level + 1) * SLOT_BITS)) {
+            level++;
+        }
+        Timeout<T> head = this.wheels[level][(int) (timeout.deadline >>> (level * SLOT_BITS)) & SLOT_MASK];
+        timeout.previous = head.previous;
+        timeout.next = head;
+        head.previous.next = timeout;
+        head.previous = timeout;
+    }
+
+    /**
+     * Unlinks a timeout from its slot.
+     *
+     * @param timeout the timeout
+     * @param <T>     the type of the value
+     */
+    private static <T> void unlink(Timeout<T> timeout) {
+        timeout.previous.next = timeout.next;
+        timeout.next.previous = timeout.previous;
+        timeout.previous = null;
+        timeout.next = null;
+    }
+
+    /**
+     * A scheduled timeout, linked in a slot of the wheels until it expires or is cancelled.
+     *
+     * @param <T> the type of the value
+     */
+    public static final class Timeout<T> {
+        /**
+         * The value of the timeout.
+         */
+        private final T value;
+
+        /**
+         * The tick of expiry.
+         */
+        private long deadline;
+
+        /**
+         * The previous timeout of the slot, null once unlinked.
+         */
+        private Timeout<T> previous;
+
+        /**
+         * The next timeout of the slot, null once unlinked.
+         */
+        private Timeout<T> next;
+
+        /**
+         * Creates a new timeout.
+         *
+         * @param value    the value of the timeout
+         * @param deadline the tick of expiry
+         */
+        private Timeout(T value, long deadline) {
+            this.value = value;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Gets the value of the timeout.
+         *
+         * @return the value
+         */
+        public T getValue() {
+            return this.value;
+        }
+    }
+}
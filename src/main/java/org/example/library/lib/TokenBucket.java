@@ -0,0 +1,72 @@
+package org.example.library.lib;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * A lock-free token bucket. The bucket is implemented with the generic cell rate algorithm: instead of a token count
+ * and a refill timestamp, it only stores the theoretical arrival time of the next request, so that consuming a token
+ * is a single compare-and-set.
+ */
+public class TokenBucket {
+    /**
+     * Handle used to compare-and-set the theoretical arrival time.
+     */
+    private static final VarHandle TAT;
+
+    static {
+        try {
+            TAT = MethodHandles.lookup().findVarHandle(TokenBucket.class, "tat", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * The time in nanoseconds needed to refill one token.
+     */
+    private final long emissionInterval;
+
+    /**
+     * The time in nanoseconds needed to refill the whole bucket.
+     */
+    private final long capacityInterval;
+
+    /**
+     * The theoretical arrival time of the next request, in {@link System#nanoTime()} units.
+     */
+    @SuppressWarnings("unused")
+    private volatile long tat;
+
+    /**
+     * Creates a new full token bucket.
+     *
+     * @param emissionInterval the time in nanoseconds needed to refill one token
+     * @param capacity         the maximum number of tokens in the bucket
+     * @param now              the current time in nanoseconds
+     */
+    public TokenBucket(long emissionInterval, int capacity, long now) {
+        this.emissionInterval = emissionInterval;
+        this.capacityInterval = emissionInterval * capacity;
+        this.tat = now;
+    }
+
+    /**
+     * Tries to consume a token.
+     *
+     * @param now the current time in nanoseconds
+     * @return the number of tokens left if a token was consumed, otherwise minus the nanoseconds to wait for one
+     */
+    public long tryConsume(long now) {
+        while (true) {
+            long current = (long) TAT.getVolatile(this);
+            long next = Math.max(current, now) + this.emissionInterval;
+            long debt = next - now;
+            if (debt > this.capacityInterval) {
+                return -(debt - this.capacityInterval);
+            } else if (TAT.compareAndSet(this, current, next)) {
+                return (this.capacityInterval - debt) / this.emissionInterval;
+            }
+        }
+    }
+}
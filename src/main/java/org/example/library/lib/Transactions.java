@@ -0,0 +1,32 @@
+package org.example.library.lib;
+
+import org.springframework.lang.NonNull;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Utility methods for the current transaction.
+ */
+public final class Transactions {
+    private Transactions() {
+    }
+
+    /**
+     * Runs an action after the current transaction commits, or immediately if there is no transaction. The action is
+     * not run if the transaction rolls back.
+     *
+     * @param action the action to run
+     */
+    public static void afterCommit(@NonNull Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
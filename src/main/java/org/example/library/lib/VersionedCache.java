@@ -0,0 +1,203 @@
+package org.example.library.lib;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.lang.NonNull;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * A size-bounded cache of query results invalidated by a generation counter.
+ * <p>
+ * The entries are kept in a Caffeine cache, whose W-TinyLFU eviction keeps the frequently used entries even when a
+ * burst of one-off queries goes through. Every entry is tagged with the generation it was loaded in, and invalidating
+ * the whole cache is a single increment of the generation: the entries of older generations are never served again
+ * and are eventually evicted.
+ * <p>
+ * To avoid a stampede when a popular entry expires, an entry may be refreshed early by a single reader with a
+ * probability that grows as the entry gets closer to its expiration and with the time the query took (the XFetch
+ * algorithm), while the other readers keep being served the cached value.
+ *
+ * @param <K> the type of the keys, which must have value equality
+ * @param <V> the type of the results
+ */
+public class VersionedCache<K, V> {
+    /**
+     * The cached entries.
+     */
+    private final Cache<K, Entry<V>> cache;
+
+    /**
+     * The time to live of the entries in nanoseconds.
+     */
+    private final long ttl;
+
+    /**
+     * The weight of the early refresh, 1 is the optimal value of XFetch, higher values refresh earlier.
+     */
+    private final double beta;
+
+    /**
+     * The current generation of the cached data.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * The number of reads served from the cache.
+     */
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * The number of reads that found no entry.
+     */
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * The number of reads that found an entry of an older generation.
+     */
+    private final LongAdder stale = new LongAdder();
+
+    /**
+     * The number of reads that refreshed an entry before its expiration.
+     */
+    private final LongAdder earlyRefreshes = new LongAdder();
+
+    /**
+     * Constructor for the VersionedCache.
+     *
+     * @param maximumSize The maximum number of entries
+     * @param ttl         The time to live of the entries in milliseconds
+     * @param beta        The weight of the early refresh, 1 is the optimal value, 0 disables it
+     */
+    public VersionedCache(long maximumSize, long ttl, double beta) {
+        this.ttl = TimeUnit.MILLISECONDS.toNanos(ttl);
+        this.beta = beta;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /**
+     * Gets the result of a query from the cache, or runs the query and caches its result.
+     *
+     * @param key    The key of the query
+     * @param loader The query
+     * @return The result of the query
+     */
+    public V get(@NonNull K key, @NonNull Supplier<V> loader) {
+        // The generation is read before the query, so that a result loaded across an invalidation is never served.
+        long generation = this.generation.get();
+        long now = System.nanoTime();
+        Entry<V> entry = this.cache.getIfPresent(key);
+        if (entry == null) {
+            this.misses.increment();
+        } else if (entry.generation() != generation) {
+            this.stale.increment();
+        } else if (!this.shouldRefreshEarly(entry, now)) {
+            this.hits.increment();
+            return entry.value();
+        } else {
+            this.earlyRefreshes.increment();
+        }
+
+        V value = loader.get();
+        long loadTime = System.nanoTime() - now;
+        this.cache.put(key, new Entry<>(value, generation, loadTime, now + loadTime + this.ttl));
+        return value;
+    }
+
+    /**
+     * Invalidates all the entries, by moving to the next generation.
+     */
+    public void invalidateAll() {
+        this.generation.incrementAndGet();
+    }
+
+    /**
+     * Gets the current generation of the cached data.
+     *
+     * @return the generation
+     */
+    public long getGeneration() {
+        return this.generation.get();
+    }
+
+    /**
+     * Gets the approximate number of entries, including the entries of older generations not yet evicted.
+     *
+     * @return the number of entries
+     */
+    public long getSize() {
+        return this.cache.estimatedSize();
+    }
+
+    /**
+     * Gets the number of reads served from the cache.
+     *
+     * @return the number of hits
+     */
+    public long getHits() {
+        return this.hits.sum();
+    }
+
+    /**
+     * Gets the number of reads that found no entry.
+     *
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return this.misses.sum();
+    }
+
+    /**
+     * Gets the number of reads that found an entry of an older generation.
+     *
+     * @return the number of stale reads
+     */
+    public long getStale() {
+        return this.stale.sum();
+    }
+
+    /**
+     * Gets the number of reads that refreshed an entry before its expiration.
+     *
+     * @return the number of early refreshes
+     */
+    public long getEarlyRefreshes() {
+        return this.earlyRefreshes.sum();
+    }
+
+    /**
+     * Decides whether a read refreshes an entry before its expiration: XFetch refreshes when
+     * now - loadTime * beta * ln(random) reaches the expiration, so that the earliest refreshes are rare and the
+     * slow queries are refreshed earlier than the fast ones.
+     *
+     * @param entry The entry
+     * @param now   The current time in nanoseconds
+     * @return true if the read must refresh the entry
+     */
+    private boolean shouldRefreshEarly(Entry<V> entry, long now) {
+        if (this.beta <= 0) {
+            return false;
+        }
+        double random = 1 - ThreadLocalRandom.current().nextDouble();
+        return now - entry.loadTime() * this.beta * Math.log(random) >= entry.expiresAt();
+    }
+
+    /**
+     * An entry of the cache.
+     *
+     * @param value      the cached result
+     * @param generation the generation the result was loaded in
+     * @param loadTime   the time the query took in nanoseconds
+     * @param expiresAt  the expiration time of the entry in nanoseconds
+     * @param <V>        the type of the result
+     */
+    private record Entry<V>(V value, long generation, long loadTime, long expiresAt) {
+    }
+}
@@ -0,0 +1,13 @@
+package org.example.library.mapper;
+
+import org.example.library.dto.InventoryMovementDTO;
+import org.example.library.entity.InventoryMovement;
+import org.mapstruct.Mapper;
+
+/**
+ * Mapper for the InventoryMovement entity.
+ */
+@Mapper(componentModel = "spring")
+public interface InventoryMovementMapper {
+    InventoryMovementDTO toDto(InventoryMovement entity);
+}
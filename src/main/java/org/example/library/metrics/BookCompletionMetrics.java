@@ -0,0 +1,65 @@
+package org.example.library.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Metrics class for tracking the autocomplete dictionary of the titles and authors.
+ */
+@Component
+@AllArgsConstructor
+public class BookCompletionMetrics {
+    /**
+     * MeterRegistry object.
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Record a build of the dictionary.
+     *
+     * @param outcome  - built or failed
+     * @param duration - duration of the build in nanoseconds
+     */
+    public void recordRebuild(String outcome, long duration) {
+        Timer.builder("library.book.completion.rebuilds")
+                .description("Time taken to build the autocomplete dictionary of the titles and authors, by outcome")
+                .tag("outcome", outcome)
+                .register(this.meterRegistry)
+                .record(duration, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Record a completion.
+     *
+     * @param duration - duration of the completion in nanoseconds
+     */
+    public void recordCompletion(long duration) {
+        Timer.builder("library.book.completion.queries")
+                .description("Time taken to complete a prefix with the titles and authors in most copies")
+                .publishPercentiles(0.5, 0.99)
+                .register(this.meterRegistry)
+                .record(duration, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Register the gauges of the size of the dictionary.
+     *
+     * @param entries - number of distinct titles and authors of the last build
+     * @param bytes   - estimated memory of the dictionary in bytes
+     */
+    public void registerDictionary(LongSupplier entries, LongSupplier bytes) {
+        Gauge.builder("library.book.completion.entries", entries::getAsLong)
+                .description("Number of distinct titles and authors of the autocomplete dictionary")
+                .register(this.meterRegistry);
+        Gauge.builder("library.book.completion.size", bytes::getAsLong)
+                .description("Estimated memory of the autocomplete dictionary of the titles and authors")
+                .baseUnit("bytes")
+                .register(this.meterRegistry);
+    }
+}
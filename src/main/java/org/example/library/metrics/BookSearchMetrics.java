@@ -0,0 +1,69 @@
+package org.example.library.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Metrics class for tracking the full-text index of the books.
+ */
+@Component
+@AllArgsConstructor
+public class BookSearchMetrics {
+    /**
+     * MeterRegistry object.
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Record a build of the index.
+     *
+     * @param outcome  - built or failed
+     * @param duration - duration of the build in nanoseconds
+     */
+    public void recordRebuild(String outcome, long duration) {
+        Timer.builder("library.book.search.rebuilds")
+                .description("Time taken to build the full-text index of the books, by outcome")
+                .tag("outcome", outcome)
+                .register(this.meterRegistry)
+                .record(duration, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Record a ranked search.
+     *
+     * @param duration - duration of the search in the index in nanoseconds
+     */
+    public void recordSearch(long duration) {
+        Timer.builder("library.book.search.queries")
+                .description("Time taken to rank the books matching a full-text search, without reading them")
+                .publishPercentiles(0.5, 0.99)
+                .register(this.meterRegistry)
+                .record(duration, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Register the gauges of the size of the index.
+     *
+     * @param documents - number of books of the last build
+     * @param changes   - number of books changed since the last build
+     * @param bytes     - estimated memory of the index in bytes
+     */
+    public void registerIndex(LongSupplier documents, LongSupplier changes, LongSupplier bytes) {
+        Gauge.builder("library.book.search.documents", documents::getAsLong)
+                .description("Number of books of the last build of the full-text index")
+                .register(this.meterRegistry);
+        Gauge.builder("library.book.search.changes", changes::getAsLong)
+                .description("Number of books changed since the last build of the full-text index")
+                .register(this.meterRegistry);
+        Gauge.builder("library.book.search.size", bytes::getAsLong)
+                .description("Estimated memory of the full-text index of the books")
+                .baseUnit("bytes")
+                .register(this.meterRegistry);
+    }
+}
@@ -0,0 +1,52 @@
+package org.example.library.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import org.example.library.lib.AdaptiveConcurrencyLimit;
+import org.springframework.stereotype.Component;
+
+/**
+ * Metrics class for tracking the adaptive concurrency limits of the API.
+ */
+@Component
+@AllArgsConstructor
+public class ConcurrencyLimitMetrics {
+    /**
+     * MeterRegistry object.
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Register gauges tracking the limit and the requests in flight of an endpoint class.
+     *
+     * @param endpointClass - endpoint class the limit applies to
+     * @param limit         - concurrency limit of the endpoint class
+     */
+    public void registerLimit(String endpointClass, AdaptiveConcurrencyLimit limit) {
+        Gauge.builder("library.concurrency.limit", limit, AdaptiveConcurrencyLimit::getLimit)
+                .description("Current concurrency limit")
+                .tag("endpoint", endpointClass)
+                .register(this.meterRegistry);
+        Gauge.builder("library.concurrency.inflight", limit, AdaptiveConcurrencyLimit::getInFlight)
+                .description("Number of requests in flight")
+                .tag("endpoint", endpointClass)
+                .register(this.meterRegistry);
+    }
+
+    /**
+     * Record a request rejected by the concurrency limiter.
+     *
+     * @param endpointClass - endpoint class of the request
+     * @param reason        - reason of the rejection (limit, priority)
+     */
+    public void recordRejected(String endpointClass, String reason) {
+        Counter.builder("library.concurrency.rejected")
+                .description("Number of requests rejected by the concurrency limiter")
+                .tag("endpoint", endpointClass)
+                .tag("reason", reason)
+                .register(this.meterRegistry)
+                .increment();
+    }
+}
@@ -0,0 +1,45 @@
+package org.example.library.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Metrics class for tracking the requests sent with an idempotency key.
+ */
+@Component
+@AllArgsConstructor
+public class IdempotencyMetrics {
+    /**
+     * MeterRegistry object.
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Record a request with an idempotency key.
+     *
+     * @param outcome - executed, replayed-memory, replayed-database or mismatch
+     */
+    public void recordRequest(String outcome) {
+        Counter.builder("library.idempotency.requests")
+                .description("Number of requests with an idempotency key, by outcome")
+                .tag("outcome", outcome)
+                .register(this.meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Register a gauge of the responses kept in memory.
+     *
+     * @param size - number of responses kept in memory
+     */
+    public void registerCacheSize(LongSupplier size) {
+        Gauge.builder("library.idempotency.cache.size", size::getAsLong)
+                .description("Number of responses of the idempotency keys kept in memory")
+                .register(this.meterRegistry);
+    }
+}
@@ -0,0 +1,79 @@
+package org.example.library.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Metrics class for tracking the cross-node cache invalidation bus.
+ */
+@Component
+@AllArgsConstructor
+public class InvalidationMetrics {
+    /**
+     * MeterRegistry object.
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Record changes published to the other nodes.
+     *
+     * @param events - number of changes in the notification
+     */
+    public void recordPublished(int events) {
+        Counter.builder("library.invalidation.published")
+                .description("Number of changes published to the other nodes")
+                .register(this.meterRegistry)
+                .increment(events);
+    }
+
+    /**
+     * Record a notification that could not be published.
+     */
+    public void recordPublishFailure() {
+        Counter.builder("library.invalidation.publish.failures")
+                .description("Number of notifications that could not be published")
+                .register(this.meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Record changes of other nodes applied to the local caches.
+     *
+     * @param events - number of changes applied
+     */
+    public void recordApplied(int events) {
+        Counter.builder("library.invalidation.applied")
+                .description("Number of changes of other nodes applied to the local caches")
+                .register(this.meterRegistry)
+                .increment(events);
+    }
+
+    /**
+     * Record a full flush of the local caches.
+     *
+     * @param reason - reason of the flush (connect, gap, overflow, requested, malformed)
+     */
+    public void recordFlush(String reason) {
+        Counter.builder("library.invalidation.flushes")
+                .description("Number of full flushes of the local caches")
+                .tag("reason", reason)
+                .register(this.meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Register a gauge tracking whether the listener is connected.
+     *
+     * @param connected - whether the listener is connected
+     */
+    public void registerConnected(BooleanSupplier connected) {
+        Gauge.builder("library.invalidation.connected", () -> connected.getAsBoolean() ? 1 : 0)
+                .description("Whether the invalidation listener is connected to the database")
+                .register(this.meterRegistry);
+    }
+}
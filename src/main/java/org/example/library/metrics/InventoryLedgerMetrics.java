@@ -0,0 +1,42 @@
+package org.example.library.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Metrics class for tracking the ledger of the inventory movements.
+ */
+@Component
+@AllArgsConstructor
+public class InventoryLedgerMetrics {
+    /**
+     * MeterRegistry object.
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Record movements written.
+     *
+     * @param count - number of movements written by a single transaction
+     */
+    public void recordWritten(int count) {
+        Counter.builder("library.ledger.written")
+                .description("Number of movements written in the transaction of their change")
+                .register(this.meterRegistry)
+                .increment(count);
+    }
+
+    /**
+     * Record book copies whose quantity was rebuilt from the ledger.
+     *
+     * @param count - number of book copies rebuilt
+     */
+    public void recordRebuilt(int count) {
+        Counter.builder("library.ledger.rebuilt")
+                .description("Number of book copies whose quantity was rebuilt from the ledger")
+                .register(this.meterRegistry)
+                .increment(count);
+    }
+}
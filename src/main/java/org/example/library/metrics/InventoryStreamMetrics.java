@@ -0,0 +1,41 @@
+package org.example.library.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import org.example.library.lib.SseBroadcaster;
+import org.springframework.stereotype.Component;
+
+/**
+ * Metrics class for tracking the streams of inventory changes.
+ */
+@Component
+@AllArgsConstructor
+public class InventoryStreamMetrics {
+    /**
+     * MeterRegistry object.
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Register a gauge of the subscribers of a broadcaster and counters of the events it sent.
+     *
+     * @param stream      - name of the stream
+     * @param broadcaster - broadcaster of the stream
+     */
+    public void registerBroadcaster(String stream, SseBroadcaster<?> broadcaster) {
+        Gauge.builder("library.stream.subscribers", broadcaster, SseBroadcaster::getSubscribers)
+                .description("Number of clients subscribed to the stream")
+                .tag("stream", stream)
+                .register(this.meterRegistry);
+        FunctionCounter.builder("library.stream.events", broadcaster, SseBroadcaster::getSent)
+                .description("Number of events sent to the subscribers")
+                .tag("stream", stream)
+                .register(this.meterRegistry);
+        FunctionCounter.builder("library.stream.resyncs", broadcaster, SseBroadcaster::getResyncs)
+                .description("Number of subscribers told to reload the state after missing events")
+                .tag("stream", stream)
+                .register(this.meterRegistry);
+    }
+}
@@ -0,0 +1,55 @@
+package org.example.library.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Metrics class for tracking the leaderboards of the top sellers.
+ */
+@Component
+@AllArgsConstructor
+public class LeaderboardMetrics {
+    /**
+     * MeterRegistry object.
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Record leaderboards written by a snapshot.
+     *
+     * @param leaderboards - number of leaderboards written
+     */
+    public void recordSnapshot(int leaderboards) {
+        Counter.builder("library.leaderboard.snapshots")
+                .description("Number of leaderboards written to the snapshots")
+                .register(this.meterRegistry)
+                .increment(leaderboards);
+    }
+
+    /**
+     * Record a snapshot that failed and is retried.
+     */
+    public void recordSnapshotFailure() {
+        Counter.builder("library.leaderboard.snapshot.failures")
+                .description("Number of snapshots of the leaderboards that failed")
+                .register(this.meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Register a gauge of the memory of the sketches of the leaderboards.
+     *
+     * @param size - size of the sketches in bytes
+     */
+    public void registerSize(LongSupplier size) {
+        Gauge.builder("library.leaderboard.size", size::getAsLong)
+                .description("Memory used by the sketches of the leaderboards, fixed per location")
+                .baseUnit("bytes")
+                .register(this.meterRegistry);
+    }
+}
@@ -0,0 +1,74 @@
+package org.example.library.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metrics class for tracking the password hashing executor.
+ */
+@Component
+@AllArgsConstructor
+public class PasswordHashingMetrics {
+    /**
+     * MeterRegistry object.
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Register a gauge tracking the number of hashing tasks waiting in the queue.
+     *
+     * @param queue - queue of the hashing executor
+     */
+    public void registerQueue(Collection<?> queue) {
+        Gauge.builder("library.auth.hashing.queue.depth", queue, Collection::size)
+                .description("Number of password hashing tasks waiting for a thread")
+                .register(this.meterRegistry);
+    }
+
+    /**
+     * Record the time spent hashing or verifying a password.
+     *
+     * @param operation     - operation that required the hash (login, signup)
+     * @param executionTime - execution time in nanoseconds
+     */
+    public void recordHashTime(String operation, long executionTime) {
+        Timer.builder("library.auth.hashing.time")
+                .description("Time spent hashing or verifying passwords")
+                .tag("operation", operation)
+                .register(this.meterRegistry)
+                .record(executionTime, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Record a hashing task rejected because the executor is saturated.
+     *
+     * @param operation - operation that required the hash (login, signup)
+     */
+    public void recordRejected(String operation) {
+        Counter.builder("library.auth.hashing.rejected")
+                .description("Number of password hashing tasks rejected because the executor is saturated")
+                .tag("operation", operation)
+                .register(this.meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Record a request that joined an identical hashing task already in flight.
+     *
+     * @param operation - operation that required the hash (login, signup)
+     */
+    public void recordDeduplicated(String operation) {
+        Counter.builder("library.auth.hashing.deduplicated")
+                .description("Number of requests that shared an in-flight password hashing task")
+                .tag("operation", operation)
+                .register(this.meterRegistry)
+                .increment();
+    }
+}
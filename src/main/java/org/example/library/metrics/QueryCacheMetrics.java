@@ -0,0 +1,59 @@
+package org.example.library.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import org.example.library.lib.VersionedCache;
+import org.springframework.stereotype.Component;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Metrics class for tracking the query-result caches.
+ */
+@Component
+@AllArgsConstructor
+public class QueryCacheMetrics {
+    /**
+     * MeterRegistry object.
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Register counters of the reads of a cache and gauges of its size and generation.
+     *
+     * @param name  - name of the cache
+     * @param cache - the cache
+     */
+    public void registerCache(String name, VersionedCache<?, ?> cache) {
+        this.registerReads(name, cache, "hit", VersionedCache::getHits);
+        this.registerReads(name, cache, "miss", VersionedCache::getMisses);
+        this.registerReads(name, cache, "stale", VersionedCache::getStale);
+        this.registerReads(name, cache, "early-refresh", VersionedCache::getEarlyRefreshes);
+        Gauge.builder("library.query.cache.size", cache, VersionedCache::getSize)
+                .description("Approximate number of entries of the cache, including the stale ones not yet evicted")
+                .tag("cache", name)
+                .register(this.meterRegistry);
+        Gauge.builder("library.query.cache.generation", cache, VersionedCache::getGeneration)
+                .description("Generation of the cached data, incremented by every write")
+                .tag("cache", name)
+                .register(this.meterRegistry);
+    }
+
+    /**
+     * Register a counter of the reads of a cache with a given result.
+     *
+     * @param name   - name of the cache
+     * @param cache  - the cache
+     * @param result - result of the reads (hit, miss, stale, early-refresh)
+     * @param count  - function counting the reads
+     */
+    private void registerReads(String name, VersionedCache<?, ?> cache, String result, ToDoubleFunction<VersionedCache<?, ?>> count) {
+        FunctionCounter.builder("library.query.cache.reads", cache, count)
+                .description("Number of reads of the cache, by result")
+                .tag("cache", name)
+                .tag("result", result)
+                .register(this.meterRegistry);
+    }
+}
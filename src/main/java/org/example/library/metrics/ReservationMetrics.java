@@ -0,0 +1,59 @@
+package org.example.library.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Metrics class for tracking the reservations holding copies.
+ */
+@Component
+@AllArgsConstructor
+public class ReservationMetrics {
+    /**
+     * MeterRegistry object.
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Record a request to hold copies.
+     *
+     * @param outcome - held or rejected
+     */
+    public void recordHold(String outcome) {
+        Counter.builder("library.reservations.holds")
+                .description("Number of requests to hold copies, by outcome")
+                .tag("outcome", outcome)
+                .register(this.meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Record released reservations.
+     *
+     * @param reason - cancelled, picked-up or expired
+     * @param count  - number of reservations released
+     */
+    public void recordRelease(String reason, int count) {
+        Counter.builder("library.reservations.releases")
+                .description("Number of reservations released, by reason")
+                .tag("reason", reason)
+                .register(this.meterRegistry)
+                .increment(count);
+    }
+
+    /**
+     * Register a gauge of the holds waiting for their expiry in the timing wheel.
+     *
+     * @param pending - number of holds scheduled to expire
+     */
+    public void registerPending(LongSupplier pending) {
+        Gauge.builder("library.reservations.pending", pending::getAsLong)
+                .description("Number of holds scheduled to expire on this node")
+                .register(this.meterRegistry);
+    }
+}
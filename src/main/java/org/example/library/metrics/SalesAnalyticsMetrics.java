@@ -0,0 +1,54 @@
+package org.example.library.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.function.IntSupplier;
+
+/**
+ * Metrics class for tracking the rollups of the sales analytics.
+ */
+@Component
+@AllArgsConstructor
+public class SalesAnalyticsMetrics {
+    /**
+     * MeterRegistry object.
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Record buckets written by a flush.
+     *
+     * @param buckets - number of buckets upserted
+     */
+    public void recordFlushed(int buckets) {
+        Counter.builder("library.analytics.flushed")
+                .description("Number of sales buckets upserted by the flushes")
+                .register(this.meterRegistry)
+                .increment(buckets);
+    }
+
+    /**
+     * Record a flush that failed and is retried.
+     */
+    public void recordFlushFailure() {
+        Counter.builder("library.analytics.flush.failures")
+                .description("Number of flushes of the sales that failed")
+                .register(this.meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Register a gauge of the minutes of sales waiting to be flushed.
+     *
+     * @param pending - number of minutes of a location, genre and author waiting to be flushed
+     */
+    public void registerPending(IntSupplier pending) {
+        Gauge.builder("library.analytics.pending", pending::getAsInt)
+                .description("Number of minutes of sales per location, genre and author waiting to be flushed")
+                .register(this.meterRegistry);
+    }
+}
@@ -0,0 +1,48 @@
+package org.example.library.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import org.example.library.lib.SingleFlight;
+import org.springframework.stereotype.Component;
+
+/**
+ * Metrics class for tracking the coalescing of identical concurrent reads.
+ */
+@Component
+@AllArgsConstructor
+public class SingleFlightMetrics {
+    /**
+     * MeterRegistry object.
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Register counters of the calls of a single-flight and a gauge of its collapse ratio.
+     *
+     * @param operation    - operation whose calls are coalesced
+     * @param singleFlight - single-flight of the operation
+     */
+    public void registerSingleFlight(String operation, SingleFlight<?, ?> singleFlight) {
+        FunctionCounter.builder("library.singleflight.calls", singleFlight, SingleFlight::getExecuted)
+                .description("Number of reads, by whether they queried the database or shared the result of an identical read")
+                .tag("operation", operation)
+                .tag("outcome", "executed")
+                .register(this.meterRegistry);
+        FunctionCounter.builder("library.singleflight.calls", singleFlight, SingleFlight::getShared)
+                .description("Number of reads, by whether they queried the database or shared the result of an identical read")
+                .tag("operation", operation)
+                .tag("outcome", "shared")
+                .register(this.meterRegistry);
+        FunctionCounter.builder("library.singleflight.calls", singleFlight, SingleFlight::getTimedOut)
+                .description("Number of reads, by whether they queried the database or shared the result of an identical read")
+                .tag("operation", operation)
+                .tag("outcome", "timed-out")
+                .register(this.meterRegistry);
+        Gauge.builder("library.singleflight.collapse.ratio", singleFlight, SingleFlight::getCollapseRatio)
+                .description("Fraction of the reads that shared the result of an identical read")
+                .tag("operation", operation)
+                .register(this.meterRegistry);
+    }
+}
@@ -0,0 +1,49 @@
+package org.example.library.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metrics class for tracking the reconciliations of the stock with the snapshots of the locations.
+ */
+@Component
+@AllArgsConstructor
+public class StockSnapshotMetrics {
+    /**
+     * MeterRegistry object.
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Record a reconciliation.
+     *
+     * @param outcome  - applied, invalid or failed
+     * @param duration - duration of the reconciliation in nanoseconds
+     */
+    public void recordReconciliation(String outcome, long duration) {
+        Timer.builder("library.stock.snapshots")
+                .description("Time taken to reconcile the stock of a location with a snapshot, by outcome")
+                .tag("outcome", outcome)
+                .register(this.meterRegistry)
+                .record(duration, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Record the book copies changed by a reconciliation.
+     *
+     * @param change - inserted, updated, removed or kept
+     * @param count  - number of book copies changed
+     */
+    public void recordChanges(String change, int count) {
+        Counter.builder("library.stock.snapshot.changes")
+                .description("Number of book copies changed by the reconciliations, by change")
+                .tag("change", change)
+                .register(this.meterRegistry)
+                .increment(count);
+    }
+}
@@ -0,0 +1,64 @@
+package org.example.library.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metrics class for tracking the warm-up of the application before it accepts traffic.
+ */
+@Component
+@AllArgsConstructor
+public class WarmUpMetrics {
+    /**
+     * MeterRegistry object.
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Record the outcome of the warm-up.
+     *
+     * @param duration              - duration of the warm-up in nanoseconds
+     * @param iterations            - number of iterations of the synthetic request mix
+     * @param compiledMethodsBefore - number of JIT-compiled methods before the warm-up, or -1 if unknown
+     * @param compiledMethodsAfter  - number of JIT-compiled methods after the warm-up, or -1 if unknown
+     * @param compilationTime       - time spent by the JIT compilers during the warm-up in milliseconds, or -1 if unknown
+     */
+    public void recordWarmUp(long duration, long iterations, long compiledMethodsBefore, long compiledMethodsAfter, long compilationTime) {
+        TimeGauge.builder("library.warmup.duration", () -> duration, TimeUnit.NANOSECONDS)
+                .description("Duration of the warm-up before the application accepted traffic")
+                .register(this.meterRegistry);
+        Gauge.builder("library.warmup.iterations", () -> iterations)
+                .description("Number of iterations of the synthetic request mix replayed by the warm-up")
+                .register(this.meterRegistry);
+        Gauge.builder("library.warmup.jit.compiled.methods", () -> compiledMethodsBefore)
+                .description("Number of JIT-compiled methods in the code cache")
+                .tag("phase", "before")
+                .register(this.meterRegistry);
+        Gauge.builder("library.warmup.jit.compiled.methods", () -> compiledMethodsAfter)
+                .description("Number of JIT-compiled methods in the code cache")
+                .tag("phase", "after")
+                .register(this.meterRegistry);
+        TimeGauge.builder("library.warmup.jit.compilation.time", () -> compilationTime, TimeUnit.MILLISECONDS)
+                .description("Time spent by the JIT compilers during the warm-up")
+                .register(this.meterRegistry);
+    }
+
+    /**
+     * Record a failed warm-up request.
+     *
+     * @param operation - operation of the request
+     */
+    public void recordFailure(String operation) {
+        Counter.builder("library.warmup.failures")
+                .description("Number of warm-up requests that failed")
+                .tag("operation", operation)
+                .register(this.meterRegistry)
+                .increment();
+    }
+}
@@ -1,5 +1,6 @@
 package org.example.library.repository;
 
+import jakarta.persistence.LockModeType;
 import org.example.library.entity.Book;
 import org.example.library.entity.BookCopy;
 import org.example.library.lib.Tuple;
@@ -7,10 +8,16 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 /**
  * Repository for the BookCopy entity.
  */
@@ -25,6 +32,47 @@ public interface BookCopyRepository extends JpaRepository<BookCopy, BookCopy.Boo
      */
     BookCopy getByLocationIdAndBookId(@Param("locationId") Long locationId, @Param("bookId") Long bookId);
 
+    /**
+     * Find a book copy and lock it until the end of the transaction, so that concurrent changes of its quantity are
+     * applied one after the other instead of overwriting each other.
+     *
+     * @param id the id of the book copy
+     * @return the book copy, if found
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT bc FROM BookCopy bc WHERE bc.id = :id")
+    Optional<BookCopy> findByIdForUpdate(@Param("id") BookCopy.BookCopyId id);
+
+    /**
+     * Find the book copies of books at locations and lock them until the end of the transaction, in the order of their
+     * book then location. The transactions locking several book copies all lock them in this order, so that none of
+     * them waits for a lock held by a transaction waiting for one of its own locks.
+     *
+     * @param bookIds     the ids of the books
+     * @param locationIds the ids of the locations
+     * @return the book copies found, in the order of their book then location
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT bc FROM BookCopy bc JOIN FETCH bc.book WHERE bc.id.bookId IN :bookIds AND bc.id.locationId IN :locationIds " +
+            "ORDER BY bc.id.bookId, bc.id.locationId")
+    List<BookCopy> findAllForUpdate(@Param("bookIds") Collection<Long> bookIds, @Param("locationIds") Collection<Long> locationIds);
+
+    /**
+     * Lock the book copies of books at locations until the end of the transaction, in the order of their book then
+     * location, creating the missing ones without copies. The rows are created and locked by a single statement in
+     * that order, in the transaction of the caller: inserting them beforehand would lock the new rows out of order.
+     *
+     * @param bookIds     the ids of the books
+     * @param locationIds the ids of the locations
+     * @return the number of book copies locked
+     */
+    @Modifying
+    @Query(value = "INSERT INTO book_copies (book_id, location_id, quantity) " +
+            "SELECT b.id, l.id, 0 FROM books b CROSS JOIN locations l WHERE b.id IN (:bookIds) AND l.id IN (:locationIds) " +
+            "ORDER BY b.id, l.id " +
+            "ON CONFLICT (book_id, location_id) DO UPDATE SET quantity = book_copies.quantity", nativeQuery = true)
+    int lockAllCreatingMissing(@Param("bookIds") Collection<Long> bookIds, @Param("locationIds") Collection<Long> locationIds);
+
     /**
      * Find the books with quantities at a location.
      *
@@ -1,10 +1,15 @@
 package org.example.library.repository;
 
 import org.example.library.entity.Book;
+import org.example.library.validator.ISBNParser;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -13,10 +18,37 @@ import java.util.Optional;
 @Repository
 public interface BookRepository extends JpaRepository<Book, Long>, JpaSpecificationExecutor<Book> {
     /**
-     * Find a book by its ISBN.
+     * Find a book by its ISBN, in any formatting, an ISBN-10 finding the book of the same ISBN-13.
      *
      * @param isbn the ISBN of the book
+     * @return an optional with the book if found, empty otherwise or if the ISBN is not valid
+     */
+    default Optional<Book> findByIsbn(String isbn) {
+        long isbn13 = ISBNParser.parse(isbn);
+        return isbn13 != ISBNParser.INVALID ? this.findByIsbn13(isbn13) : Optional.empty();
+    }
+
+    /**
+     * Find a book by its ISBN-13 key.
+     *
+     * @param isbn13 the ISBN-13 of the book as a number
      * @return an optional with the book if found, empty otherwise
      */
-    Optional<Book> findByIsbn(String isbn);
+    Optional<Book> findByIsbn13(Long isbn13);
+
+    /**
+     * Find the books created or modified after a position of the change feed, in the order of the feed.
+     *
+     * @param xid   the id of the transaction of the position
+     * @param id    the id of the book at the position
+     * @param until the transaction id before which the changes are returned
+     * @param limit the maximum number of books
+     * @return the books changed after the position
+     */
+    @Query("SELECT b FROM Book b WHERE (b.changeXid, b.id) > (:xid, :id) AND b.changeXid < :until " +
+            "ORDER BY b.changeXid, b.id")
+    List<Book> findChangedAfter(@Param("xid") Long xid,
+                                @Param("id") Long id,
+                                @Param("until") Long until,
+                                Limit limit);
 }
\ No newline at end of file
@@ -0,0 +1,23 @@
+package org.example.library.repository;
+
+import org.example.library.entity.InventoryMovement;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository for the InventoryMovement entity.
+ */
+@Repository
+public interface InventoryMovementRepository extends JpaRepository<InventoryMovement, Long> {
+    /**
+     * Find the movements of a book at a location, the most recent first.
+     *
+     * @param locationId the id of the location
+     * @param bookId     the id of the book
+     * @param pageable   the pagination information
+     * @return a page of movements
+     */
+    Page<InventoryMovement> findByLocationIdAndBookIdOrderByMovementDateDescIdDesc(Long locationId, Long bookId, Pageable pageable);
+}
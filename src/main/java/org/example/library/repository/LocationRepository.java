@@ -1,13 +1,33 @@
 package org.example.library.repository;
 
 import org.example.library.entity.Location;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 /**
  * Repository for the Book entity.
  */
 @Repository
 public interface LocationRepository extends JpaRepository<Location, Long>, JpaSpecificationExecutor<Location> {
+    /**
+     * Find the locations created or modified after a position of the change feed, in the order of the feed.
+     *
+     * @param xid   the id of the transaction of the position
+     * @param id    the id of the location at the position
+     * @param until the transaction id before which the changes are returned
+     * @param limit the maximum number of locations
+     * @return the locations changed after the position
+     */
+    @Query("SELECT l FROM Location l WHERE (l.changeXid, l.id) > (:xid, :id) AND l.changeXid < :until " +
+            "ORDER BY l.changeXid, l.id")
+    List<Location> findChangedAfter(@Param("xid") Long xid,
+                                    @Param("id") Long id,
+                                    @Param("until") Long until,
+                                    Limit limit);
 }
\ No newline at end of file
@@ -0,0 +1,47 @@
+package org.example.library.repository;
+
+import org.example.library.entity.Tombstone;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository for the Tombstone entity.
+ */
+@Repository
+public interface TombstoneRepository extends JpaRepository<Tombstone, Long> {
+    /**
+     * Find the deletions of a type of entity after a position of the change feed, in the order of the feed.
+     *
+     * @param entityType the type of the deleted entities
+     * @param xid        the id of the transaction of the position
+     * @param id         the id of the entity at the position
+     * @param until      the transaction id before which the deletions are returned
+     * @param limit      the maximum number of deletions
+     * @return the deletions after the position
+     */
+    @Query("SELECT t FROM Tombstone t WHERE t.entityType = :entityType " +
+            "AND (t.changeXid, t.entityId) > (:xid, :id) AND t.changeXid < :until " +
+            "ORDER BY t.changeXid, t.entityId")
+    List<Tombstone> findDeletedAfter(@Param("entityType") Tombstone.EntityType entityType,
+                                     @Param("xid") Long xid,
+                                     @Param("id") Long id,
+                                     @Param("until") Long until,
+                                     Limit limit);
+
+    /**
+     * Delete the tombstones older than a date.
+     *
+     * @param date the date before which the tombstones are deleted
+     * @return the number of deleted tombstones
+     */
+    @Modifying
+    @Query("DELETE FROM Tombstone t WHERE t.deletedDate < :date")
+    int deleteByDeletedDateBefore(@Param("date") LocalDateTime date);
+}
@@ -0,0 +1,70 @@
+package org.example.library.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.AllArgsConstructor;
+import org.example.library.security.EndpointConcurrencyLimiter.EndpointClass;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.NonNull;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Filter class to shed load when the adaptive concurrency limit of an endpoint class is reached.
+ */
+@AllArgsConstructor
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+    /**
+     * The EndpointConcurrencyLimiter to use for the filter.
+     */
+    private final EndpointConcurrencyLimiter limiter;
+
+    /**
+     * The number of seconds rejected clients are asked to wait before retrying.
+     */
+    private final long retryAfterSeconds;
+
+    /**
+     * Filters the request and rejects it with a 503 if its endpoint class is at its concurrency limit.
+     *
+     * @param request     The HttpServletRequest to filter
+     * @param response    The HttpServletResponse to filter
+     * @param filterChain The FilterChain to filter
+     * @throws ServletException If an error occurs during the filtering
+     * @throws IOException      If an error occurs during the filtering
+     */
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+        EndpointClass endpointClass = this.limiter.classify(request);
+        if (endpointClass == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        if (!this.limiter.tryAcquire(endpointClass)) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(this.retryAfterSeconds));
+            return;
+        }
+
+        long startTime = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                // The request returned as it went asynchronous, its time is not a sample of the latency.
+                this.limiter.releaseWithoutSample(endpointClass);
+            } else {
+                this.limiter.release(endpointClass, System.nanoTime() - startTime);
+            }
+        }
+    }
+}
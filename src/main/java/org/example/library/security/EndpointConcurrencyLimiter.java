@@ -0,0 +1,172 @@
+package org.example.library.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.example.library.lib.AdaptiveConcurrencyLimit;
+import org.example.library.metrics.ConcurrencyLimitMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.security.web.util.matcher.AndRequestMatcher;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.NegatedRequestMatcher;
+import org.springframework.security.web.util.matcher.OrRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Adaptive concurrency limiter of the API. Each endpoint class has its own limit, and requests of a class are shed
+ * first while a class with a higher priority is close to its limit. The inventory writes outrank the other classes,
+ * the logins and the catalog reads have the same priority, so that a login storm does not shed the reads. The streams
+ * of Server-Sent Events are not limited, they stay open for minutes without doing work.
+ */
+@Component
+public class EndpointConcurrencyLimiter {
+    /**
+     * The concurrency limit of each endpoint class.
+     */
+    private final Map<EndpointClass, AdaptiveConcurrencyLimit> limits = new EnumMap<>(EndpointClass.class);
+
+    /**
+     * Whether the limiter is enabled.
+     */
+    private final boolean enabled;
+
+    /**
+     * The utilization of a higher priority class above which lower priority requests are rejected.
+     */
+    private final double priorityThreshold;
+
+    /**
+     * The metrics of the limiter.
+     */
+    private final ConcurrencyLimitMetrics metrics;
+
+    /**
+     * Constructor for the EndpointConcurrencyLimiter.
+     *
+     * @param enabled           Whether the limiter is enabled
+     * @param initialLimit      The initial limit of each endpoint class
+     * @param minLimit          The minimum limit of each endpoint class
+     * @param maxLimit          The maximum limit of each endpoint class
+     * @param tolerance         How much the short-term latency may exceed the long-term one before limits shrink
+     * @param priorityThreshold The utilization of a higher priority class above which lower priority requests are rejected
+     * @param metrics           The metrics of the limiter
+     */
+    public EndpointConcurrencyLimiter(@Value("${app.web.concurrency-limit.enabled:true}") boolean enabled,
+                                      @Value("${app.web.concurrency-limit.initial-limit:20}") int initialLimit,
+                                      @Value("${app.web.concurrency-limit.min-limit:4}") int minLimit,
+                                      @Value("${app.web.concurrency-limit.max-limit:200}") int maxLimit,
+                                      @Value("${app.web.concurrency-limit.tolerance:1.5}") double tolerance,
+                                      @Value("${app.web.concurrency-limit.priority-threshold:0.9}") double priorityThreshold,
+                                      ConcurrencyLimitMetrics metrics) {
+        this.enabled = enabled;
+        this.priorityThreshold = priorityThreshold;
+        this.metrics = metrics;
+        for (EndpointClass endpointClass : EndpointClass.values()) {
+            AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit, tolerance, 0.2);
+            this.limits.put(endpointClass, limit);
+            this.metrics.registerLimit(endpointClass.tag, limit);
+        }
+    }
+
+    /**
+     * Finds the endpoint class of a request.
+     *
+     * @param request The request to classify
+     * @return The endpoint class, or null if the request is not limited
+     */
+    public @Nullable EndpointClass classify(@NonNull HttpServletRequest request) {
+        if (!this.enabled) {
+            return null;
+        }
+
+        for (EndpointClass endpointClass : EndpointClass.values()) {
+            if (endpointClass.matcher.matches(request)) {
+                return endpointClass;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Tries to acquire a slot for a request of the given endpoint class.
+     *
+     * @param endpointClass The endpoint class of the request
+     * @return true if the request may proceed, false if it must be rejected
+     */
+    public boolean tryAcquire(@NonNull EndpointClass endpointClass) {
+        // Shed the request if a class with a higher priority is close to its limit.
+        for (EndpointClass other : EndpointClass.values()) {
+            if (other.priority < endpointClass.priority && this.limits.get(other).getUtilization() >= this.priorityThreshold) {
+                this.metrics.recordRejected(endpointClass.tag, "priority");
+                return false;
+            }
+        }
+
+        if (!this.limits.get(endpointClass).tryAcquire()) {
+            this.metrics.recordRejected(endpointClass.tag, "limit");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Releases the slot of a completed request.
+     *
+     * @param endpointClass The endpoint class of the request
+     * @param rttNanos      The time spent handling the request in nanoseconds
+     */
+    public void release(@NonNull EndpointClass endpointClass, long rttNanos) {
+        this.limits.get(endpointClass).release(rttNanos);
+    }
+
+    /**
+     * Releases the slot of a request whose time does not measure its handling, such as a request going asynchronous.
+     *
+     * @param endpointClass The endpoint class of the request
+     */
+    public void releaseWithoutSample(@NonNull EndpointClass endpointClass) {
+        this.limits.get(endpointClass).releaseWithoutSample();
+    }
+
+    /**
+     * The endpoint classes with a separate limit, in the order they are matched.
+     */
+    public enum EndpointClass {
+        INVENTORY_WRITE("inventory-write", 0, new AndRequestMatcher(
+                new AntPathRequestMatcher("/api/locations/*/book-copies/**"),
+                new NegatedRequestMatcher(new AntPathRequestMatcher("/api/**", HttpMethod.GET.name())))),
+        AUTH("auth", 1, new AntPathRequestMatcher("/api/auth/**")),
+        CATALOG_READ("catalog-read", 1, new AndRequestMatcher(
+                new OrRequestMatcher(
+                        new AntPathRequestMatcher("/api/**", HttpMethod.GET.name()),
+                        new AntPathRequestMatcher("/api/books/resolve", HttpMethod.POST.name())),
+                new NegatedRequestMatcher(new AntPathRequestMatcher("/api/locations/*/book-copies/stream"))));
+
+        /**
+         * The tag of the endpoint class in the metrics.
+         */
+        private final String tag;
+
+        /**
+         * The priority of the endpoint class, 0 for the highest: its requests are shed while a class with a lower
+         * number is close to its limit.
+         */
+        private final int priority;
+
+        /**
+         * The matcher of the requests of the endpoint class.
+         */
+        private final RequestMatcher matcher;
+
+        EndpointClass(String tag, int priority, RequestMatcher matcher) {
+            this.tag = tag;
+            this.priority = priority;
+            this.matcher = matcher;
+        }
+    }
+}
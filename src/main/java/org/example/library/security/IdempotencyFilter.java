@@ -0,0 +1,237 @@
+package org.example.library.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.AllArgsConstructor;
+import org.example.library.lib.ErrorResponseImpl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Filter class to execute the writes sent with an Idempotency-Key header at most once, replaying the response of the
+ * first request to its retries.
+ * <p>
+ * The keys are scoped to the user, and a retry must be the same request as the first one, with the same method, URI
+ * and body, otherwise it is rejected with a 422. The replayed responses have an Idempotent-Replayed header.
+ */
+@AllArgsConstructor
+public class IdempotencyFilter extends OncePerRequestFilter {
+    /**
+     * The header of the idempotency key.
+     */
+    public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+    /**
+     * The header marking a replayed response.
+     */
+    public static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
+
+    /**
+     * The methods of the writes.
+     */
+    private static final Set<String> METHODS = Set.of("POST", "PUT", "PATCH", "DELETE");
+
+    /**
+     * The valid keys, such as UUIDs.
+     */
+    private static final Pattern KEY = Pattern.compile("[\\x21-\\x7E]{1,255}");
+
+    /**
+     * The IdempotencyStore to use for the filter.
+     */
+    private final IdempotencyStore store;
+
+    /**
+     * The ObjectMapper writing the error responses.
+     */
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Filters the writes with an idempotency key, executing them once per key and user.
+     *
+     * @param request     The HttpServletRequest to filter
+     * @param response    The HttpServletResponse to filter
+     * @param filterChain The FilterChain to filter
+     * @throws ServletException If an error occurs during the filtering
+     * @throws IOException      If an error occurs during the filtering
+     */
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+        String key = request.getHeader(IDEMPOTENCY_KEY);
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (key == null || !this.store.isEnabled() || !METHODS.contains(request.getMethod())
+                || authentication == null || !authentication.isAuthenticated()) {
+            // The anonymous writes are rejected by the authorization anyway.
+            filterChain.doFilter(request, response);
+            return;
+        }
+        if (!KEY.matcher(key).matches()) {
+            this.writeError(response, HttpStatus.BAD_REQUEST, "The Idempotency-Key header must have 1 to 255 visible ASCII characters");
+            return;
+        }
+
+        byte[] body = request.getInputStream().readNBytes(this.store.getMaxBodySize() + 1);
+        if (body.length > this.store.getMaxBodySize()) {
+            this.writeError(response, HttpStatus.PAYLOAD_TOO_LARGE, "The body of a request with an Idempotency-Key is limited to " + this.store.getMaxBodySize() + " bytes");
+            return;
+        }
+
+        MessageDigest keyDigest = sha256();
+        keyDigest.update(authentication.getName().getBytes(StandardCharsets.UTF_8));
+        keyDigest.update((byte) 0);
+        keyDigest.update(key.getBytes(StandardCharsets.US_ASCII));
+        MessageDigest requestDigest = sha256();
+        String query = request.getQueryString();
+        requestDigest.update((request.getMethod() + ' ' + request.getRequestURI() + (query != null ? '?' + query : "") + '\n').getBytes(StandardCharsets.UTF_8));
+        requestDigest.update(body);
+        byte[] fingerprint = requestDigest.digest();
+
+        HttpServletRequest cachedRequest = new CachedBodyRequest(request, body);
+        ContentCachingResponseWrapper cachingResponse = new ContentCachingResponseWrapper(response);
+        IdempotencyStore.Outcome outcome = this.store.execute(keyDigest.digest(), fingerprint, () -> {
+            filterChain.doFilter(cachedRequest, cachingResponse);
+            return new IdempotencyStore.Response(fingerprint, cachingResponse.getStatus(), cachingResponse.getContentType(),
+                    cachingResponse.getContentAsByteArray());
+        });
+
+        if (outcome.mismatch()) {
+            this.writeError(response, HttpStatus.UNPROCESSABLE_ENTITY, "The Idempotency-Key was already used for a different request");
+        } else if (outcome.replayed()) {
+            IdempotencyStore.Response replayed = outcome.response();
+            response.setStatus(replayed.status());
+            response.setHeader(IDEMPOTENT_REPLAYED, "true");
+            if (replayed.contentType() != null) {
+                response.setContentType(replayed.contentType());
+            }
+            if (replayed.body() != null) {
+                response.getOutputStream().write(replayed.body());
+            }
+        } else {
+            // Sent once the response is committed with its change.
+            cachingResponse.copyBodyToResponse();
+        }
+    }
+
+    /**
+     * Writes an error response, in the format of the errors of the controllers.
+     *
+     * @param response The response
+     * @param status   The status code
+     * @param message  The message
+     * @throws IOException If the response cannot be written
+     */
+    private void writeError(@NonNull HttpServletResponse response, @NonNull HttpStatus status, @NonNull String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        this.objectMapper.writeValue(response.getOutputStream(), new ErrorResponseImpl(status, message));
+    }
+
+    /**
+     * Creates a SHA-256 digest.
+     *
+     * @return The digest
+     */
+    private static @NonNull MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform implements SHA-256.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * A request whose body was read by the filter, served again to the controllers.
+     */
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+        /**
+         * The body of the request.
+         */
+        private final byte[] body;
+
+        /**
+         * Constructor for the CachedBodyRequest.
+         *
+         * @param request The request
+         * @param body    The body of the request
+         */
+        private CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        /**
+         * Gets the body of the request.
+         *
+         * @return A new stream of the body
+         */
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(this.body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    return in.read(buffer, offset, length);
+                }
+            };
+        }
+
+        /**
+         * Gets the body of the request as characters.
+         *
+         * @return A new reader of the body
+         */
+        @Override
+        public BufferedReader getReader() {
+            String encoding = this.getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(new ByteArrayInputStream(this.body),
+                    encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package org.example.library.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.ServletException;
+import org.example.library.metrics.IdempotencyMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Store of the responses of the requests sent with an idempotency key, so that a retried request gets the response of
+ * the first one instead of being executed again.
+ * <p>
+ * The first request with a key inserts the key in the idempotency_keys table, in a transaction that the services
+ * called by the request join, and records its response in the same transaction. The change and its response are
+ * committed together or not at all, and a retry sent while the first request is still running waits on the key until
+ * the first one commits, then replays its response. The responses of the server errors are not recorded, and their
+ * changes are rolled back, so that they can be retried. The recorded responses are also kept in memory for the
+ * retries reaching the same node, which are replayed without querying the database. The keys expire after a TTL.
+ */
+@Component
+public class IdempotencyStore {
+    /**
+     * The insert of a key, which takes over an expired key.
+     */
+    private static final String INSERT = "INSERT INTO idempotency_keys (key_hash, fingerprint, expires_at) VALUES (?, ?, ?) " +
+            "ON CONFLICT (key_hash) DO UPDATE SET fingerprint = EXCLUDED.fingerprint, expires_at = EXCLUDED.expires_at, " +
+            "status = NULL, content_type = NULL, body = NULL WHERE idempotency_keys.expires_at < ?";
+
+    /**
+     * The logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyStore.class);
+
+    /**
+     * Whether the idempotency keys are honored.
+     */
+    private final boolean enabled;
+
+    /**
+     * The time the keys are kept for.
+     */
+    private final Duration ttl;
+
+    /**
+     * The maximum size of the bodies of the requests with a key.
+     */
+    private final int maxBodySize;
+
+    /**
+     * The recorded responses by hash of their key, for the retries reaching this node.
+     */
+    private final Cache<ByteBuffer, Response> responses;
+
+    /**
+     * The JDBC template.
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * The template of the transactions of the requests with a key.
+     */
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * The metrics of the idempotency keys.
+     */
+    private final IdempotencyMetrics metrics;
+
+    /**
+     * Constructor for the IdempotencyStore.
+     *
+     * @param enabled            Whether the idempotency keys are honored
+     * @param ttl                The time the keys are kept for
+     * @param cacheSize          The maximum number of responses kept in memory
+     * @param maxBodySize        The maximum size of the bodies of the requests with a key
+     * @param jdbcTemplate       The JDBC template
+     * @param transactionManager The transaction manager of the requests with a key
+     * @param metrics            The metrics of the idempotency keys
+     */
+    public IdempotencyStore(@Value("${app.idempotency.enabled:true}") boolean enabled,
+                            @Value("${app.idempotency.ttl:24h}") Duration ttl,
+                            @Value("${app.idempotency.cache-size:100000}") int cacheSize,
+                            @Value("${app.idempotency.max-body-size:65536}") int maxBodySize,
+                            @NonNull JdbcTemplate jdbcTemplate,
+                            @NonNull PlatformTransactionManager transactionManager,
+                            @NonNull IdempotencyMetrics metrics) {
+        this.enabled = enabled;
+        this.ttl = ttl;
+        this.maxBodySize = maxBodySize;
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(ttl.toNanos(), TimeUnit.NANOSECONDS)
+                .build();
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.metrics = metrics;
+        metrics.registerCacheSize(this.responses::estimatedSize);
+    }
+
+    /**
+     * Whether the idempotency keys are honored.
+     *
+     * @return true if they are honored
+     */
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    /**
+     * Gets the maximum size of the bodies of the requests with a key.
+     *
+     * @return the maximum size in bytes
+     */
+    public int getMaxBodySize() {
+        return this.maxBodySize;
+    }
+
+    /**
+     * Executes a request once per key, or returns the response recorded for the key.
+     *
+     * @param key         The hash of the key, with the user who sent it
+     * @param fingerprint The hash of the request, which the retries must match
+     * @param handler     Executes the request, in the transaction recording its response
+     * @return The outcome of the request
+     * @throws ServletException If the handler fails
+     * @throws IOException      If the handler fails
+     */
+    public @NonNull Outcome execute(@NonNull byte[] key, @NonNull byte[] fingerprint, @NonNull Handler handler) throws ServletException, IOException {
+        ByteBuffer cacheKey = ByteBuffer.wrap(key);
+        Response cached = this.responses.getIfPresent(cacheKey);
+        if (cached != null) {
+            return this.replay(cached, fingerprint, "memory");
+        }
+
+        Response[] executed = new Response[1];
+        Response recorded;
+        try {
+            recorded = this.transactionTemplate.execute(status -> {
+                LocalDateTime now = LocalDateTime.now();
+                if (this.jdbcTemplate.update(INSERT, key, fingerprint, now.plus(this.ttl), now) == 0) {
+                    // Another request with the key committed, the insert waited for it.
+                    List<Response> responses = this.jdbcTemplate.query(
+                            "SELECT fingerprint, status, content_type, body FROM idempotency_keys WHERE key_hash = ?",
+                            (rs, rowNum) -> new Response(rs.getBytes("fingerprint"), rs.getInt("status"),
+                                    rs.getString("content_type"), rs.getBytes("body")), key);
+                    return responses.get(0);
+                }
+
+                Response response;
+                try {
+                    response = handler.handle();
+                } catch (ServletException | IOException e) {
+                    throw new HandlerException(e);
+                }
+                executed[0] = response;
+                if (response.status() >= 500 || status.isRollbackOnly()) {
+                    // Rolled back with the key, the request can be retried.
+                    status.setRollbackOnly();
+                    return null;
+                }
+                this.jdbcTemplate.update("UPDATE idempotency_keys SET status = ?, content_type = ?, body = ? WHERE key_hash = ?",
+                        response.status(), response.contentType(), response.body(), key);
+                return executed[0];
+            });
+        } catch (HandlerException e) {
+            if (e.getCause() instanceof ServletException servletException) {
+                throw servletException;
+            }
+            throw (IOException) e.getCause();
+        }
+
+        if (executed[0] == null) {
+            return this.replay(recorded, fingerprint, "database");
+        }
+        if (recorded != null) {
+            this.responses.put(cacheKey, recorded);
+        }
+        this.metrics.recordRequest("executed");
+        return new Outcome(executed[0], false, false);
+    }
+
+    /**
+     * Purges the expired keys.
+     */
+    @Scheduled(fixedDelayString = "${app.idempotency.purge-interval:3600000}")
+    public void purge() {
+        int purged = this.jdbcTemplate.update("DELETE FROM idempotency_keys WHERE expires_at < ?", LocalDateTime.now());
+        if (purged > 0) {
+            logger.info("Purged {} expired idempotency keys", purged);
+        }
+    }
+
+    /**
+     * Replays a recorded response, unless the retry does not match the request of the key.
+     *
+     * @param response    The recorded response
+     * @param fingerprint The hash of the retry
+     * @param source      Where the response was found, for the metrics
+     * @return The outcome of the retry
+     */
+    private @NonNull Outcome replay(@NonNull Response response, @NonNull byte[] fingerprint, @NonNull String source) {
+        if (!Arrays.equals(response.fingerprint(), fingerprint)) {
+            this.metrics.recordRequest("mismatch");
+            return new Outcome(response, true, true);
+        }
+        this.metrics.recordRequest("replayed-" + source);
+        return new Outcome(response, true, false);
+    }
+
+    /**
+     * Executes a request.
+     */
+    @FunctionalInterface
+    public interface Handler {
+        /**
+         * Executes the request.
+         *
+         * @return The response of the request, with the fingerprint of the request
+         * @throws ServletException If the request fails
+         * @throws IOException      If the request fails
+         */
+        @NonNull Response handle() throws ServletException, IOException;
+    }
+
+    /**
+     * A response of a request with a key.
+     *
+     * @param fingerprint The hash of the request
+     * @param status      The status code
+     * @param contentType The content type of the body, if any
+     * @param body        The body
+     */
+    public record Response(byte[] fingerprint, int status, @Nullable String contentType, byte[] body) {
+    }
+
+    /**
+     * The outcome of a request with a key.
+     *
+     * @param response The response, executed or recorded
+     * @param replayed Whether the response was recorded by an earlier request
+     * @param mismatch Whether the earlier request with the key was a different request
+     */
+    public record Outcome(@NonNull Response response, boolean replayed, boolean mismatch) {
+    }
+
+    /**
+     * Carries the checked exceptions of the handler out of the transaction, which rolls back.
+     */
+    private static final class HandlerException extends RuntimeException {
+        /**
+         * Creates a new HandlerException.
+         *
+         * @param cause The exception of the handler
+         */
+        private HandlerException(Exception cause) {
+            super(cause);
+        }
+    }
+}
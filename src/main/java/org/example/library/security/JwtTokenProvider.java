@@ -4,6 +4,7 @@ import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import org.example.library.jfr.JwtVerificationEvent;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
@@ -61,11 +62,17 @@ public class JwtTokenProvider {
      */
     public Optional<String> getUsernameFromJWT(String token) {
         // TODO: Define a JwtToken class to handle the token parsing
+        JwtVerificationEvent event = new JwtVerificationEvent();
+        event.begin();
         try {
             Claims claims = Jwts.parser().verifyWith(this.key).build().parseSignedClaims(token).getPayload();
+            event.valid = true;
             return Optional.of(claims.getSubject());
         } catch (JwtException | IllegalArgumentException e) {
+            event.failure = e.getClass().getSimpleName();
             return Optional.empty();
+        } finally {
+            event.commit();
         }
     }
 }
\ No newline at end of file
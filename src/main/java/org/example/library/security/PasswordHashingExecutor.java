@@ -0,0 +1,193 @@
+package org.example.library.security;
+
+import jakarta.annotation.PreDestroy;
+import org.example.library.lib.RepositoryException;
+import org.example.library.metrics.PasswordHashingMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Bounded executor that runs password hashing (BCrypt) off the request threads. When both the threads and the
+ * queue are busy, new tasks are rejected immediately instead of piling up on the servlet container.
+ */
+@Component
+public class PasswordHashingExecutor {
+    /**
+     * The executor running the hashing tasks.
+     */
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * The hashing tasks currently in flight, by deduplication key.
+     */
+    private final Map<Object, CompletableFuture<?>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * The maximum time a request waits for its hashing task.
+     */
+    private final long timeoutInMs;
+
+    /**
+     * The metrics of the executor.
+     */
+    private final PasswordHashingMetrics metrics;
+
+    /**
+     * Constructor for the PasswordHashingExecutor.
+     *
+     * @param threads       The number of hashing threads (defaults to the number of available processors)
+     * @param queueCapacity The maximum number of tasks waiting for a thread
+     * @param timeoutInMs   The maximum time a request waits for its hashing task
+     * @param metrics       The metrics of the executor
+     */
+    public PasswordHashingExecutor(@Value("${app.security.hashing.threads:0}") int threads,
+                                   @Value("${app.security.hashing.queue-capacity:64}") int queueCapacity,
+                                   @Value("${app.security.hashing.timeout:5000}") long timeoutInMs,
+                                   PasswordHashingMetrics metrics) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("password-hashing-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.timeoutInMs = timeoutInMs;
+        this.metrics = metrics;
+        this.metrics.registerQueue(this.executor.getQueue());
+    }
+
+    /**
+     * Runs a hashing task on the executor and waits for its result. Concurrent calls with the same (non-null) key
+     * share a single execution of the task.
+     *
+     * @param operation The name of the operation, used to tag the metrics
+     * @param key       The deduplication key, or null to always run the task
+     * @param task      The task to run
+     * @param <T>       The type of the result
+     * @param <E>       The type of the checked exception thrown by the task
+     * @return The result of the task
+     * @throws E                           If the task throws it
+     * @throws HashingUnavailableException If the executor is saturated or the task does not complete in time
+     */
+    public <T, E extends Exception> T submit(@NonNull String operation, @Nullable Object key, @NonNull HashingTask<T, E> task)
+            throws E, HashingUnavailableException {
+        CompletableFuture<?> future;
+        try {
+            if (key == null) {
+                future = this.schedule(operation, task);
+            } else {
+                boolean[] created = {false};
+                future = this.inFlight.computeIfAbsent(key, k -> {
+                    created[0] = true;
+                    return this.schedule(operation, task);
+                });
+
+                if (created[0]) {
+                    // Stop sharing the task once it completes, later calls must hash again.
+                    CompletableFuture<?> shared = future;
+                    shared.whenComplete((result, e) -> this.inFlight.remove(key, shared));
+                } else {
+                    this.metrics.recordDeduplicated(operation);
+                }
+            }
+        } catch (RejectedExecutionException e) {
+            this.metrics.recordRejected(operation);
+            throw new HashingUnavailableException();
+        }
+
+        return this.await(future);
+    }
+
+    /**
+     * Shuts down the executor.
+     */
+    @PreDestroy
+    public void shutdown() {
+        this.executor.shutdown();
+    }
+
+    /**
+     * Schedules a task on the executor.
+     *
+     * @param operation The name of the operation, used to tag the metrics
+     * @param task      The task to run
+     * @return The future completed with the result of the task
+     * @throws RejectedExecutionException If the executor is saturated
+     */
+    private CompletableFuture<Object> schedule(String operation, HashingTask<?, ?> task) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        this.executor.execute(() -> {
+            long startTime = System.nanoTime();
+            try {
+                future.complete(task.call());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            } finally {
+                this.metrics.recordHashTime(operation, System.nanoTime() - startTime);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Waits for the result of a future, rethrowing the exception of the task if any.
+     *
+     * @param future The future to wait for
+     * @param <T>    The type of the result
+     * @param <E>    The type of the checked exception thrown by the task
+     * @return The result of the task
+     * @throws E                           If the task throws it
+     * @throws HashingUnavailableException If the task does not complete in time
+     */
+    @SuppressWarnings("unchecked")
+    private <T, E extends Exception> T await(CompletableFuture<?> future) throws E, HashingUnavailableException {
+        try {
+            return (T) future.get(this.timeoutInMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new HashingUnavailableException();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new HashingUnavailableException();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            } else if (cause instanceof Error error) {
+                throw error;
+            }
+            throw (E) cause;
+        }
+    }
+
+    /**
+     * A hashing task.
+     *
+     * @param <T> The type of the result
+     * @param <E> The type of the checked exception thrown by the task
+     */
+    @FunctionalInterface
+    public interface HashingTask<T, E extends Exception> {
+        /**
+         * Runs the task.
+         *
+         * @return The result of the task
+         * @throws E If the task fails
+         */
+        T call() throws E;
+    }
+
+    /**
+     * Exception thrown when the password hashing executor cannot accept more work.
+     */
+    public static class HashingUnavailableException extends RepositoryException.ServiceUnavailable {
+        /**
+         * Creates a new HashingUnavailableException.
+         */
+        public HashingUnavailableException() {
+            super("Authentication is temporarily unavailable, please retry later");
+        }
+    }
+}
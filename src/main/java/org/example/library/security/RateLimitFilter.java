@@ -0,0 +1,74 @@
+package org.example.library.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.AllArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.NonNull;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Filter class to rate limit the requests by user or IP, reporting the limits in the RateLimit headers.
+ */
+@AllArgsConstructor
+public class RateLimitFilter extends OncePerRequestFilter {
+    /**
+     * The number of nanoseconds in a second.
+     */
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    /**
+     * The RateLimiter to use for the filter.
+     */
+    private final RateLimiter rateLimiter;
+
+    /**
+     * Filters the request and rejects it with a 429 if the client has exhausted its tokens.
+     *
+     * @param request     The HttpServletRequest to filter
+     * @param response    The HttpServletResponse to filter
+     * @param filterChain The FilterChain to filter
+     * @throws ServletException If an error occurs during the filtering
+     * @throws IOException      If an error occurs during the filtering
+     */
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+        RateLimiter.Rule rule = this.rateLimiter.match(request);
+        if (rule == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        // The JwtAuthenticationFilter has already run, so authenticated users are limited by username.
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String username = authentication != null && authentication.isAuthenticated() ? authentication.getName() : null;
+        long result = rule.tryConsume(rule.clientKey(username, request.getRemoteAddr()), System.nanoTime());
+
+        response.setHeader("RateLimit-Policy", rule.getPolicy());
+        response.setHeader("RateLimit-Limit", String.valueOf(rule.getCapacity()));
+        if (result < 0) {
+            // Round up so that clients do not retry before a token is available.
+            long retryAfter = (-result + NANOS_PER_SECOND - 1) / NANOS_PER_SECOND;
+            response.setHeader("RateLimit-Remaining", "0");
+            response.setHeader("RateLimit-Reset", String.valueOf(retryAfter));
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            return;
+        }
+
+        response.setHeader("RateLimit-Remaining", String.valueOf(result));
+        response.setHeader("RateLimit-Reset", String.valueOf((rule.nanosUntilFull(result) + NANOS_PER_SECOND - 1) / NANOS_PER_SECOND));
+        filterChain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,173 @@
+package org.example.library.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.http.HttpServletRequest;
+import org.example.library.config.RateLimitProperties;
+import org.example.library.lib.TokenBucket;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rate limiter of the API. Each rule keeps a token bucket per client, identified by username when authenticated and
+ * by IP otherwise. Buckets are kept in a size-bounded Caffeine cache, which evicts the buckets least likely to be
+ * used again (W-TinyLFU, by frequency and recency of use) when full, and the buckets of idle clients.
+ */
+@Component
+public class RateLimiter {
+    /**
+     * The rules, in order of precedence.
+     */
+    private final List<Rule> rules = new ArrayList<>();
+
+    /**
+     * Whether the rate limiter is enabled.
+     */
+    private final boolean enabled;
+
+    /**
+     * Constructor for the RateLimiter.
+     *
+     * @param properties The configuration of the rate limiter
+     */
+    public RateLimiter(RateLimitProperties properties) {
+        this.enabled = properties.enabled();
+        for (RateLimitProperties.Rule rule : properties.rules()) {
+            this.rules.add(new Rule(rule, properties.maxClients(), properties.idleTimeout().toNanos()));
+        }
+    }
+
+    /**
+     * Finds the rule applying to a request.
+     *
+     * @param request The request
+     * @return The first rule matching the request, or null if the request is not limited
+     */
+    public @Nullable Rule match(@NonNull HttpServletRequest request) {
+        if (!this.enabled) {
+            return null;
+        }
+
+        for (Rule rule : this.rules) {
+            if (rule.matcher.matches(request)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A compiled rate limiting rule.
+     */
+    public static final class Rule {
+        /**
+         * The matcher of the requests the rule applies to.
+         */
+        private final RequestMatcher matcher;
+
+        /**
+         * The bucket of each client.
+         */
+        private final Cache<String, TokenBucket> buckets;
+
+        /**
+         * The maximum number of requests in a burst.
+         */
+        private final int capacity;
+
+        /**
+         * The time in nanoseconds needed to refill one token.
+         */
+        private final long emissionInterval;
+
+        /**
+         * Whether clients are always identified by IP.
+         */
+        private final boolean byIp;
+
+        /**
+         * The value of the RateLimit-Policy header.
+         */
+        private final String policy;
+
+        /**
+         * Creates a new rule.
+         *
+         * @param rule        The configuration of the rule
+         * @param maxClients  The maximum number of clients tracked
+         * @param idleTimeout The time in nanoseconds after which the bucket of an idle client is evicted
+         */
+        private Rule(RateLimitProperties.Rule rule, int maxClients, long idleTimeout) {
+            this.matcher = new AntPathRequestMatcher(rule.pattern(), rule.method());
+            this.buckets = Caffeine.newBuilder()
+                    .maximumSize(maxClients)
+                    .expireAfterAccess(idleTimeout, TimeUnit.NANOSECONDS)
+                    .build();
+            this.capacity = rule.capacity();
+            this.emissionInterval = Math.max(1, rule.period().toNanos() / rule.capacity());
+            this.byIp = rule.byIp();
+            this.policy = rule.capacity() + ";w=" + rule.period().toSeconds();
+        }
+
+        /**
+         * Gets the key identifying a client for this rule.
+         *
+         * @param username The username of the authenticated user, or null
+         * @param ip       The IP of the client
+         * @return The key of the client
+         */
+        public @NonNull String clientKey(@Nullable String username, @NonNull String ip) {
+            return this.byIp || username == null ? "ip:" + ip : "user:" + username;
+        }
+
+        /**
+         * Tries to consume a token from the bucket of a client.
+         *
+         * @param client The key of the client
+         * @param now    The current time in nanoseconds
+         * @return The number of tokens left if a token was consumed, otherwise minus the nanoseconds to wait for one
+         */
+        public long tryConsume(@NonNull String client, long now) {
+            TokenBucket bucket = this.buckets.getIfPresent(client);
+            if (bucket == null) {
+                bucket = this.buckets.get(client, key -> new TokenBucket(this.emissionInterval, this.capacity, now));
+            }
+            return bucket.tryConsume(now);
+        }
+
+        /**
+         * Gets the time until a bucket is full again.
+         *
+         * @param remaining The number of tokens left in the bucket
+         * @return The nanoseconds until the bucket is full
+         */
+        public long nanosUntilFull(long remaining) {
+            return (this.capacity - remaining) * this.emissionInterval;
+        }
+
+        /**
+         * Gets the maximum number of requests in a burst.
+         *
+         * @return The capacity of the buckets
+         */
+        public int getCapacity() {
+            return this.capacity;
+        }
+
+        /**
+         * Gets the value of the RateLimit-Policy header.
+         *
+         * @return The policy of the rule
+         */
+        public String getPolicy() {
+            return this.policy;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package org.example.library.security;
+
+import lombok.AllArgsConstructor;
+import org.example.library.service.ReservationService;
+import org.springframework.lang.NonNull;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+
+/**
+ * Authorization class for the holder of a reservation.
+ */
+@Component
+@AllArgsConstructor
+public class ReservationAuthorization {
+    /**
+     * The ReservationService to use for the authorization.
+     */
+    private final @NonNull ReservationService reservationService;
+
+    /**
+     * Checks if the authenticated user made the reservation.
+     *
+     * @param authentication The Authentication object of the authenticated user
+     * @param reservationId  The ID of the reservation to check
+     * @return True if the authenticated user made the reservation, false otherwise
+     */
+    public boolean isReservationHolder(@NonNull Authentication authentication, @NonNull Long reservationId) {
+        return authentication.getName().equals(this.reservationService.getHolder(reservationId));
+    }
+}
@@ -101,7 +101,7 @@ public class UserDetailsImpl implements UserDetails, CredentialsContainer {
      */
     @Override
     public void eraseCredentials() {
-        // TODO: Implement this method.
-        throw new UnsupportedOperationException("eraseCredentials() has not been implemented yet.");
+        // The only credential held is the password hash of the User entity, which must not be cleared as the entity
+        // may still be managed by the persistence context. The UserDetails is discarded after authentication anyway.
     }
 }
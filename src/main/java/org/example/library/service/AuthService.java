@@ -6,9 +6,13 @@ import org.example.library.dto.LoginResponseDTO;
 import org.example.library.dto.SignupRequestDTO;
 import org.example.library.entity.User;
 import org.example.library.lib.RepositoryException;
+import org.example.library.lib.Tuple;
 import org.example.library.repository.UserRepository;
 import org.example.library.security.JwtTokenProvider;
+import org.example.library.security.PasswordHashingExecutor;
+import org.example.library.security.PasswordHashingExecutor.HashingUnavailableException;
 import org.example.library.security.UserDetailsImpl;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -16,7 +20,6 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 @Service
 @AllArgsConstructor
@@ -42,13 +45,19 @@ public class AuthService {
     private final @NonNull PasswordEncoder passwordEncoder;
 
     /**
-     * Register a new user.
+     * The executor running the password hashing off the request threads.
+     */
+    private final @NonNull PasswordHashingExecutor passwordHashingExecutor;
+
+    /**
+     * Register a new user. The password is hashed outside of any transaction, so that no connection is held while the
+     * hashing queues, and the user is saved in its own short transaction.
      *
      * @param signupRequestDTO the signup request
-     * @throws UserAlreadyExistsException if the user already exists
+     * @throws UserAlreadyExistsException  if the user already exists
+     * @throws HashingUnavailableException if the password hashing executor is saturated
      */
-    @Transactional
-    public void signup(SignupRequestDTO signupRequestDTO) throws UserAlreadyExistsException {
+    public void signup(SignupRequestDTO signupRequestDTO) throws UserAlreadyExistsException, HashingUnavailableException {
         // Check if the username or email already exists.
         if (userRepository.findByUsername(signupRequestDTO.getUsername()).isPresent()) {
             throw new UserAlreadyExistsException("Username is already taken.");
@@ -58,25 +67,48 @@ public class AuthService {
             throw new UserAlreadyExistsException("Email is already registered.");
         }
 
+        // Hash the password on the hashing executor.
+        String encodedPassword = this.passwordHashingExecutor.submit("signup", null,
+                () -> passwordEncoder.encode(signupRequestDTO.getPassword()));
+
         // Create and save the user.
         User user = new User(
                 null,
                 signupRequestDTO.getUsername(),
-                passwordEncoder.encode(signupRequestDTO.getPassword()),
                 signupRequestDTO.getEmail(),
+                encodedPassword,
                 null);
 
-        userRepository.save(user);
+        try {
+            userRepository.save(user);
+        } catch (DataIntegrityViolationException e) {
+            // The same username or email was registered while the password was hashed.
+            throw new UserAlreadyExistsException("Username or email is already registered.");
+        }
+    }
+
+    /**
+     * Login the user by returning a JWT token. The password verification runs on the hashing executor, and concurrent
+     * logins with the same credentials share a single verification.
+     *
+     * @param loginRequest the login request
+     * @return the login response
+     * @throws UnauthorizedException       if the authentication fails
+     * @throws HashingUnavailableException if the password hashing executor is saturated
+     */
+    public LoginResponseDTO login(LoginRequestDTO loginRequest) throws UnauthorizedException, HashingUnavailableException {
+        Tuple<String, String> credentials = new Tuple<>(loginRequest.getUsername(), loginRequest.getPassword());
+        return this.passwordHashingExecutor.submit("login", credentials, () -> this.authenticate(loginRequest));
     }
 
     /**
-     * Login the user by returning a JWT token.
+     * Authenticate the user and generate a JWT token.
      *
      * @param loginRequest the login request
      * @return the login response
-     * @throws AuthenticationException if the authentication fails
+     * @throws UnauthorizedException if the authentication fails
      */
-    public LoginResponseDTO login(LoginRequestDTO loginRequest) throws UnauthorizedException {
+    private LoginResponseDTO authenticate(LoginRequestDTO loginRequest) throws UnauthorizedException {
         try {
             Authentication authentication = authenticationManager.authenticate(
                     new UsernamePasswordAuthenticationToken(
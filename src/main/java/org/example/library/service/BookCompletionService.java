@@ -0,0 +1,271 @@
+package org.example.library.service;
+
+import jakarta.annotation.PreDestroy;
+import org.example.library.dto.CompletionDTO;
+import org.example.library.lib.CompletionIndex;
+import org.example.library.lib.RepositoryException;
+import org.example.library.metrics.BookCompletionMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Service implementation of the autocomplete of the search box, completing a prefix with the titles and authors of the
+ * books, the ones with the most copies in stock first.
+ * <p>
+ * The titles and authors are kept in memory in a {@link CompletionIndex}, built in the background from all the books
+ * and their stock on startup and then periodically, and swapped once built: the completions never wait for a build,
+ * but are refused until the first one is over. The books created, renamed or restocked since the last build are only
+ * completed as they were until the next one, a few minutes at most: a completion only has to be close.
+ */
+@Service
+public class BookCompletionService {
+    /**
+     * The read of the titles and authors of all the books, with their copies in stock at all the locations.
+     */
+    private static final String SELECT_ALL = "SELECT b.title, b.author, COALESCE(s.stock, 0) AS stock FROM books b "
+            + "LEFT JOIN (SELECT book_id, SUM(quantity) AS stock FROM book_copies GROUP BY book_id) s ON s.book_id = b.id";
+
+    /**
+     * The kind of the titles in the dictionary.
+     */
+    private static final int TITLE = 0;
+
+    /**
+     * The kind of the authors in the dictionary.
+     */
+    private static final int AUTHOR = 1;
+
+    /**
+     * The type of the completions, by kind.
+     */
+    private static final String[] TYPES = {"TITLE", "AUTHOR"};
+
+    /**
+     * The logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(BookCompletionService.class);
+
+    /**
+     * The maximum number of completions of a prefix.
+     */
+    private final int maxLimit;
+
+    /**
+     * The time in milliseconds after which the dictionary is built again.
+     */
+    private final long rebuildInterval;
+
+    /**
+     * The number of books fetched per round trip of the build.
+     */
+    private final int fetchSize;
+
+    /**
+     * The number of titles and authors sorted in memory at once during a build, the others spilled to files.
+     */
+    private final int runSize;
+
+    /**
+     * The JDBC template.
+     */
+    private final @NonNull JdbcTemplate jdbcTemplate;
+
+    /**
+     * The read-only transaction of a build, in which the books are read by a cursor.
+     */
+    private final @NonNull TransactionTemplate transactionTemplate;
+
+    /**
+     * The metrics of the dictionary.
+     */
+    private final @NonNull BookCompletionMetrics metrics;
+
+    /**
+     * The thread building the dictionary, off the thread of the scheduler.
+     */
+    private final @NonNull ExecutorService builder;
+
+    /**
+     * The current dictionary, null until the first build.
+     */
+    private volatile @Nullable CompletionIndex dictionary;
+
+    /**
+     * The time in milliseconds of the end of the last build.
+     */
+    private volatile long builtAt;
+
+    /**
+     * Whether a build is scheduled or running.
+     */
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    /**
+     * Create a new BookCompletionService.
+     *
+     * @param maxLimit           the maximum number of completions of a prefix
+     * @param rebuildInterval    the time in milliseconds after which the dictionary is built again
+     * @param fetchSize          the number of books fetched per round trip of the build
+     * @param runSize            the number of titles and authors sorted in memory at once during a build
+     * @param jdbcTemplate       the JDBC template
+     * @param transactionManager the transaction manager of the builds
+     * @param metrics            the metrics of the dictionary
+     */
+    public BookCompletionService(@Value("${app.book-completion.max-limit:20}") int maxLimit,
+                                 @Value("${app.book-completion.rebuild-interval:600000}") long rebuildInterval,
+                                 @Value("${app.book-completion.fetch-size:10000}") int fetchSize,
+                                 @Value("${app.book-completion.run-size:1000000}") int runSize,
+                                 @NonNull JdbcTemplate jdbcTemplate,
+                                 @NonNull PlatformTransactionManager transactionManager,
+                                 @NonNull BookCompletionMetrics metrics) {
+        this.maxLimit = maxLimit;
+        this.rebuildInterval = rebuildInterval;
+        this.fetchSize = fetchSize;
+        this.runSize = runSize;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.metrics = metrics;
+        this.builder = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "book-completion-builder");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        metrics.registerDictionary(() -> {
+            CompletionIndex dictionary = this.dictionary;
+            return dictionary != null ? dictionary.size() : 0;
+        }, () -> {
+            CompletionIndex dictionary = this.dictionary;
+            return dictionary != null ? dictionary.bytes() : 0;
+        });
+    }
+
+    /**
+     * Complete a prefix with the titles and authors starting with it.
+     *
+     * @param prefix the prefix typed, in any case and with or without accents
+     * @param limit  the maximum number of completions
+     * @return the titles and authors, the ones with the most copies in stock first
+     * @throws InvalidCompletionException       if the limit is out of range
+     * @throws CompletionIndexNotReadyException if the dictionary has not been built yet
+     */
+    public @NonNull List<CompletionDTO> complete(@NonNull String prefix, int limit) throws InvalidCompletionException, CompletionIndexNotReadyException {
+        if (limit < 1 || limit > this.maxLimit) {
+            throw new InvalidCompletionException("The limit must be between 1 and " + this.maxLimit);
+        }
+        CompletionIndex dictionary = this.dictionary;
+        if (dictionary == null) {
+            throw new CompletionIndexNotReadyException();
+        }
+
+        long start = System.nanoTime();
+        List<CompletionIndex.Completion> completions = dictionary.complete(prefix, limit);
+        this.metrics.recordCompletion(System.nanoTime() - start);
+        return completions.stream()
+                .map(completion -> new CompletionDTO(completion.text(), TYPES[completion.kind()], completion.weight()))
+                .toList();
+    }
+
+    /**
+     * Build the dictionary again if it is too old, to complete the books and stock changed since, or was never built,
+     * which is the case on the first check as the scheduler starts.
+     */
+    @Scheduled(fixedDelayString = "${app.book-completion.check-interval:10000}")
+    public void maintain() {
+        if (this.dictionary != null && System.currentTimeMillis() - this.builtAt <= this.rebuildInterval) {
+            return;
+        }
+        if (!this.rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            this.builder.execute(this::rebuild);
+        } catch (RejectedExecutionException e) {
+            // Retried by the next check.
+            this.rebuilding.set(false);
+        }
+    }
+
+    /**
+     * Stop the builder.
+     */
+    @PreDestroy
+    public void shutdown() {
+        this.builder.shutdownNow();
+    }
+
+    /**
+     * Builds the dictionary from all the books and swaps it in.
+     */
+    private void rebuild() {
+        long start = System.nanoTime();
+        try (CompletionIndex.Builder builder = new CompletionIndex.Builder(this.runSize)) {
+            this.transactionTemplate.executeWithoutResult(status -> this.jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(SELECT_ALL);
+                // Read by a cursor, a round trip per batch.
+                statement.setFetchSize(this.fetchSize);
+                return statement;
+            }, (RowCallbackHandler) rs -> {
+                long stock = rs.getLong("stock");
+                builder.add(rs.getString("title"), TITLE, stock);
+                builder.add(rs.getString("author"), AUTHOR, stock);
+            }));
+            CompletionIndex next = builder.build();
+            this.dictionary = next;
+            this.builtAt = System.currentTimeMillis();
+            this.metrics.recordRebuild("built", System.nanoTime() - start);
+            logger.info("Indexed {} titles and authors for the autocomplete in {} ms, {} bytes", next.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), next.bytes());
+        } catch (RuntimeException e) {
+            logger.warn("Could not build the autocomplete dictionary of the books, retrying later", e);
+            this.metrics.recordRebuild("failed", System.nanoTime() - start);
+        } finally {
+            this.rebuilding.set(false);
+        }
+    }
+
+    /**
+     * Exception thrown when a completion asks for too few or too many texts.
+     */
+    public static class InvalidCompletionException extends RepositoryException.BadRequest {
+        /**
+         * Creates a new InvalidCompletionException.
+         *
+         * @param message - the reason
+         */
+        public InvalidCompletionException(@NonNull String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Exception thrown when the dictionary has not been built yet.
+     */
+    public static class CompletionIndexNotReadyException extends RepositoryException.ServiceUnavailable {
+        /**
+         * Creates a new CompletionIndexNotReadyException.
+         */
+        public CompletionIndexNotReadyException() {
+            super("The autocomplete is being built, retry later");
+        }
+    }
+}
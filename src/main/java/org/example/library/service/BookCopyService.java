@@ -2,11 +2,21 @@ package org.example.library.service;
 
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
+import org.example.library.dto.AvailabilityDTO;
 import org.example.library.dto.BookDTO.BookEDTO;
+import org.example.library.dto.InventoryChangeDTO;
+import org.example.library.dto.TransferDTO;
+import org.example.library.dto.TransferRequestDTO;
 import org.example.library.entity.Book;
 import org.example.library.entity.BookCopy;
+import org.example.library.entity.Genre;
+import org.example.library.entity.InventoryMovement;
 import org.example.library.entity.Location;
+import org.example.library.invalidation.ChangeEvent;
+import org.example.library.invalidation.InvalidationPublisher;
+import org.example.library.jfr.InventoryUpdateEvent;
 import org.example.library.lib.RepositoryException;
+import org.example.library.lib.Transactions;
 import org.example.library.lib.Tuple;
 import org.example.library.mapper.BookMapper;
 import org.example.library.metrics.BookMetrics;
@@ -20,6 +30,16 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 /**
  * Service implementation for the Book entity.
@@ -57,6 +77,36 @@ public class BookCopyService {
      */
     private final @NonNull BookMapper bookMapper;
 
+    /**
+     * The publisher of the changes to the other nodes.
+     */
+    private final @NonNull InvalidationPublisher invalidationPublisher;
+
+    /**
+     * The streams of the inventory changes of the locations.
+     */
+    private final @NonNull InventoryStreamService inventoryStreamService;
+
+    /**
+     * The ledger of the inventory movements.
+     */
+    private final @NonNull InventoryLedgerService inventoryLedgerService;
+
+    /**
+     * The rollups of the sales analytics.
+     */
+    private final @NonNull SalesAnalyticsService salesAnalyticsService;
+
+    /**
+     * The leaderboards of the top sellers.
+     */
+    private final @NonNull LeaderboardService leaderboardService;
+
+    /**
+     * The template of the transactions of the transfers.
+     */
+    private final @NonNull TransactionTemplate transactionTemplate;
+
     /**
      * Update the quantity of a book at a location.
      * Positive values add copies, negative values remove copies.
@@ -72,37 +122,176 @@ public class BookCopyService {
     @NonNull
     @Transactional
     public Integer updateBookCopyQuantity(@NonNull Long locationId, @NonNull Long bookId, @NonNull Integer quantityChange) throws LocationService.LocationNotFoundException, BookService.BookNotFoundException, InsufficientCopiesException {
-        BookCopy bookCopy = this.bookCopyRepository.findById(new BookCopy.BookCopyId(locationId, bookId)).orElse(null);
-        // Create a new book copy if it does not exist.
-        if (bookCopy == null) {
-            // Find the location by its ID and throw an exception if it is not found.
-            Location location = this.locationRepository.findById(locationId)
-                    .orElseThrow(() -> new LocationService.LocationNotFoundException(locationId));
+        // Record the update in the flight recorder, the outcome is overwritten once the book copy is found.
+        InventoryUpdateEvent event = new InventoryUpdateEvent();
+        event.begin();
+        event.locationId = locationId;
+        event.bookId = bookId;
+        event.quantityChange = quantityChange;
+        event.outcome = "not-found";
+        try {
+            // Locked, the concurrent changes of the same book copy would overwrite each other.
+            BookCopy bookCopy = this.bookCopyRepository.findByIdForUpdate(new BookCopy.BookCopyId(bookId, locationId)).orElse(null);
+            // Create a new book copy if it does not exist.
+            if (bookCopy == null) {
+                // Find the location by its ID and throw an exception if it is not found.
+                Location location = this.locationRepository.findById(locationId)
+                        .orElseThrow(() -> new LocationService.LocationNotFoundException(locationId));
+
+                // Find the book by its ID and throw an exception if it is not found.
+                Book book = this.bookRepository.findById(bookId)
+                        .orElseThrow(() -> new BookService.BookNotFoundException(bookId));
 
-            // Find the book by its ID and throw an exception if it is not found.
-            Book book = this.bookRepository.findById(bookId)
-                    .orElseThrow(() -> new BookService.BookNotFoundException(bookId));
+                bookCopy = new BookCopy(book, location, 0);
+            }
 
-            bookCopy = new BookCopy(book, location, 0);
+            // If the quantity is not enough, throw an exception. The copies held by the reservations are not removed.
+            int available = bookCopy.getQuantity() - bookCopy.getHeld();
+            if (quantityChange < 0 && available + quantityChange < 0) {
+                event.quantity = bookCopy.getQuantity();
+                event.outcome = "insufficient-copies";
+                throw new InsufficientCopiesException(locationId, bookId, available, -quantityChange);
+            }
+
+            // Log and update the metrics.
+            logger.info("Updating book copy quantity at location {} for book {} by {}", locationId, bookId, quantityChange);
+            if (quantityChange > 0) {
+                this.metrics.recordBookRestocked(bookCopy.getBook().getGenre(), bookCopy.getBook().getAuthor(), quantityChange);
+            } else {
+                this.metrics.recordBookSold(bookCopy.getBook().getGenre(), bookCopy.getBook().getAuthor(), -quantityChange);
+            }
+
+            // Update the quantity of the book at the location and save it, flushed before its movement is recorded.
+            bookCopy.setQuantity(bookCopy.getQuantity() + quantityChange);
+            BookCopy savedBookCopy = this.bookCopyRepository.saveAndFlush(bookCopy);
+            if (quantityChange != 0) {
+                this.inventoryLedgerService.record(locationId, bookId, quantityChange,
+                        quantityChange > 0 ? InventoryMovement.Type.RESTOCK : InventoryMovement.Type.SALE);
+            }
+            this.invalidationPublisher.publish(ChangeEvent.EntityType.BOOK_COPY, locationId + "." + bookId);
+            // The dashboards must not see a quantity that is rolled back.
+            Integer quantity = savedBookCopy.getQuantity();
+            Transactions.afterCommit(() -> this.inventoryStreamService.publish(locationId, bookId, quantity));
+            Genre genre = bookCopy.getBook().getGenre();
+            String author = bookCopy.getBook().getAuthor();
+            Transactions.afterCommit(() -> this.salesAnalyticsService.record(locationId, genre, author, quantityChange));
+            if (quantityChange < 0) {
+                Transactions.afterCommit(() -> this.leaderboardService.recordSale(locationId, bookId, author, -quantityChange));
+            }
+            event.quantity = savedBookCopy.getQuantity();
+            event.outcome = "updated";
+            return savedBookCopy.getQuantity();
+        } finally {
+            event.commit();
+        }
+    }
+
+    /**
+     * Move copies of one or more books from a location to another, all of them or none.
+     * <p>
+     * The book copies of both locations are locked in the order of their book then location, the order of every
+     * transaction locking several book copies, so that opposing transfers wait for each other instead of deadlocking.
+     * The missing book copies are created by the same statement and in the same order, in the transaction of the
+     * transfer, which needs no other connection.
+     *
+     * @param fromLocationId the id of the location sending the copies
+     * @param transfer       the location receiving the copies and the copies to move
+     * @return the quantities of the books at both locations after the transfer
+     * @throws LocationService.LocationNotFoundException if a location is not found
+     * @throws BookService.BookNotFoundException         if a book is not found
+     * @throws InsufficientCopiesException               if there are not enough copies of a book to move
+     * @throws InvalidTransferException                  if the transfer is to the same location or moves no copies
+     */
+    @NonNull
+    public TransferDTO transferBookCopies(@NonNull Long fromLocationId, @NonNull TransferRequestDTO transfer) throws LocationService.LocationNotFoundException, BookService.BookNotFoundException, InsufficientCopiesException, InvalidTransferException {
+        Long toLocationId = transfer.getToLocationId();
+        if (fromLocationId.equals(toLocationId)) {
+            throw new InvalidTransferException("The copies must be moved to another location");
         }
 
-        // If the quantity is not enough, throw an exception.
-        if (bookCopy.getQuantity() + quantityChange < 0) {
-            throw new InsufficientCopiesException(locationId, bookId, bookCopy.getQuantity(), -quantityChange);
+        // Merge the items of the same book, sorted by book.
+        SortedMap<Long, Integer> quantities = new TreeMap<>();
+        for (TransferRequestDTO.Item item : transfer.getItems()) {
+            quantities.merge(item.getBookId(), item.getQuantity(), Integer::sum);
+        }
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            if (entry.getValue() <= 0) {
+                throw new InvalidTransferException("The quantity of book " + entry.getKey() + " must be positive");
+            }
         }
 
-        // Log and update the metrics.
-        logger.info("Updating book copy quantity at location {} for book {} by {}", locationId, bookId, quantityChange);
-        if (quantityChange > 0) {
-            this.metrics.recordBookRestocked(bookCopy.getBook().getGenre(), bookCopy.getBook().getAuthor(), quantityChange);
-        } else {
-            this.metrics.recordBookSold(bookCopy.getBook().getGenre(), bookCopy.getBook().getAuthor(), -quantityChange);
+        for (Long locationId : List.of(fromLocationId, toLocationId)) {
+            if (!this.locationRepository.existsById(locationId)) {
+                throw new LocationService.LocationNotFoundException(locationId);
+            }
+        }
+        Set<Long> missing = new HashSet<>(quantities.keySet());
+        this.bookRepository.findAllById(quantities.keySet()).forEach(book -> missing.remove(book.getId()));
+        if (!missing.isEmpty()) {
+            throw new BookService.BookNotFoundException(missing.iterator().next());
         }
 
-        // Update the quantity of the book at the location and save it.
-        bookCopy.setQuantity(bookCopy.getQuantity() + quantityChange);
-        BookCopy savedBookCopy = this.bookCopyRepository.save(bookCopy);
-        return savedBookCopy.getQuantity();
+        try {
+            return this.transactionTemplate.execute(status -> this.moveBookCopies(fromLocationId, toLocationId, quantities));
+        } catch (TransferException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Move copies of books from a location to another, in the transaction of the transfer.
+     *
+     * @param fromLocationId the id of the location sending the copies
+     * @param toLocationId   the id of the location receiving the copies
+     * @param quantities     the number of copies to move by book
+     * @return the quantities of the books at both locations after the transfer
+     * @throws TransferException if there are not enough copies of a book to move
+     */
+    @NonNull
+    private TransferDTO moveBookCopies(@NonNull Long fromLocationId, @NonNull Long toLocationId, @NonNull SortedMap<Long, Integer> quantities) {
+        // Lock the book copies of both locations, in the order of their book then location. The ones created at the
+        // location sending the copies have none to move, the transfer rolls them back.
+        this.bookCopyRepository.lockAllCreatingMissing(quantities.keySet(), List.of(fromLocationId, toLocationId));
+        Map<BookCopy.BookCopyId, BookCopy> bookCopies = new HashMap<>();
+        for (BookCopy bookCopy : this.bookCopyRepository.findAllForUpdate(quantities.keySet(), List.of(fromLocationId, toLocationId))) {
+            bookCopies.put(bookCopy.getId(), bookCopy);
+        }
+
+        // Check every book before changing any.
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            BookCopy from = bookCopies.get(new BookCopy.BookCopyId(entry.getKey(), fromLocationId));
+            // The copies held by the reservations stay.
+            int available = from != null ? from.getQuantity() - from.getHeld() : 0;
+            if (available < entry.getValue()) {
+                throw new TransferException(new InsufficientCopiesException(fromLocationId, entry.getKey(), available, entry.getValue()));
+            }
+        }
+
+        logger.info("Transferring {} books from location {} to location {}", quantities.size(), fromLocationId, toLocationId);
+        List<InventoryChangeDTO> changes = new ArrayList<>(2 * quantities.size());
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            Long bookId = entry.getKey();
+            int quantity = entry.getValue();
+            BookCopy from = bookCopies.get(new BookCopy.BookCopyId(bookId, fromLocationId));
+            BookCopy to = bookCopies.get(new BookCopy.BookCopyId(bookId, toLocationId));
+            from.setQuantity(from.getQuantity() - quantity);
+            to.setQuantity(to.getQuantity() + quantity);
+            changes.add(new InventoryChangeDTO(fromLocationId, bookId, from.getQuantity()));
+            changes.add(new InventoryChangeDTO(toLocationId, bookId, to.getQuantity()));
+        }
+        // Flushed before the movements are recorded.
+        this.bookCopyRepository.saveAllAndFlush(bookCopies.values());
+
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            this.inventoryLedgerService.record(fromLocationId, entry.getKey(), -entry.getValue(), InventoryMovement.Type.TRANSFER_OUT);
+            this.inventoryLedgerService.record(toLocationId, entry.getKey(), entry.getValue(), InventoryMovement.Type.TRANSFER_IN);
+        }
+        // Neither a sale nor a restock, the sales analytics and the leaderboards are left as they are.
+        for (InventoryChangeDTO change : changes) {
+            this.invalidationPublisher.publish(ChangeEvent.EntityType.BOOK_COPY, change.getLocationId() + "." + change.getBookId());
+            Transactions.afterCommit(() -> this.inventoryStreamService.publish(change.getLocationId(), change.getBookId(), change.getQuantity()));
+        }
+        return new TransferDTO(fromLocationId, toLocationId, changes);
     }
 
     /**
@@ -128,6 +317,33 @@ public class BookCopyService {
         return this.bookCopyRepository.getByLocationIdAndBookId(locationId, bookId).getQuantity();
     }
 
+    /**
+     * Get the availability of a book at a location, its quantity less the copies held by the reservations. Read in a
+     * single query, the existence of the location and the book is only checked when the book has no copies there.
+     *
+     * @param locationId the id of the location
+     * @param bookId     the id of the book
+     * @return the quantity, held and available copies of the book at the location
+     * @throws LocationService.LocationNotFoundException if the location is not found
+     * @throws BookService.BookNotFoundException         if the book is not found
+     */
+    @NonNull
+    @Transactional(readOnly = true)
+    public AvailabilityDTO getBookCopyAvailability(@NonNull Long locationId, @NonNull Long bookId) throws LocationService.LocationNotFoundException, BookService.BookNotFoundException {
+        BookCopy bookCopy = this.bookCopyRepository.findById(new BookCopy.BookCopyId(bookId, locationId)).orElse(null);
+        if (bookCopy == null) {
+            if (!this.locationRepository.existsById(locationId)) {
+                throw new LocationService.LocationNotFoundException(locationId);
+            }
+            if (!this.bookRepository.existsById(bookId)) {
+                throw new BookService.BookNotFoundException(bookId);
+            }
+            return new AvailabilityDTO(locationId, bookId, 0, 0, 0);
+        }
+        return new AvailabilityDTO(locationId, bookId, bookCopy.getQuantity(), bookCopy.getHeld(),
+                Math.max(0, bookCopy.getQuantity() - bookCopy.getHeld()));
+    }
+
     /**
      * Get a list of all books in the library at a location using a pageable.
      *
@@ -164,4 +380,42 @@ public class BookCopyService {
             super("Insufficient copies of book " + bookId + " at location " + locationId + ". Found " + quantity + ", requested " + requestedQuantity);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Exception thrown when a transfer is to the location sending the copies or moves no copies.
+     */
+    public static class InvalidTransferException extends RepositoryException.BadRequest {
+        /**
+         * Creates a new InvalidTransferException with the given message.
+         *
+         * @param message the exception message
+         */
+        public InvalidTransferException(@NonNull String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Carries the InsufficientCopiesException of a transfer out of its transaction, which rolls back.
+     */
+    private static final class TransferException extends RuntimeException {
+        /**
+         * Creates a new TransferException.
+         *
+         * @param cause the exception of the transfer
+         */
+        private TransferException(InsufficientCopiesException cause) {
+            super(cause);
+        }
+
+        /**
+         * Gets the exception of the transfer.
+         *
+         * @return the InsufficientCopiesException
+         */
+        @Override
+        public synchronized InsufficientCopiesException getCause() {
+            return (InsufficientCopiesException) super.getCause();
+        }
+    }
+}
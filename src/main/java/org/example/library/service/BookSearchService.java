@@ -0,0 +1,437 @@
+package org.example.library.service;
+
+import jakarta.annotation.PreDestroy;
+import org.example.library.entity.Book;
+import org.example.library.entity.Genre;
+import org.example.library.invalidation.ChangeEvent;
+import org.example.library.invalidation.InvalidationListener;
+import org.example.library.lib.InvertedIndex;
+import org.example.library.lib.RepositoryException;
+import org.example.library.lib.Transactions;
+import org.example.library.metrics.BookSearchMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Service implementation of the full-text search of the books by title and author, ranked by relevance.
+ * <p>
+ * The books are indexed in memory in an {@link InvertedIndex}, built in the background from all the books on startup
+ * and then periodically, and swapped once built: the searches never wait for a build, but are refused until the first
+ * one is over. The books written by this node are indexed once their transaction commits, and the ones written by the
+ * other nodes, which only send their ids through the invalidation bus, are read again off the thread of the bus. The
+ * changes accumulate in the overlay of the index until the next build, which happens early when they are too many or
+ * when changes may have been missed. A build holds the previous index and the new one in memory at the same time.
+ */
+@Service
+public class BookSearchService implements InvalidationListener {
+    /**
+     * The read of all the books, by id as the index is built.
+     */
+    private static final String SELECT_ALL = "SELECT id, title, author, genre FROM books ORDER BY id";
+
+    /**
+     * The read of the books changed by the other nodes.
+     */
+    private static final String SELECT = "SELECT id, title, author, genre FROM books WHERE id = ANY (?::bigint[])";
+
+    /**
+     * The logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(BookSearchService.class);
+
+    /**
+     * The saturation of the term frequencies.
+     */
+    private final float k1;
+
+    /**
+     * The normalization of the term frequencies by the length of their field.
+     */
+    private final float b;
+
+    /**
+     * The weight of the words of the titles.
+     */
+    private final float titleWeight;
+
+    /**
+     * The weight of the words of the authors.
+     */
+    private final float authorWeight;
+
+    /**
+     * The maximum number of books ranked by a search, the last page can end there at most and the total is counted up to
+     * there, so that the books that cannot rank are skipped.
+     */
+    private final int maxResults;
+
+    /**
+     * The number of books changed since the last build above which the index is built again.
+     */
+    private final int maxChanges;
+
+    /**
+     * The time in milliseconds after which the index is built again.
+     */
+    private final long rebuildInterval;
+
+    /**
+     * The number of books fetched per round trip of the build.
+     */
+    private final int fetchSize;
+
+    /**
+     * The JDBC template.
+     */
+    private final @NonNull JdbcTemplate jdbcTemplate;
+
+    /**
+     * The read-only transaction of a build, in which the books are read by a cursor.
+     */
+    private final @NonNull TransactionTemplate transactionTemplate;
+
+    /**
+     * The metrics of the index.
+     */
+    private final @NonNull BookSearchMetrics metrics;
+
+    /**
+     * The thread building the index and reading the books changed by the other nodes.
+     */
+    private final @NonNull ExecutorService indexer;
+
+    /**
+     * The lock of the changes of the index, so that none is lost while a new build is swapped in.
+     */
+    private final Object lock = new Object();
+
+    /**
+     * The current index.
+     */
+    private volatile @NonNull InvertedIndex index;
+
+    /**
+     * Whether the index has been built since the startup.
+     */
+    private volatile boolean ready;
+
+    /**
+     * The time in milliseconds of the end of the last build.
+     */
+    private volatile long builtAt;
+
+    /**
+     * Whether a build is scheduled or running.
+     */
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    /**
+     * Whether changes may have been missed since the start of the last build.
+     */
+    private final AtomicBoolean stale = new AtomicBoolean();
+
+    /**
+     * Create a new BookSearchService.
+     *
+     * @param k1                 the saturation of the term frequencies
+     * @param b                  the normalization of the term frequencies by the length of their field, from 0 to 1
+     * @param titleWeight        the weight of the words of the titles
+     * @param authorWeight       the weight of the words of the authors
+     * @param maxResults         the maximum number of books ranked by a search
+     * @param maxChanges         the number of books changed since the last build above which the index is built again
+     * @param rebuildInterval    the time in milliseconds after which the index is built again
+     * @param fetchSize          the number of books fetched per round trip of the build
+     * @param queueSize          the maximum number of batches of changes of the other nodes waiting to be read
+     * @param jdbcTemplate       the JDBC template
+     * @param transactionManager the transaction manager of the builds
+     * @param metrics            the metrics of the index
+     */
+    public BookSearchService(@Value("${app.book-search.k1:1.2}") float k1,
+                             @Value("${app.book-search.b:0.75}") float b,
+                             @Value("${app.book-search.title-weight:2.0}") float titleWeight,
+                             @Value("${app.book-search.author-weight:1.0}") float authorWeight,
+                             @Value("${app.book-search.max-results:1000}") int maxResults,
+                             @Value("${app.book-search.max-changes:5000}") int maxChanges,
+                             @Value("${app.book-search.rebuild-interval:3600000}") long rebuildInterval,
+                             @Value("${app.book-search.fetch-size:10000}") int fetchSize,
+                             @Value("${app.book-search.queue-size:100}") int queueSize,
+                             @NonNull JdbcTemplate jdbcTemplate,
+                             @NonNull PlatformTransactionManager transactionManager,
+                             @NonNull BookSearchMetrics metrics) {
+        this.k1 = k1;
+        this.b = b;
+        this.titleWeight = titleWeight;
+        this.authorWeight = authorWeight;
+        this.maxResults = maxResults;
+        this.maxChanges = maxChanges;
+        this.rebuildInterval = rebuildInterval;
+        this.fetchSize = fetchSize;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.metrics = metrics;
+        // A batch of changes that cannot be queued is lost, the index is built again instead.
+        this.indexer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "book-search-indexer");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        // Empty until the first build, but already recording the changes to carry them over.
+        this.index = this.newBuilder().build();
+        metrics.registerIndex(() -> this.index.size(), () -> this.index.changes(), () -> this.index.bytes());
+    }
+
+    /**
+     * Rank the books matching any word of a query in their title or author.
+     *
+     * @param query the words searched, in any case and with or without accents
+     * @param genre the genre of the books searched, null for all the genres
+     * @param limit the number of books ranked
+     * @return the best books, best first, and the number of books matching, at most the maximum ranked
+     * @throws InvalidSearchException       if more books are asked than the maximum
+     * @throws SearchIndexNotReadyException if the index has not been built yet
+     */
+    public @NonNull InvertedIndex.Result search(@NonNull String query, @Nullable Genre genre, long limit) throws InvalidSearchException, SearchIndexNotReadyException {
+        if (limit > this.maxResults) {
+            throw new InvalidSearchException("The ranked search only returns the first " + this.maxResults + " books");
+        }
+        if (!this.ready) {
+            throw new SearchIndexNotReadyException();
+        }
+
+        long start = System.nanoTime();
+        InvertedIndex.Result result = this.index.search(query, genre != null ? genre.ordinal() : -1, (int) limit, this.maxResults);
+        this.metrics.recordSearch(System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * Index a book created or changed, once the transaction commits.
+     *
+     * @param book the book
+     */
+    public void update(@NonNull Book book) {
+        InvertedIndex.Document document = new InvertedIndex.Document(book.getId(), book.getGenre().ordinal(), book.getTitle(), book.getAuthor());
+        Transactions.afterCommit(() -> {
+            synchronized (this.lock) {
+                this.index.update(document);
+            }
+        });
+    }
+
+    /**
+     * Remove a deleted book from the index, once the transaction commits.
+     *
+     * @param id the id of the book
+     */
+    public void remove(@NonNull Long id) {
+        Transactions.afterCommit(() -> {
+            synchronized (this.lock) {
+                this.index.remove(id);
+            }
+        });
+    }
+
+    /**
+     * Reads again the books changed by the other nodes.
+     *
+     * @param events the changes made by another node
+     */
+    @Override
+    public void invalidate(@NonNull Collection<ChangeEvent> events) {
+        Set<Long> ids = new HashSet<>();
+        for (ChangeEvent event : events) {
+            if (event.type() != ChangeEvent.EntityType.BOOK) {
+                continue;
+            }
+            try {
+                ids.add(Long.parseLong(event.id()));
+            } catch (NumberFormatException e) {
+                logger.warn("Ignoring the malformed book change {}", event);
+            }
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+        try {
+            this.indexer.execute(() -> this.reload(ids));
+        } catch (RejectedExecutionException e) {
+            this.stale.set(true);
+        }
+    }
+
+    /**
+     * Builds the index again, as changes of the other nodes may have been missed.
+     */
+    @Override
+    public void invalidateAll() {
+        this.stale.set(true);
+        this.requestRebuild();
+    }
+
+    /**
+     * Build the index again if it is too old, has too many changes, may have missed changes or was never built, which
+     * is the case on the first check as the scheduler starts.
+     */
+    @Scheduled(fixedDelayString = "${app.book-search.check-interval:10000}")
+    public void maintain() {
+        if (!this.ready || this.stale.get() || this.index.changes() > this.maxChanges
+                || System.currentTimeMillis() - this.builtAt > this.rebuildInterval) {
+            this.requestRebuild();
+        }
+    }
+
+    /**
+     * Stop the indexer.
+     */
+    @PreDestroy
+    public void shutdown() {
+        this.indexer.shutdownNow();
+    }
+
+    /**
+     * Schedules a build, unless one is already scheduled or running.
+     */
+    private void requestRebuild() {
+        if (!this.rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            this.indexer.execute(this::rebuild);
+        } catch (RejectedExecutionException e) {
+            // Retried by the next check.
+            this.rebuilding.set(false);
+        }
+    }
+
+    /**
+     * Builds the index from all the books and swaps it in, with the changes made meanwhile.
+     */
+    private void rebuild() {
+        long start = System.nanoTime();
+        try {
+            this.stale.set(false);
+            InvertedIndex previous = this.index;
+            // The changes recorded so far are committed, so the books read next contain them.
+            long after = previous.sequence();
+            InvertedIndex.Builder builder = this.newBuilder();
+            this.transactionTemplate.executeWithoutResult(status -> this.jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(SELECT_ALL);
+                // Read by a cursor, a round trip per batch.
+                statement.setFetchSize(this.fetchSize);
+                return statement;
+            }, (RowCallbackHandler) rs -> builder.add(document(rs))));
+            InvertedIndex next = builder.build();
+            synchronized (this.lock) {
+                next.carryOver(previous, after);
+                this.index = next;
+            }
+            this.builtAt = System.currentTimeMillis();
+            this.ready = true;
+            this.metrics.recordRebuild("built", System.nanoTime() - start);
+            logger.info("Indexed {} books for the full-text search in {} ms, {} bytes", next.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), next.bytes());
+        } catch (RuntimeException e) {
+            logger.warn("Could not build the full-text index of the books, retrying later", e);
+            this.stale.set(true);
+            this.metrics.recordRebuild("failed", System.nanoTime() - start);
+        } finally {
+            this.rebuilding.set(false);
+        }
+    }
+
+    /**
+     * Reads and indexes the books changed by another node, and removes the ones deleted.
+     *
+     * @param ids the ids of the books
+     */
+    private void reload(@NonNull Set<Long> ids) {
+        try {
+            Set<Long> missing = new HashSet<>(ids);
+            this.jdbcTemplate.query(SELECT, (RowCallbackHandler) rs -> {
+                InvertedIndex.Document document = document(rs);
+                missing.remove(document.id());
+                synchronized (this.lock) {
+                    this.index.update(document);
+                }
+            }, (Object) ids.stream().mapToLong(Long::longValue).toArray());
+            synchronized (this.lock) {
+                missing.forEach(this.index::remove);
+            }
+        } catch (DataAccessException e) {
+            logger.warn("Could not read the books changed by another node", e);
+            this.stale.set(true);
+        }
+    }
+
+    /**
+     * Creates an empty builder of the index.
+     *
+     * @return the builder
+     */
+    private @NonNull InvertedIndex.Builder newBuilder() {
+        return new InvertedIndex.Builder(this.k1, this.b, this.titleWeight, this.authorWeight);
+    }
+
+    /**
+     * Reads the document of a book.
+     *
+     * @param rs the row of the book
+     * @return the document
+     * @throws SQLException if the row cannot be read
+     */
+    private static @NonNull InvertedIndex.Document document(@NonNull ResultSet rs) throws SQLException {
+        return new InvertedIndex.Document(rs.getLong("id"), Genre.valueOf(rs.getString("genre")).ordinal(),
+                rs.getString("title"), rs.getString("author"));
+    }
+
+    /**
+     * Exception thrown when a search asks for too many books.
+     */
+    public static class InvalidSearchException extends RepositoryException.BadRequest {
+        /**
+         * Creates a new InvalidSearchException.
+         *
+         * @param message - the reason
+         */
+        public InvalidSearchException(@NonNull String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Exception thrown when the index has not been built yet.
+     */
+    public static class SearchIndexNotReadyException extends RepositoryException.ServiceUnavailable {
+        /**
+         * Creates a new SearchIndexNotReadyException.
+         */
+        public SearchIndexNotReadyException() {
+            super("The search index is being built, retry later");
+        }
+    }
+}
@@ -1,31 +1,68 @@
 package org.example.library.service;
 
 import jakarta.validation.constraints.NotNull;
-import lombok.AllArgsConstructor;
 import org.example.library.dto.BookDTO;
 import org.example.library.dto.BookDTO.BookEDTO;
+import org.example.library.dto.ChangesDTO;
+import org.example.library.dto.IsbnResolutionDTO;
 import org.example.library.entity.Book;
+import org.example.library.entity.Genre;
+import org.example.library.entity.Tombstone;
+import org.example.library.invalidation.ChangeEvent;
+import org.example.library.invalidation.InvalidationListener;
+import org.example.library.invalidation.InvalidationPublisher;
+import org.example.library.lib.ChangeToken;
+import org.example.library.lib.InvertedIndex;
 import org.example.library.lib.RepositoryException;
+import org.example.library.lib.SingleFlight;
+import org.example.library.lib.Transactions;
+import org.example.library.lib.VersionedCache;
 import org.example.library.mapper.BookMapper;
+import org.example.library.metrics.QueryCacheMetrics;
+import org.example.library.metrics.SingleFlightMetrics;
 import org.example.library.repository.BookRepository;
+import org.example.library.validator.ISBNParser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.lang.NonNull;
 import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 /**
  * Service implementation for the Book entity.
  */
 @Service
-@AllArgsConstructor
-public class BookService {
+public class BookService implements InvalidationListener {
+    /**
+     * The lookup of the books of ISBN-13s, in the unique index of the canonical ISBNs.
+     */
+    private static final String RESOLVE = "SELECT id, title, author, genre, isbn, isbn13, publication_date FROM books WHERE isbn13 = ANY (?::bigint[])";
+
+    /**
+     * The read of the page of books of a ranked search.
+     */
+    private static final String SELECT_PAGE = "SELECT id, title, author, genre, isbn, publication_date FROM books WHERE id = ANY (?::bigint[])";
+
     /**
      * The logger for this class.
      */
@@ -42,24 +79,199 @@ public class BookService {
     private final @NonNull BookMapper bookMapper;
 
     /**
-     * Get a single book by its id.
+     * The single-flight of the reads of a book by id.
+     */
+    private final @NonNull SingleFlight<Long, Optional<BookEDTO>> bookById;
+
+    /**
+     * The single-flight of the searches of books.
+     */
+    private final @NonNull SingleFlight<BooksQuery, Page<BookEDTO>> books;
+
+    /**
+     * The cache of the searches of books, invalidated by every write to the catalog.
+     */
+    private final @Nullable VersionedCache<BooksQuery, Page<BookEDTO>> searchCache;
+
+    /**
+     * The publisher of the changes to the other nodes.
+     */
+    private final @NonNull InvalidationPublisher invalidationPublisher;
+
+    /**
+     * The change feed of the offline clients.
+     */
+    private final @NonNull ChangeFeedService changeFeedService;
+
+    /**
+     * The JDBC template of the lookups by ISBN and of the pages of the ranked searches.
+     */
+    private final @NonNull JdbcTemplate jdbcTemplate;
+
+    /**
+     * The full-text index of the books.
+     */
+    private final @NonNull BookSearchService bookSearchService;
+
+    /**
+     * Create a new BookService.
+     *
+     * @param bookRepository        the repository for the Book entity
+     * @param bookMapper            the mapper for the Book entity
+     * @param singleFlightTimeout   the maximum time in milliseconds a read waits for an identical read in flight, 0 to disable the coalescing
+     * @param singleFlightMetrics   the metrics of the coalescing of the reads
+     * @param searchCacheSize       the maximum number of searches cached, 0 to disable the cache
+     * @param searchCacheTtl        the time to live of the cached searches in milliseconds
+     * @param searchCacheBeta       the weight of the early refresh of the cached searches, 0 to disable it
+     * @param queryCacheMetrics     the metrics of the query-result caches
+     * @param invalidationPublisher the publisher of the changes to the other nodes
+     * @param changeFeedService     the change feed of the offline clients
+     * @param jdbcTemplate          the JDBC template of the lookups by ISBN and of the pages of the ranked searches
+     * @param bookSearchService     the full-text index of the books
+     */
+    public BookService(@NonNull BookRepository bookRepository,
+                       @NonNull BookMapper bookMapper,
+                       @Value("${app.single-flight.timeout:1000}") long singleFlightTimeout,
+                       @NonNull SingleFlightMetrics singleFlightMetrics,
+                       @Value("${app.search-cache.maximum-size:10000}") long searchCacheSize,
+                       @Value("${app.search-cache.ttl:60000}") long searchCacheTtl,
+                       @Value("${app.search-cache.beta:1.0}") double searchCacheBeta,
+                       @NonNull QueryCacheMetrics queryCacheMetrics,
+                       @NonNull InvalidationPublisher invalidationPublisher,
+                       @NonNull ChangeFeedService changeFeedService,
+                       @NonNull JdbcTemplate jdbcTemplate,
+                       @NonNull BookSearchService bookSearchService) {
+        this.bookRepository = bookRepository;
+        this.bookMapper = bookMapper;
+        this.bookById = new SingleFlight<>(singleFlightTimeout);
+        this.books = new SingleFlight<>(singleFlightTimeout);
+        singleFlightMetrics.registerSingleFlight("book-by-id", this.bookById);
+        singleFlightMetrics.registerSingleFlight("books", this.books);
+        this.searchCache = searchCacheSize > 0 ? new VersionedCache<>(searchCacheSize, searchCacheTtl, searchCacheBeta) : null;
+        if (this.searchCache != null) {
+            queryCacheMetrics.registerCache("book-search", this.searchCache);
+        }
+        this.invalidationPublisher = invalidationPublisher;
+        this.changeFeedService = changeFeedService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.bookSearchService = bookSearchService;
+    }
+
+    /**
+     * Get a single book by its id. Concurrent reads of the same book share a single query.
      *
      * @param id the id of the book
      * @return an optional with the book if found, empty otherwise
      */
     public @NonNull Optional<BookEDTO> getBookById(@NonNull Long id) {
-        return this.bookRepository.findById(id).map(this.bookMapper::toEDto);
+        return this.bookById.execute(id, () -> this.bookRepository.findById(id).map(this.bookMapper::toEDto));
     }
 
     /**
-     * Get a list of all books in the library using a specification and pageable.
+     * Get a list of all books in the library using a specification and pageable. Concurrent searches with equal
+     * specifications and pageables share a single query, which is independent of the user searching, and the results
+     * are cached until the catalog changes.
      *
      * @param bookSpecification the specification to filter the books
      * @param pageable          the pagination information
      * @return a page of books
      */
     public @NonNull Page<BookEDTO> getBooks(@Nullable Specification<Book> bookSpecification, @NonNull Pageable pageable) {
-        return this.bookRepository.findAll(bookSpecification, pageable).map(this.bookMapper::toEDto);
+        BooksQuery query = new BooksQuery(bookSpecification, pageable);
+        Supplier<Page<BookEDTO>> search = () -> this.books.execute(query,
+                () -> this.bookRepository.findAll(bookSpecification, pageable).map(this.bookMapper::toEDto));
+        // Only the specifications with value equality (records) can be found again, the others would only fill the cache.
+        if (this.searchCache == null || (bookSpecification != null && !(bookSpecification instanceof Record))) {
+            return search.get();
+        }
+        return this.searchCache.get(query, search);
+    }
+
+    /**
+     * Search the books by relevance, the ones with the most or the rarest words of a query in their title or author
+     * first. The books are ranked by the full-text index and only the page is read from the database.
+     *
+     * @param query    the words searched, in any case and with or without accents
+     * @param genre    the genre of the books searched, null for all the genres
+     * @param pageable the pagination information, its sort is ignored
+     * @return a page of books, by relevance
+     * @throws BookSearchService.InvalidSearchException       if the page is beyond the books ranked
+     * @throws BookSearchService.SearchIndexNotReadyException if the index has not been built yet
+     */
+    public @NonNull Page<BookEDTO> searchBooks(@NonNull String query, @Nullable Genre genre, @NonNull Pageable pageable)
+            throws BookSearchService.InvalidSearchException, BookSearchService.SearchIndexNotReadyException {
+        InvertedIndex.Result result = this.bookSearchService.search(query, genre, pageable.getOffset() + pageable.getPageSize());
+        List<InvertedIndex.Hit> hits = result.hits().subList((int) Math.min(pageable.getOffset(), result.hits().size()), result.hits().size());
+
+        // Read as DTOs, in the order of the ranking. The books deleted meanwhile are skipped.
+        Map<Long, BookEDTO> found = new HashMap<>();
+        if (!hits.isEmpty()) {
+            this.jdbcTemplate.query(SELECT_PAGE, rs -> {
+                BookEDTO book = toEDto(rs);
+                found.put(book.getId(), book);
+            }, (Object) hits.stream().mapToLong(InvertedIndex.Hit::id).toArray());
+        }
+        List<BookEDTO> books = new ArrayList<>(hits.size());
+        for (InvertedIndex.Hit hit : hits) {
+            BookEDTO book = found.get(hit.id());
+            if (book != null) {
+                books.add(book);
+            }
+        }
+        return new PageImpl<>(books, PageRequest.of(pageable.getPageNumber(), pageable.getPageSize()), result.total());
+    }
+
+    /**
+     * Get the books created, modified or deleted after the position of a client in the change feed.
+     *
+     * @param since the token of the client, null to download all the books
+     * @param limit the maximum number of changes, null for the default
+     * @return the changes after the position
+     * @throws ChangeFeedService.InvalidChangeTokenException if the token or the limit is invalid
+     * @throws ChangeFeedService.ChangeTokenExpiredException if the deletions after the token have been purged
+     */
+    public @NonNull ChangesDTO<BookEDTO> getBookChanges(@Nullable String since, @Nullable Integer limit)
+            throws ChangeFeedService.InvalidChangeTokenException, ChangeFeedService.ChangeTokenExpiredException {
+        return this.changeFeedService.getChanges(Tombstone.EntityType.BOOK, since, limit,
+                this.bookRepository::findChangedAfter,
+                book -> new ChangeToken(book.getChangeXid(), book.getId(), false, book.getLastModifiedDate()),
+                this.bookMapper::toEDto);
+    }
+
+    /**
+     * Resolve the books of scanned ISBNs in a single query. The ISBNs are parsed into the ISBN-13 of their book, so an
+     * ISBN-10 or a formatted ISBN matches the book as well.
+     *
+     * @param isbns the ISBNs, as scanned or typed
+     * @return the books found by ISBN, and the ISBNs of no book
+     */
+    public @NonNull IsbnResolutionDTO resolveBooks(@NonNull List<String> isbns) {
+        // The ISBN-13 to look up by ISBN sent, the unknown and invalid ones are reported as sent.
+        Map<String, Long> keys = new LinkedHashMap<>();
+        for (String isbn : isbns) {
+            keys.putIfAbsent(isbn, ISBNParser.parse(isbn));
+        }
+
+        // Read as DTOs, the entities would only be built to be mapped.
+        Map<Long, BookEDTO> found = new HashMap<>();
+        long[] lookup = keys.values().stream().mapToLong(Long::longValue).filter(key -> key != ISBNParser.INVALID).distinct().toArray();
+        if (lookup.length > 0) {
+            this.jdbcTemplate.query(RESOLVE, rs -> {
+                found.put(rs.getLong("isbn13"), toEDto(rs));
+            }, (Object) lookup);
+        }
+
+        Map<String, BookEDTO> books = new LinkedHashMap<>();
+        List<String> unknown = new ArrayList<>();
+        keys.forEach((isbn, key) -> {
+            BookEDTO book = found.get(key);
+            if (book != null) {
+                books.put(isbn, book);
+            } else {
+                unknown.add(isbn);
+            }
+        });
+        return new IsbnResolutionDTO(books, unknown);
     }
 
     /**
@@ -77,6 +289,10 @@ public class BookService {
 
         Book book = this.bookMapper.toEntity(bookDTO);
         Book savedBook = this.bookRepository.save(book);
+        this.bookSearchService.update(savedBook);
+        this.books.forget();
+        this.invalidateSearches();
+        this.invalidationPublisher.publish(ChangeEvent.EntityType.BOOK, savedBook.getId());
         return this.bookMapper.toEDto(savedBook);
     }
 
@@ -92,6 +308,9 @@ public class BookService {
     public @NonNull BookEDTO updateBook(@NonNull Long id, @NonNull BookDTO bookDTO) throws BookNotFoundException {
         Book book = this.bookRepository.findById(id).orElseThrow(() -> new BookNotFoundException(id));
         this.bookMapper.updateBook(bookDTO, book);
+        this.bookSearchService.update(book);
+        this.forget();
+        this.invalidationPublisher.publish(ChangeEvent.EntityType.BOOK, id);
         return this.bookMapper.toEDto(book);
     }
 
@@ -108,6 +327,76 @@ public class BookService {
         }
 
         this.bookRepository.deleteById(id);
+        this.changeFeedService.recordDeletion(Tombstone.EntityType.BOOK, id);
+        this.bookSearchService.remove(id);
+        this.forget();
+        this.invalidationPublisher.publish(ChangeEvent.EntityType.BOOK, id);
+    }
+
+    /**
+     * Invalidates the cached books when another node changes books.
+     *
+     * @param events the changes made by another node
+     */
+    @Override
+    public void invalidate(@NonNull Collection<ChangeEvent> events) {
+        if (events.stream().anyMatch(event -> event.type() == ChangeEvent.EntityType.BOOK)) {
+            this.forget();
+        }
+    }
+
+    /**
+     * Invalidates all the cached books.
+     */
+    @Override
+    public void invalidateAll() {
+        this.forget();
+    }
+
+    /**
+     * Stops sharing the reads in flight and invalidates the cached searches once the transaction commits, so that the
+     * reads that follow a write see it.
+     */
+    private void forget() {
+        this.bookById.forget();
+        this.books.forget();
+        this.invalidateSearches();
+    }
+
+    /**
+     * Moves the search cache to the next catalog generation once the transaction commits.
+     */
+    private void invalidateSearches() {
+        if (this.searchCache != null) {
+            Transactions.afterCommit(this.searchCache::invalidateAll);
+        }
+    }
+
+    /**
+     * Reads a book as a DTO, from the columns of the entity.
+     *
+     * @param rs the row of the book
+     * @return the book
+     * @throws SQLException if the row cannot be read
+     */
+    private static @NonNull BookEDTO toEDto(@NonNull ResultSet rs) throws SQLException {
+        return BookEDTO.builder()
+                .id(rs.getLong("id"))
+                .title(rs.getString("title"))
+                .author(rs.getString("author"))
+                .genre(Genre.valueOf(rs.getString("genre")))
+                .isbn(rs.getString("isbn"))
+                .publicationDate(rs.getObject("publication_date", LocalDate.class))
+                .build();
+    }
+
+    /**
+     * The key of a search of books.
+     *
+     * @param specification the specification to filter the books
+     * @param pageable      the pagination information
+     */
+    private record BooksQuery(@Nullable Specification<Book> specification, @NonNull Pageable pageable) {
     }
 
     /**
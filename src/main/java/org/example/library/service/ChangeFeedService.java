@@ -0,0 +1,260 @@
+package org.example.library.service;
+
+import org.example.library.dto.ChangesDTO;
+import org.example.library.entity.Tombstone;
+import org.example.library.lib.ChangeToken;
+import org.example.library.lib.RepositoryException;
+import org.example.library.repository.TombstoneRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Service implementation of the change feeds, which let the offline clients download only what changed since their
+ * last sync.
+ * <p>
+ * The changes are read by keyset on the id of the transaction that last wrote the entities, set by the database, and
+ * the id of the entities, and the deletions from the tombstones, merged in the same order. A feed only returns the
+ * changes of the transactions below the xmin horizon of its snapshot: all of them have committed or rolled back, and
+ * the transactions in flight or to come have greater ids, so no change can commit behind the position of a client
+ * however late it commits. A long transaction holds the feed back until it ends. The tombstones are purged after the
+ * retention, and a client whose token is older has to download everything again.
+ */
+@Service
+public class ChangeFeedService {
+    /**
+     * The logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(ChangeFeedService.class);
+
+    /**
+     * The xmin horizon of the snapshot, below which no transaction is in flight.
+     */
+    private static final String HORIZON = "SELECT pg_snapshot_xmin(pg_current_snapshot())::text::bigint";
+
+    /**
+     * The repository for the Tombstone entity.
+     */
+    private final @NonNull TombstoneRepository tombstoneRepository;
+
+    /**
+     * The JDBC template.
+     */
+    private final @NonNull JdbcTemplate jdbcTemplate;
+
+    /**
+     * The time the deletions are kept for.
+     */
+    private final @NonNull Duration retention;
+
+    /**
+     * The number of changes returned when the client does not ask for a number.
+     */
+    private final int defaultLimit;
+
+    /**
+     * The maximum number of changes returned at once.
+     */
+    private final int maxLimit;
+
+    /**
+     * Create a new ChangeFeedService.
+     *
+     * @param tombstoneRepository the repository for the Tombstone entity
+     * @param jdbcTemplate        the JDBC template
+     * @param retention           the time the deletions are kept for
+     * @param defaultLimit        the number of changes returned when the client does not ask for a number
+     * @param maxLimit            the maximum number of changes returned at once
+     */
+    public ChangeFeedService(@NonNull TombstoneRepository tombstoneRepository,
+                             @NonNull JdbcTemplate jdbcTemplate,
+                             @Value("${app.change-feed.retention:30d}") Duration retention,
+                             @Value("${app.change-feed.default-limit:500}") int defaultLimit,
+                             @Value("${app.change-feed.max-limit:5000}") int maxLimit) {
+        this.tombstoneRepository = tombstoneRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.retention = retention;
+        this.defaultLimit = defaultLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    /**
+     * Get the changes of a type of entity after the position of a client.
+     *
+     * @param type    the type of the entities
+     * @param since   the token of the client, null to download everything
+     * @param limit   the maximum number of changes, null for the default
+     * @param changed the query of the entities changed after a position
+     * @param token   the position of an entity in the feed
+     * @param mapper  the mapper of the entities to DTOs
+     * @param <E>     the type of the entities
+     * @param <D>     the type of the DTOs
+     * @return the changes after the position
+     * @throws InvalidChangeTokenException if the token or the limit is invalid
+     * @throws ChangeTokenExpiredException if the deletions after the token have been purged
+     */
+    @Transactional(readOnly = true)
+    public <E, D> @NonNull ChangesDTO<D> getChanges(@NonNull Tombstone.EntityType type,
+                                                    @Nullable String since,
+                                                    @Nullable Integer limit,
+                                                    @NonNull ChangedQuery<E> changed,
+                                                    @NonNull Function<E, ChangeToken> token,
+                                                    @NonNull Function<E, D> mapper)
+            throws InvalidChangeTokenException, ChangeTokenExpiredException {
+        int size = limit == null ? this.defaultLimit : limit;
+        if (size < 1 || size > this.maxLimit) {
+            throw new InvalidChangeTokenException("The limit must be between 1 and " + this.maxLimit);
+        }
+        ChangeToken after = this.decode(since);
+        // The dates are stored with a precision of microseconds.
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        if (!after.fullSync() && after.date().isBefore(now.minus(this.retention))) {
+            throw new ChangeTokenExpiredException();
+        }
+
+        // One more than the limit of each, to know whether more changes follow.
+        Long until = this.jdbcTemplate.queryForObject(HORIZON, Long.class);
+        List<E> entities = changed.find(after.xid(), after.id(), until, Limit.of(size + 1));
+        List<Tombstone> tombstones = this.tombstoneRepository.findDeletedAfter(type, after.xid(), after.id(), until, Limit.of(size + 1));
+
+        // Merge the two in the order of the feed, so that the last one returned is the position of the client.
+        List<D> changedDtos = new ArrayList<>();
+        List<Long> deletedIds = new ArrayList<>();
+        ChangeToken last = null;
+        int i = 0;
+        int j = 0;
+        while (changedDtos.size() + deletedIds.size() < size && (i < entities.size() || j < tombstones.size())) {
+            ChangeToken nextChanged = i < entities.size() ? token.apply(entities.get(i)) : null;
+            ChangeToken nextDeleted = j < tombstones.size() ? this.toToken(tombstones.get(j), after.fullSync()) : null;
+            if (nextDeleted == null || (nextChanged != null && nextChanged.compareTo(nextDeleted) < 0)) {
+                changedDtos.add(mapper.apply(entities.get(i++)));
+                last = nextChanged;
+            } else {
+                deletedIds.add(tombstones.get(j++).getEntityId());
+                last = nextDeleted;
+            }
+        }
+
+        boolean hasMore = i < entities.size() || j < tombstones.size();
+        ChangeToken next;
+        if (hasMore) {
+            next = new ChangeToken(last.xid(), last.id(), after.fullSync(), last.date());
+        } else {
+            // Everything below the horizon has been seen, the next sync starts there.
+            ChangeToken horizon = new ChangeToken(until, 0, false, now);
+            next = horizon.compareTo(after) > 0 ? horizon : new ChangeToken(after.xid(), after.id(), false, now);
+        }
+        return new ChangesDTO<>(changedDtos, deletedIds, next.encode(), hasMore);
+    }
+
+    /**
+     * Record the deletion of an entity, in the transaction that deletes it.
+     *
+     * @param type the type of the entity
+     * @param id   the id of the entity
+     */
+    @Transactional
+    public void recordDeletion(@NonNull Tombstone.EntityType type, @NonNull Long id) {
+        this.tombstoneRepository.save(new Tombstone(type, id));
+    }
+
+    /**
+     * Purge the tombstones older than the retention.
+     */
+    @Scheduled(fixedDelayString = "${app.change-feed.purge-interval:3600000}")
+    @Transactional
+    public void purgeTombstones() {
+        int purged = this.tombstoneRepository.deleteByDeletedDateBefore(LocalDateTime.now().minus(this.retention));
+        if (purged > 0) {
+            logger.info("Purged {} tombstones older than {}", purged, this.retention);
+        }
+    }
+
+    /**
+     * Decodes the token of a client.
+     *
+     * @param since the token of the client, null to download everything
+     * @return the position of the client
+     * @throws InvalidChangeTokenException if the token is malformed
+     */
+    private @NonNull ChangeToken decode(@Nullable String since) throws InvalidChangeTokenException {
+        if (since == null || since.isEmpty()) {
+            return ChangeToken.START;
+        }
+        try {
+            return ChangeToken.decode(since);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidChangeTokenException("Invalid change token: " + since);
+        }
+    }
+
+    /**
+     * Gets the position of a deletion in the feed.
+     *
+     * @param tombstone the tombstone of the deletion
+     * @param fullSync  whether the client is downloading everything
+     * @return the position of the deletion
+     */
+    private @NonNull ChangeToken toToken(@NonNull Tombstone tombstone, boolean fullSync) {
+        return new ChangeToken(tombstone.getChangeXid(), tombstone.getEntityId(), fullSync, tombstone.getDeletedDate());
+    }
+
+    /**
+     * A query of the entities changed after a position of the feed, in the order of the feed.
+     *
+     * @param <E> the type of the entities
+     */
+    @FunctionalInterface
+    public interface ChangedQuery<E> {
+        /**
+         * Find the entities changed after a position.
+         *
+         * @param xid   the id of the transaction of the position
+         * @param id    the id of the entity at the position
+         * @param until the transaction id before which the changes are returned
+         * @param limit the maximum number of entities
+         * @return the entities changed after the position
+         */
+        List<E> find(Long xid, Long id, Long until, Limit limit);
+    }
+
+    /**
+     * Exception thrown when a change token or limit is invalid.
+     */
+    public static class InvalidChangeTokenException extends RepositoryException.BadRequest {
+        /**
+         * Creates a new InvalidChangeTokenException with the given message.
+         *
+         * @param message - the exception message
+         */
+        public InvalidChangeTokenException(@NonNull String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Exception thrown when a change token is older than the retention of the deletions.
+     */
+    public static class ChangeTokenExpiredException extends RepositoryException.Gone {
+        /**
+         * Creates a new ChangeTokenExpiredException.
+         */
+        public ChangeTokenExpiredException() {
+            super("The change token has expired, sync again without a token");
+        }
+    }
+}
@@ -6,16 +6,18 @@ import org.example.library.repository.UserRepository;
 import org.example.library.security.UserDetailsImpl;
 import org.springframework.lang.NonNull;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Service class for the CustomUserDetailsService.
  */
 @Service
 @AllArgsConstructor
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
     /**
      * The UserRepository to use for the service.
      */
@@ -35,4 +37,22 @@ public class CustomUserDetailsService implements UserDetailsService {
 
         return new UserDetailsImpl(user);
     }
-}
\ No newline at end of file
+
+    /**
+     * Updates the stored password of a user. Called after a successful login when the stored hash was encoded with
+     * an outdated encoder or strength.
+     *
+     * @param userDetails The UserDetails of the user
+     * @param newPassword The re-encoded password
+     * @return The UserDetails of the user with the new password
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        User user = this.userRepository.findByUsername(userDetails.getUsername())
+                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + userDetails.getUsername()));
+        user.setPassword(newPassword);
+
+        return new UserDetailsImpl(this.userRepository.save(user));
+    }
+}
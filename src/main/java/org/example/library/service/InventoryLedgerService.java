@@ -0,0 +1,465 @@
+package org.example.library.service;
+
+import org.example.library.dto.InventoryChangeDTO;
+import org.example.library.dto.InventoryDriftDTO;
+import org.example.library.dto.InventoryMovementDTO;
+import org.example.library.entity.InventoryMovement;
+import org.example.library.invalidation.ChangeEvent;
+import org.example.library.invalidation.InvalidationPublisher;
+import org.example.library.lib.RepositoryException;
+import org.example.library.lib.Transactions;
+import org.example.library.lib.Tuple;
+import org.example.library.mapper.InventoryMovementMapper;
+import org.example.library.metrics.InventoryLedgerMetrics;
+import org.example.library.repository.BookRepository;
+import org.example.library.repository.InventoryMovementRepository;
+import org.example.library.repository.LocationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Service implementation of the ledger of the inventory, which records every change of the quantity of a book copy as
+ * an append-only movement.
+ * <p>
+ * The movements of a transaction are kept aside until it commits, and written just before by a single multi-row insert,
+ * so that they commit or roll back with their change, whichever node made it, at the cost of a round trip per
+ * transaction rather than per movement.
+ * <p>
+ * The quantity of a book copy is the sum of the deltas of its movements, from which the rebuild recomputes the book
+ * copies.
+ */
+@Service
+public class InventoryLedgerService {
+    /**
+     * The logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(InventoryLedgerService.class);
+
+    /**
+     * The insert of the movements, followed by the values of each movement.
+     */
+    private static final String INSERT = "INSERT INTO inventory_movements (location_id, book_id, delta, type, actor, movement_date) VALUES ";
+
+    /**
+     * The values of a movement in the insert.
+     */
+    private static final String VALUES = "(?, ?, ?, ?, ?, ?)";
+
+    /**
+     * The SQL state of a lock not acquired within the lock timeout.
+     */
+    private static final String LOCK_NOT_AVAILABLE = "55P03";
+
+    /**
+     * The types of the values of a movement in the insert.
+     */
+    private static final int[] TYPES = {Types.BIGINT, Types.BIGINT, Types.INTEGER, Types.VARCHAR, Types.VARCHAR, Types.TIMESTAMP};
+
+    /**
+     * The insert of movements of the same location, type, actor and date, with the books and deltas bound as arrays.
+     */
+    private static final String INSERT_ALL = "INSERT INTO inventory_movements (location_id, book_id, delta, type, actor, movement_date) " +
+            "SELECT ?, t.book_id, t.delta, ?, ?, ? FROM unnest(?::bigint[], ?::integer[]) AS t (book_id, delta)";
+
+    /**
+     * The maximum number of movements in an insert, Postgres accepts at most 32767 parameters per statement.
+     */
+    private static final int MAX_ROWS = Short.MAX_VALUE / TYPES.length;
+
+    /**
+     * The sum of the movements of each book copy.
+     */
+    private static final String LEDGER = "WITH ledger AS (SELECT location_id, book_id, SUM(delta)::INTEGER AS quantity " +
+            "FROM inventory_movements GROUP BY location_id, book_id) ";
+
+    /**
+     * The prefix of the names of the monthly partitions of the movements.
+     */
+    private static final String PARTITION_PREFIX = "inventory_movements_";
+
+    /**
+     * The mapper of the book copies returned by the rebuild.
+     */
+    private static final RowMapper<InventoryChangeDTO> REBUILT = (rs, rowNum) ->
+            new InventoryChangeDTO(rs.getLong("location_id"), rs.getLong("book_id"), rs.getInt("quantity"));
+
+    /**
+     * The number of monthly partitions created ahead of the current month.
+     */
+    private final int partitionsAhead;
+
+    /**
+     * The maximum time the rebuild waits for the changes in progress to commit.
+     */
+    private final @NonNull Duration lockTimeout;
+
+    /**
+     * The JDBC template, which runs in the transaction of the change.
+     */
+    private final @NonNull JdbcTemplate jdbcTemplate;
+
+    /**
+     * The repository for the InventoryMovement entity.
+     */
+    private final @NonNull InventoryMovementRepository inventoryMovementRepository;
+
+    /**
+     * The repository for the Location entity.
+     */
+    private final @NonNull LocationRepository locationRepository;
+
+    /**
+     * The repository for the Book entity.
+     */
+    private final @NonNull BookRepository bookRepository;
+
+    /**
+     * The mapper for the InventoryMovement entity.
+     */
+    private final @NonNull InventoryMovementMapper inventoryMovementMapper;
+
+    /**
+     * The provider of the current user, the actor of the movements.
+     */
+    private final @NonNull AuditorAware<String> auditorProvider;
+
+    /**
+     * The publisher of the changes to the other nodes.
+     */
+    private final @NonNull InvalidationPublisher invalidationPublisher;
+
+    /**
+     * The streams of the inventory changes of the locations.
+     */
+    private final @NonNull InventoryStreamService inventoryStreamService;
+
+    /**
+     * The metrics of the ledger.
+     */
+    private final @NonNull InventoryLedgerMetrics metrics;
+
+    /**
+     * Create a new InventoryLedgerService.
+     *
+     * @param lockTimeout                 the maximum time the rebuild waits for the changes in progress to commit
+     * @param partitionsAhead             the number of monthly partitions created ahead of the current month
+     * @param jdbcTemplate                the JDBC template
+     * @param inventoryMovementRepository the repository for the InventoryMovement entity
+     * @param locationRepository          the repository for the Location entity
+     * @param bookRepository              the repository for the Book entity
+     * @param inventoryMovementMapper     the mapper for the InventoryMovement entity
+     * @param auditorProvider             the provider of the current user
+     * @param invalidationPublisher       the publisher of the changes to the other nodes
+     * @param inventoryStreamService      the streams of the inventory changes of the locations
+     * @param metrics                     the metrics of the ledger
+     */
+    public InventoryLedgerService(@Value("${app.inventory-ledger.lock-timeout:10s}") Duration lockTimeout,
+                                  @Value("${app.inventory-ledger.partitions-ahead:2}") int partitionsAhead,
+                                  @NonNull JdbcTemplate jdbcTemplate,
+                                  @NonNull InventoryMovementRepository inventoryMovementRepository,
+                                  @NonNull LocationRepository locationRepository,
+                                  @NonNull BookRepository bookRepository,
+                                  @NonNull InventoryMovementMapper inventoryMovementMapper,
+                                  @NonNull AuditorAware<String> auditorProvider,
+                                  @NonNull InvalidationPublisher invalidationPublisher,
+                                  @NonNull InventoryStreamService inventoryStreamService,
+                                  @NonNull InventoryLedgerMetrics metrics) {
+        this.lockTimeout = lockTimeout;
+        this.partitionsAhead = partitionsAhead;
+        this.jdbcTemplate = jdbcTemplate;
+        this.inventoryMovementRepository = inventoryMovementRepository;
+        this.locationRepository = locationRepository;
+        this.bookRepository = bookRepository;
+        this.inventoryMovementMapper = inventoryMovementMapper;
+        this.auditorProvider = auditorProvider;
+        this.invalidationPublisher = invalidationPublisher;
+        this.inventoryStreamService = inventoryStreamService;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Record a change of the quantity of a book copy, made by the current user now. Written with the other movements of
+     * the transaction just before it commits, or immediately if there is no transaction.
+     *
+     * @param locationId the id of the location
+     * @param bookId     the id of the book
+     * @param delta      the change of the quantity
+     * @param type       the type of the movement
+     */
+    public void record(@NonNull Long locationId, @NonNull Long bookId, int delta, @NonNull InventoryMovement.Type type) {
+        InventoryMovement movement = new InventoryMovement(locationId, bookId, delta, type,
+                this.auditorProvider.getCurrentAuditor().orElse(null), LocalDateTime.now());
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            this.insert(List.of(movement));
+            return;
+        }
+        this.getBatch().movements.add(movement);
+    }
+
+    /**
+     * Record changes of the quantities of the book copies of a location, made by the current user now. Written in the
+     * transaction of the changes by a single insert, the books and deltas bound as arrays. Must be called once the
+     * changes are written.
+     *
+     * @param locationId the id of the location
+     * @param deltas     the changes of the quantities, by book
+     * @param type       the type of the movements
+     */
+    public void recordAll(@NonNull Long locationId, @NonNull List<Tuple<Long, Integer>> deltas, @NonNull InventoryMovement.Type type) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        this.jdbcTemplate.update(INSERT_ALL, locationId, type.name(), this.auditorProvider.getCurrentAuditor().orElse(null),
+                LocalDateTime.now(), deltas.stream().mapToLong(Tuple::key).toArray(), deltas.stream().mapToInt(Tuple::value).toArray());
+        this.metrics.recordWritten(deltas.size());
+    }
+
+    /**
+     * Get the movements of a book at a location, the most recent first.
+     *
+     * @param locationId the id of the location
+     * @param bookId     the id of the book
+     * @param pageable   the pagination information
+     * @return a page of movements
+     * @throws LocationService.LocationNotFoundException if the location is not found
+     * @throws BookService.BookNotFoundException         if the book is not found
+     */
+    @NonNull
+    @Transactional(readOnly = true)
+    public Page<InventoryMovementDTO> getMovements(@NonNull Long locationId, @NonNull Long bookId, Pageable pageable) throws LocationService.LocationNotFoundException, BookService.BookNotFoundException {
+        if (!this.locationRepository.existsById(locationId)) {
+            throw new LocationService.LocationNotFoundException(locationId);
+        }
+
+        if (!this.bookRepository.existsById(bookId)) {
+            throw new BookService.BookNotFoundException(bookId);
+        }
+
+        return this.inventoryMovementRepository.findByLocationIdAndBookIdOrderByMovementDateDescIdDesc(locationId, bookId, pageable)
+                .map(this.inventoryMovementMapper::toDto);
+    }
+
+    /**
+     * Get the book copies whose quantity differs from the sum of their movements, as of the start of the transaction:
+     * a change and its movements commit together, so only a change made outside of the application shows as drift.
+     *
+     * @param limit the maximum number of book copies listed
+     * @return the number of book copies that drifted and the first of them
+     */
+    @NonNull
+    @Transactional(readOnly = true)
+    public Map<String, Object> getDrift(int limit) {
+        return this.driftReport(limit);
+    }
+
+    /**
+     * Rebuild the quantities of the book copies from the ledger. The book copies are locked against writes (not reads)
+     * until the rebuild commits, once the changes in progress on any node have committed with their movements, so that
+     * the ledger is complete. A ledger sum below zero, or of a book or location that no longer exists, is left alone
+     * and reported.
+     *
+     * @param limit the maximum number of drifted book copies listed
+     * @return the drift before the rebuild and the number of book copies rebuilt
+     * @throws LedgerBusyException if the changes in progress did not commit in time
+     */
+    @NonNull
+    @Transactional(rollbackFor = LedgerBusyException.class)
+    public Map<String, Object> rebuild(int limit) throws LedgerBusyException {
+        this.jdbcTemplate.execute("SET LOCAL lock_timeout = " + this.lockTimeout.toMillis());
+        try {
+            this.jdbcTemplate.execute("LOCK TABLE book_copies IN EXCLUSIVE MODE");
+        } catch (DataAccessException e) {
+            // Not always translated to a CannotAcquireLockException, depending on the error codes found.
+            if (e instanceof CannotAcquireLockException
+                    || e.getMostSpecificCause() instanceof SQLException cause && LOCK_NOT_AVAILABLE.equals(cause.getSQLState())) {
+                throw new LedgerBusyException();
+            }
+            throw e;
+        }
+
+        Map<String, Object> report = this.driftReport(limit);
+        List<InventoryChangeDTO> rebuilt = new ArrayList<>();
+        rebuilt.addAll(this.jdbcTemplate.query(LEDGER +
+                "UPDATE book_copies c SET quantity = l.quantity FROM ledger l " +
+                "WHERE c.location_id = l.location_id AND c.book_id = l.book_id AND c.quantity <> l.quantity AND l.quantity >= 0 " +
+                "RETURNING c.location_id, c.book_id, c.quantity", REBUILT));
+        rebuilt.addAll(this.jdbcTemplate.query(
+                "UPDATE book_copies c SET quantity = 0 WHERE c.quantity <> 0 AND NOT EXISTS (SELECT 1 FROM inventory_movements m " +
+                "WHERE m.location_id = c.location_id AND m.book_id = c.book_id) " +
+                "RETURNING c.location_id, c.book_id, c.quantity", REBUILT));
+        rebuilt.addAll(this.jdbcTemplate.query(LEDGER +
+                "INSERT INTO book_copies (book_id, location_id, quantity) SELECT l.book_id, l.location_id, l.quantity FROM ledger l " +
+                "WHERE l.quantity > 0 AND NOT EXISTS (SELECT 1 FROM book_copies c WHERE c.location_id = l.location_id AND c.book_id = l.book_id) " +
+                "AND EXISTS (SELECT 1 FROM books b WHERE b.id = l.book_id) AND EXISTS (SELECT 1 FROM locations o WHERE o.id = l.location_id) " +
+                "RETURNING location_id, book_id, quantity", REBUILT));
+
+        for (InventoryChangeDTO bookCopy : rebuilt) {
+            this.invalidationPublisher.publish(ChangeEvent.EntityType.BOOK_COPY, bookCopy.getLocationId() + "." + bookCopy.getBookId());
+            Transactions.afterCommit(() -> this.inventoryStreamService.publish(bookCopy.getLocationId(), bookCopy.getBookId(), bookCopy.getQuantity()));
+        }
+        if (!rebuilt.isEmpty()) {
+            logger.warn("Rebuilt the quantity of {} book copies from the inventory ledger", rebuilt.size());
+        }
+        this.metrics.recordRebuilt(rebuilt.size());
+        report.put("rebuilt", rebuilt.size());
+        return report;
+    }
+
+    /**
+     * Create the monthly partitions of the movements of the current month and the next ones, when missing.
+     */
+    @Scheduled(fixedDelayString = "${app.inventory-ledger.partition-interval:86400000}")
+    public void createPartitions() {
+        LocalDate month = LocalDate.now().withDayOfMonth(1);
+        for (int i = 0; i <= this.partitionsAhead; i++) {
+            LocalDate from = month.plusMonths(i);
+            String name = PARTITION_PREFIX + from.format(DateTimeFormatter.ofPattern("yyyy_MM"));
+            try {
+                this.jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + name + " PARTITION OF inventory_movements " +
+                        "FOR VALUES FROM ('" + from + "') TO ('" + from.plusMonths(1) + "')");
+            } catch (DataAccessException e) {
+                // The movements of the month go to the default partition meanwhile.
+                logger.error("Could not create the partition {} of the inventory movements", name, e);
+            }
+        }
+    }
+
+    /**
+     * Gets the movements of the current transaction, bound to it on the first movement.
+     *
+     * @return the movements of the transaction
+     */
+    private @NonNull Batch getBatch() {
+        Batch batch = (Batch) TransactionSynchronizationManager.getResource(this);
+        if (batch == null) {
+            batch = new Batch();
+            TransactionSynchronizationManager.bindResource(this, batch);
+            TransactionSynchronizationManager.registerSynchronization(batch);
+        }
+        return batch;
+    }
+
+    /**
+     * Gets the number of book copies that drifted from the ledger and the first of them.
+     *
+     * @param limit the maximum number of book copies listed
+     * @return the report of the drift
+     */
+    private @NonNull Map<String, Object> driftReport(int limit) {
+        AtomicInteger total = new AtomicInteger();
+        List<InventoryDriftDTO> drift = this.jdbcTemplate.query(LEDGER +
+                        "SELECT COALESCE(c.location_id, l.location_id) AS location_id, COALESCE(c.book_id, l.book_id) AS book_id, " +
+                        "c.quantity, l.quantity AS ledger_quantity, COUNT(*) OVER () AS total " +
+                        "FROM book_copies c FULL JOIN ledger l ON c.location_id = l.location_id AND c.book_id = l.book_id " +
+                        "WHERE COALESCE(c.quantity, 0) <> COALESCE(l.quantity, 0) ORDER BY 1, 2 LIMIT ?",
+                (rs, rowNum) -> {
+                    total.set(rs.getInt("total"));
+                    return new InventoryDriftDTO(rs.getLong("location_id"), rs.getLong("book_id"),
+                            rs.getObject("quantity", Integer.class), rs.getObject("ledger_quantity", Integer.class));
+                }, limit);
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("drifted", total.get());
+        report.put("drift", drift);
+        return report;
+    }
+
+    /**
+     * Inserts movements, in multi-row inserts of at most {@link #MAX_ROWS} movements.
+     *
+     * @param movements the movements
+     * @throws DataAccessException if the movements could not be inserted
+     */
+    private void insert(@NonNull List<InventoryMovement> movements) throws DataAccessException {
+        for (int from = 0; from < movements.size(); from += MAX_ROWS) {
+            List<InventoryMovement> rows = movements.subList(from, Math.min(from + MAX_ROWS, movements.size()));
+            Object[] args = new Object[rows.size() * TYPES.length];
+            int[] types = new int[args.length];
+            int i = 0;
+            for (InventoryMovement movement : rows) {
+                args[i++] = movement.getLocationId();
+                args[i++] = movement.getBookId();
+                args[i++] = movement.getDelta();
+                args[i++] = movement.getType().name();
+                args[i++] = movement.getActor();
+                args[i++] = movement.getMovementDate();
+            }
+            for (int j = 0; j < types.length; j++) {
+                types[j] = TYPES[j % TYPES.length];
+            }
+            this.jdbcTemplate.update(INSERT + String.join(", ", Collections.nCopies(rows.size(), VALUES)), args, types);
+        }
+        this.metrics.recordWritten(movements.size());
+    }
+
+    /**
+     * The movements of a transaction, written before it commits.
+     */
+    private class Batch implements TransactionSynchronization {
+        /**
+         * The movements of the transaction.
+         */
+        private final List<InventoryMovement> movements = new ArrayList<>();
+
+        /**
+         * Writes the movements in the transaction, a failure aborts the transaction as it would abort the change.
+         *
+         * @param readOnly whether the transaction is read-only
+         */
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            if (!this.movements.isEmpty()) {
+                InventoryLedgerService.this.insert(this.movements);
+            }
+        }
+
+        /**
+         * Unbinds the movements from the transaction.
+         *
+         * @param status the completion status of the transaction
+         */
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(InventoryLedgerService.this);
+        }
+    }
+
+    /**
+     * Exception thrown when the changes in progress did not commit in time for a rebuild.
+     */
+    public static class LedgerBusyException extends RepositoryException.ServiceUnavailable {
+        /**
+         * Creates a new LedgerBusyException.
+         */
+        public LedgerBusyException() {
+            super("The inventory changes in progress did not commit in time, retry later");
+        }
+    }
+}
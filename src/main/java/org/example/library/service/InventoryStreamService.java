@@ -0,0 +1,244 @@
+package org.example.library.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.example.library.dto.InventoryChangeDTO;
+import org.example.library.entity.BookCopy;
+import org.example.library.invalidation.ChangeEvent;
+import org.example.library.invalidation.InvalidationListener;
+import org.example.library.lib.RepositoryException;
+import org.example.library.lib.SseBroadcaster;
+import org.example.library.metrics.InventoryStreamMetrics;
+import org.example.library.repository.BookCopyRepository;
+import org.example.library.repository.LocationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service implementation of the streams of the inventory changes of the locations, pushed to the store dashboards
+ * instead of having them poll the book copies.
+ * <p>
+ * The quantity changes of this node are published once their transaction commits. The changes of the other nodes
+ * arrive through the invalidation bus, which only carries the ids of the book copies, so their quantities are read
+ * again, only for the locations with subscribers and off the thread of the bus. When changes may have been missed (the
+ * bus flushed, or too many remote changes are waiting), the subscribers are told to reload the book copies.
+ */
+@Service
+public class InventoryStreamService implements InvalidationListener {
+    /**
+     * The name of the events of a quantity change.
+     */
+    public static final String QUANTITY_CHANGED = "quantity";
+
+    /**
+     * The logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(InventoryStreamService.class);
+
+    /**
+     * The broadcaster of the changes, by location id.
+     */
+    private final @NonNull SseBroadcaster<Long> broadcaster;
+
+    /**
+     * The repository for the Location entity.
+     */
+    private final @NonNull LocationRepository locationRepository;
+
+    /**
+     * The repository for the BookCopy entity.
+     */
+    private final @NonNull BookCopyRepository bookCopyRepository;
+
+    /**
+     * The mapper serializing the events, once for all the subscribers.
+     */
+    private final @NonNull ObjectMapper objectMapper;
+
+    /**
+     * The thread reading the quantities of the changes of the other nodes.
+     */
+    private final @NonNull ExecutorService remoteLoader;
+
+    /**
+     * Create a new InventoryStreamService.
+     *
+     * @param senderThreads      the number of threads writing the events to the subscribers
+     * @param bufferSize         the maximum number of events buffered per subscriber before it is told to reload
+     * @param maxSubscribers     the maximum number of subscribers of this node
+     * @param timeout            the time in milliseconds after which a subscription ends and the client reconnects
+     * @param remoteQueueSize    the maximum number of batches of changes of the other nodes waiting to be read
+     * @param locationRepository the repository for the Location entity
+     * @param bookCopyRepository the repository for the BookCopy entity
+     * @param objectMapper       the mapper serializing the events
+     * @param metrics            the metrics of the streams
+     */
+    public InventoryStreamService(@Value("${app.inventory-stream.sender-threads:4}") int senderThreads,
+                                  @Value("${app.inventory-stream.buffer-size:256}") int bufferSize,
+                                  @Value("${app.inventory-stream.max-subscribers:10000}") int maxSubscribers,
+                                  @Value("${app.inventory-stream.timeout:1800000}") long timeout,
+                                  @Value("${app.inventory-stream.remote-queue-size:100}") int remoteQueueSize,
+                                  @NonNull LocationRepository locationRepository,
+                                  @NonNull BookCopyRepository bookCopyRepository,
+                                  @NonNull ObjectMapper objectMapper,
+                                  @NonNull InventoryStreamMetrics metrics) {
+        this.broadcaster = new SseBroadcaster<>("inventory-stream", senderThreads, bufferSize, maxSubscribers, timeout);
+        this.locationRepository = locationRepository;
+        this.bookCopyRepository = bookCopyRepository;
+        this.objectMapper = objectMapper;
+        // A change that cannot be queued is lost, the subscribers reload instead.
+        this.remoteLoader = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(remoteQueueSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "inventory-stream-loader");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (task, executor) -> this.broadcaster.resyncAll());
+        metrics.registerBroadcaster("inventory", this.broadcaster);
+    }
+
+    /**
+     * Subscribe to the inventory changes of a location.
+     *
+     * @param locationId the id of the location
+     * @return the emitter of the subscription
+     * @throws LocationService.LocationNotFoundException if the location is not found
+     * @throws TooManySubscribersException               if this node has too many subscribers
+     */
+    public @NonNull SseEmitter subscribe(@NonNull Long locationId) throws LocationService.LocationNotFoundException, TooManySubscribersException {
+        if (!this.locationRepository.existsById(locationId)) {
+            throw new LocationService.LocationNotFoundException(locationId);
+        }
+
+        SseEmitter emitter = this.broadcaster.subscribe(locationId);
+        if (emitter == null) {
+            throw new TooManySubscribersException();
+        }
+        return emitter;
+    }
+
+    /**
+     * Publish a quantity change to the subscribers of its location. Never blocks.
+     *
+     * @param locationId the id of the location
+     * @param bookId     the id of the book
+     * @param quantity   the quantity of the book at the location after the change
+     */
+    public void publish(@NonNull Long locationId, @NonNull Long bookId, @NonNull Integer quantity) {
+        if (!this.broadcaster.hasSubscribers(locationId)) {
+            return;
+        }
+        try {
+            String json = this.objectMapper.writeValueAsString(new InventoryChangeDTO(locationId, bookId, quantity));
+            this.broadcaster.publish(locationId, QUANTITY_CHANGED, json);
+        } catch (JsonProcessingException e) {
+            logger.error("Could not serialize the inventory change of book {} at location {}", bookId, locationId, e);
+        }
+    }
+
+    /**
+     * Tell the subscribers of a location to reload the book copies, after changes too many to publish one by one.
+     *
+     * @param locationId the id of the location
+     */
+    public void resync(@NonNull Long locationId) {
+        this.broadcaster.resync(locationId);
+    }
+
+    /**
+     * Publishes the quantity changes of the other nodes to the subscribers of their locations.
+     *
+     * @param events the changes made by another node
+     */
+    @Override
+    public void invalidate(@NonNull Collection<ChangeEvent> events) {
+        List<BookCopy.BookCopyId> ids = new ArrayList<>();
+        for (ChangeEvent event : events) {
+            if (event.type() != ChangeEvent.EntityType.BOOK_COPY) {
+                continue;
+            }
+            String[] parts = event.id().split("\\.");
+            if (parts.length != 2) {
+                continue;
+            }
+            try {
+                long locationId = Long.parseLong(parts[0]);
+                if (this.broadcaster.hasSubscribers(locationId)) {
+                    ids.add(new BookCopy.BookCopyId(Long.parseLong(parts[1]), locationId));
+                }
+            } catch (NumberFormatException e) {
+                logger.warn("Ignoring the malformed book copy change {}", event);
+            }
+        }
+        if (!ids.isEmpty()) {
+            this.remoteLoader.execute(() -> this.publishRemote(ids));
+        }
+    }
+
+    /**
+     * Tells all the subscribers to reload the book copies, as changes of the other nodes may have been missed.
+     */
+    @Override
+    public void invalidateAll() {
+        this.broadcaster.resyncAll();
+    }
+
+    /**
+     * Send a keep-alive comment to the idle subscribers.
+     */
+    @Scheduled(fixedDelayString = "${app.inventory-stream.keep-alive-interval:15000}")
+    public void keepAlive() {
+        this.broadcaster.keepAlive();
+    }
+
+    /**
+     * End all the subscriptions.
+     */
+    @PreDestroy
+    public void shutdown() {
+        this.remoteLoader.shutdownNow();
+        this.broadcaster.shutdown();
+    }
+
+    /**
+     * Reads and publishes the quantities of book copies changed by another node.
+     *
+     * @param ids the ids of the book copies
+     */
+    private void publishRemote(@NonNull List<BookCopy.BookCopyId> ids) {
+        try {
+            for (BookCopy bookCopy : this.bookCopyRepository.findAllById(ids)) {
+                this.publish(bookCopy.getId().getLocationId(), bookCopy.getId().getBookId(), bookCopy.getQuantity());
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Could not read the book copies changed by another node", e);
+            this.broadcaster.resyncAll();
+        }
+    }
+
+    /**
+     * Exception thrown when a node cannot take more subscribers.
+     */
+    public static class TooManySubscribersException extends RepositoryException.ServiceUnavailable {
+        /**
+         * Creates a new TooManySubscribersException.
+         */
+        public TooManySubscribersException() {
+            super("Too many subscribers, retry later");
+        }
+    }
+}
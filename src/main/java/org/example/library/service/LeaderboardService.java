@@ -0,0 +1,572 @@
+package org.example.library.service;
+
+import jakarta.annotation.PreDestroy;
+import org.example.library.dto.TopSellerDTO;
+import org.example.library.dto.TopSellersDTO;
+import org.example.library.entity.Book;
+import org.example.library.invalidation.InvalidationPublisher;
+import org.example.library.lib.RepositoryException;
+import org.example.library.lib.SlidingTopK;
+import org.example.library.lib.Tuple;
+import org.example.library.metrics.LeaderboardMetrics;
+import org.example.library.repository.BookRepository;
+import org.example.library.repository.LocationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Service implementation of the leaderboards of the top selling books and authors, per location and for all the
+ * locations, over a sliding window of time.
+ * <p>
+ * Scanning the sales for every read would be too expensive, so every sale is counted in memory in
+ * {@link SlidingTopK} windows, which track the heavy hitters with a Count-Min Sketch and a Space-Saving summary in a
+ * fixed amount of memory per location, whatever the number of books. The counts are estimates that can only be too
+ * high, by a small fraction of the sales of the window. Each node counts the sales it served and writes its windows to
+ * the database periodically, under its own id. The leaderboards read sum the sketches of the last snapshots of the
+ * other nodes, summed again after every snapshot, with the sales of this node, so that the leaderboards of all the
+ * locations rank the sales of all the nodes. The snapshots of a node that stopped or restarted are still summed until
+ * they fall out of the window, so that a restart only loses the sales since the last snapshot.
+ */
+@Service
+public class LeaderboardService {
+    /**
+     * The scope of the leaderboards of all the locations.
+     */
+    private static final String GLOBAL = "global";
+
+    /**
+     * The prefix of the scopes of the leaderboards of a location.
+     */
+    private static final String LOCATION = "location-";
+
+    /**
+     * The upsert of a snapshot of this node.
+     */
+    private static final String UPSERT = "INSERT INTO leaderboard_snapshots (node_id, scope, ranking, data, taken_at) VALUES (?, ?, ?, ?, ?) " +
+            "ON CONFLICT (node_id, scope, ranking) DO UPDATE SET data = EXCLUDED.data, taken_at = EXCLUDED.taken_at";
+
+    /**
+     * The types of the values of the upsert of a snapshot.
+     */
+    private static final int[] UPSERT_TYPES = {Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.BINARY, Types.TIMESTAMP};
+
+    /**
+     * The last snapshots of the other nodes.
+     */
+    private static final String SELECT_OTHERS = "SELECT scope, ranking, data FROM leaderboard_snapshots WHERE node_id <> ?";
+
+    /**
+     * The delete of the snapshots whose panes all fell out of the window.
+     */
+    private static final String DELETE_EXPIRED = "DELETE FROM leaderboard_snapshots WHERE taken_at < ?";
+
+    /**
+     * The logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(LeaderboardService.class);
+
+    /**
+     * The leaderboards of the sales served by this node at each location.
+     */
+    private final Map<Long, Leaderboards> locations = new ConcurrentHashMap<>();
+
+    /**
+     * The leaderboards of the sales served by this node at all the locations.
+     */
+    private final Leaderboards global;
+
+    /**
+     * The leaderboards read, of the sales of all the nodes, replaced after every snapshot.
+     */
+    private volatile Cluster cluster;
+
+    /**
+     * The duration of the windows.
+     */
+    private final @NonNull Duration window;
+
+    /**
+     * The number of panes the windows are divided into.
+     */
+    private final int panes;
+
+    /**
+     * The number of cells per row of the sketches.
+     */
+    private final int sketchWidth;
+
+    /**
+     * The number of rows of the sketches.
+     */
+    private final int sketchDepth;
+
+    /**
+     * The number of candidates tracked per leaderboard.
+     */
+    private final int capacity;
+
+    /**
+     * The maximum number of entries of a leaderboard read at once.
+     */
+    private final int maxLimit;
+
+    /**
+     * Whether the scheduled jobs run, which snapshot the leaderboards.
+     */
+    private final boolean scheduling;
+
+    /**
+     * The JDBC template.
+     */
+    private final @NonNull JdbcTemplate jdbcTemplate;
+
+    /**
+     * The publisher of the changes, whose id of this node keys its snapshots.
+     */
+    private final @NonNull InvalidationPublisher invalidationPublisher;
+
+    /**
+     * The repository for the Book entity.
+     */
+    private final @NonNull BookRepository bookRepository;
+
+    /**
+     * The repository for the Location entity.
+     */
+    private final @NonNull LocationRepository locationRepository;
+
+    /**
+     * The metrics of the leaderboards.
+     */
+    private final @NonNull LeaderboardMetrics metrics;
+
+    /**
+     * Create a new LeaderboardService.
+     *
+     * @param window             the duration of the windows
+     * @param panes              the number of panes the windows are divided into, which they slide by
+     * @param sketchWidth        the number of cells per row of the sketches
+     * @param sketchDepth        the number of rows of the sketches
+     * @param capacity           the number of candidates tracked per leaderboard
+     * @param maxLimit           the maximum number of entries of a leaderboard read at once
+     * @param scheduling         whether the scheduled jobs run, which snapshot the leaderboards
+     * @param jdbcTemplate          the JDBC template
+     * @param invalidationPublisher the publisher of the changes, whose id of this node keys its snapshots
+     * @param bookRepository     the repository for the Book entity
+     * @param locationRepository the repository for the Location entity
+     * @param metrics            the metrics of the leaderboards
+     */
+    public LeaderboardService(@Value("${app.leaderboard.window:24h}") Duration window,
+                              @Value("${app.leaderboard.panes:12}") int panes,
+                              @Value("${app.leaderboard.sketch-width:1024}") int sketchWidth,
+                              @Value("${app.leaderboard.sketch-depth:4}") int sketchDepth,
+                              @Value("${app.leaderboard.capacity:200}") int capacity,
+                              @Value("${app.leaderboard.max-limit:100}") int maxLimit,
+                              @Value("${app.scheduling.enabled:true}") boolean scheduling,
+                              @NonNull JdbcTemplate jdbcTemplate,
+                              @NonNull InvalidationPublisher invalidationPublisher,
+                              @NonNull BookRepository bookRepository,
+                              @NonNull LocationRepository locationRepository,
+                              @NonNull LeaderboardMetrics metrics) {
+        this.window = window;
+        this.panes = panes;
+        this.sketchWidth = sketchWidth;
+        this.sketchDepth = sketchDepth;
+        this.capacity = capacity;
+        this.maxLimit = maxLimit;
+        this.scheduling = scheduling;
+        this.jdbcTemplate = jdbcTemplate;
+        this.invalidationPublisher = invalidationPublisher;
+        this.bookRepository = bookRepository;
+        this.locationRepository = locationRepository;
+        this.metrics = metrics;
+        this.global = this.newLeaderboards();
+        this.cluster = new Cluster(new ConcurrentHashMap<>(), this.newLeaderboards());
+        metrics.registerSize(() -> (this.locations.size() + this.cluster.locations().size() + 2) * this.global.getSize());
+    }
+
+    /**
+     * Count copies of a book sold at a location now. Call it once the sale is committed.
+     *
+     * @param locationId the id of the location
+     * @param bookId     the id of the book
+     * @param author     the author of the book
+     * @param copies     the number of copies sold
+     */
+    public void recordSale(@NonNull Long locationId, @NonNull Long bookId, @NonNull String author, int copies) {
+        if (copies <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        this.locations.computeIfAbsent(locationId, id -> this.newLeaderboards()).add(bookId, author, copies, now);
+        this.global.add(bookId, author, copies, now);
+        Cluster cluster = this.cluster;
+        cluster.locations().computeIfAbsent(locationId, id -> this.newLeaderboards()).add(bookId, author, copies, now);
+        cluster.global().add(bookId, author, copies, now);
+    }
+
+    /**
+     * Get the books or authors with the most copies sold over the window, at a location or at all of them.
+     *
+     * @param locationId the id of the location, null for all the locations
+     * @param ranking    what to rank
+     * @param limit      the maximum number of entries
+     * @return the leaderboard
+     * @throws LocationService.LocationNotFoundException if the location is not found
+     * @throws InvalidLeaderboardQueryException          if the limit is out of range
+     */
+    @NonNull
+    @Transactional(readOnly = true)
+    public TopSellersDTO getTopSellers(@Nullable Long locationId, @NonNull Ranking ranking, int limit) throws LocationService.LocationNotFoundException, InvalidLeaderboardQueryException {
+        if (limit < 1 || limit > this.maxLimit) {
+            throw new InvalidLeaderboardQueryException("The limit must be between 1 and " + this.maxLimit);
+        }
+        if (locationId != null && !this.locationRepository.existsById(locationId)) {
+            throw new LocationService.LocationNotFoundException(locationId);
+        }
+
+        long now = System.currentTimeMillis();
+        // A location without sales on any node has no leaderboards yet.
+        Cluster cluster = this.cluster;
+        Leaderboards leaderboards = locationId == null ? cluster.global()
+                : cluster.locations().computeIfAbsent(locationId, id -> this.newLeaderboards());
+        LocalDateTime from = LocalDateTime.ofInstant(Instant.ofEpochMilli(leaderboards.books.getWindowStart(now)), ZoneId.systemDefault());
+        List<TopSellerDTO> entries = new ArrayList<>(limit);
+        if (ranking == Ranking.BOOK) {
+            List<Tuple<Long, Long>> top = leaderboards.books.top(limit, now);
+            // A single query for the titles and authors of the books.
+            Map<Long, Book> books = this.bookRepository.findAllById(top.stream().map(Tuple::key).toList()).stream()
+                    .collect(Collectors.toMap(Book::getId, Function.identity()));
+            for (Tuple<Long, Long> entry : top) {
+                Book book = books.get(entry.key());
+                entries.add(new TopSellerDTO(entries.size() + 1, entry.key(), book != null ? book.getTitle() : null,
+                        book != null ? book.getAuthor() : null, entry.value()));
+            }
+        } else {
+            for (Tuple<String, Long> entry : leaderboards.authors.top(limit, now)) {
+                entries.add(new TopSellerDTO(entries.size() + 1, null, null, entry.key(), entry.value()));
+            }
+        }
+        return new TopSellersDTO(locationId, ranking.name(), from, entries);
+    }
+
+    /**
+     * Write the leaderboards of this node with new sales since their last snapshot, then sum them again with the last
+     * snapshots of the other nodes.
+     */
+    @Scheduled(fixedDelayString = "${app.leaderboard.snapshot-interval:60000}")
+    public void snapshot() {
+        this.write();
+        this.sum();
+    }
+
+    /**
+     * Sum the last snapshots of the other nodes, once the schema is migrated, including the ones of this node before
+     * a restart. The sales counted meanwhile are kept.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void restore() {
+        if (!this.scheduling) {
+            return;
+        }
+        int summed = this.sum();
+        logger.info("Summed {} leaderboards of the other nodes from their snapshots", summed);
+    }
+
+    /**
+     * Write the leaderboards before the shutdown.
+     */
+    @PreDestroy
+    public void shutdown() {
+        this.write();
+    }
+
+    /**
+     * Writes the leaderboards of this node with new sales since their last snapshot.
+     */
+    private void write() {
+        String nodeId = this.invalidationPublisher.getNodeId();
+        LocalDateTime now = LocalDateTime.now();
+        List<Leaderboards> written = new ArrayList<>();
+        List<Object[]> rows = new ArrayList<>();
+        for (Map.Entry<String, Leaderboards> entry : this.scopes().entrySet()) {
+            Leaderboards leaderboards = entry.getValue();
+            if (!leaderboards.dirty.getAndSet(false)) {
+                continue;
+            }
+            written.add(leaderboards);
+            rows.add(new Object[]{nodeId, entry.getKey(), Ranking.BOOK.name(), serialize(out -> leaderboards.books.writeTo(out, DataOutput::writeLong)), now});
+            rows.add(new Object[]{nodeId, entry.getKey(), Ranking.AUTHOR.name(), serialize(out -> leaderboards.authors.writeTo(out, DataOutput::writeUTF)), now});
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        try {
+            this.jdbcTemplate.batchUpdate(UPSERT, rows, UPSERT_TYPES);
+            this.metrics.recordSnapshot(rows.size());
+        } catch (DataAccessException e) {
+            logger.warn("Could not write the snapshots of {} leaderboards, retrying later", rows.size(), e);
+            this.metrics.recordSnapshotFailure();
+            written.forEach(leaderboards -> leaderboards.dirty.set(true));
+        }
+    }
+
+    /**
+     * Sums the last snapshots of the other nodes with the leaderboards of this node into new leaderboards read, and
+     * deletes the snapshots of the nodes gone once they fell out of the window. The sales of this node counted while
+     * they are summed are only read from the next sum.
+     *
+     * @return the number of leaderboards of the other nodes summed
+     */
+    private int sum() {
+        long now = System.currentTimeMillis();
+        Cluster next = new Cluster(new ConcurrentHashMap<>(), this.newLeaderboards());
+        int[] summed = {0};
+        try {
+            this.jdbcTemplate.update(DELETE_EXPIRED, LocalDateTime.now().minus(this.window));
+            this.jdbcTemplate.query(SELECT_OTHERS, rs -> {
+                String scope = rs.getString("scope");
+                Leaderboards leaderboards = next.get(scope, this::newLeaderboards);
+                if (leaderboards == null) {
+                    return;
+                }
+                try (DataInputStream in = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(rs.getBytes("data"))))) {
+                    boolean merged = switch (Ranking.valueOf(rs.getString("ranking"))) {
+                        case BOOK -> leaderboards.books.mergeFrom(in, DataInput::readLong, now);
+                        case AUTHOR -> leaderboards.authors.mergeFrom(in, DataInput::readUTF, now);
+                    };
+                    if (merged) {
+                        summed[0]++;
+                    }
+                } catch (IOException | IllegalArgumentException e) {
+                    logger.warn("Could not read the snapshot of the {} leaderboard of {}", rs.getString("ranking"), scope, e);
+                }
+            }, this.invalidationPublisher.getNodeId());
+        } catch (DataAccessException e) {
+            logger.warn("Could not read the snapshots of the other nodes, summing them later", e);
+            return 0;
+        }
+
+        for (Map.Entry<String, Leaderboards> entry : this.scopes().entrySet()) {
+            Leaderboards leaderboards = entry.getValue();
+            Leaderboards sum = next.get(entry.getKey(), this::newLeaderboards);
+            try {
+                sum.books.mergeFrom(copy(out -> leaderboards.books.writeTo(out, DataOutput::writeLong)), DataInput::readLong, now);
+                sum.authors.mergeFrom(copy(out -> leaderboards.authors.writeTo(out, DataOutput::writeUTF)), DataInput::readUTF, now);
+            } catch (IOException e) {
+                // Not possible in memory.
+                throw new UncheckedIOException(e);
+            }
+        }
+        this.cluster = next;
+        return summed[0];
+    }
+
+    /**
+     * Gets the leaderboards by scope.
+     *
+     * @return the leaderboards of all the locations and of each location
+     */
+    private @NonNull Map<String, Leaderboards> scopes() {
+        Map<String, Leaderboards> scopes = new TreeMap<>();
+        scopes.put(GLOBAL, this.global);
+        this.locations.forEach((locationId, leaderboards) -> scopes.put(LOCATION + locationId, leaderboards));
+        return scopes;
+    }
+
+    /**
+     * Creates the empty leaderboards of a scope.
+     *
+     * @return the leaderboards
+     */
+    private @NonNull Leaderboards newLeaderboards() {
+        return new Leaderboards(
+                new SlidingTopK<>(this.window.toMillis(), this.panes, this.sketchWidth, this.sketchDepth, this.capacity),
+                new SlidingTopK<>(this.window.toMillis(), this.panes, this.sketchWidth, this.sketchDepth, this.capacity));
+    }
+
+    /**
+     * Serializes a leaderboard, compressed as most cells of the sketches are empty.
+     *
+     * @param writer writes the leaderboard
+     * @return the bytes of the snapshot
+     */
+    private static byte[] serialize(@NonNull SnapshotWriter writer) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(bytes))) {
+            writer.write(out);
+        } catch (IOException e) {
+            // Not possible in memory.
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * What the leaderboards rank.
+     */
+    public enum Ranking {
+        BOOK,
+        AUTHOR;
+
+        /**
+         * Parses a ranking, case-insensitively.
+         *
+         * @param name the name of the ranking
+         * @return the ranking
+         * @throws InvalidLeaderboardQueryException if the name is not a ranking
+         */
+        public static Ranking parse(@NonNull String name) throws InvalidLeaderboardQueryException {
+            try {
+                return Ranking.valueOf(name.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new InvalidLeaderboardQueryException("Invalid ranking: " + name + ", expected book or author");
+            }
+        }
+    }
+
+    /**
+     * Copies a leaderboard in memory, to be read back without compression.
+     *
+     * @param writer writes the leaderboard
+     * @return the input of the copy
+     * @throws IOException if the leaderboard cannot be written
+     */
+    private static @NonNull DataInput copy(@NonNull SnapshotWriter writer) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        writer.write(new DataOutputStream(bytes));
+        return new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+
+    /**
+     * Writes a leaderboard to a snapshot.
+     */
+    @FunctionalInterface
+    private interface SnapshotWriter {
+        /**
+         * Writes the leaderboard.
+         *
+         * @param out the output
+         * @throws IOException if the output fails
+         */
+        void write(DataOutput out) throws IOException;
+    }
+
+    /**
+     * The leaderboards of the books and the authors of a scope.
+     *
+     * @param books   the leaderboard of the books
+     * @param authors the leaderboard of the authors
+     * @param dirty   whether sales were counted since the last snapshot
+     */
+    private record Leaderboards(SlidingTopK<Long> books, SlidingTopK<String> authors, AtomicBoolean dirty) {
+        /**
+         * Creates new leaderboards.
+         *
+         * @param books   the leaderboard of the books
+         * @param authors the leaderboard of the authors
+         */
+        Leaderboards(SlidingTopK<Long> books, SlidingTopK<String> authors) {
+            this(books, authors, new AtomicBoolean());
+        }
+
+        /**
+         * Counts copies sold.
+         *
+         * @param bookId the id of the book
+         * @param author the author of the book
+         * @param copies the number of copies sold
+         * @param now    the current time in milliseconds since 1970
+         */
+        void add(long bookId, String author, int copies, long now) {
+            this.books.add(bookId, copies, now);
+            this.authors.add(author, copies, now);
+            this.dirty.set(true);
+        }
+
+        /**
+         * Gets the memory used by the sketches.
+         *
+         * @return the size of the sketches in bytes
+         */
+        long getSize() {
+            return this.books.getSize() + this.authors.getSize();
+        }
+    }
+
+    /**
+     * The leaderboards read, of the sales of all the nodes.
+     *
+     * @param locations the leaderboards of each location
+     * @param global    the leaderboards of all the locations
+     */
+    private record Cluster(Map<Long, Leaderboards> locations, Leaderboards global) {
+        /**
+         * Gets the leaderboards of a scope, created if missing.
+         *
+         * @param scope   the scope
+         * @param factory creates the empty leaderboards of a location
+         * @return the leaderboards, null if the scope is unknown
+         */
+        @Nullable
+        Leaderboards get(@NonNull String scope, @NonNull Supplier<Leaderboards> factory) {
+            if (scope.equals(GLOBAL)) {
+                return this.global;
+            }
+            if (!scope.startsWith(LOCATION)) {
+                return null;
+            }
+            return this.locations.computeIfAbsent(Long.parseLong(scope.substring(LOCATION.length())), id -> factory.get());
+        }
+    }
+
+    /**
+     * Exception thrown when a query of a leaderboard is invalid.
+     */
+    public static class InvalidLeaderboardQueryException extends RepositoryException.BadRequest {
+        /**
+         * Creates a new InvalidLeaderboardQueryException with the given message.
+         *
+         * @param message - the exception message
+         */
+        public InvalidLeaderboardQueryException(@NonNull String message) {
+            super(message);
+        }
+    }
+}
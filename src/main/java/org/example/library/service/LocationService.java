@@ -1,11 +1,20 @@
 package org.example.library.service;
 
+import org.example.library.dto.ChangesDTO;
 import org.example.library.dto.LocationDTO;
 import org.example.library.dto.LocationDTO.LocationEDTO;
 import org.example.library.entity.Location;
+import org.example.library.entity.Tombstone;
+import org.example.library.invalidation.ChangeEvent;
+import org.example.library.invalidation.InvalidationListener;
+import org.example.library.invalidation.InvalidationPublisher;
+import org.example.library.lib.ChangeToken;
 import org.example.library.lib.RepositoryException;
+import org.example.library.lib.SingleFlight;
 import org.example.library.mapper.LocationMapper;
+import org.example.library.metrics.SingleFlightMetrics;
 import org.example.library.repository.LocationRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
@@ -14,13 +23,14 @@ import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.Optional;
 
 /**
  * Service implementation for the Location entity.
  */
 @Service
-public class LocationService {
+public class LocationService implements InvalidationListener {
     /**
      * The repository for the Location entity.
      */
@@ -31,25 +41,53 @@ public class LocationService {
      */
     private final @NonNull LocationMapper locationMapper;
 
+    /**
+     * The single-flight of the reads of a location by id.
+     */
+    private final @NonNull SingleFlight<Long, Optional<LocationEDTO>> locationById;
+
+    /**
+     * The publisher of the changes to the other nodes.
+     */
+    private final @NonNull InvalidationPublisher invalidationPublisher;
+
+    /**
+     * The change feed of the offline clients.
+     */
+    private final @NonNull ChangeFeedService changeFeedService;
+
     /**
      * Create a new LocationServiceImpl.
      *
-     * @param locationRepository the repository for the Location entity
-     * @param locationMapper     the ModelMapper instance
+     * @param locationRepository    the repository for the Location entity
+     * @param locationMapper        the ModelMapper instance
+     * @param singleFlightTimeout   the maximum time in milliseconds a read waits for an identical read in flight, 0 to disable the coalescing
+     * @param singleFlightMetrics   the metrics of the coalescing of the reads
+     * @param invalidationPublisher the publisher of the changes to the other nodes
+     * @param changeFeedService     the change feed of the offline clients
      */
-    public LocationService(@NonNull LocationRepository locationRepository, @NonNull LocationMapper locationMapper) {
+    public LocationService(@NonNull LocationRepository locationRepository,
+                           @NonNull LocationMapper locationMapper,
+                           @Value("${app.single-flight.timeout:1000}") long singleFlightTimeout,
+                           @NonNull SingleFlightMetrics singleFlightMetrics,
+                           @NonNull InvalidationPublisher invalidationPublisher,
+                           @NonNull ChangeFeedService changeFeedService) {
         this.locationRepository = locationRepository;
         this.locationMapper = locationMapper;
+        this.locationById = new SingleFlight<>(singleFlightTimeout);
+        singleFlightMetrics.registerSingleFlight("location-by-id", this.locationById);
+        this.invalidationPublisher = invalidationPublisher;
+        this.changeFeedService = changeFeedService;
     }
 
     /**
-     * Get a single location by its id.
+     * Get a single location by its id. Concurrent reads of the same location share a single query.
      *
      * @param id the id of the location
      * @return an optional with the location if found, empty otherwise
      */
     public @NonNull Optional<LocationEDTO> getLocationById(@NonNull Long id) {
-        return this.locationRepository.findById(id).map(this.locationMapper::toEDto);
+        return this.locationById.execute(id, () -> this.locationRepository.findById(id).map(this.locationMapper::toEDto));
     }
 
     /**
@@ -63,6 +101,23 @@ public class LocationService {
         return this.locationRepository.findAll(locationSpecification, pageable).map(this.locationMapper::toEDto);
     }
 
+    /**
+     * Get the locations created, modified or deleted after the position of a client in the change feed.
+     *
+     * @param since the token of the client, null to download all the locations
+     * @param limit the maximum number of changes, null for the default
+     * @return the changes after the position
+     * @throws ChangeFeedService.InvalidChangeTokenException if the token or the limit is invalid
+     * @throws ChangeFeedService.ChangeTokenExpiredException if the deletions after the token have been purged
+     */
+    public @NonNull ChangesDTO<LocationEDTO> getLocationChanges(@Nullable String since, @Nullable Integer limit)
+            throws ChangeFeedService.InvalidChangeTokenException, ChangeFeedService.ChangeTokenExpiredException {
+        return this.changeFeedService.getChanges(Tombstone.EntityType.LOCATION, since, limit,
+                this.locationRepository::findChangedAfter,
+                location -> new ChangeToken(location.getChangeXid(), location.getId(), false, location.getLastModifiedDate()),
+                this.locationMapper::toEDto);
+    }
+
     /**
      * Create a new location in the library.
      *
@@ -73,6 +128,7 @@ public class LocationService {
     public @NonNull LocationEDTO createLocation(@NonNull LocationDTO locationDTO) {
         Location location = this.locationMapper.toEntity(locationDTO);
         Location savedLocation = this.locationRepository.save(location);
+        this.invalidationPublisher.publish(ChangeEvent.EntityType.LOCATION, savedLocation.getId());
         return this.locationMapper.toEDto(savedLocation);
     }
 
@@ -88,6 +144,8 @@ public class LocationService {
     public @NonNull LocationEDTO updateLocation(@NonNull Long id, @NonNull LocationDTO locationDTO) throws LocationNotFoundException {
         Location location = this.locationRepository.findById(id).orElseThrow(() -> new LocationNotFoundException(id));
         this.locationMapper.updateLocation(locationDTO, location);
+        this.locationById.forget();
+        this.invalidationPublisher.publish(ChangeEvent.EntityType.LOCATION, id);
         return this.locationMapper.toEDto(location);
     }
 
@@ -104,6 +162,29 @@ public class LocationService {
         }
 
         this.locationRepository.deleteById(id);
+        this.changeFeedService.recordDeletion(Tombstone.EntityType.LOCATION, id);
+        this.locationById.forget();
+        this.invalidationPublisher.publish(ChangeEvent.EntityType.LOCATION, id);
+    }
+
+    /**
+     * Invalidates the cached locations when another node changes locations.
+     *
+     * @param events the changes made by another node
+     */
+    @Override
+    public void invalidate(@NonNull Collection<ChangeEvent> events) {
+        if (events.stream().anyMatch(event -> event.type() == ChangeEvent.EntityType.LOCATION)) {
+            this.locationById.forget();
+        }
+    }
+
+    /**
+     * Invalidates all the cached locations.
+     */
+    @Override
+    public void invalidateAll() {
+        this.locationById.forget();
     }
 
     /**
@@ -0,0 +1,426 @@
+package org.example.library.service;
+
+import org.example.library.dto.ReservationDTO;
+import org.example.library.invalidation.ChangeEvent;
+import org.example.library.invalidation.InvalidationPublisher;
+import org.example.library.lib.RepositoryException;
+import org.example.library.lib.TimingWheel;
+import org.example.library.lib.Transactions;
+import org.example.library.metrics.ReservationMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Service implementation of the reservations, which hold copies of a book at a location for a while before they are
+ * picked up.
+ * <p>
+ * The held copies are counted on the book copy, apart from its quantity, and a hold is taken by a single update that
+ * only raises them while the quantity covers them, so that the copies cannot be held twice. The copies held cannot be
+ * sold nor transferred, and the availability of a book copy is read in the same row. The reservations are stored in
+ * the reservations table, so that they survive a restart, and their expiries are scheduled in a hierarchical timing
+ * wheel, which advances every tick and releases the holds due in batches. The wheel is filled from the table on
+ * startup. The holds of a node that stopped are released by a sweep of the expired reservations of the table.
+ */
+@Service
+public class ReservationService {
+    /**
+     * The release of the copies held by reservations.
+     */
+    private static final String RELEASE = "UPDATE book_copies SET held = held - ? WHERE book_id = ? AND location_id = ?";
+
+    /**
+     * The logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(ReservationService.class);
+
+    /**
+     * The time the copies are held for.
+     */
+    private final Duration ttl;
+
+    /**
+     * The maximum number of copies of a hold.
+     */
+    private final int maxQuantity;
+
+    /**
+     * The maximum number of reservations released per transaction.
+     */
+    private final int batchSize;
+
+    /**
+     * Whether the scheduled jobs run, which release the expiries of the wheel.
+     */
+    private final boolean scheduling;
+
+    /**
+     * The expiries of the reservations.
+     */
+    private final TimingWheel<Long> expiries;
+
+    /**
+     * The scheduled expiries by reservation, to cancel them.
+     */
+    private final Map<Long, TimingWheel.Timeout<Long>> timeouts = new ConcurrentHashMap<>();
+
+    /**
+     * The JDBC template.
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * The template of the transactions of the expiries.
+     */
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * The service of the book copies, which sells the copies picked up.
+     */
+    private final BookCopyService bookCopyService;
+
+    /**
+     * The publisher of the changes to the other nodes.
+     */
+    private final InvalidationPublisher invalidationPublisher;
+
+    /**
+     * The provider of the current user.
+     */
+    private final AuditorAware<String> auditorProvider;
+
+    /**
+     * The metrics of the reservations.
+     */
+    private final ReservationMetrics metrics;
+
+    /**
+     * Constructor for the ReservationService.
+     *
+     * @param ttl                   the time the copies are held for
+     * @param maxQuantity           the maximum number of copies of a hold
+     * @param tick                  the duration of a tick of the timing wheel in milliseconds
+     * @param batchSize             the maximum number of reservations released per transaction
+     * @param scheduling            whether the scheduled jobs run, which release the expiries of the wheel
+     * @param jdbcTemplate          the JDBC template
+     * @param transactionManager    the transaction manager of the expiries
+     * @param bookCopyService       the service of the book copies
+     * @param invalidationPublisher the publisher of the changes to the other nodes
+     * @param auditorProvider       the provider of the current user
+     * @param metrics               the metrics of the reservations
+     */
+    public ReservationService(@Value("${app.reservations.ttl:15m}") Duration ttl,
+                              @Value("${app.reservations.max-quantity:10}") int maxQuantity,
+                              @Value("${app.reservations.tick:1000}") long tick,
+                              @Value("${app.reservations.batch-size:1000}") int batchSize,
+                              @Value("${app.scheduling.enabled:true}") boolean scheduling,
+                              @NonNull JdbcTemplate jdbcTemplate,
+                              @NonNull PlatformTransactionManager transactionManager,
+                              @NonNull BookCopyService bookCopyService,
+                              @NonNull InvalidationPublisher invalidationPublisher,
+                              @NonNull AuditorAware<String> auditorProvider,
+                              @NonNull ReservationMetrics metrics) {
+        this.ttl = ttl;
+        this.maxQuantity = maxQuantity;
+        this.batchSize = batchSize;
+        this.scheduling = scheduling;
+        this.expiries = new TimingWheel<>(tick, ttl.toMillis(), System.currentTimeMillis());
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.bookCopyService = bookCopyService;
+        this.invalidationPublisher = invalidationPublisher;
+        this.auditorProvider = auditorProvider;
+        this.metrics = metrics;
+        metrics.registerPending(this.expiries::size);
+    }
+
+    /**
+     * Hold copies of a book at a location, if that many copies are available.
+     *
+     * @param locationId the id of the location
+     * @param bookId     the id of the book
+     * @param quantity   the number of copies to hold
+     * @return the reservation
+     * @throws LocationService.LocationNotFoundException   if the location is not found
+     * @throws BookService.BookNotFoundException           if the book is not found
+     * @throws BookCopyService.InsufficientCopiesException if there are not enough copies available
+     * @throws InvalidReservationException                 if the quantity is above the maximum of a hold
+     */
+    @NonNull
+    @Transactional
+    public ReservationDTO hold(@NonNull Long locationId, @NonNull Long bookId, @NonNull Integer quantity) throws LocationService.LocationNotFoundException, BookService.BookNotFoundException, BookCopyService.InsufficientCopiesException, InvalidReservationException {
+        if (quantity <= 0 || quantity > this.maxQuantity) {
+            throw new InvalidReservationException("The quantity of a hold must be between 1 and " + this.maxQuantity);
+        }
+
+        // Held only if the copies not held yet cover the hold, checked and taken atomically.
+        int updated = this.jdbcTemplate.update("UPDATE book_copies SET held = held + ? " +
+                "WHERE book_id = ? AND location_id = ? AND quantity - held >= ?", quantity, bookId, locationId, quantity);
+        if (updated == 0) {
+            this.metrics.recordHold("rejected");
+            // The availability tells whether the book copy exists and how many copies are left.
+            int available = this.bookCopyService.getBookCopyAvailability(locationId, bookId).getAvailable();
+            throw new BookCopyService.InsufficientCopiesException(locationId, bookId, available, quantity);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiresAt = now.plus(this.ttl);
+        Long id = this.jdbcTemplate.queryForObject("INSERT INTO reservations (book_id, location_id, quantity, created_by, created_date, expires_at) " +
+                        "VALUES (?, ?, ?, ?, ?, ?) RETURNING id", Long.class,
+                bookId, locationId, quantity, this.auditorProvider.getCurrentAuditor().orElse(null), now, expiresAt);
+        this.invalidationPublisher.publish(ChangeEvent.EntityType.BOOK_COPY, locationId + "." + bookId);
+        Transactions.afterCommit(() -> this.schedule(id, expiresAt));
+        this.metrics.recordHold("held");
+        return new ReservationDTO(id, locationId, bookId, quantity, expiresAt);
+    }
+
+    /**
+     * Release the copies held by a reservation, which is deleted.
+     *
+     * @param locationId    the id of the location
+     * @param reservationId the id of the reservation
+     * @throws ReservationNotFoundException if the reservation is not found at the location
+     */
+    @Transactional
+    public void cancel(@NonNull Long locationId, @NonNull Long reservationId) throws ReservationNotFoundException {
+        this.release(locationId, reservationId, false);
+        this.metrics.recordRelease("cancelled", 1);
+    }
+
+    /**
+     * Sell the copies held by a reservation, which are picked up before the hold expires.
+     *
+     * @param locationId    the id of the location
+     * @param reservationId the id of the reservation
+     * @return the quantity of the book at the location after the sale
+     * @throws ReservationNotFoundException                if the reservation is not found at the location or expired
+     * @throws LocationService.LocationNotFoundException   if the location is not found
+     * @throws BookService.BookNotFoundException           if the book is not found
+     * @throws BookCopyService.InsufficientCopiesException if the copies held are not there anymore
+     */
+    @NonNull
+    @Transactional(rollbackFor = RepositoryException.class)
+    public Integer pickUp(@NonNull Long locationId, @NonNull Long reservationId) throws ReservationNotFoundException, LocationService.LocationNotFoundException, BookService.BookNotFoundException, BookCopyService.InsufficientCopiesException {
+        Reservation reservation = this.release(locationId, reservationId, true);
+        // Sold like the copies sold at the counter, the held copies released above are available again.
+        Integer quantity = this.bookCopyService.updateBookCopyQuantity(locationId, reservation.bookId(), -reservation.quantity());
+        this.metrics.recordRelease("picked-up", 1);
+        return quantity;
+    }
+
+    /**
+     * Get the username of the user who made a reservation.
+     *
+     * @param reservationId the id of the reservation
+     * @return the username, null if the reservation is not found or was made by no user
+     */
+    @Transactional(readOnly = true)
+    public String getHolder(@NonNull Long reservationId) {
+        List<String> holders = this.jdbcTemplate.queryForList("SELECT created_by FROM reservations WHERE id = ?", String.class, reservationId);
+        return holders.isEmpty() ? null : holders.get(0);
+    }
+
+    /**
+     * Advances the timing wheel and releases the holds that expired on this node.
+     */
+    @Scheduled(fixedDelayString = "${app.reservations.tick:1000}")
+    public void expire() {
+        List<Long> expired = this.expiries.advance(System.currentTimeMillis());
+        for (int i = 0; i < expired.size(); i += this.batchSize) {
+            List<Long> ids = expired.subList(i, Math.min(expired.size(), i + this.batchSize));
+            ids.forEach(this.timeouts::remove);
+            String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+            Object[] args = new Object[ids.size() + 1];
+            for (int j = 0; j < ids.size(); j++) {
+                args[j] = ids.get(j);
+            }
+            args[ids.size()] = LocalDateTime.now();
+            try {
+                // The reservations cancelled or picked up in the meantime are not there anymore.
+                this.releaseExpired("DELETE FROM reservations WHERE id IN (" + placeholders + ") AND expires_at <= ? " +
+                        "RETURNING id, book_id, location_id, quantity", args);
+            } catch (DataAccessException e) {
+                // Released by the sweep instead.
+                logger.warn("Failed to release {} expired reservations", ids.size(), e);
+            }
+        }
+    }
+
+    /**
+     * Releases the expired holds left in the table, those of the nodes that stopped before they expired.
+     */
+    @Scheduled(fixedDelayString = "${app.reservations.sweep-interval:60000}")
+    public void sweep() {
+        try {
+            int released;
+            do {
+                released = this.releaseExpired("DELETE FROM reservations WHERE id IN (SELECT id FROM reservations " +
+                        "WHERE expires_at <= ? ORDER BY expires_at LIMIT ? FOR UPDATE SKIP LOCKED) " +
+                        "RETURNING id, book_id, location_id, quantity", LocalDateTime.now(), this.batchSize);
+            } while (released == this.batchSize);
+        } catch (DataAccessException e) {
+            logger.warn("Failed to sweep the expired reservations", e);
+        }
+    }
+
+    /**
+     * Schedules the expiries of the reservations of the table, after a restart.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void restore() {
+        if (!this.scheduling) {
+            return;
+        }
+        try {
+            int[] restored = new int[1];
+            // Streamed with a cursor, which needs a transaction.
+            this.transactionTemplate.execute(status -> {
+                this.jdbcTemplate.query(connection -> {
+                    PreparedStatement statement = connection.prepareStatement("SELECT id, expires_at FROM reservations");
+                    statement.setFetchSize(this.batchSize);
+                    return statement;
+                }, rs -> {
+                    this.schedule(rs.getLong("id"), rs.getObject("expires_at", LocalDateTime.class));
+                    restored[0]++;
+                });
+                return null;
+            });
+            logger.info("Scheduled the expiries of {} reservations", restored[0]);
+        } catch (DataAccessException e) {
+            logger.warn("Failed to schedule the expiries of the reservations, they are released by the sweep", e);
+        }
+    }
+
+    /**
+     * Schedules the expiry of a reservation, once.
+     *
+     * @param id        the id of the reservation
+     * @param expiresAt the date and time the hold expires
+     */
+    private void schedule(@NonNull Long id, @NonNull LocalDateTime expiresAt) {
+        long deadline = expiresAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        this.timeouts.computeIfAbsent(id, key -> this.expiries.schedule(key, deadline));
+    }
+
+    /**
+     * Deletes a reservation and releases its copies, in the transaction of the caller.
+     *
+     * @param locationId    the id of the location
+     * @param reservationId the id of the reservation
+     * @param active        whether the reservation must not have expired
+     * @return the reservation deleted
+     * @throws ReservationNotFoundException if the reservation is not found at the location, or expired
+     */
+    @NonNull
+    private Reservation release(@NonNull Long locationId, @NonNull Long reservationId, boolean active) throws ReservationNotFoundException {
+        List<Reservation> deleted = this.jdbcTemplate.query("DELETE FROM reservations WHERE id = ? AND location_id = ?" +
+                        (active ? " AND expires_at > ?" : "") + " RETURNING id, book_id, location_id, quantity",
+                (rs, rowNum) -> new Reservation(rs.getLong("id"), rs.getLong("book_id"), rs.getLong("location_id"), rs.getInt("quantity")),
+                active ? new Object[]{reservationId, locationId, LocalDateTime.now()} : new Object[]{reservationId, locationId});
+        if (deleted.isEmpty()) {
+            throw new ReservationNotFoundException(reservationId);
+        }
+        Reservation reservation = deleted.get(0);
+        this.jdbcTemplate.update(RELEASE, reservation.quantity(), reservation.bookId(), locationId);
+        this.invalidationPublisher.publish(ChangeEvent.EntityType.BOOK_COPY, locationId + "." + reservation.bookId());
+        Transactions.afterCommit(() -> {
+            TimingWheel.Timeout<Long> timeout = this.timeouts.remove(reservationId);
+            if (timeout != null) {
+                this.expiries.cancel(timeout);
+            }
+        });
+        return reservation;
+    }
+
+    /**
+     * Deletes expired reservations and releases their copies, in a transaction of its own.
+     *
+     * @param delete the delete of the reservations, returning them
+     * @param args   the arguments of the delete
+     * @return the number of reservations released
+     */
+    private int releaseExpired(@NonNull String delete, Object... args) {
+        List<Reservation> released = this.transactionTemplate.execute(status -> {
+            List<Reservation> reservations = this.jdbcTemplate.query(delete,
+                    (rs, rowNum) -> new Reservation(rs.getLong("id"), rs.getLong("book_id"), rs.getLong("location_id"), rs.getInt("quantity")), args);
+            // The book copies are locked in the order of their book then location, like the transfers lock them.
+            reservations.sort(Comparator.comparingLong(Reservation::bookId).thenComparingLong(Reservation::locationId));
+            this.jdbcTemplate.batchUpdate(RELEASE, reservations.stream()
+                    .map(reservation -> new Object[]{reservation.quantity(), reservation.bookId(), reservation.locationId()})
+                    .toList());
+            // Published in the transaction, the changes of the batch go out as a single notification when it commits.
+            for (Reservation reservation : reservations) {
+                this.invalidationPublisher.publish(ChangeEvent.EntityType.BOOK_COPY, reservation.locationId() + "." + reservation.bookId());
+            }
+            return reservations;
+        });
+        for (Reservation reservation : released) {
+            this.timeouts.remove(reservation.id());
+        }
+        if (!released.isEmpty()) {
+            this.metrics.recordRelease("expired", released.size());
+            logger.info("Released {} expired reservations", released.size());
+        }
+        return released.size();
+    }
+
+    /**
+     * A reservation deleted from the table.
+     *
+     * @param id         the id of the reservation
+     * @param bookId     the id of the book
+     * @param locationId the id of the location
+     * @param quantity   the number of copies held
+     */
+    private record Reservation(long id, long bookId, long locationId, int quantity) {
+    }
+
+    /**
+     * Exception thrown when a reservation is not found.
+     */
+    public static class ReservationNotFoundException extends RepositoryException.NotFound {
+        /**
+         * Creates a new ReservationNotFoundException with the given id.
+         *
+         * @param id the id of the reservation
+         */
+        public ReservationNotFoundException(@NonNull Long id) {
+            super("Reservation not found or expired with id: " + id);
+        }
+    }
+
+    /**
+     * Exception thrown when a hold is not valid.
+     */
+    public static class InvalidReservationException extends RepositoryException.BadRequest {
+        /**
+         * Creates a new InvalidReservationException with the given message.
+         *
+         * @param message the exception message
+         */
+        public InvalidReservationException(@NonNull String message) {
+            super(message);
+        }
+    }
+}
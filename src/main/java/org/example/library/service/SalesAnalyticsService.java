@@ -0,0 +1,630 @@
+package org.example.library.service;
+
+import jakarta.annotation.PreDestroy;
+import org.example.library.dto.SalesPointDTO;
+import org.example.library.dto.SalesReportDTO;
+import org.example.library.entity.Genre;
+import org.example.library.lib.RepositoryException;
+import org.example.library.metrics.SalesAnalyticsMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Types;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Service implementation of the sales analytics, which keeps the copies sold and restocked per location, genre and
+ * author in buckets of a minute, an hour and a day.
+ * <p>
+ * The changes of the quantities are added up in memory per minute, then flushed in batches: every minute of every
+ * location, genre and author is added to its minute, hour and day buckets, and to the same buckets of the totals of all
+ * the authors, in a single transaction. The totals are kept in their own table, which the queries that do not look at
+ * the authors read with one row per location and genre rather than one per author. The buckets of all the locations
+ * are added up too, under the location 0, which the queries of all the locations read with one row per genre rather
+ * than one per location. A change is only counted once its
+ * transaction commits, and the changes of a flush that fails are kept in memory for the next one. The minute and hour
+ * buckets are purged after their retention, so that the queries of long ranges read the day buckets.
+ */
+@Service
+public class SalesAnalyticsService {
+    /**
+     * The origin of the buckets wider than a day, a Monday so that the weeks start on Mondays.
+     */
+    private static final LocalDateTime ORIGIN = LocalDateTime.of(2000, 1, 3, 0, 0);
+
+    /**
+     * The location of the buckets of all the locations, which no location has.
+     */
+    private static final long ALL_LOCATIONS = 0;
+
+    /**
+     * The steps tried in order when a query does not ask for one.
+     */
+    private static final List<Duration> STEPS = List.of(Duration.ofMinutes(1), Duration.ofMinutes(5), Duration.ofMinutes(15),
+            Duration.ofHours(1), Duration.ofHours(6), Duration.ofDays(1), Duration.ofDays(7), Duration.ofDays(28));
+
+    /**
+     * The upsert of a bucket of an author, adding to the counts already in the bucket.
+     */
+    private static final String UPSERT = "INSERT INTO sales_rollups (resolution, author, bucket_start, location_id, genre, sold, restocked) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?) ON CONFLICT (resolution, author, bucket_start, location_id, genre) " +
+            "DO UPDATE SET sold = sales_rollups.sold + EXCLUDED.sold, restocked = sales_rollups.restocked + EXCLUDED.restocked";
+
+    /**
+     * The types of the values of the upsert of a bucket of an author.
+     */
+    private static final int[] UPSERT_TYPES = {Types.VARCHAR, Types.VARCHAR, Types.TIMESTAMP, Types.BIGINT, Types.VARCHAR, Types.BIGINT, Types.BIGINT};
+
+    /**
+     * The upsert of a bucket of the totals of all the authors, adding to the counts already in the bucket.
+     */
+    private static final String UPSERT_TOTAL = "INSERT INTO sales_rollup_totals (resolution, bucket_start, location_id, genre, sold, restocked) " +
+            "VALUES (?, ?, ?, ?, ?, ?) ON CONFLICT (resolution, bucket_start, location_id, genre) " +
+            "DO UPDATE SET sold = sales_rollup_totals.sold + EXCLUDED.sold, restocked = sales_rollup_totals.restocked + EXCLUDED.restocked";
+
+    /**
+     * The types of the values of the upsert of a bucket of the totals.
+     */
+    private static final int[] UPSERT_TOTAL_TYPES = {Types.VARCHAR, Types.TIMESTAMP, Types.BIGINT, Types.VARCHAR, Types.BIGINT, Types.BIGINT};
+
+    /**
+     * The logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(SalesAnalyticsService.class);
+
+    /**
+     * The counts of the minutes not flushed yet.
+     */
+    private final Map<Minute, Counts> pending = new ConcurrentHashMap<>();
+
+    /**
+     * The time the minute buckets are kept for.
+     */
+    private final @NonNull Duration minuteRetention;
+
+    /**
+     * The time the hour buckets are kept for.
+     */
+    private final @NonNull Duration hourRetention;
+
+    /**
+     * The number of buckets returned when the query does not ask for a step.
+     */
+    private final int defaultPoints;
+
+    /**
+     * The maximum number of buckets of a query.
+     */
+    private final int maxPoints;
+
+    /**
+     * The JDBC template.
+     */
+    private final @NonNull JdbcTemplate jdbcTemplate;
+
+    /**
+     * The template of the transactions of the flushes.
+     */
+    private final @NonNull TransactionTemplate transactionTemplate;
+
+    /**
+     * The metrics of the sales analytics.
+     */
+    private final @NonNull SalesAnalyticsMetrics metrics;
+
+    /**
+     * Create a new SalesAnalyticsService.
+     *
+     * @param minuteRetention    the time the minute buckets are kept for
+     * @param hourRetention      the time the hour buckets are kept for
+     * @param defaultPoints      the number of buckets returned when the query does not ask for a step
+     * @param maxPoints          the maximum number of buckets of a query
+     * @param jdbcTemplate       the JDBC template
+     * @param transactionManager the transaction manager of the flushes
+     * @param metrics            the metrics of the sales analytics
+     */
+    public SalesAnalyticsService(@Value("${app.sales-analytics.minute-retention:2d}") Duration minuteRetention,
+                                 @Value("${app.sales-analytics.hour-retention:90d}") Duration hourRetention,
+                                 @Value("${app.sales-analytics.default-points:500}") int defaultPoints,
+                                 @Value("${app.sales-analytics.max-points:10000}") int maxPoints,
+                                 @NonNull JdbcTemplate jdbcTemplate,
+                                 @NonNull PlatformTransactionManager transactionManager,
+                                 @NonNull SalesAnalyticsMetrics metrics) {
+        this.minuteRetention = minuteRetention;
+        this.hourRetention = hourRetention;
+        this.defaultPoints = defaultPoints;
+        this.maxPoints = maxPoints;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.metrics = metrics;
+        metrics.registerPending(this.pending::size);
+    }
+
+    /**
+     * Count a change of the quantity of a book at a location, made now. Call it once the change is committed.
+     *
+     * @param locationId     the id of the location
+     * @param genre          the genre of the book
+     * @param author         the author of the book
+     * @param quantityChange the change of the quantity, negative for copies sold
+     */
+    public void record(@NonNull Long locationId, @NonNull Genre genre, @NonNull String author, int quantityChange) {
+        if (quantityChange == 0) {
+            return;
+        }
+        Counts counts = quantityChange < 0 ? new Counts(-quantityChange, 0) : new Counts(0, quantityChange);
+        Minute minute = new Minute(LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES), locationId, genre, author);
+        this.pending.merge(minute, counts, Counts::plus);
+    }
+
+    /**
+     * Flush the counts of the minutes to their buckets.
+     */
+    @Scheduled(fixedDelayString = "${app.sales-analytics.flush-interval:10000}")
+    public void flush() {
+        // Each minute is removed atomically, the changes counted meanwhile go to a new entry.
+        Map<Minute, Counts> minutes = new TreeMap<>();
+        for (Minute minute : this.pending.keySet()) {
+            Counts counts = this.pending.remove(minute);
+            if (counts != null) {
+                minutes.merge(minute, counts, Counts::plus);
+            }
+        }
+        if (minutes.isEmpty()) {
+            return;
+        }
+
+        // Sorted, so that the flushes of the nodes lock the rows in the same order.
+        Map<Bucket, Counts> buckets = new TreeMap<>();
+        for (Map.Entry<Minute, Counts> entry : minutes.entrySet()) {
+            Minute minute = entry.getKey();
+            for (Resolution resolution : Resolution.values()) {
+                LocalDateTime start = resolution.truncate(minute.time());
+                for (long locationId : new long[]{minute.locationId(), ALL_LOCATIONS}) {
+                    buckets.merge(new Bucket(resolution, minute.author(), start, locationId, minute.genre()), entry.getValue(), Counts::plus);
+                    buckets.merge(new Bucket(resolution, null, start, locationId, minute.genre()), entry.getValue(), Counts::plus);
+                }
+            }
+        }
+        List<Object[]> rows = new ArrayList<>();
+        List<Object[]> totals = new ArrayList<>();
+        for (Map.Entry<Bucket, Counts> entry : buckets.entrySet()) {
+            Bucket bucket = entry.getKey();
+            Counts counts = entry.getValue();
+            if (bucket.author() != null) {
+                rows.add(new Object[]{bucket.resolution().name(), bucket.author(), bucket.start(), bucket.locationId(),
+                        bucket.genre().name(), counts.sold(), counts.restocked()});
+            } else {
+                totals.add(new Object[]{bucket.resolution().name(), bucket.start(), bucket.locationId(),
+                        bucket.genre().name(), counts.sold(), counts.restocked()});
+            }
+        }
+
+        try {
+            this.transactionTemplate.executeWithoutResult(status -> {
+                this.jdbcTemplate.batchUpdate(UPSERT, rows, UPSERT_TYPES);
+                this.jdbcTemplate.batchUpdate(UPSERT_TOTAL, totals, UPSERT_TOTAL_TYPES);
+            });
+            this.metrics.recordFlushed(buckets.size());
+        } catch (DataAccessException e) {
+            // Nothing was written, the counts are flushed again next time.
+            logger.warn("Could not flush the sales of {} minutes, retrying later", minutes.size(), e);
+            this.metrics.recordFlushFailure();
+            minutes.forEach((minute, counts) -> this.pending.merge(minute, counts, Counts::plus));
+        }
+    }
+
+    /**
+     * Purge the minute and hour buckets older than their retention.
+     */
+    @Scheduled(fixedDelayString = "${app.sales-analytics.purge-interval:3600000}")
+    public void purge() {
+        LocalDateTime now = LocalDateTime.now();
+        int purged = 0;
+        for (String table : List.of("sales_rollups", "sales_rollup_totals")) {
+            purged += this.jdbcTemplate.update("DELETE FROM " + table + " WHERE resolution = ? AND bucket_start < ?",
+                    Resolution.MINUTE.name(), now.minus(this.minuteRetention));
+            purged += this.jdbcTemplate.update("DELETE FROM " + table + " WHERE resolution = ? AND bucket_start < ?",
+                    Resolution.HOUR.name(), now.minus(this.hourRetention));
+        }
+        if (purged > 0) {
+            logger.info("Purged {} expired sales buckets", purged);
+        }
+    }
+
+    /**
+     * Flush the counts before the shutdown.
+     */
+    @PreDestroy
+    public void shutdown() {
+        this.flush();
+    }
+
+    /**
+     * Get the copies sold and restocked over a range of time, in buckets of a step, grouped by location, genre or
+     * author. The range is widened to whole steps. The counts of the last seconds may not be flushed yet.
+     *
+     * @param from       the start of the range
+     * @param to         the end of the range (exclusive), now if null
+     * @param step       the width of the buckets as a duration ("15m", "1h", "7d"), chosen from the range if null
+     * @param groupBy    the dimensions to group by, the others are added up
+     * @param locationId the location to filter by, all if null
+     * @param genre      the genre to filter by, all if null
+     * @param author     the author to filter by, all if null
+     * @return the buckets with sales or restocks
+     * @throws InvalidSalesQueryException if the range or the step is invalid, or the step is finer than the buckets
+     *                                    kept for the range
+     */
+    @NonNull
+    @Transactional(readOnly = true)
+    public SalesReportDTO getSales(@NonNull LocalDateTime from, @Nullable LocalDateTime to, @Nullable String step,
+                                   @NonNull Set<Dimension> groupBy, @Nullable Long locationId, @Nullable Genre genre,
+                                   @Nullable String author) throws InvalidSalesQueryException {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime end = to != null ? to : now;
+        if (!from.isBefore(end)) {
+            throw new InvalidSalesQueryException("The start of the range must be before its end");
+        }
+
+        Duration width = step != null ? this.parseStep(step) : this.chooseStep(from, end, now);
+        Resolution resolution = Resolution.coarsestDividing(width);
+        if (!this.isKept(resolution, from, now)) {
+            throw new InvalidSalesQueryException("The " + resolution.name().toLowerCase() + " buckets are only kept for "
+                    + this.retention(resolution) + ", use a step of at least " + resolution.next().getWidth());
+        }
+        LocalDateTime start = align(from, width, false);
+        LocalDateTime stop = align(end, width, true);
+        long points = Duration.between(start, stop).dividedBy(width);
+        if (points > this.maxPoints) {
+            throw new InvalidSalesQueryException("The range has " + points + " buckets of " + width + ", at most " + this.maxPoints + " are allowed");
+        }
+
+        // The totals of all the authors are read unless the authors are filtered or grouped.
+        boolean byAuthor = author != null || groupBy.contains(Dimension.AUTHOR);
+        StringBuilder sql = new StringBuilder();
+        List<Object> args = new ArrayList<>();
+        if (width.equals(resolution.getWidth())) {
+            // The buckets read are the ones returned, grouped in the order of the indexes rather than hashed.
+            sql.append("SELECT bucket_start AS bucket");
+        } else {
+            sql.append("SELECT date_bin(CAST(? AS INTERVAL), bucket_start, ?) AS bucket");
+            args.add(width.toSeconds() + " seconds");
+            args.add(ORIGIN);
+        }
+        for (Dimension dimension : groupBy) {
+            sql.append(", ").append(dimension.column);
+        }
+        sql.append(", SUM(sold) AS sold, SUM(restocked) AS restocked FROM ")
+                .append(byAuthor ? "sales_rollups" : "sales_rollup_totals")
+                .append(" WHERE resolution = ?");
+        args.add(resolution.name());
+        if (author != null) {
+            sql.append(" AND author = ?");
+            args.add(author);
+        }
+        sql.append(" AND bucket_start >= ? AND bucket_start < ?");
+        args.add(start);
+        args.add(stop);
+        if (locationId != null) {
+            sql.append(" AND location_id = ?");
+            args.add(locationId);
+        } else if (groupBy.contains(Dimension.LOCATION)) {
+            sql.append(" AND location_id <> ?");
+            args.add(ALL_LOCATIONS);
+        } else {
+            // Already added up when flushed.
+            sql.append(" AND location_id = ?");
+            args.add(ALL_LOCATIONS);
+        }
+        if (genre != null) {
+            sql.append(" AND genre = ?");
+            args.add(genre.name());
+        }
+        StringBuilder groups = new StringBuilder("1");
+        for (Dimension dimension : groupBy) {
+            groups.append(", ").append(dimension.column);
+        }
+        sql.append(" GROUP BY ").append(groups).append(" ORDER BY ").append(groups);
+
+        List<SalesPointDTO> result = this.jdbcTemplate.query(sql.toString(), (rs, rowNum) -> new SalesPointDTO(
+                rs.getObject("bucket", LocalDateTime.class),
+                groupBy.contains(Dimension.LOCATION) ? rs.getLong("location_id") : null,
+                groupBy.contains(Dimension.GENRE) ? Genre.valueOf(rs.getString("genre")) : null,
+                groupBy.contains(Dimension.AUTHOR) ? rs.getString("author") : null,
+                rs.getLong("sold"),
+                rs.getLong("restocked")), args.toArray());
+        return new SalesReportDTO(start, stop, width, result);
+    }
+
+    /**
+     * Parses the step of a query.
+     *
+     * @param step the step, as a duration
+     * @return the width of the buckets
+     * @throws InvalidSalesQueryException if the step is not a positive number of minutes
+     */
+    private @NonNull Duration parseStep(@NonNull String step) throws InvalidSalesQueryException {
+        Duration width;
+        try {
+            width = DurationStyle.detectAndParse(step);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidSalesQueryException("Invalid step: " + step);
+        }
+        if (width.compareTo(Resolution.MINUTE.getWidth()) < 0 || width.toSeconds() % 60 != 0 || width.toNanosPart() != 0) {
+            throw new InvalidSalesQueryException("The step must be a whole number of minutes: " + step);
+        }
+        return width;
+    }
+
+    /**
+     * Chooses the finest step that gives at most the default number of buckets and is kept for the range.
+     *
+     * @param from the start of the range
+     * @param to   the end of the range
+     * @param now  the current time
+     * @return the width of the buckets
+     */
+    private @NonNull Duration chooseStep(@NonNull LocalDateTime from, @NonNull LocalDateTime to, @NonNull LocalDateTime now) {
+        Duration range = Duration.between(from, to);
+        for (Duration width : STEPS) {
+            if (this.isKept(Resolution.coarsestDividing(width), from, now) && range.dividedBy(width) < this.defaultPoints) {
+                return width;
+            }
+        }
+        return STEPS.get(STEPS.size() - 1);
+    }
+
+    /**
+     * Gets the time the buckets of a resolution are kept for.
+     *
+     * @param resolution the resolution
+     * @return the retention of the buckets, null if they are kept forever
+     */
+    private @Nullable Duration retention(@NonNull Resolution resolution) {
+        return switch (resolution) {
+            case MINUTE -> this.minuteRetention;
+            case HOUR -> this.hourRetention;
+            case DAY -> null;
+        };
+    }
+
+    /**
+     * Whether the buckets of a resolution are still kept from a time.
+     *
+     * @param resolution the resolution
+     * @param from       the time
+     * @param now        the current time
+     * @return true if the buckets from the time are kept
+     */
+    private boolean isKept(@NonNull Resolution resolution, @NonNull LocalDateTime from, @NonNull LocalDateTime now) {
+        Duration retention = this.retention(resolution);
+        return retention == null || !from.isBefore(now.minus(retention));
+    }
+
+    /**
+     * Aligns a time on the buckets of a step.
+     *
+     * @param time  the time
+     * @param width the width of the buckets
+     * @param up    whether to align on the end of the bucket of the time rather than its start
+     * @return the aligned time
+     */
+    private static @NonNull LocalDateTime align(@NonNull LocalDateTime time, @NonNull Duration width, boolean up) {
+        long seconds = Duration.between(ORIGIN, time).toSeconds();
+        long buckets = Math.floorDiv(seconds, width.toSeconds());
+        if (up && !ORIGIN.plus(width.multipliedBy(buckets)).equals(time)) {
+            buckets++;
+        }
+        return ORIGIN.plus(width.multipliedBy(buckets));
+    }
+
+    /**
+     * The resolutions of the buckets.
+     */
+    public enum Resolution {
+        MINUTE(ChronoUnit.MINUTES),
+        HOUR(ChronoUnit.HOURS),
+        DAY(ChronoUnit.DAYS);
+
+        /**
+         * The unit of the buckets.
+         */
+        private final ChronoUnit unit;
+
+        /**
+         * Creates a new resolution.
+         *
+         * @param unit the unit of the buckets
+         */
+        Resolution(ChronoUnit unit) {
+            this.unit = unit;
+        }
+
+        /**
+         * Gets the width of the buckets.
+         *
+         * @return the width of the buckets
+         */
+        public Duration getWidth() {
+            return this.unit.getDuration();
+        }
+
+        /**
+         * Gets the start of the bucket of a time.
+         *
+         * @param time the time
+         * @return the start of its bucket
+         */
+        public LocalDateTime truncate(LocalDateTime time) {
+            return time.truncatedTo(this.unit);
+        }
+
+        /**
+         * Gets the next coarser resolution, or this one if it is the coarsest.
+         *
+         * @return the next resolution
+         */
+        public Resolution next() {
+            Resolution[] values = values();
+            return values[Math.min(this.ordinal() + 1, values.length - 1)];
+        }
+
+        /**
+         * Gets the coarsest resolution whose buckets add up to the buckets of a step, which reads the fewest rows.
+         *
+         * @param step the width of the buckets of the query, a whole number of minutes
+         * @return the resolution to read
+         */
+        public static Resolution coarsestDividing(Duration step) {
+            Resolution[] values = values();
+            for (int i = values.length - 1; i > 0; i--) {
+                if (step.toSeconds() % values[i].getWidth().toSeconds() == 0) {
+                    return values[i];
+                }
+            }
+            return MINUTE;
+        }
+    }
+
+    /**
+     * The dimensions the sales can be grouped by.
+     */
+    public enum Dimension {
+        LOCATION("location_id"),
+        GENRE("genre"),
+        AUTHOR("author");
+
+        /**
+         * The column of the dimension.
+         */
+        private final String column;
+
+        /**
+         * Creates a new dimension.
+         *
+         * @param column the column of the dimension
+         */
+        Dimension(String column) {
+            this.column = column;
+        }
+
+        /**
+         * Parses a set of dimensions, case-insensitively.
+         *
+         * @param names the names of the dimensions, null for none
+         * @return the dimensions, in a fixed order
+         * @throws InvalidSalesQueryException if a name is not a dimension
+         */
+        public static Set<Dimension> parse(@Nullable List<String> names) throws InvalidSalesQueryException {
+            Set<Dimension> dimensions = EnumSet.noneOf(Dimension.class);
+            if (names == null) {
+                return dimensions;
+            }
+            for (String name : names) {
+                try {
+                    dimensions.add(Dimension.valueOf(name.trim().toUpperCase()));
+                } catch (IllegalArgumentException e) {
+                    throw new InvalidSalesQueryException("Invalid dimension: " + name + ", expected location, genre or author");
+                }
+            }
+            return dimensions;
+        }
+    }
+
+    /**
+     * The sales of a minute, location, genre and author not flushed yet.
+     *
+     * @param time       the start of the minute
+     * @param locationId the id of the location
+     * @param genre      the genre of the books
+     * @param author     the author of the books
+     */
+    private record Minute(LocalDateTime time, long locationId, Genre genre, String author) implements Comparable<Minute> {
+        /**
+         * The order of the minutes.
+         */
+        private static final Comparator<Minute> ORDER = Comparator.comparing(Minute::time)
+                .thenComparingLong(Minute::locationId).thenComparing(Minute::genre).thenComparing(Minute::author);
+
+        @Override
+        public int compareTo(Minute other) {
+            return ORDER.compare(this, other);
+        }
+    }
+
+    /**
+     * A bucket of the rollups, ordered as the primary key of the table.
+     *
+     * @param resolution the resolution of the bucket
+     * @param author     the author of the books, null for the totals of all the authors
+     * @param start      the start of the bucket
+     * @param locationId the id of the location, 0 for all the locations
+     * @param genre      the genre of the books
+     */
+    private record Bucket(Resolution resolution, String author, LocalDateTime start, long locationId, Genre genre) implements Comparable<Bucket> {
+        /**
+         * The order of the buckets.
+         */
+        private static final Comparator<Bucket> ORDER = Comparator.comparing(Bucket::resolution)
+                .thenComparing(Bucket::author, Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparing(Bucket::start).thenComparingLong(Bucket::locationId).thenComparing(Bucket::genre);
+
+        @Override
+        public int compareTo(Bucket other) {
+            return ORDER.compare(this, other);
+        }
+    }
+
+    /**
+     * The copies sold and restocked.
+     *
+     * @param sold      the number of copies sold
+     * @param restocked the number of copies restocked
+     */
+    private record Counts(long sold, long restocked) {
+        /**
+         * Adds two counts.
+         *
+         * @param other the other counts
+         * @return the sum of the counts
+         */
+        Counts plus(Counts other) {
+            return new Counts(this.sold + other.sold, this.restocked + other.restocked);
+        }
+    }
+
+    /**
+     * Exception thrown when a query of the sales is invalid.
+     */
+    public static class InvalidSalesQueryException extends RepositoryException.BadRequest {
+        /**
+         * Creates a new InvalidSalesQueryException with the given message.
+         *
+         * @param message - the exception message
+         */
+        public InvalidSalesQueryException(@NonNull String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,823 @@
+package org.example.library.service;
+
+import org.example.library.dto.InventoryChangeDTO;
+import org.example.library.dto.StockSnapshotDTO;
+import org.example.library.entity.InventoryMovement;
+import org.example.library.invalidation.ChangeEvent;
+import org.example.library.invalidation.InvalidationPublisher;
+import org.example.library.lib.RepositoryException;
+import org.example.library.lib.Transactions;
+import org.example.library.lib.Tuple;
+import org.example.library.metrics.StockSnapshotMetrics;
+import org.example.library.repository.LocationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Service implementation of the reconciliations of the stock of a location with a full snapshot of its copies, as
+ * counted by a stock take or sent by the point of sale of the location.
+ * <p>
+ * The snapshot is read line by line, sorted by book, and validated to its end while it is spooled to a temporary file,
+ * before the transaction opens, so that the book copies are locked for the time of the merge and not of the upload.
+ * It is then merged with the book copies of the location read by a cursor in the same order, so that neither side is
+ * held in memory whatever their size. Only the book copies whose quantity differs are written, by a single statement
+ * per batch of inserts, updates or deletes bound as arrays, and their corrections are recorded in the ledger. The book
+ * copies are locked while they are read, so that the sales and holds made during the merge wait for it instead of
+ * being overwritten, and the whole snapshot is applied or nothing. The quantity of a book copy is never set below its
+ * copies held by the reservations, which are still there until they are picked up or expire: it is kept at the held
+ * copies, and counted again by the next snapshot.
+ */
+@Service
+public class StockSnapshotService {
+    /**
+     * The book copies of a location, in the order of the snapshot.
+     */
+    private static final String SELECT = "SELECT book_id, quantity, held FROM book_copies WHERE location_id = ? ORDER BY book_id FOR UPDATE";
+
+    /**
+     * The insert of a batch of book copies, skipping the books not found and the copies created since they were read.
+     */
+    private static final String INSERT = "INSERT INTO book_copies (book_id, location_id, quantity) " +
+            "SELECT b.id, ?, t.quantity FROM unnest(?::bigint[], ?::integer[]) AS t (book_id, quantity) " +
+            "JOIN books b ON b.id = t.book_id ORDER BY b.id ON CONFLICT (book_id, location_id) DO NOTHING RETURNING book_id";
+
+    /**
+     * The correction of the quantities of a batch of book copies.
+     */
+    private static final String UPDATE = "UPDATE book_copies c SET quantity = t.quantity " +
+            "FROM unnest(?::bigint[], ?::integer[]) AS t (book_id, quantity) WHERE c.book_id = t.book_id AND c.location_id = ?";
+
+    /**
+     * The delete of a batch of book copies.
+     */
+    private static final String DELETE = "DELETE FROM book_copies WHERE location_id = ? AND book_id = ANY (?::bigint[])";
+
+    /**
+     * The logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(StockSnapshotService.class);
+
+    /**
+     * The maximum number of books of a snapshot.
+     */
+    private final int maxLines;
+
+    /**
+     * The number of changes written per batch, and of book copies fetched per round trip of the cursor.
+     */
+    private final int batchSize;
+
+    /**
+     * The maximum number of changes published one by one, beyond which the location is reloaded as a whole.
+     */
+    private final int maxEvents;
+
+    /**
+     * The JDBC template.
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * The transaction of a merge, opened once the snapshot is spooled.
+     */
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * The repository of the locations.
+     */
+    private final LocationRepository locationRepository;
+
+    /**
+     * The ledger of the inventory movements.
+     */
+    private final InventoryLedgerService inventoryLedgerService;
+
+    /**
+     * The publisher of the changes to the other nodes.
+     */
+    private final InvalidationPublisher invalidationPublisher;
+
+    /**
+     * The streams of the quantity changes.
+     */
+    private final InventoryStreamService inventoryStreamService;
+
+    /**
+     * The metrics of the reconciliations.
+     */
+    private final StockSnapshotMetrics metrics;
+
+    /**
+     * Constructor for the StockSnapshotService.
+     *
+     * @param maxLines               the maximum number of books of a snapshot
+     * @param batchSize              the number of changes written per batch
+     * @param maxEvents              the maximum number of changes published one by one
+     * @param jdbcTemplate           the JDBC template
+     * @param transactionManager     the transaction manager of the merges
+     * @param locationRepository     the repository of the locations
+     * @param inventoryLedgerService the ledger of the inventory movements
+     * @param invalidationPublisher  the publisher of the changes to the other nodes
+     * @param inventoryStreamService the streams of the quantity changes
+     * @param metrics                the metrics of the reconciliations
+     */
+    public StockSnapshotService(@Value("${app.stock-snapshot.max-lines:1000000}") int maxLines,
+                                @Value("${app.stock-snapshot.batch-size:1000}") int batchSize,
+                                @Value("${app.stock-snapshot.max-events:256}") int maxEvents,
+                                @NonNull JdbcTemplate jdbcTemplate,
+                                @NonNull PlatformTransactionManager transactionManager,
+                                @NonNull LocationRepository locationRepository,
+                                @NonNull InventoryLedgerService inventoryLedgerService,
+                                @NonNull InvalidationPublisher invalidationPublisher,
+                                @NonNull InventoryStreamService inventoryStreamService,
+                                @NonNull StockSnapshotMetrics metrics) {
+        this.maxLines = maxLines;
+        this.batchSize = batchSize;
+        this.maxEvents = maxEvents;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.locationRepository = locationRepository;
+        this.inventoryLedgerService = inventoryLedgerService;
+        this.invalidationPublisher = invalidationPublisher;
+        this.inventoryStreamService = inventoryStreamService;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Reconcile the book copies of a location with a snapshot of its stock. Each line of the snapshot is the id of a
+     * book and its quantity, separated by a comma, sorted by book id without duplicates, after an optional header. The
+     * books missing from the snapshot have no copies left at the location, but the ones held by the reservations.
+     *
+     * @param locationId the id of the location
+     * @param snapshot   the lines of the snapshot
+     * @return the summary of the changes
+     * @throws LocationService.LocationNotFoundException if the location is not found
+     * @throws InvalidSnapshotException                  if a line of the snapshot is invalid, nothing is changed then
+     * @throws IOException                               if the snapshot cannot be read, nothing is changed then
+     */
+    public @NonNull StockSnapshotDTO reconcile(@NonNull Long locationId, @NonNull BufferedReader snapshot) throws LocationService.LocationNotFoundException, InvalidSnapshotException, IOException {
+        long start = System.nanoTime();
+        if (!this.locationRepository.existsById(locationId)) {
+            throw new LocationService.LocationNotFoundException(locationId);
+        }
+
+        Path file = Files.createTempFile("stock-snapshot-", ".bin");
+        try {
+            int lines;
+            try {
+                lines = spool(new SnapshotReader(snapshot, this.maxLines), file);
+            } catch (InvalidSnapshotException e) {
+                this.metrics.recordReconciliation("invalid", System.nanoTime() - start);
+                throw e;
+            } catch (IOException e) {
+                this.metrics.recordReconciliation("failed", System.nanoTime() - start);
+                throw e;
+            }
+
+            StockSnapshotDTO summary;
+            try (SpooledSnapshot spooled = new SpooledSnapshot(file, lines)) {
+                summary = this.transactionTemplate.execute(status -> this.merge(locationId, spooled));
+            } catch (UncheckedIOException e) {
+                this.metrics.recordReconciliation("failed", System.nanoTime() - start);
+                throw e.getCause();
+            }
+
+            logger.info("Reconciled the stock of location {} with a snapshot: {}", locationId, summary);
+            this.metrics.recordChanges("inserted", summary.getInserted());
+            this.metrics.recordChanges("updated", summary.getUpdated());
+            this.metrics.recordChanges("removed", summary.getRemoved());
+            this.metrics.recordChanges("kept", summary.getKept());
+            this.metrics.recordReconciliation("applied", System.nanoTime() - start);
+            return summary;
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Reads a snapshot to its end, validating its lines, and writes its books to a file.
+     *
+     * @param snapshot the snapshot
+     * @param file     the file of the books
+     * @return the number of books
+     * @throws InvalidSnapshotException if a line of the snapshot is invalid
+     * @throws IOException              if the snapshot cannot be read or the file written
+     */
+    private static int spool(@NonNull SnapshotReader snapshot, @NonNull Path file) throws InvalidSnapshotException, IOException {
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            for (snapshot.advance(); !snapshot.isDone(); snapshot.advance()) {
+                output.writeLong(snapshot.getBookId());
+                output.writeInt(snapshot.getQuantity());
+            }
+        }
+        return snapshot.getLines();
+    }
+
+    /**
+     * Merges a spooled snapshot with the book copies of a location, in the transaction of the caller.
+     *
+     * @param locationId the id of the location
+     * @param snapshot   the spooled snapshot
+     * @return the summary of the changes
+     * @throws UncheckedIOException if the spooled snapshot cannot be read
+     */
+    private @NonNull StockSnapshotDTO merge(long locationId, @NonNull SpooledSnapshot snapshot) {
+        Reconciliation reconciliation = new Reconciliation(locationId, snapshot);
+        reconciliation.start();
+        this.jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SELECT);
+            // Read by a cursor, a round trip per batch.
+            statement.setFetchSize(this.batchSize);
+            statement.setLong(1, locationId);
+            return statement;
+        }, reconciliation::compare);
+        reconciliation.finish();
+        return reconciliation.summarize();
+    }
+
+    /**
+     * The kinds of the changes of the book copies.
+     */
+    private enum Kind {
+        /**
+         * A book copy created.
+         */
+        INSERT,
+        /**
+         * The quantity of a book copy corrected.
+         */
+        UPDATE,
+        /**
+         * A book copy deleted.
+         */
+        DELETE,
+        /**
+         * The quantity of a book copy missing from the snapshot set to its held copies, the book copy is kept for its
+         * reservations.
+         */
+        EMPTY
+    }
+
+    /**
+     * A change of a book copy, waiting for its batch.
+     *
+     * @param kind     the kind of the change
+     * @param bookId   the id of the book
+     * @param quantity the quantity after the change
+     * @param delta    the change of the quantity
+     */
+    private record Change(Kind kind, long bookId, int quantity, int delta) {
+    }
+
+    /**
+     * The merge of a snapshot with the book copies of a location, which writes the changes in batches.
+     */
+    private final class Reconciliation {
+        /**
+         * The id of the location.
+         */
+        private final long locationId;
+
+        /**
+         * The snapshot.
+         */
+        private final SpooledSnapshot snapshot;
+
+        /**
+         * The changes waiting for their batch.
+         */
+        private final List<Change> pending = new ArrayList<>();
+
+        /**
+         * The changes to publish one by one, until there are too many.
+         */
+        private final List<InventoryChangeDTO> events = new ArrayList<>();
+
+        /**
+         * Whether there were too many changes to publish one by one.
+         */
+        private boolean all;
+
+        /**
+         * The number of book copies already at their counted quantity.
+         */
+        private int unchanged;
+
+        /**
+         * The number of book copies created.
+         */
+        private int inserted;
+
+        /**
+         * The number of book copies corrected.
+         */
+        private int updated;
+
+        /**
+         * The number of book copies deleted or emptied.
+         */
+        private int removed;
+
+        /**
+         * The number of books not found or whose copies were created meanwhile.
+         */
+        private int skipped;
+
+        /**
+         * The number of book copies kept above their counted quantity for their held copies.
+         */
+        private int kept;
+
+        /**
+         * The number of copies added.
+         */
+        private long copiesAdded;
+
+        /**
+         * The number of copies removed.
+         */
+        private long copiesRemoved;
+
+        /**
+         * Creates a new reconciliation.
+         *
+         * @param locationId the id of the location
+         * @param snapshot   the snapshot
+         */
+        private Reconciliation(long locationId, @NonNull SpooledSnapshot snapshot) {
+            this.locationId = locationId;
+            this.snapshot = snapshot;
+        }
+
+        /**
+         * Reads the first book of the snapshot.
+         *
+         * @throws UncheckedIOException if the snapshot cannot be read
+         */
+        private void start() {
+            this.snapshot.advance();
+        }
+
+        /**
+         * Merges a book copy with the snapshot, the books of the snapshot before it are not stocked at the location.
+         *
+         * @param rs the book copy
+         * @throws SQLException if the book copy cannot be read
+         */
+        private void compare(@NonNull ResultSet rs) throws SQLException {
+            long bookId = rs.getLong(1);
+            int quantity = rs.getInt(2);
+            int held = rs.getInt(3);
+            while (!this.snapshot.isDone() && this.snapshot.getBookId() < bookId) {
+                this.insert();
+                this.snapshot.advance();
+            }
+            if (!this.snapshot.isDone() && this.snapshot.getBookId() == bookId) {
+                int counted = this.snapshot.getQuantity();
+                if (counted < held) {
+                    // The held copies are still there until their reservations are picked up or expire.
+                    counted = held;
+                    this.kept++;
+                }
+                if (counted == quantity) {
+                    this.unchanged++;
+                } else {
+                    this.add(new Change(Kind.UPDATE, bookId, counted, counted - quantity));
+                }
+                this.snapshot.advance();
+            } else if (held == 0) {
+                if (quantity != 0) {
+                    this.add(new Change(Kind.DELETE, bookId, 0, -quantity));
+                }
+            } else {
+                // Not counted, the book copy of a reservation is kept with its held copies until they are released.
+                this.kept++;
+                if (held == quantity) {
+                    this.unchanged++;
+                } else {
+                    this.add(new Change(Kind.EMPTY, bookId, held, held - quantity));
+                }
+            }
+        }
+
+        /**
+         * Inserts the books left in the snapshot, after the last book copy, and writes the last batch.
+         *
+         * @throws UncheckedIOException if the snapshot cannot be read
+         */
+        private void finish() {
+            while (!this.snapshot.isDone()) {
+                this.insert();
+                this.snapshot.advance();
+            }
+            this.flush();
+
+            if (this.all) {
+                StockSnapshotService.this.invalidationPublisher.publishAll();
+                Transactions.afterCommit(() -> StockSnapshotService.this.inventoryStreamService.resync(this.locationId));
+            } else {
+                for (InventoryChangeDTO event : this.events) {
+                    StockSnapshotService.this.invalidationPublisher.publish(ChangeEvent.EntityType.BOOK_COPY, event.getLocationId() + "." + event.getBookId());
+                    Transactions.afterCommit(() -> StockSnapshotService.this.inventoryStreamService.publish(event.getLocationId(), event.getBookId(), event.getQuantity()));
+                }
+            }
+        }
+
+        /**
+         * Creates the book copy of the current book of the snapshot, unless it has no copies.
+         */
+        private void insert() {
+            int counted = this.snapshot.getQuantity();
+            if (counted == 0) {
+                this.unchanged++;
+            } else {
+                this.add(new Change(Kind.INSERT, this.snapshot.getBookId(), counted, counted));
+            }
+        }
+
+        /**
+         * Adds a change to the batch, written once it is full.
+         *
+         * @param change the change
+         */
+        private void add(@NonNull Change change) {
+            this.pending.add(change);
+            if (this.pending.size() >= StockSnapshotService.this.batchSize) {
+                this.flush();
+            }
+        }
+
+        /**
+         * Writes the changes of the batch, a statement per kind of change, and their movements.
+         */
+        private void flush() {
+            if (this.pending.isEmpty()) {
+                return;
+            }
+            List<Change> inserts = new ArrayList<>();
+            List<Change> updates = new ArrayList<>();
+            List<Change> deletes = new ArrayList<>();
+            for (Change change : this.pending) {
+                switch (change.kind()) {
+                    case INSERT -> inserts.add(change);
+                    case UPDATE, EMPTY -> updates.add(change);
+                    case DELETE -> deletes.add(change);
+                }
+            }
+            this.pending.clear();
+
+            JdbcTemplate jdbcTemplate = StockSnapshotService.this.jdbcTemplate;
+            List<Change> applied = new ArrayList<>(updates.size() + deletes.size() + inserts.size());
+            if (!inserts.isEmpty()) {
+                Set<Long> inserted = new HashSet<>(jdbcTemplate.queryForList(INSERT, Long.class,
+                        this.locationId, bookIds(inserts), quantities(inserts)));
+                for (Change change : inserts) {
+                    if (inserted.contains(change.bookId())) {
+                        applied.add(change);
+                    } else {
+                        this.skipped++;
+                    }
+                }
+            }
+            if (!updates.isEmpty()) {
+                jdbcTemplate.update(UPDATE, bookIds(updates), quantities(updates), this.locationId);
+                applied.addAll(updates);
+            }
+            if (!deletes.isEmpty()) {
+                jdbcTemplate.update(DELETE, this.locationId, bookIds(deletes));
+                applied.addAll(deletes);
+            }
+
+            List<Tuple<Long, Integer>> deltas = new ArrayList<>(applied.size());
+            for (Change change : applied) {
+                switch (change.kind()) {
+                    case INSERT -> this.inserted++;
+                    case UPDATE -> this.updated++;
+                    case DELETE, EMPTY -> this.removed++;
+                }
+                if (change.delta() > 0) {
+                    this.copiesAdded += change.delta();
+                } else {
+                    this.copiesRemoved -= change.delta();
+                }
+                deltas.add(new Tuple<>(change.bookId(), change.delta()));
+                if (!this.all) {
+                    this.events.add(new InventoryChangeDTO(this.locationId, change.bookId(), change.quantity()));
+                    if (this.events.size() > StockSnapshotService.this.maxEvents) {
+                        this.all = true;
+                        this.events.clear();
+                    }
+                }
+            }
+            StockSnapshotService.this.inventoryLedgerService.recordAll(this.locationId, deltas, InventoryMovement.Type.ADJUSTMENT);
+        }
+
+        /**
+         * Summarizes the changes.
+         *
+         * @return the summary
+         */
+        private @NonNull StockSnapshotDTO summarize() {
+            return new StockSnapshotDTO(this.locationId, this.snapshot.getLines(), this.unchanged, this.inserted,
+                    this.updated, this.removed, this.skipped, this.kept, this.copiesAdded, this.copiesRemoved);
+        }
+    }
+
+    /**
+     * Gets the ids of the books of changes, as an array parameter.
+     *
+     * @param changes the changes
+     * @return the ids of the books
+     */
+    private static long[] bookIds(@NonNull List<Change> changes) {
+        return changes.stream().mapToLong(Change::bookId).toArray();
+    }
+
+    /**
+     * Gets the quantities after changes, as an array parameter.
+     *
+     * @param changes the changes
+     * @return the quantities
+     */
+    private static int[] quantities(@NonNull List<Change> changes) {
+        return changes.stream().mapToInt(Change::quantity).toArray();
+    }
+
+    /**
+     * Reads the books of a snapshot one at a time, checking their order.
+     */
+    private static final class SnapshotReader {
+        /**
+         * The lines of the snapshot.
+         */
+        private final BufferedReader reader;
+
+        /**
+         * The maximum number of books.
+         */
+        private final int maxLines;
+
+        /**
+         * The number of the last line read, for the errors.
+         */
+        private int lineNumber;
+
+        /**
+         * The number of books read.
+         */
+        private int lines;
+
+        /**
+         * Whether the snapshot was read to its end.
+         */
+        private boolean done;
+
+        /**
+         * The id of the current book.
+         */
+        private long bookId;
+
+        /**
+         * The quantity of the current book.
+         */
+        private int quantity;
+
+        /**
+         * Creates a new reader of a snapshot.
+         *
+         * @param reader   the lines of the snapshot
+         * @param maxLines the maximum number of books
+         */
+        private SnapshotReader(@NonNull BufferedReader reader, int maxLines) {
+            this.reader = reader;
+            this.maxLines = maxLines;
+        }
+
+        /**
+         * Reads the next book, skipping the blank lines and the header.
+         *
+         * @throws InvalidSnapshotException if the line is invalid or out of order
+         * @throws IOException              if the snapshot cannot be read
+         */
+        private void advance() throws InvalidSnapshotException, IOException {
+            String line;
+            while ((line = this.reader.readLine()) != null) {
+                this.lineNumber++;
+                line = line.strip();
+                if (line.isEmpty() || (this.lineNumber == 1 && !Character.isDigit(line.charAt(0)))) {
+                    continue;
+                }
+                int comma = line.indexOf(',');
+                long bookId;
+                int quantity;
+                try {
+                    bookId = Long.parseLong(comma < 0 ? line : line.substring(0, comma).strip());
+                    quantity = Integer.parseInt(comma < 0 ? "" : line.substring(comma + 1).strip());
+                } catch (NumberFormatException e) {
+                    throw new InvalidSnapshotException(this.lineNumber, "expected a book id and a quantity separated by a comma");
+                }
+                if (bookId <= 0 || quantity < 0) {
+                    throw new InvalidSnapshotException(this.lineNumber, "the book id must be positive and the quantity not negative");
+                }
+                if (this.lines > 0 && bookId <= this.bookId) {
+                    throw new InvalidSnapshotException(this.lineNumber, "the books must be sorted by id, without duplicates");
+                }
+                if (this.lines == this.maxLines) {
+                    throw new InvalidSnapshotException(this.lineNumber, "a snapshot has at most " + this.maxLines + " books");
+                }
+                this.bookId = bookId;
+                this.quantity = quantity;
+                this.lines++;
+                return;
+            }
+            this.done = true;
+        }
+
+        /**
+         * Whether the snapshot was read to its end, there is no current book then.
+         *
+         * @return true if it was read to its end
+         */
+        private boolean isDone() {
+            return this.done;
+        }
+
+        /**
+         * Gets the id of the current book.
+         *
+         * @return the id
+         */
+        private long getBookId() {
+            return this.bookId;
+        }
+
+        /**
+         * Gets the quantity of the current book.
+         *
+         * @return the quantity
+         */
+        private int getQuantity() {
+            return this.quantity;
+        }
+
+        /**
+         * Gets the number of books read.
+         *
+         * @return the number of books
+         */
+        private int getLines() {
+            return this.lines;
+        }
+    }
+
+    /**
+     * Reads the books of a spooled snapshot one at a time, already validated.
+     */
+    private static final class SpooledSnapshot implements Closeable {
+        /**
+         * The books of the snapshot, a book id and its quantity each.
+         */
+        private final DataInputStream input;
+
+        /**
+         * The number of books of the snapshot.
+         */
+        private final int lines;
+
+        /**
+         * The number of books read.
+         */
+        private int read;
+
+        /**
+         * Whether the snapshot was read to its end.
+         */
+        private boolean done;
+
+        /**
+         * The id of the current book.
+         */
+        private long bookId;
+
+        /**
+         * The quantity of the current book.
+         */
+        private int quantity;
+
+        /**
+         * Opens a spooled snapshot.
+         *
+         * @param file  the file of the books
+         * @param lines the number of books
+         * @throws IOException if the file cannot be opened
+         */
+        private SpooledSnapshot(@NonNull Path file, int lines) throws IOException {
+            this.input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+            this.lines = lines;
+        }
+
+        /**
+         * Reads the next book.
+         *
+         * @throws UncheckedIOException if the file cannot be read, out of the cursor which only throws SQL exceptions
+         */
+        private void advance() {
+            if (this.read == this.lines) {
+                this.done = true;
+                return;
+            }
+            try {
+                this.bookId = this.input.readLong();
+                this.quantity = this.input.readInt();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            this.read++;
+        }
+
+        /**
+         * Whether the snapshot was read to its end, there is no current book then.
+         *
+         * @return true if it was read to its end
+         */
+        private boolean isDone() {
+            return this.done;
+        }
+
+        /**
+         * Gets the id of the current book.
+         *
+         * @return the id
+         */
+        private long getBookId() {
+            return this.bookId;
+        }
+
+        /**
+         * Gets the quantity of the current book.
+         *
+         * @return the quantity
+         */
+        private int getQuantity() {
+            return this.quantity;
+        }
+
+        /**
+         * Gets the number of books of the snapshot.
+         *
+         * @return the number of books
+         */
+        private int getLines() {
+            return this.lines;
+        }
+
+        /**
+         * Closes the file.
+         *
+         * @throws IOException if the file cannot be closed
+         */
+        @Override
+        public void close() throws IOException {
+            this.input.close();
+        }
+    }
+
+    /**
+     * Exception thrown when a line of a snapshot is invalid.
+     */
+    public static class InvalidSnapshotException extends RepositoryException.BadRequest {
+        /**
+         * Creates a new InvalidSnapshotException.
+         *
+         * @param lineNumber the number of the line
+         * @param message    what is wrong with the line
+         */
+        public InvalidSnapshotException(int lineNumber, @NonNull String message) {
+            super("Invalid snapshot line " + lineNumber + ": " + message);
+        }
+    }
+}
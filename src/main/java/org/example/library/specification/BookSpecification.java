@@ -1,11 +1,20 @@
 package org.example.library.specification;
 
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
 import org.example.library.entity.Book;
+import org.example.library.entity.Genre;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.lang.NonNull;
 import org.springframework.lang.Nullable;
 
 /**
  * Defines specifications for querying books.
+ * <p>
+ * The specifications are records of their normalized parameters, so that two identical searches are equal and can
+ * share their result.
  */
 public interface BookSpecification extends Specification<Book> {
     /**
@@ -18,7 +27,7 @@ public interface BookSpecification extends Specification<Book> {
         if (title == null) {
             return null;
         } else {
-            return (root, query, cb) -> cb.like(cb.lower(root.get("title")), "%" + title.toLowerCase() + "%");
+            return new TitleLike(title.toLowerCase());
         }
     }
 
@@ -32,7 +41,57 @@ public interface BookSpecification extends Specification<Book> {
         if (author == null) {
             return null;
         } else {
-            return (root, query, cb) -> cb.like(cb.lower(root.get("author")), "%" + author.toLowerCase() + "%");
+            return new AuthorLike(author.toLowerCase());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Create a specification that matches books of a genre.
+     *
+     * @param genre the genre to search for
+     * @return a specification that matches books of the genre
+     */
+    static @Nullable BookSpecification genreIs(@Nullable Genre genre) {
+        if (genre == null) {
+            return null;
+        } else {
+            return new GenreIs(genre);
+        }
+    }
+
+    /**
+     * Specification that matches books with a title containing the given lowercase string.
+     *
+     * @param title the lowercase title to search for
+     */
+    record TitleLike(@NonNull String title) implements BookSpecification {
+        @Override
+        public Predicate toPredicate(@NonNull Root<Book> root, @Nullable CriteriaQuery<?> query, @NonNull CriteriaBuilder cb) {
+            return cb.like(cb.lower(root.get("title")), "%" + this.title + "%");
+        }
+    }
+
+    /**
+     * Specification that matches books with an author containing the given lowercase string.
+     *
+     * @param author the lowercase author to search for
+     */
+    record AuthorLike(@NonNull String author) implements BookSpecification {
+        @Override
+        public Predicate toPredicate(@NonNull Root<Book> root, @Nullable CriteriaQuery<?> query, @NonNull CriteriaBuilder cb) {
+            return cb.like(cb.lower(root.get("author")), "%" + this.author + "%");
+        }
+    }
+
+    /**
+     * Specification that matches books of a genre.
+     *
+     * @param genre the genre to search for
+     */
+    record GenreIs(@NonNull Genre genre) implements BookSpecification {
+        @Override
+        public Predicate toPredicate(@NonNull Root<Book> root, @Nullable CriteriaQuery<?> query, @NonNull CriteriaBuilder cb) {
+            return cb.equal(root.get("genre"), this.genre);
+        }
+    }
+}
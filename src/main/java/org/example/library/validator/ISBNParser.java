@@ -0,0 +1,120 @@
+package org.example.library.validator;
+
+/**
+ * Parser of the ISBNs into their canonical key, the ISBN-13 of the book as a number.
+ * <p>
+ * The ISBN is read in a single pass without allocating: the characters other than the digits and the check character
+ * X are formatting, such as the hyphens, spaces or an "ISBN" prefix, and are skipped. The check digit of an ISBN-10 or
+ * ISBN-13 is verified, an ISBN-13 must have the 978 or 979 prefix of the books, and an ISBN-10 is converted to the
+ * ISBN-13 of the same book, with the 978 prefix and its own check digit. The same book has the same key whatever the
+ * way its ISBN is written.
+ */
+public final class ISBNParser {
+    /**
+     * The key of the invalid ISBNs.
+     */
+    public static final long INVALID = -1;
+
+    /**
+     * The ISBN-13 prefix of the ISBN-10s, followed by the 10 digits of the rest of the ISBN-13.
+     */
+    private static final long PREFIX_978 = 978_00000_00000L;
+
+    /**
+     * The ISBN-13 prefix of the books added after the ISBN-10s ran out.
+     */
+    private static final long PREFIX_979 = 979_00000_00000L;
+
+    /**
+     * The weighted sum of the 978 prefix in the ISBN-13 check digit.
+     */
+    private static final int PREFIX_978_SUM = 9 + 7 * 3 + 8;
+
+    private ISBNParser() {
+    }
+
+    /**
+     * Parse an ISBN-10 or ISBN-13.
+     *
+     * @param isbn the ISBN, in any formatting
+     * @return the ISBN-13 as a number, or {@link #INVALID} if the ISBN is not valid
+     */
+    public static long parse(CharSequence isbn) {
+        return parse(isbn, ISBN.Type.ANY);
+    }
+
+    /**
+     * Parse an ISBN of a type.
+     *
+     * @param isbn the ISBN, in any formatting
+     * @param type the types of ISBN accepted
+     * @return the ISBN-13 as a number, or {@link #INVALID} if the ISBN is not valid or not of the type
+     */
+    public static long parse(CharSequence isbn, ISBN.Type type) {
+        long value = 0;
+        long book = 0;
+        int digits = 0;
+        // The weighted sums of the ISBN-10 check, of the ISBN-13 check, and of the ISBN-13 of an ISBN-10.
+        int sum10 = 0;
+        int sum13 = 0;
+        int sum10As13 = PREFIX_978_SUM;
+        boolean checkX = false;
+        for (int i = 0, length = isbn.length(); i < length; i++) {
+            char c = isbn.charAt(i);
+            int digit;
+            if (c >= '0' && c <= '9' && !checkX) {
+                digit = c - '0';
+            } else if ((c == 'X' || c == 'x') && digits == 9) {
+                // The check character of an ISBN-10 worth 10.
+                digit = 10;
+                checkX = true;
+            } else if (c >= '0' && c <= '9' || c == 'X' || c == 'x') {
+                // A digit after the check character, or a check character elsewhere.
+                return INVALID;
+            } else {
+                continue;
+            }
+            if (digits == 13) {
+                return INVALID;
+            }
+            if (digits < 10) {
+                sum10 += (10 - digits) * digit;
+            }
+            if (digits < 9) {
+                sum10As13 += (digits % 2 == 0 ? 3 : 1) * digit;
+            }
+            if (digits == 9) {
+                // The 9 digits of the book in an ISBN-10, without the check digit.
+                book = value;
+            }
+            sum13 += (digits % 2 == 0 ? 1 : 3) * digit;
+            value = value * 10 + digit;
+            digits++;
+        }
+
+        if (digits == 10 && type != ISBN.Type.ISBN_13) {
+            if (sum10 % 11 != 0) {
+                return INVALID;
+            }
+            return (PREFIX_978 / 10 + book) * 10 + (10 - sum10As13 % 10) % 10;
+        }
+        if (digits == 13 && type != ISBN.Type.ISBN_10) {
+            long prefix = value - value % 10_000_000_000L;
+            if (sum13 % 10 != 0 || (prefix != PREFIX_978 && prefix != PREFIX_979)) {
+                return INVALID;
+            }
+            return value;
+        }
+        return INVALID;
+    }
+
+    /**
+     * Format the key of an ISBN as the digits of the ISBN-13.
+     *
+     * @param isbn13 the ISBN-13 as a number
+     * @return the 13 digits
+     */
+    public static String format(long isbn13) {
+        return Long.toString(isbn13);
+    }
+}
@@ -0,0 +1,65 @@
+package org.example.library.lib;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that the dictionary completes the heaviest texts first, and that a build spilled in runs gives the same
+ * dictionary as one sorted in memory, the duplicates across the runs merged.
+ */
+class CompletionIndexTest {
+    @Test
+    void completesTheHeaviestTextsFirst() {
+        CompletionIndex dictionary = new CompletionIndex.Builder()
+                .add("Dune", 0, 5)
+                .add("Dune Messiah", 0, 9)
+                .add("Dracula", 0, 7)
+                .add("Frank Herbert", 1, 12)
+                .build();
+
+        assertEquals(List.of(new CompletionIndex.Completion("Dune Messiah", 0, 9), new CompletionIndex.Completion("Dracula", 0, 7),
+                new CompletionIndex.Completion("Dune", 0, 5)), dictionary.complete("d", 10));
+        assertEquals(List.of(new CompletionIndex.Completion("Dune Messiah", 0, 9)), dictionary.complete("DUNE M", 10));
+        assertEquals(List.of(), dictionary.complete("x", 10));
+    }
+
+    @Test
+    void mergesTheDuplicatesKeepingTheHeaviestText() {
+        CompletionIndex dictionary = new CompletionIndex.Builder(2)
+                .add("the hobbit", 0, 1)
+                .add("Dune", 0, 5)
+                .add("The Hobbit", 0, 3)
+                .add("THE HOBBIT", 0, 3)
+                .add("The Hobbit", 1, 4)
+                .build();
+
+        assertEquals(List.of(new CompletionIndex.Completion("The Hobbit", 0, 7), new CompletionIndex.Completion("The Hobbit", 1, 4)),
+                dictionary.complete("the", 10));
+    }
+
+    @Test
+    void buildsTheSameDictionaryInRuns() {
+        SplittableRandom random = new SplittableRandom(7);
+        CompletionIndex.Builder inMemory = new CompletionIndex.Builder();
+        CompletionIndex.Builder inRuns = new CompletionIndex.Builder(100);
+        for (int i = 0; i < 5000; i++) {
+            String text = "W" + random.nextInt(300) + (random.nextBoolean() ? " Étoile" : " etoile");
+            int kind = random.nextInt(2);
+            long weight = random.nextInt(50);
+            inMemory.add(text, kind, weight);
+            inRuns.add(text, kind, weight);
+        }
+        CompletionIndex expected = inMemory.build();
+        CompletionIndex actual = inRuns.build();
+
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected.bytes(), actual.bytes());
+        for (String prefix : new String[]{"", "w", "w1", "w12", "w250 e", "w7 etoile"}) {
+            assertEquals(expected.complete(prefix, 20), actual.complete(prefix, 20), prefix);
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package org.example.library.lib;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that the searches skipping the documents that cannot rank (MaxScore) find the same documents as the
+ * exhaustive ones, and that the changes of the overlay and the ones carried over to a new build are visible.
+ */
+class InvertedIndexTest {
+    /**
+     * The number of documents of the synthetic catalog.
+     */
+    private static final int DOCUMENTS = 20_000;
+
+    /**
+     * The number of distinct title words.
+     */
+    private static final int WORDS = 2000;
+
+    /**
+     * The number of distinct author words.
+     */
+    private static final int AUTHORS = 300;
+
+    /**
+     * The number of categories.
+     */
+    private static final int CATEGORIES = 4;
+
+    @Test
+    void prunedSearchFindsTheExhaustiveHits() {
+        List<InvertedIndex.Document> documents = catalog(new SplittableRandom(42));
+        InvertedIndex index = build(documents);
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < 500; i++) {
+            String query = query(random);
+            int category = random.nextInt(3) == 0 ? random.nextInt(CATEGORIES) : -1;
+            int limit = 1 + random.nextInt(20);
+
+            InvertedIndex.Result exhaustive = index.search(query, category, limit, Integer.MAX_VALUE);
+            InvertedIndex.Result pruned = index.search(query, category, limit, limit);
+            assertEquals(exhaustive.hits(), pruned.hits(), "Query \"" + query + "\" in " + category);
+            assertEquals(matching(documents, query, category).size(), exhaustive.total(), "Query \"" + query + "\" in " + category);
+        }
+    }
+
+    @Test
+    void prunedSearchSkipsTheBlocksOfTheCommonWord() {
+        // The common word is in every document, the rare one in a document every 1000, hundreds of postings apart.
+        InvertedIndex.Builder builder = new InvertedIndex.Builder(1.2f, 0.75f, 3, 1);
+        for (int id = 0; id < DOCUMENTS; id++) {
+            builder.add(new InvertedIndex.Document(id, 0, id % 1000 == 500 ? "common rare" : "common other", "author"));
+        }
+        InvertedIndex index = builder.build();
+
+        InvertedIndex.Result exhaustive = index.search("common rare", -1, 5, Integer.MAX_VALUE);
+        InvertedIndex.Result pruned = index.search("common rare", -1, 5, 5);
+        assertEquals(List.of(500L, 1500L, 2500L, 3500L, 4500L), pruned.hits().stream().map(InvertedIndex.Hit::id).toList());
+        assertEquals(exhaustive.hits(), pruned.hits());
+        assertEquals(DOCUMENTS, exhaustive.total());
+        assertEquals(5, pruned.total());
+    }
+
+    @Test
+    void searchFindsTheChangesOfTheOverlay() {
+        InvertedIndex index = build(List.of(
+                new InvertedIndex.Document(1, 0, "Dune", "Frank Herbert"),
+                new InvertedIndex.Document(2, 0, "Children of Dune", "Frank Herbert"),
+                new InvertedIndex.Document(3, 1, "Emma", "Jane Austen")));
+
+        index.update(new InvertedIndex.Document(2, 0, "Dune Messiah", "Frank Herbert"));
+        index.update(new InvertedIndex.Document(4, 1, "Persuasion", "Jane Austen"));
+        index.remove(3);
+        assertEquals(3, index.changes());
+
+        assertEquals(Set.of(1L, 2L), ids(index.search("dune", -1, 10, 100)));
+        assertEquals(Set.of(), ids(index.search("children", -1, 10, 100)));
+        assertEquals(Set.of(2L), ids(index.search("messiah", -1, 10, 100)));
+        assertEquals(Set.of(4L), ids(index.search("austen", -1, 10, 100)));
+        assertEquals(Set.of(), ids(index.search("emma", -1, 10, 100)));
+        assertEquals(Set.of(), ids(index.search("persuasion", 0, 10, 100)));
+        assertEquals(2, index.search("dune", -1, 10, 100).total());
+    }
+
+    @Test
+    void prunedSearchSkipsTheRemovedDocuments() {
+        List<InvertedIndex.Document> documents = catalog(new SplittableRandom(42));
+        InvertedIndex index = build(documents);
+        SplittableRandom random = new SplittableRandom(11);
+        Set<Long> removed = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            String query = query(random);
+            // The best documents are removed, the next ones take their place.
+            for (InvertedIndex.Hit hit : index.search(query, -1, 3, Integer.MAX_VALUE).hits()) {
+                index.remove(hit.id());
+                removed.add(hit.id());
+            }
+
+            InvertedIndex.Result exhaustive = index.search(query, -1, 10, Integer.MAX_VALUE);
+            InvertedIndex.Result pruned = index.search(query, -1, 10, 10);
+            assertEquals(exhaustive.hits(), pruned.hits(), "Query \"" + query + "\"");
+            assertTrue(pruned.hits().stream().noneMatch(hit -> removed.contains(hit.id())), "Query \"" + query + "\"");
+        }
+    }
+
+    @Test
+    void carryOverKeepsTheChangesMadeDuringTheBuild() {
+        List<InvertedIndex.Document> documents = new ArrayList<>(List.of(
+                new InvertedIndex.Document(1, 0, "Dune", "Frank Herbert"),
+                new InvertedIndex.Document(2, 0, "Emma", "Jane Austen")));
+        InvertedIndex previous = build(documents);
+        // Read by the next build.
+        previous.update(new InvertedIndex.Document(3, 0, "Dune Messiah", "Frank Herbert"));
+        documents.add(new InvertedIndex.Document(3, 0, "Dune Messiah", "Frank Herbert"));
+        long after = previous.sequence();
+        // Made during the next build, which does not read them.
+        previous.remove(1);
+        previous.update(new InvertedIndex.Document(4, 0, "Children of Dune", "Frank Herbert"));
+
+        InvertedIndex next = build(documents);
+        next.carryOver(previous, after);
+
+        assertEquals(2, next.changes());
+        assertEquals(Set.of(3L, 4L), ids(next.search("dune", -1, 10, 100)));
+        assertEquals(ids(previous.search("dune", -1, 10, 100)), ids(next.search("dune", -1, 10, 100)));
+    }
+
+    /**
+     * Generates a catalog with Zipf distributed title and author words.
+     *
+     * @param random the random generator
+     * @return the documents, by increasing id
+     */
+    private static List<InvertedIndex.Document> catalog(SplittableRandom random) {
+        List<InvertedIndex.Document> documents = new ArrayList<>(DOCUMENTS);
+        StringBuilder title = new StringBuilder();
+        for (int id = 0; id < DOCUMENTS; id++) {
+            title.setLength(0);
+            for (int words = 1 + random.nextInt(6); words > 0; words--) {
+                title.append(title.isEmpty() ? "" : " ").append("w").append(zipf(random, WORDS));
+            }
+            String author = "a" + zipf(random, AUTHORS) + " a" + zipf(random, AUTHORS);
+            documents.add(new InvertedIndex.Document(id, random.nextInt(CATEGORIES), title.toString(), author));
+        }
+        return documents;
+    }
+
+    /**
+     * Indexes documents, the titles weighing three times the authors.
+     *
+     * @param documents the documents, by increasing id
+     * @return the index
+     */
+    private static InvertedIndex build(List<InvertedIndex.Document> documents) {
+        InvertedIndex.Builder builder = new InvertedIndex.Builder(1.2f, 0.75f, 3, 1);
+        documents.forEach(builder::add);
+        return builder.build();
+    }
+
+    /**
+     * Generates a query of one to four words, common or rare, of the titles or authors.
+     *
+     * @param random the random generator
+     * @return the query
+     */
+    private static String query(SplittableRandom random) {
+        StringBuilder query = new StringBuilder();
+        for (int words = 1 + random.nextInt(4); words > 0; words--) {
+            query.append(query.isEmpty() ? "" : " ");
+            switch (random.nextInt(3)) {
+                case 0 -> query.append("w").append(1 + random.nextInt(5));
+                case 1 -> query.append("w").append(zipf(random, WORDS));
+                default -> query.append("a").append(zipf(random, AUTHORS));
+            }
+        }
+        return query.toString();
+    }
+
+    /**
+     * Finds the documents containing any word of a query, by reading all of them.
+     *
+     * @param documents the documents
+     * @param query     the query
+     * @param category  the category of the documents, or -1 for all the documents
+     * @return the ids of the documents
+     */
+    private static Set<Long> matching(List<InvertedIndex.Document> documents, String query, int category) {
+        Set<String> words = new HashSet<>(TextAnalyzer.tokenize(query));
+        Set<Long> ids = new HashSet<>();
+        for (InvertedIndex.Document document : documents) {
+            if (category >= 0 && document.category() != category) {
+                continue;
+            }
+            for (String field : document.fields()) {
+                if (TextAnalyzer.tokenize(field).stream().anyMatch(words::contains)) {
+                    ids.add(document.id());
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Gets the ids of the documents found.
+     *
+     * @param result the result of a search
+     * @return the ids
+     */
+    private static Set<Long> ids(InvertedIndex.Result result) {
+        Set<Long> ids = new HashSet<>();
+        result.hits().forEach(hit -> ids.add(hit.id()));
+        return ids;
+    }
+
+    /**
+     * Draws a rank from an approximate Zipf distribution of exponent 1.
+     *
+     * @param random the random generator
+     * @param n      the number of ranks
+     * @return the rank, from 1 to n
+     */
+    private static int zipf(SplittableRandom random, int n) {
+        return (int) Math.min(n, Math.floor(Math.exp(random.nextDouble() * Math.log(n + 1))));
+    }
+}
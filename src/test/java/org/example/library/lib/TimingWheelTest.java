@@ -0,0 +1,168 @@
+package org.example.library.lib;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that the timeouts of the timing wheel expire on the first tick at or after their deadline, across the
+ * cascades between the wheels, and that a cancelled timeout never expires.
+ */
+class TimingWheelTest {
+    /**
+     * The longest delay of the wheels of the tests in ticks of 1 ms, which needs four wheels.
+     */
+    private static final long MAX_DELAY = 1_000_000;
+
+    @Test
+    void expiresOnTheFirstTickAtOrAfterTheDeadline() {
+        TimingWheel<String> wheel = new TimingWheel<>(10, 1000, 0);
+        wheel.schedule("a", 25);
+        wheel.schedule("b", 30);
+        assertEquals(2, wheel.size());
+
+        assertEquals(List.of(), wheel.advance(29));
+        assertEquals(List.of("a", "b"), wheel.advance(30));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void expiresAPassedDeadlineOnTheNextTick() {
+        TimingWheel<String> wheel = new TimingWheel<>(1, MAX_DELAY, 1000);
+        wheel.schedule("late", 500);
+
+        assertEquals(List.of(), wheel.advance(1000));
+        assertEquals(List.of("late"), wheel.advance(1001));
+    }
+
+    @Test
+    void returnsTheExpiredValuesByDeadline() {
+        TimingWheel<Integer> wheel = new TimingWheel<>(1, MAX_DELAY, 0);
+        for (int deadline : new int[]{5000, 3, 64, 4096, 63, 65}) {
+            wheel.schedule(deadline, deadline);
+        }
+
+        assertEquals(List.of(3, 63, 64, 65, 4096, 5000), wheel.advance(10_000));
+    }
+
+    @Test
+    void expiresOnTheDeadlineAroundTheBoundariesOfTheWheels() {
+        // Started on, just after and just before the revolutions of the first and second wheels.
+        for (long start : new long[]{0, 1, 40, 63, 4095, 4096, 4097}) {
+            TimingWheel<Long> wheel = new TimingWheel<>(1, MAX_DELAY, start);
+            List<Long> deadlines = new ArrayList<>();
+            for (long delay : new long[]{1, 2, 62, 63, 64, 65, 127, 128, 129, 4031, 4095, 4096, 4097, 8191, 8192, 262143, 262144, 262145}) {
+                deadlines.add(start + delay);
+                wheel.schedule(start + delay, start + delay);
+            }
+
+            Map<Long, Long> expiries = this.advanceTickByTick(wheel, start, start + 262145);
+            for (long deadline : deadlines) {
+                assertEquals(deadline, expiries.get(deadline), "Deadline " + deadline + " from " + start);
+            }
+            assertEquals(0, wheel.size());
+        }
+    }
+
+    @Test
+    void expiresOnTheDeadlineWhenAdvancedByJumps() {
+        SplittableRandom random = new SplittableRandom(42);
+        TimingWheel<Long> wheel = new TimingWheel<>(1, MAX_DELAY, 0);
+        for (int i = 0; i < 10_000; i++) {
+            long deadline = 1 + random.nextLong(300_000);
+            wheel.schedule(deadline, deadline);
+        }
+
+        long now = 0;
+        while (wheel.size() > 0) {
+            long next = now + 1 + random.nextLong(5000);
+            for (long deadline : wheel.advance(next)) {
+                // Expired by the advance whose range contains the deadline.
+                assertTrue(deadline > now && deadline <= next, "Deadline " + deadline + " expired at " + next);
+            }
+            now = next;
+        }
+    }
+
+    @Test
+    void cancelledTimeoutNeverExpires() {
+        TimingWheel<String> wheel = new TimingWheel<>(1, MAX_DELAY, 0);
+        TimingWheel.Timeout<String> cancelled = wheel.schedule("cancelled", 10);
+        wheel.schedule("kept", 10);
+
+        assertTrue(wheel.cancel(cancelled));
+        assertFalse(wheel.cancel(cancelled));
+        assertEquals(1, wheel.size());
+        assertEquals(List.of("kept"), wheel.advance(10));
+    }
+
+    @Test
+    void cancelAfterExpiryFails() {
+        TimingWheel<String> wheel = new TimingWheel<>(1, MAX_DELAY, 0);
+        TimingWheel.Timeout<String> timeout = wheel.schedule("a", 10);
+
+        assertEquals(List.of("a"), wheel.advance(10));
+        assertFalse(wheel.cancel(timeout));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void cancelAfterACascade() {
+        TimingWheel<String> wheel = new TimingWheel<>(1, MAX_DELAY, 0);
+        // In the second and third wheels, moved down to the first one at the ticks 64 and 4096.
+        TimingWheel.Timeout<String> second = wheel.schedule("second", 100);
+        TimingWheel.Timeout<String> third = wheel.schedule("third", 4100);
+        wheel.schedule("kept", 4100);
+
+        assertEquals(List.of(), wheel.advance(64));
+        assertTrue(wheel.cancel(second));
+        assertEquals(List.of(), wheel.advance(4096));
+        assertTrue(wheel.cancel(third));
+        assertEquals(1, wheel.size());
+        assertEquals(List.of("kept"), wheel.advance(5000));
+    }
+
+    @Test
+    void bringsTheDeadlinesBeyondTheWheelsBackToTheirLastTick() {
+        // Two wheels of 64 slots cover 4096 ticks.
+        TimingWheel<String> wheel = new TimingWheel<>(1, 100, 0);
+        wheel.schedule("far", 1_000_000);
+
+        assertEquals(List.of(), wheel.advance(4094));
+        assertEquals(List.of("far"), wheel.advance(4095));
+    }
+
+    @Test
+    void bringsTheDeadlinesBeyondTheWheelsBackFromTheCurrentTick() {
+        TimingWheel<String> wheel = new TimingWheel<>(1, 100, 0);
+        assertEquals(List.of(), wheel.advance(1000));
+        wheel.schedule("far", 1_000_000);
+
+        assertEquals(List.of(), wheel.advance(5094));
+        assertEquals(List.of("far"), wheel.advance(5095));
+    }
+
+    /**
+     * Advances a wheel one tick at a time, recording the tick each value expires on.
+     *
+     * @param wheel the wheel, with ticks of 1 ms
+     * @param from  the current tick of the wheel
+     * @param to    the last tick to advance to
+     * @return the tick of expiry by value
+     */
+    private Map<Long, Long> advanceTickByTick(TimingWheel<Long> wheel, long from, long to) {
+        Map<Long, Long> expiries = new HashMap<>();
+        for (long now = from + 1; now <= to; now++) {
+            for (long value : wheel.advance(now)) {
+                assertNull(expiries.put(value, now), "Expired twice: " + value);
+            }
+        }
+        return expiries;
+    }
+}
@@ -0,0 +1,236 @@
+package org.example.library.service;
+
+import org.example.library.dto.TransferRequestDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs opposing transfers of the same books between two locations concurrently, which deadlock unless the book
+ * copies are locked in the same order by every transfer. Half of the books have no book copy at the second location
+ * yet, which the first transfers create.
+ * <p>
+ * Runs in the schema of the test profile, on locations and books of its own.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class BookCopyTransferStressTest {
+    /**
+     * The number of threads sending transfers.
+     */
+    private static final int THREADS = 8;
+
+    /**
+     * The number of transfers sent by each thread.
+     */
+    private static final int TRANSFERS = 50;
+
+    /**
+     * The number of books transferred.
+     */
+    private static final int BOOKS = 4;
+
+    /**
+     * The initial quantity of the book copies in stock.
+     */
+    private static final int STOCK = 20;
+
+    @Autowired
+    private BookCopyService bookCopyService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * The manager of the locations.
+     */
+    private long managerId;
+
+    /**
+     * The location with every book in stock.
+     */
+    private long locationA;
+
+    /**
+     * The location with half of the books in stock, and no book copy of the others.
+     */
+    private long locationB;
+
+    /**
+     * The books transferred.
+     */
+    private final List<Long> bookIds = new ArrayList<>();
+
+    @BeforeEach
+    void createFixtures() {
+        String run = Long.toString(System.nanoTime());
+        this.managerId = this.jdbcTemplate.queryForObject("INSERT INTO users (username, email, password) VALUES (?, ?, ?) RETURNING id",
+                Long.class, "stress-" + run, "stress-" + run + "@example.org", "-");
+        this.locationA = this.createLocation("Stress A " + run);
+        this.locationB = this.createLocation("Stress B " + run);
+        for (int i = 0; i < BOOKS; i++) {
+            String isbn = isbn13(System.nanoTime() % 1_000_000_000L);
+            long bookId = this.jdbcTemplate.queryForObject("INSERT INTO books (title, author, genre, isbn, isbn13, publication_date) " +
+                    "VALUES (?, 'Stress', 'FICTION', ?, ?::BIGINT, CURRENT_DATE) RETURNING id", Long.class, "Stress " + run + " " + i, isbn, isbn);
+            this.bookIds.add(bookId);
+            this.createBookCopy(this.locationA, bookId);
+            if (i % 2 == 0) {
+                this.createBookCopy(this.locationB, bookId);
+            }
+        }
+    }
+
+    @AfterEach
+    void deleteFixtures() {
+        for (Long bookId : this.bookIds) {
+            this.jdbcTemplate.update("DELETE FROM inventory_movements WHERE book_id = ?", bookId);
+            this.jdbcTemplate.update("DELETE FROM book_copies WHERE book_id = ?", bookId);
+            this.jdbcTemplate.update("DELETE FROM books WHERE id = ?", bookId);
+        }
+        this.jdbcTemplate.update("DELETE FROM locations WHERE id IN (?, ?)", this.locationA, this.locationB);
+        this.jdbcTemplate.update("DELETE FROM users WHERE id = ?", this.managerId);
+    }
+
+    @Test
+    void opposingTransfersNeitherDeadlockNorLoseCopies() throws Exception {
+        Map<Long, Integer> initialA = this.quantities(this.locationA);
+        Map<Long, Integer> initialB = this.quantities(this.locationB);
+
+        AtomicInteger transferred = new AtomicInteger();
+        AtomicInteger insufficient = new AtomicInteger();
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        for (int thread = 0; thread < THREADS; thread++) {
+            // Half of the threads send copies one way, the other half the other way.
+            long from = thread % 2 == 0 ? this.locationA : this.locationB;
+            long to = thread % 2 == 0 ? this.locationB : this.locationA;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < TRANSFERS; i++) {
+                        // The items in a random order, the locks must not follow it.
+                        List<Long> shuffled = new ArrayList<>(this.bookIds);
+                        Collections.shuffle(shuffled);
+                        List<TransferRequestDTO.Item> items = shuffled.stream()
+                                .map(bookId -> new TransferRequestDTO.Item(bookId, ThreadLocalRandom.current().nextInt(1, 3)))
+                                .toList();
+                        try {
+                            this.bookCopyService.transferBookCopies(from, new TransferRequestDTO(to, items));
+                            transferred.incrementAndGet();
+                        } catch (BookCopyService.InsufficientCopiesException e) {
+                            insufficient.incrementAndGet();
+                        }
+                    }
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(2, TimeUnit.MINUTES), "The transfers did not finish");
+
+        Map<Long, Integer> finalA = this.quantities(this.locationA);
+        Map<Long, Integer> finalB = this.quantities(this.locationB);
+        assertTrue(failures.isEmpty(), () -> "The transfers failed: " + failures);
+        assertEquals(THREADS * TRANSFERS, transferred.get() + insufficient.get());
+        assertTrue(transferred.get() > 0, "No transfer went through");
+        for (Long bookId : this.bookIds) {
+            assertEquals(initialA.get(bookId) + initialB.get(bookId), finalA.get(bookId) + finalB.get(bookId),
+                    "The copies of book " + bookId + " are not conserved");
+            assertTrue(finalA.get(bookId) >= 0 && finalB.get(bookId) >= 0, "The quantity of book " + bookId + " is negative");
+        }
+        // Every transfer recorded its movements.
+        assertEquals(finalA, this.ledger(this.locationA));
+        assertEquals(finalB, this.ledger(this.locationB));
+    }
+
+    /**
+     * Creates a location managed by the manager of the test.
+     *
+     * @param name the name of the location
+     * @return the id of the location
+     */
+    private long createLocation(String name) {
+        return this.jdbcTemplate.queryForObject("INSERT INTO locations (name, address, manager_id) VALUES (?, 'Stress', ?) RETURNING id",
+                Long.class, name, this.managerId);
+    }
+
+    /**
+     * Creates a book copy in stock, with the opening balance of its ledger.
+     *
+     * @param locationId the id of the location
+     * @param bookId     the id of the book
+     */
+    private void createBookCopy(long locationId, long bookId) {
+        this.jdbcTemplate.update("INSERT INTO book_copies (book_id, location_id, quantity) VALUES (?, ?, ?)", bookId, locationId, STOCK);
+        this.jdbcTemplate.update("INSERT INTO inventory_movements (location_id, book_id, delta, type, actor, movement_date) " +
+                "VALUES (?, ?, ?, 'OPENING', 'system', now())", locationId, bookId, STOCK);
+    }
+
+    /**
+     * Reads the quantities of the books at a location, 0 for the books without a book copy.
+     *
+     * @param locationId the id of the location
+     * @return the quantities by book
+     */
+    private Map<Long, Integer> quantities(long locationId) {
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (Long bookId : this.bookIds) {
+            quantities.put(bookId, this.jdbcTemplate.queryForObject(
+                    "SELECT COALESCE(SUM(quantity), 0) FROM book_copies WHERE location_id = ? AND book_id = ?", Integer.class, locationId, bookId));
+        }
+        return quantities;
+    }
+
+    /**
+     * Adds up the movements of the books at a location.
+     *
+     * @param locationId the id of the location
+     * @return the sum of the movements by book
+     */
+    private Map<Long, Integer> ledger(long locationId) {
+        Map<Long, Integer> sums = new HashMap<>();
+        for (Long bookId : this.bookIds) {
+            sums.put(bookId, this.jdbcTemplate.queryForObject(
+                    "SELECT COALESCE(SUM(delta), 0) FROM inventory_movements WHERE location_id = ? AND book_id = ?", Integer.class, locationId, bookId));
+        }
+        return sums;
+    }
+
+    /**
+     * Makes an ISBN-13 with the 979 prefix and a valid check digit.
+     *
+     * @param number the 9 digits after the prefix
+     * @return the ISBN-13
+     */
+    private static String isbn13(long number) {
+        String digits = "979" + String.format("%09d", number);
+        int sum = 0;
+        for (int i = 0; i < digits.length(); i++) {
+            sum += (digits.charAt(i) - '0') * (i % 2 == 0 ? 1 : 3);
+        }
+        return digits + (10 - sum % 10) % 10;
+    }
+}
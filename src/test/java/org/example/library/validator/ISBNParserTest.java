@@ -0,0 +1,91 @@
+package org.example.library.validator;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the keys the ISBNs are parsed into: the same for the ISBN-10 and the ISBN-13 of a book whatever their
+ * formatting, and {@link ISBNParser#INVALID} for a wrong check digit, prefix or length.
+ */
+class ISBNParserTest {
+    @Test
+    void parsesAnIsbn10IntoItsIsbn13() {
+        assertEquals(9780306406157L, ISBNParser.parse("0306406152"));
+        assertEquals(9780132350884L, ISBNParser.parse("0132350882"));
+    }
+
+    @Test
+    void rejectsAnIsbn10WithAWrongCheckDigit() {
+        assertEquals(ISBNParser.INVALID, ISBNParser.parse("0306406153"));
+        assertEquals(ISBNParser.INVALID, ISBNParser.parse("030640615X"));
+    }
+
+    @Test
+    void parsesTheCheckCharacterXOfAnIsbn10() {
+        assertEquals(9780804429573L, ISBNParser.parse("080442957X"));
+        assertEquals(9780804429573L, ISBNParser.parse("080442957x"));
+    }
+
+    @Test
+    void rejectsTheCharacterXElsewhere() {
+        assertEquals(ISBNParser.INVALID, ISBNParser.parse("X80442957X"));
+        assertEquals(ISBNParser.INVALID, ISBNParser.parse("08044295X7"));
+        // After the check character, and as the check character of an ISBN-13.
+        assertEquals(ISBNParser.INVALID, ISBNParser.parse("080442957X0"));
+        assertEquals(ISBNParser.INVALID, ISBNParser.parse("978013235088X"));
+    }
+
+    @Test
+    void parsesAnIsbn13WithThePrefixesOfTheBooks() {
+        assertEquals(9780306406157L, ISBNParser.parse("9780306406157"));
+        assertEquals(9791090636071L, ISBNParser.parse("9791090636071"));
+    }
+
+    @Test
+    void rejectsAnIsbn13WithAWrongCheckDigit() {
+        assertEquals(ISBNParser.INVALID, ISBNParser.parse("9780306406158"));
+        assertEquals(ISBNParser.INVALID, ISBNParser.parse("9791090636072"));
+    }
+
+    @Test
+    void rejectsAnIsbn13WithAnotherPrefix() {
+        // A valid check digit, but the 977 prefix of the serials.
+        assertEquals(ISBNParser.INVALID, ISBNParser.parse("9771234567003"));
+    }
+
+    @Test
+    void rejectsTheOtherLengths() {
+        assertEquals(ISBNParser.INVALID, ISBNParser.parse(""));
+        assertEquals(ISBNParser.INVALID, ISBNParser.parse("030640615"));
+        assertEquals(ISBNParser.INVALID, ISBNParser.parse("03064061520"));
+        assertEquals(ISBNParser.INVALID, ISBNParser.parse("97803064061570"));
+    }
+
+    @Test
+    void skipsTheFormattingCharacters() {
+        assertEquals(9780306406157L, ISBNParser.parse("978-0-306-40615-7"));
+        assertEquals(9780306406157L, ISBNParser.parse("ISBN 978 0 306 40615 7"));
+        assertEquals(9780306406157L, ISBNParser.parse("ISBN: 0-306-40615-2"));
+        assertEquals(9780804429573L, ISBNParser.parse("0-8044-2957-X"));
+    }
+
+    @Test
+    void givesTheSameKeyToTheIsbn10AndIsbn13OfABook() {
+        assertEquals(ISBNParser.parse("978-0-13-235088-4"), ISBNParser.parse("0-13-235088-2"));
+        assertEquals(ISBNParser.parse("9780804429573"), ISBNParser.parse("0-8044-2957-X"));
+    }
+
+    @Test
+    void acceptsOnlyTheTypeAsked() {
+        assertEquals(ISBNParser.INVALID, ISBNParser.parse("0306406152", ISBN.Type.ISBN_13));
+        assertEquals(ISBNParser.INVALID, ISBNParser.parse("9780306406157", ISBN.Type.ISBN_10));
+        assertEquals(9780306406157L, ISBNParser.parse("0306406152", ISBN.Type.ISBN_10));
+        assertEquals(9780306406157L, ISBNParser.parse("9780306406157", ISBN.Type.ISBN_13));
+    }
+
+    @Test
+    void formatsTheKeyAsTheIsbn13() {
+        assertEquals("9780306406157", ISBNParser.format(ISBNParser.parse("0-306-40615-2")));
+    }
+}